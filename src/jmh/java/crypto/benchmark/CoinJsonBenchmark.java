@@ -0,0 +1,130 @@
+package crypto.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sam.coin.domain.model.Coin;
+import crypto.processor.CoinDataProcessor;
+import crypto.processor.JsonProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the JSON parse and serialize hot paths.
+ * The /coins/{id} fixtures are representative CoinGecko responses for Bitcoin; the catalog fixture is
+ * the coin list shipped in src/main/resources. Run with the jmh profile, which adds the GC profiler so
+ * every benchmark also reports its allocation per operation:
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CoinJsonBenchmark {
+	private static final LocalDate HISTORY_DATE = LocalDate.of(2024, 3, 14);
+
+	private JsonProcessor jsonProcessor;
+	private CoinDataProcessor coinDataProcessor;
+	private ObjectMapper objectMapper;
+	private String coinResponse;
+	private byte[] coinResponseBytes;
+	private JsonNode coinNode;
+	private String historyResponse;
+	private byte[] historyResponseBytes;
+	private String catalog;
+	private Coin coin;
+
+	@Setup
+	public void setUp() throws IOException {
+		objectMapper = new ObjectMapper();
+		jsonProcessor = new JsonProcessor(objectMapper);
+		coinDataProcessor = new CoinDataProcessor();
+		coinResponse = resource("/fixtures/coins-bitcoin.json");
+		coinResponseBytes = coinResponse.getBytes(StandardCharsets.UTF_8);
+		coinNode = jsonProcessor.parseJson(coinResponse);
+		historyResponse = resource("/fixtures/coins-bitcoin-history.json");
+		historyResponseBytes = historyResponse.getBytes(StandardCharsets.UTF_8);
+		catalog = resource("/coingecko.json");
+		coin = coinDataProcessor.parseCoinData(historyResponse, "bitcoin", HISTORY_DATE);
+	}
+
+	@Benchmark
+	public JsonNode parseJsonCoin() throws IOException {
+		return jsonProcessor.parseJson(coinResponse);
+	}
+
+	@Benchmark
+	public JsonNode parseJsonCatalog() throws IOException {
+		return jsonProcessor.parseJson(catalog);
+	}
+
+	@Benchmark
+	public Coin createCoinFromJsonNode() {
+		return coinDataProcessor.createCoinFromJsonNode("bitcoin", coinNode);
+	}
+
+	@Benchmark
+	public Coin parseAndCreateCoin() throws IOException {
+		return coinDataProcessor.createCoinFromJsonNode("bitcoin", jsonProcessor.parseJson(coinResponse));
+	}
+
+	@Benchmark
+	public Coin parseCoinStream() throws IOException {
+		return coinDataProcessor.parseCoinStream(new ByteArrayInputStream(coinResponseBytes), "bitcoin", null);
+	}
+
+	@Benchmark
+	public Coin parseCoinData() throws IOException {
+		return coinDataProcessor.parseCoinData(historyResponse, "bitcoin", HISTORY_DATE);
+	}
+
+	@Benchmark
+	public Coin parseHistoryStream() throws IOException {
+		return coinDataProcessor.parseCoinStream(new ByteArrayInputStream(historyResponseBytes), "bitcoin", HISTORY_DATE);
+	}
+
+	@Benchmark
+	public String serializeCoin() throws IOException {
+		return objectMapper.writeValueAsString(coin);
+	}
+
+	/**
+	 * Serializes a coin like BackendService.sendCoinDataToBackend: once compact for the request and once pretty-printed for the log.
+	 */
+	@Benchmark
+	public int serializeCoinForBackend() throws IOException {
+		String json = objectMapper.writeValueAsString(coin);
+		String prettyJson = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(coin);
+		return json.length() + prettyJson.length();
+	}
+
+	private static String resource(String name) {
+		try (InputStream in = CoinJsonBenchmark.class.getResourceAsStream(name)) {
+			if (in == null) {
+				throw new IllegalStateException("Missing benchmark fixture " + name);
+			}
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -1,29 +1,73 @@
 package crypto;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sam.coin.domain.model.Coin;
+import crypto.config.CoinCatalog;
 import crypto.config.CryptoConfig;
 import crypto.config.CryptoId;
+import crypto.config.ShardAssignment;
+import crypto.metrics.MetricsExporter;
+import crypto.metrics.MetricsRegistry;
 import crypto.processor.CoinDataProcessor;
 import crypto.processor.JsonProcessor;
+import crypto.processor.PortfolioFilter;
+import crypto.service.AsyncCoinGeckoService;
 import crypto.service.BackendService;
+import crypto.service.BatchingCoinSink;
+import crypto.service.CachingCryptoDataSource;
 import crypto.service.CoinGeckoService;
+import crypto.service.CoinOutbox;
+import crypto.service.OutboxReplayer;
+import crypto.service.api.ArchivedDataSource;
+import crypto.service.api.AsyncCryptoDataSource;
 import crypto.service.api.CryptoDataSource;
+import crypto.util.AdaptiveRateLimiter;
+import crypto.util.CheckpointStore;
+import crypto.util.CircuitBreakers;
+import crypto.util.ConcurrentTasks;
+import crypto.util.HistoryArchive;
 import crypto.util.HttpClientWrapper;
+import crypto.util.PipelineStage;
 import crypto.util.RateLimiter;
+import crypto.util.SharedFileRateLimiter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.management.JMException;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Main class for orchestrating cryptocurrency data updates and processing.
  */
 public class CryptoClient {
 	private static final Logger LOG = LoggerFactory.getLogger(CryptoClient.class);
+	private static final int CHECKPOINT_CAPACITY = 1024;
 	private final CryptoConfig config;
 	private final CryptoDataSource dataSource;
 	private final BackendService backendService;
+	private final CheckpointStore checkpointStore;
+	private final ShardAssignment shard;
 
 	/**
 	 * Constructor for CryptoClient.
@@ -33,9 +77,25 @@ public class CryptoClient {
 	 * @param backendService Service for interacting with the backend
 	 */
 	public CryptoClient(CryptoConfig config, CryptoDataSource dataSource, BackendService backendService) {
+		this(config, dataSource, backendService, null);
+	}
+
+	/**
+	 * Constructor for CryptoClient with a local checkpoint store.
+	 * Historical updates record every date delivered to the backend in the store and resume from it,
+	 * asking the backend only for coins the store knows nothing about.
+	 *
+	 * @param config Configuration for the client
+	 * @param dataSource Source for cryptocurrency data
+	 * @param backendService Service for interacting with the backend
+	 * @param checkpointStore Store of the last delivered date per coin, or null to always ask the backend
+	 */
+	public CryptoClient(CryptoConfig config, CryptoDataSource dataSource, BackendService backendService, CheckpointStore checkpointStore) {
 		this.config = config;
 		this.dataSource = dataSource;
 		this.backendService = backendService;
+		this.checkpointStore = checkpointStore;
+		this.shard = ShardAssignment.fromConfig(config);
 	}
 
 	/**
@@ -45,7 +105,11 @@ public class CryptoClient {
 	 */
 	public void updateCurrentData() throws Exception {
 		LOG.info("Starting to update current crypto data for all supported cryptocurrencies");
-		dataSource.fetchAndSendCurrentData(config.getAllCryptoIds(), backendService::sendCoinDataToBackend);
+		if (dataSource instanceof AsyncCryptoDataSource) {
+			await(((AsyncCryptoDataSource) dataSource).fetchAndSendCurrentDataAsync(getCryptoIds(), backendService::sendCoinDataToBackendAsync));
+		} else {
+			withBackendSink(false, sink -> dataSource.fetchAndSendCurrentData(getCryptoIds(), sink));
+		}
 		LOG.info("Successfully updated current crypto data for all supported cryptocurrencies");
 	}
 
@@ -57,7 +121,7 @@ public class CryptoClient {
 	 */
 	public void updateCurrentData(CryptoId cryptoId) throws Exception {
 		LOG.info("Starting to update current crypto data for {}", cryptoId);
-		dataSource.fetchAndSendCurrentData(cryptoId, backendService::sendCoinDataToBackend);
+		withBackendSink(false, sink -> dataSource.fetchAndSendCurrentData(cryptoId, sink));
 		LOG.info("Successfully updated current crypto data for {}", cryptoId);
 	}
 
@@ -68,7 +132,12 @@ public class CryptoClient {
 	 */
 	public void updateHistoricalData() throws Exception {
 		LOG.info("Starting to update historical crypto data for all supported cryptocurrencies");
-		dataSource.fetchAndSendHistoricalData(config.getAllCryptoIds(), backendService.getLastValidDatesFromBackend(), backendService::sendCoinDataToBackend);
+		Map<String, Date> lastValidDates = getLastValidDates(getCryptoIds());
+		if (dataSource instanceof AsyncCryptoDataSource) {
+			await(((AsyncCryptoDataSource) dataSource).fetchAndSendHistoricalDataAsync(getCryptoIds(), lastValidDates, this::sendHistoricalDataAsync));
+		} else {
+			withBackendSink(true, sink -> dataSource.fetchAndSendHistoricalData(getCryptoIds(), lastValidDates, sink));
+		}
 		LOG.info("Successfully updated historical crypto data for all supported cryptocurrencies");
 	}
 
@@ -80,8 +149,9 @@ public class CryptoClient {
 	 */
 	public void updateHistoricalData(CryptoId cryptoId) throws Exception {
 		LOG.info("Starting to update historical crypto data for {}", cryptoId);
-		Date lastValidDate = backendService.getLastValidDateFromBackend(cryptoId.getId());
-		dataSource.fetchAndSendHistoricalData(cryptoId, lastValidDate, backendService::sendCoinDataToBackend);
+		Optional<LocalDate> checkpoint = checkpointStore != null ? checkpointStore.getLastDelivered(cryptoId.getId()) : Optional.empty();
+		Date lastValidDate = checkpoint.isPresent() ? toDate(checkpoint.get()) : backendService.getLastValidDateFromBackend(cryptoId.getId());
+		withBackendSink(true, sink -> dataSource.fetchAndSendHistoricalData(cryptoId, lastValidDate, sink));
 		LOG.info("Successfully updated historical crypto data for {}", cryptoId);
 	}
 
@@ -93,7 +163,11 @@ public class CryptoClient {
 	 */
 	public void fetchAllHistoricalData(int timeFrame) throws Exception {
 		LOG.info("Starting to fetch all historical data for the last {} days for all supported cryptocurrencies", timeFrame);
-		dataSource.fetchAndSendAllHistoricalData(config.getAllCryptoIds(), timeFrame, backendService::sendCoinDataToBackend);
+		if (dataSource instanceof AsyncCryptoDataSource) {
+			await(((AsyncCryptoDataSource) dataSource).fetchAndSendAllHistoricalDataAsync(getCryptoIds(), timeFrame, this::sendHistoricalDataAsync));
+		} else {
+			withBackendSink(true, sink -> dataSource.fetchAndSendAllHistoricalData(getCryptoIds(), timeFrame, sink));
+		}
 		LOG.info("Successfully fetched all historical data for all supported cryptocurrencies");
 	}
 
@@ -106,29 +180,390 @@ public class CryptoClient {
 	 */
 	public void fetchAllHistoricalData(CryptoId cryptoId, int timeFrame) throws Exception {
 		LOG.info("Starting to fetch all historical data for the last {} days for {}", timeFrame, cryptoId);
-		dataSource.fetchAndSendAllHistoricalData(cryptoId, timeFrame, backendService::sendCoinDataToBackend);
+		withBackendSink(true, sink -> dataSource.fetchAndSendAllHistoricalData(cryptoId, timeFrame, sink));
 		LOG.info("Successfully fetched all historical data for {}", cryptoId);
 	}
 
+	/**
+	 * Rebuilds the historical data of all cryptocurrencies from the archived responses and sends it to the backend.
+	 * No request is made to the data source's API, so this runs at the speed of the local disk.
+	 *
+	 * @throws UnsupportedOperationException if the data source does not archive its responses
+	 * @throws Exception if there's an error in reading, processing or sending the data
+	 */
+	public void reprocessArchivedHistoricalData() throws Exception {
+		if (!(dataSource instanceof ArchivedDataSource)) {
+			throw new UnsupportedOperationException("The data source does not archive historical data");
+		}
+		LOG.info("Starting to reprocess archived historical data for all supported cryptocurrencies");
+		withBackendSink(false, sink -> ((ArchivedDataSource) dataSource).reprocessArchivedHistoricalData(getCryptoIds(), sink));
+		LOG.info("Successfully reprocessed archived historical data for all supported cryptocurrencies");
+	}
+
+	/**
+	 * Gets the IDs of the cryptocurrencies this instance updates: all configured ones, or the ones assigned to
+	 * this instance if the coins are sharded across several instances.
+	 *
+	 * @return The cryptocurrency IDs
+	 */
+	private List<String> getCryptoIds() {
+		return shard.select(config.getAllCryptoIds());
+	}
+
+	/**
+	 * Runs an operation with the sink its coins are sent to the backend through.
+	 * The operation's own fetch threads form the fetch stage. With the staged pipeline enabled, they hand
+	 * each coin to a send stage with its own threads and a bounded queue, so sending overlaps fetching.
+	 * With batched backend sending enabled, coins are collected into batches before they are sent;
+	 * otherwise every coin is sent in its own request. All sinks are drained before this method returns.
+	 *
+	 * @param checkpoint Whether to record the coins the backend accepted in the checkpoint store
+	 * @param operation The operation to run
+	 * @throws Exception if the operation fails
+	 */
+	private void withBackendSink(boolean checkpoint, SinkOperation operation) throws Exception {
+		Consumer<Coin> deliveryListener = checkpoint && checkpointStore != null ? this::recordDelivered : coin -> { };
+		BatchingCoinSink batchingSink = config.isBatchBackendSend()
+				? new BatchingCoinSink(backendService, config.getBackendBatchSize(), config.getBackendBatchLingerMs(),
+						config.getBackendMaxInFlightBatches(), deliveryListener)
+				: null;
+		Consumer<Coin> backendSink = batchingSink != null ? batchingSink : coin -> {
+			if (backendService.sendCoinDataToBackend(coin)) {
+				deliveryListener.accept(coin);
+			}
+		};
+		try {
+			if (config.isStagedPipeline()) {
+				try (PipelineStage<Coin> sendStage = new PipelineStage<>("send", config.getSendThreads(), config.getPipelineQueueCapacity(), backendSink)) {
+					operation.run(sendStage);
+				}
+			} else {
+				operation.run(backendSink);
+			}
+		} finally {
+			if (batchingSink != null) {
+				batchingSink.close();
+			}
+		}
+	}
+
+	/**
+	 * Gets the last valid dates to resume historical updates from.
+	 * Without a checkpoint store, or if the store lacks any of the coins, the dates are requested from
+	 * the backend and the later of both dates is used per coin. Otherwise no backend request is needed.
+	 *
+	 * @param cryptoIds The IDs of the cryptocurrencies
+	 * @return Map of cryptocurrency IDs to their last valid dates
+	 * @throws Exception if there's an error in communication with the backend
+	 */
+	private Map<String, Date> getLastValidDates(List<String> cryptoIds) throws Exception {
+		if (checkpointStore == null) {
+			return backendService.getLastValidDatesFromBackend();
+		}
+		Map<String, LocalDate> checkpoints = checkpointStore.getAllLastDelivered();
+		if (checkpoints.keySet().containsAll(cryptoIds)) {
+			LOG.info("Resuming historical data from local checkpoints");
+			Map<String, Date> result = new HashMap<>();
+			cryptoIds.forEach(coinId -> result.put(coinId, toDate(checkpoints.get(coinId))));
+			return result;
+		}
+		Map<String, Date> result = new HashMap<>(backendService.getLastValidDatesFromBackend());
+		for (String coinId : cryptoIds) {
+			LocalDate checkpoint = checkpoints.get(coinId);
+			if (checkpoint != null && (!result.containsKey(coinId) || toDate(checkpoint).after(result.get(coinId)))) {
+				result.put(coinId, toDate(checkpoint));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Sends historical data to the backend asynchronously and records it in the checkpoint store once accepted.
+	 *
+	 * @param coin The coin to send
+	 * @return A future completed with true if the backend accepted the data, false otherwise
+	 */
+	private CompletableFuture<Boolean> sendHistoricalDataAsync(Coin coin) {
+		return backendService.sendCoinDataToBackendAsync(coin).thenApply(accepted -> {
+			if (Boolean.TRUE.equals(accepted) && checkpointStore != null) {
+				recordDelivered(coin);
+			}
+			return accepted;
+		});
+	}
+
+	/**
+	 * Records the date of a coin delivered to the backend in the checkpoint store.
+	 *
+	 * @param coin The delivered coin
+	 */
+	private void recordDelivered(Coin coin) {
+		checkpointStore.recordDelivered(coin.getCoinId(), coin.getTimestamp().toLocalDateTime().toLocalDate());
+	}
+
+	/**
+	 * Converts a date to the start of that day in the system time zone.
+	 *
+	 * @param date The date
+	 * @return The converted date
+	 */
+	private static Date toDate(LocalDate date) {
+		return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+	}
+
+	/**
+	 * An operation sending its coins to the given sink.
+	 */
+	@FunctionalInterface
+	private interface SinkOperation {
+		void run(Consumer<Coin> sink) throws Exception;
+	}
+
+	/**
+	 * Waits for an asynchronous operation to complete.
+	 *
+	 * @param operation The future of the operation
+	 * @throws Exception the exception the operation failed with
+	 */
+	private void await(CompletableFuture<?> operation) throws Exception {
+		try {
+			operation.get();
+		} catch (ExecutionException e) {
+			throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+		}
+	}
+
+	/**
+	 * Exports the global metrics registry through JMX and, if a port is given, through the scrape endpoint.
+	 * A failure to export is logged and does not stop the client.
+	 *
+	 * @param port The port of the scrape endpoint, or 0 to export through JMX only
+	 * @return The exporter
+	 */
+	private static MetricsExporter startMetricsExporter(int port) {
+		MetricsExporter exporter = new MetricsExporter(MetricsRegistry.global());
+		try {
+			exporter.registerMBean();
+		} catch (JMException e) {
+			LOG.warn("Failed to export metrics through JMX: {}", e.getMessage());
+		}
+		if (port > 0) {
+			try {
+				exporter.startHttpServer(port);
+			} catch (IOException e) {
+				LOG.warn("Failed to start the metrics endpoint on port {}: {}", port, e.getMessage());
+			}
+		}
+		return exporter;
+	}
+
+	/**
+	 * Creates the rate limiter of the CoinGecko API: one sharing its budget with the other clients on this host
+	 * if a shared rate limit file is configured, else an adaptive or fixed one of this process only.
+	 * A failure to open the shared file is logged and falls back to a limiter of this process only.
+	 *
+	 * @param config Configuration with the rate limit settings
+	 * @return The rate limiter
+	 */
+	private static RateLimiter createRateLimiter(CryptoConfig config) {
+		if (config.getSharedRateLimitFile() != null) {
+			try {
+				return new SharedFileRateLimiter(Paths.get(config.getSharedRateLimitFile()), config.getRateLimitDelay(), config.getRateLimitBurst());
+			} catch (IOException e) {
+				LOG.warn("Failed to open the shared rate limit file {}: {}", config.getSharedRateLimitFile(), e.getMessage());
+			}
+		}
+		return config.isAdaptiveRateLimit()
+				? new AdaptiveRateLimiter(config.getRateLimitDelay(), config.getMinRateLimitDelay(), config.getMaxRateLimitDelay(), config.getRateLimitBurst())
+				: new RateLimiter(config.getRateLimitDelay(), config.getRateLimitBurst());
+	}
+
+	/**
+	 * Loads the coin catalog from the resources.
+	 * A failure to load the catalog is logged and does not stop the client.
+	 *
+	 * @return The catalog, or null if it cannot be loaded
+	 */
+	private static CoinCatalog loadCoinCatalog() {
+		try {
+			long started = System.nanoTime();
+			CoinCatalog catalog = CoinCatalog.loadResources();
+			LOG.info("Loaded a catalog of {} coins in {} ms", catalog.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+			return catalog;
+		} catch (IOException e) {
+			LOG.warn("Failed to load the coin catalog: {}", e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Checks the tracked coin IDs against the coin catalog and warns about unknown ones.
+	 *
+	 * @param catalog The coin catalog
+	 * @param cryptoIds The tracked coin IDs
+	 */
+	private static void validateCryptoIds(CoinCatalog catalog, List<String> cryptoIds) {
+		List<String> unknown = catalog.findUnknown(cryptoIds);
+		LOG.info("Checked {} coin IDs against the coin catalog", cryptoIds.size());
+		if (!unknown.isEmpty()) {
+			LOG.warn("Coin IDs not in the catalog: {}", unknown);
+		}
+	}
+
+	/**
+	 * Filters the configured source catalog down to the portfolio coins and writes them to the target file.
+	 *
+	 * @param config Configuration with the source, target and portfolio files
+	 * @throws IOException if a file cannot be read, parsed or written
+	 */
+	private static void filterPortfolio(CryptoConfig config) throws IOException {
+		PortfolioFilter filter = new PortfolioFilter(new ObjectMapper());
+		Set<String> ids;
+		if (config.getPortfolioFile() != null) {
+			try (InputStream portfolio = openInput(config.getPortfolioFile())) {
+				ids = filter.readPortfolioIds(portfolio, CoinCatalog.loadResources());
+			}
+		} else {
+			ids = new LinkedHashSet<>(config.getAllCryptoIds());
+		}
+		Path target = Paths.get(config.getTargetFile());
+		int kept;
+		try (InputStream source = openInput(config.getSourceFile())) {
+			kept = filter.filter(source, ids, target);
+		}
+		LOG.info("Wrote {} portfolio coins from {} to {}", kept, config.getSourceFile(), target.toAbsolutePath());
+	}
+
+	/**
+	 * Opens an input file of the portfolio filter: the file at the given path if there is one, else the classpath resource of that name.
+	 *
+	 * @param name The path of the file or the name of the resource
+	 * @return The opened stream
+	 * @throws IOException if neither a file nor a resource of that name exists
+	 */
+	private static InputStream openInput(String name) throws IOException {
+		Path file = Paths.get(name);
+		if (Files.isRegularFile(file)) {
+			return Files.newInputStream(file);
+		}
+		InputStream resource = Thread.currentThread().getContextClassLoader().getResourceAsStream(name);
+		if (resource == null) {
+			throw new IOException("Neither a file nor a resource: " + name);
+		}
+		return resource;
+	}
+
+	/**
+	 * Runs the client as a daemon until the JVM is shut down.
+	 * The shutdown hook stops the daemon, letting a cycle in progress finish, and then waits for the caller
+	 * to release the resources shared by all cycles before the JVM exits.
+	 *
+	 * @param client The client running the updates
+	 * @param config Configuration with the daemon settings
+	 * @param released Latch counted down once the shared resources have been released
+	 * @throws InterruptedException if the thread is interrupted while the daemon runs
+	 */
+	private static void runDaemon(CryptoClient client, CryptoConfig config, CountDownLatch released) throws InterruptedException {
+		CryptoDaemon daemon = new CryptoDaemon(client, config.getDaemonCurrentIntervalMs(), config.getDaemonHistoricalIntervalMs(),
+				config.getDaemonShutdownTimeoutMs());
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			LOG.info("Shutting down...");
+			daemon.close();
+			try {
+				released.await(config.getDaemonShutdownTimeoutMs(), TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}, "crypto-shutdown"));
+		daemon.start();
+		daemon.awaitStop();
+	}
+
 	/**
 	 * Main method to run the CryptoClient.
+	 * Updates the current data once, or keeps updating on the configured intervals in daemon mode.
 	 *
 	 * @param args Command line arguments (not used)
 	 */
 	public static void main(String[] args) {
 		CryptoConfig config = new CryptoConfig();
-		HttpClient httpClient = HttpClient.newHttpClient();
-		HttpClientWrapper httpClientWrapper = new HttpClientWrapper(httpClient);
+		if (config.isFilterPortfolio()) {
+			try {
+				filterPortfolio(config);
+			} catch (IOException e) {
+				LOG.error("Failed to filter the portfolio", e);
+			}
+			return;
+		}
+		MetricsRegistry.global().setEnabled(config.isMetrics());
+		// The range mode takes the names and symbols of coins from the catalog instead of one request per coin
+		CoinCatalog coinCatalog = config.isValidateCryptoIds() || config.isHistoricalRangeMode() ? loadCoinCatalog() : null;
+		if (config.isValidateCryptoIds() && coinCatalog != null) {
+			validateCryptoIds(coinCatalog, config.getAllCryptoIds());
+		}
+		ExecutorService asyncExecutor = config.isAsyncFetch()
+				? Executors.newFixedThreadPool(config.getAsyncThreads(), ConcurrentTasks.namedDaemonThreads("crypto-async"))
+				: null;
+		HttpClient httpClient = asyncExecutor != null ? HttpClient.newBuilder().executor(asyncExecutor).build() : HttpClient.newHttpClient();
+		CircuitBreakers circuitBreakers = config.isCircuitBreaker()
+				? new CircuitBreakers(config.getCircuitBreakerFailureThreshold(), config.getCircuitBreakerOpenMs(), config.getCircuitBreakerMaxOpenMs())
+				: null;
+		HttpClientWrapper httpClientWrapper = new HttpClientWrapper(httpClient, config.getHttpCacheEntries(), circuitBreakers,
+				CoinGeckoService::isCacheableUrl);
 		JsonProcessor jsonProcessor = new JsonProcessor(new ObjectMapper());
 		CoinDataProcessor coinDataProcessor = new CoinDataProcessor();
-		RateLimiter rateLimiter = new RateLimiter(config.getRateLimitDelay());
+		RateLimiter rateLimiter = createRateLimiter(config);
 
-		CryptoDataSource dataSource = new CoinGeckoService(config, httpClientWrapper, jsonProcessor, coinDataProcessor, rateLimiter);
-		BackendService backendService = new BackendService(config.getBackendUrl(), httpClientWrapper, jsonProcessor, config.getAllCryptoIds());
-
-		CryptoClient client = new CryptoClient(config, dataSource, backendService);
+		HistoryArchive historyArchive = config.isHistoryArchive() ? new HistoryArchive(Paths.get(config.getHistoryArchiveDirectory())) : null;
+		CryptoDataSource dataSource = asyncExecutor != null
+				? new AsyncCoinGeckoService(config, httpClientWrapper, jsonProcessor, coinDataProcessor, rateLimiter, asyncExecutor, historyArchive,
+						coinCatalog)
+				: new CoinGeckoService(config, httpClientWrapper, jsonProcessor, coinDataProcessor, rateLimiter, historyArchive, coinCatalog);
+		if (asyncExecutor == null && config.getCurrentDataCacheTtlMs() > 0) {
+			dataSource = new CachingCryptoDataSource(dataSource, config.getCurrentDataCacheTtlMs(), config.getCurrentDataCacheEntries());
+		}
 
+		CheckpointStore checkpointStore = null;
+		CoinOutbox outbox = null;
+		OutboxReplayer outboxReplayer = null;
+		MetricsExporter metricsExporter = null;
+		CountDownLatch released = new CountDownLatch(1);
 		try {
+			if (config.isMetrics()) {
+				// A one-shot run ends before anything scrapes it, so only a daemon binds the scrape port
+				metricsExporter = startMetricsExporter(config.isDaemon() ? config.getMetricsPort() : 0);
+			}
+			if (config.isCheckpoints()) {
+				checkpointStore = CheckpointStore.open(Paths.get(config.getCheckpointFile()), CHECKPOINT_CAPACITY);
+			}
+			if (config.isOutbox()) {
+				outbox = CoinOutbox.open(Paths.get(config.getOutboxDirectory()), jsonProcessor.getObjectMapper(), config.getOutboxSegmentBytes());
+			}
+			ShardAssignment shard = ShardAssignment.fromConfig(config);
+			List<String> cryptoIds = shard.select(config.getAllCryptoIds());
+			if (shard.isSharded()) {
+				LOG.info("Shard {} owns {} of {} coins", shard.getNode(), cryptoIds.size(), config.getAllCryptoIds().size());
+			}
+			BackendService backendService = new BackendService(config.getBackendUrl(), httpClientWrapper, jsonProcessor, cryptoIds,
+					config.getLastValidDateConcurrency(), config.isBulkLastValidDates(), outbox);
+			if (outbox != null) {
+				outboxReplayer = new OutboxReplayer(outbox, backendService, config.getOutboxReplayIntervalMs(), config.getOutboxMaxBackoffMs());
+				outboxReplayer.start();
+			}
+			CryptoClient client = new CryptoClient(config, dataSource, backendService, checkpointStore);
+
+			if (config.isReprocessArchive()) {
+				LOG.info("Reprocessing archived historical data for all cryptocurrencies...");
+				client.reprocessArchivedHistoricalData();
+				LOG.info("Archived historical data reprocessing completed for all cryptocurrencies.");
+				return;
+			}
+
+			if (config.isDaemon()) {
+				runDaemon(client, config, released);
+				return;
+			}
+
 			LOG.info("Updating current crypto data for all cryptocurrencies...");
 			client.updateCurrentData();
 			LOG.info("Current crypto data update completed for all cryptocurrencies.");
@@ -155,6 +590,28 @@ public class CryptoClient {
 
 		} catch (Exception e) {
 			LOG.error("An error occurred", e);
+		} finally {
+			if (metricsExporter != null) {
+				metricsExporter.close();
+			}
+			if (outboxReplayer != null) {
+				outboxReplayer.close();
+			}
+			if (outbox != null) {
+				try {
+					outbox.close();
+				} catch (IOException e) {
+					LOG.error("Failed to close outbox", e);
+				}
+			}
+			if (checkpointStore != null) {
+				try {
+					checkpointStore.close();
+				} catch (IOException e) {
+					LOG.error("Failed to close checkpoint store", e);
+				}
+			}
+			released.countDown();
 		}
 	}
 }
\ No newline at end of file
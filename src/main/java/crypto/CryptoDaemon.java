@@ -0,0 +1,135 @@
+package crypto;
+
+import crypto.metrics.MetricsRegistry;
+import crypto.util.ConcurrentTasks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resident mode of the client: runs current data updates and historical catch-ups on fixed intervals
+ * instead of once per process, so the HTTP connection pool, the TLS sessions, the JSON mapper and the
+ * JIT-compiled code stay warm between cycles.
+ * <p>
+ * All cycles run one after another on a single thread, so they share the rate limiter without competing
+ * for it and a long historical catch-up delays the next current update rather than overlapping it. A failed
+ * cycle is logged and the next one runs as scheduled. The interval counts from the end of a cycle.
+ * <p>
+ * Closing the daemon schedules no further cycles and waits for a cycle in progress to finish, including the
+ * sends it has in flight, for up to the shutdown timeout; after that the cycle is interrupted.
+ * The duration of every cycle is recorded in the daemon_cycle_seconds timer of the global metrics registry.
+ */
+public class CryptoDaemon implements AutoCloseable {
+	private static final Logger LOG = LoggerFactory.getLogger(CryptoDaemon.class);
+
+	private final CryptoClient client;
+	private final long currentIntervalMs;
+	private final long historicalIntervalMs;
+	private final long shutdownTimeoutMs;
+	private final ScheduledExecutorService scheduler;
+	private final CountDownLatch stopped = new CountDownLatch(1);
+
+	/**
+	 * Constructs a new CryptoDaemon.
+	 *
+	 * @param client The client running the updates
+	 * @param currentIntervalMs The time in milliseconds between current data updates, or 0 for none
+	 * @param historicalIntervalMs The time in milliseconds between historical catch-ups, or 0 for none
+	 * @param shutdownTimeoutMs The maximum time in milliseconds to wait for a cycle in progress when closing
+	 */
+	public CryptoDaemon(CryptoClient client, long currentIntervalMs, long historicalIntervalMs, long shutdownTimeoutMs) {
+		if (currentIntervalMs < 0 || historicalIntervalMs < 0 || currentIntervalMs + historicalIntervalMs == 0 || shutdownTimeoutMs < 0) {
+			throw new IllegalArgumentException("Invalid daemon settings: current=" + currentIntervalMs + ", historical="
+					+ historicalIntervalMs + ", shutdownTimeout=" + shutdownTimeoutMs);
+		}
+		this.client = client;
+		this.currentIntervalMs = currentIntervalMs;
+		this.historicalIntervalMs = historicalIntervalMs;
+		this.shutdownTimeoutMs = shutdownTimeoutMs;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(ConcurrentTasks.namedDaemonThreads("crypto-daemon"));
+	}
+
+	/**
+	 * Starts the cycles in the background, beginning immediately with a current data update followed by a
+	 * historical catch-up.
+	 */
+	public void start() {
+		if (currentIntervalMs > 0) {
+			scheduler.scheduleWithFixedDelay(() -> runCycle("current", client::updateCurrentData), 0, currentIntervalMs, TimeUnit.MILLISECONDS);
+		}
+		if (historicalIntervalMs > 0) {
+			scheduler.scheduleWithFixedDelay(() -> runCycle("historical", client::updateHistoricalData), 0, historicalIntervalMs, TimeUnit.MILLISECONDS);
+		}
+		LOG.info("Daemon started: current data every {} ms, historical data every {} ms (0 = never)", currentIntervalMs, historicalIntervalMs);
+	}
+
+	/**
+	 * Blocks until the daemon has been closed and its last cycle has finished.
+	 *
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	public void awaitStop() throws InterruptedException {
+		stopped.await();
+	}
+
+	/**
+	 * Stops scheduling cycles and waits for a cycle in progress to finish, interrupting it after the shutdown timeout.
+	 */
+	@Override
+	public void close() {
+		scheduler.shutdown();
+		try {
+			if (!scheduler.awaitTermination(shutdownTimeoutMs, TimeUnit.MILLISECONDS)) {
+				LOG.warn("Cycle still running after {} ms, interrupting it", shutdownTimeoutMs);
+				scheduler.shutdownNow();
+				scheduler.awaitTermination(shutdownTimeoutMs, TimeUnit.MILLISECONDS);
+			}
+		} catch (InterruptedException e) {
+			scheduler.shutdownNow();
+			Thread.currentThread().interrupt();
+		} finally {
+			if (stopped.getCount() > 0) {
+				LOG.info("Daemon stopped");
+			}
+			stopped.countDown();
+		}
+	}
+
+	/**
+	 * Runs one cycle, logging instead of propagating any failure, including errors, so that the next cycle is still scheduled.
+	 *
+	 * @param name The name of the cycle, used for logging and as metrics tag
+	 * @param cycle The cycle to run
+	 */
+	private void runCycle(String name, Cycle cycle) {
+		long started = System.nanoTime();
+		String outcome = "ok";
+		try {
+			cycle.run();
+		} catch (InterruptedException e) {
+			outcome = "interrupted";
+			LOG.warn("The {} cycle was interrupted", name);
+			Thread.currentThread().interrupt();
+		} catch (Throwable e) {
+			// Errors are caught too, since a task that throws is never scheduled again and the daemon would idle silently
+			outcome = "error";
+			LOG.error("The {} cycle failed", name, e);
+		} finally {
+			long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+			MetricsRegistry.global().timer("daemon_cycle_seconds", "cycle", name, "outcome", outcome).recordSince(started);
+			LOG.info("The {} cycle took {} ms", name, elapsedMs);
+		}
+	}
+
+	/**
+	 * A cycle of updates run by the client.
+	 */
+	@FunctionalInterface
+	private interface Cycle {
+		void run() throws Exception;
+	}
+}
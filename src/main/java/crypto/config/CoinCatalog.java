@@ -0,0 +1,515 @@
+package crypto.config;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Read-only index of the coins CoinGecko knows, built from the catalog files in the resources: the CoinGecko
+ * coin list ({@value #COINGECKO_RESOURCE}, id, symbol and name) and optionally the CoinMarketCap listings
+ * ({@value #COINMARKETCAP_RESOURCE}), whose slugs are linked to the CoinGecko coin with the same id, or else
+ * with the same symbol and name. Listings without a matching CoinGecko coin are not indexed.
+ * <p>
+ * The catalog files are streamed once and never held as a tree. All strings of the index are packed into a
+ * single char array, and coins are looked up by id, slug or symbol through open-addressing hash tables of
+ * int positions into that array, so a lookup compares characters in place and allocates nothing. Ids are also
+ * kept in sorted order for prefix lookups. Symbols are matched ignoring case; ids and slugs exactly.
+ */
+public final class CoinCatalog {
+	public static final String COINGECKO_RESOURCE = "coingecko.json";
+	public static final String COINMARKETCAP_RESOURCE = "coins.json";
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+	private static final int ID = 0;
+	private static final int SYMBOL = 1;
+	private static final int NAME = 2;
+	private static final int SLUG = 3;
+	private static final int FIELDS = 4;
+
+	private final char[] chars;
+	private final int[] starts;
+	private final int[] ends;
+	private final int size;
+	private final int[] idTable;
+	private final int[] slugTable;
+	private final int[] symbolTable;
+	private final int[] nextWithSymbol;
+	private final int[] sortedById;
+
+	/**
+	 * Constructs a new CoinCatalog over packed strings.
+	 *
+	 * @param chars The characters of all strings
+	 * @param starts The start of every field of every coin in the characters, or -1 for a missing field
+	 * @param ends The end of every field of every coin in the characters
+	 * @param size The number of coins
+	 */
+	private CoinCatalog(char[] chars, int[] starts, int[] ends, int size) {
+		this.chars = chars;
+		this.starts = starts;
+		this.ends = ends;
+		this.size = size;
+		int capacity = Integer.highestOneBit(Math.max(1, size) * 2) * 2;
+		this.idTable = new int[capacity];
+		this.slugTable = new int[capacity];
+		this.symbolTable = new int[capacity];
+		this.nextWithSymbol = new int[size];
+		Integer[] order = new Integer[size];
+		for (int coin = 0; coin < size; coin++) {
+			insert(idTable, coin, ID);
+			if (starts[coin * FIELDS + SLUG] >= 0) {
+				insert(slugTable, coin, SLUG);
+			}
+			order[coin] = coin;
+		}
+		// Chain coins sharing a symbol with the later coins first, so the head of every chain is the first listed coin
+		for (int coin = size - 1; coin >= 0; coin--) {
+			int slot = slotOf(symbolTable, coin, SYMBOL, true);
+			nextWithSymbol[coin] = symbolTable[slot] - 1;
+			symbolTable[slot] = coin + 1;
+		}
+		Arrays.sort(order, (a, b) -> compare(a, ID, b, ID));
+		this.sortedById = new int[size];
+		for (int i = 0; i < size; i++) {
+			sortedById[i] = order[i];
+		}
+	}
+
+	/**
+	 * Loads the catalog from the resources {@value #COINGECKO_RESOURCE} and, if present, {@value #COINMARKETCAP_RESOURCE}.
+	 *
+	 * @return The catalog
+	 * @throws IOException if the CoinGecko coin list is missing or a catalog file cannot be parsed
+	 */
+	public static CoinCatalog loadResources() throws IOException {
+		ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+		try (InputStream coinGecko = classLoader.getResourceAsStream(COINGECKO_RESOURCE);
+			 InputStream coinMarketCap = classLoader.getResourceAsStream(COINMARKETCAP_RESOURCE)) {
+			if (coinGecko == null) {
+				throw new IOException("Resource not found: " + COINGECKO_RESOURCE);
+			}
+			return load(coinGecko, coinMarketCap);
+		}
+	}
+
+	/**
+	 * Loads the catalog from a CoinGecko coin list and optional CoinMarketCap listings.
+	 *
+	 * @param coinGecko The CoinGecko coin list, a JSON array of objects with id, symbol and name
+	 * @param coinMarketCap The CoinMarketCap listings, either a JSON array of objects with slug, symbol and name or an
+	 *                      object holding that array as data, or null for none
+	 * @return The catalog
+	 * @throws IOException if a catalog cannot be parsed
+	 */
+	public static CoinCatalog load(InputStream coinGecko, InputStream coinMarketCap) throws IOException {
+		Builder builder = new Builder();
+		try (JsonParser parser = JSON_FACTORY.createParser(coinGecko)) {
+			expect(parser, parser.nextToken(), JsonToken.START_ARRAY);
+			readObjects(parser, fields -> builder.add(fields.get("id"), fields.get("symbol"), fields.get("name")));
+		}
+		if (coinMarketCap != null) {
+			try (JsonParser parser = JSON_FACTORY.createParser(coinMarketCap)) {
+				if (parser.nextToken() == JsonToken.START_OBJECT) {
+					while (parser.nextToken() == JsonToken.FIELD_NAME && !"data".equals(parser.currentName())) {
+						parser.nextToken();
+						parser.skipChildren();
+					}
+					parser.nextToken();
+				}
+				expect(parser, parser.currentToken(), JsonToken.START_ARRAY);
+				readObjects(parser, fields -> builder.link(fields.get("slug"), fields.get("symbol"), fields.get("name")));
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Gets the number of coins in the catalog.
+	 *
+	 * @return The number of coins
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Checks whether a CoinGecko id is in the catalog.
+	 *
+	 * @param id The CoinGecko id
+	 * @return true if the catalog has a coin with that id
+	 */
+	public boolean containsId(CharSequence id) {
+		return find(idTable, ID, id, false) >= 0;
+	}
+
+	/**
+	 * Resolves a CoinGecko id, a CoinMarketCap slug or a symbol shared by no other coin to a CoinGecko id.
+	 *
+	 * @param key The id, slug or symbol
+	 * @return The CoinGecko id, or empty if the key is unknown or an ambiguous symbol
+	 */
+	public Optional<String> resolve(CharSequence key) {
+		int coin = find(idTable, ID, key, false);
+		if (coin < 0) {
+			coin = find(slugTable, SLUG, key, false);
+		}
+		if (coin < 0) {
+			coin = find(symbolTable, SYMBOL, key, true);
+			if (coin >= 0 && nextWithSymbol[coin] >= 0) {
+				return Optional.empty();
+			}
+		}
+		return coin >= 0 ? Optional.of(field(coin, ID)) : Optional.empty();
+	}
+
+	/**
+	 * Gets the symbol of a coin.
+	 *
+	 * @param id The CoinGecko id
+	 * @return The symbol, or null if the id is unknown
+	 */
+	public String getSymbol(CharSequence id) {
+		int coin = find(idTable, ID, id, false);
+		return coin >= 0 ? field(coin, SYMBOL) : null;
+	}
+
+	/**
+	 * Gets the name of a coin.
+	 *
+	 * @param id The CoinGecko id
+	 * @return The name, or null if the id is unknown
+	 */
+	public String getName(CharSequence id) {
+		int coin = find(idTable, ID, id, false);
+		return coin >= 0 ? field(coin, NAME) : null;
+	}
+
+	/**
+	 * Gets the CoinGecko ids of all coins with a symbol, in catalog order.
+	 *
+	 * @param symbol The symbol, in any case
+	 * @return The ids, empty if no coin has the symbol
+	 */
+	public List<String> findBySymbol(CharSequence symbol) {
+		List<String> ids = new ArrayList<>();
+		for (int coin = find(symbolTable, SYMBOL, symbol, true); coin >= 0; coin = nextWithSymbol[coin]) {
+			ids.add(field(coin, ID));
+		}
+		return ids;
+	}
+
+	/**
+	 * Gets the CoinGecko ids starting with a prefix, in lexicographic order.
+	 *
+	 * @param prefix The prefix
+	 * @param limit The maximum number of ids to return
+	 * @return The ids
+	 */
+	public List<String> findByPrefix(CharSequence prefix, int limit) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (compare(sortedById[middle], ID, prefix) < 0) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		List<String> ids = new ArrayList<>();
+		for (int i = low; i < size && ids.size() < limit && startsWith(sortedById[i], prefix); i++) {
+			ids.add(field(sortedById[i], ID));
+		}
+		return ids;
+	}
+
+	/**
+	 * Gets the ids that are not in the catalog.
+	 *
+	 * @param ids The CoinGecko ids to check
+	 * @return The unknown ids in the given order, empty if all are known
+	 */
+	public List<String> findUnknown(List<String> ids) {
+		List<String> unknown = new ArrayList<>();
+		for (String id : ids) {
+			if (!containsId(id)) {
+				unknown.add(id);
+			}
+		}
+		return unknown;
+	}
+
+	/**
+	 * Gets a field of a coin as a new string.
+	 *
+	 * @param coin The coin
+	 * @param field The field
+	 * @return The field value, or null if the coin lacks the field
+	 */
+	private String field(int coin, int field) {
+		int start = starts[coin * FIELDS + field];
+		return start >= 0 ? new String(chars, start, ends[coin * FIELDS + field] - start) : null;
+	}
+
+	/**
+	 * Adds a coin to a table unless a coin with the same field value is in it already.
+	 *
+	 * @param table The table
+	 * @param coin The coin
+	 * @param field The field the table is keyed by
+	 */
+	private void insert(int[] table, int coin, int field) {
+		int slot = slotOf(table, coin, field, false);
+		if (table[slot] == 0) {
+			table[slot] = coin + 1;
+		}
+	}
+
+	/**
+	 * Looks a key up in a table.
+	 *
+	 * @param table The table
+	 * @param field The field the table is keyed by
+	 * @param key The key
+	 * @param ignoreCase Whether the table is keyed ignoring case
+	 * @return The coin, or -1 if no coin has the key
+	 */
+	private int find(int[] table, int field, CharSequence key, boolean ignoreCase) {
+		int mask = table.length - 1;
+		int hash = 0;
+		for (int i = 0; i < key.length(); i++) {
+			hash = 31 * hash + (ignoreCase ? Character.toLowerCase(key.charAt(i)) : key.charAt(i));
+		}
+		for (int slot = mix(hash) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+			int coin = table[slot] - 1;
+			int start = starts[coin * FIELDS + field];
+			int length = ends[coin * FIELDS + field] - start;
+			if (length == key.length() && matches(start, key, ignoreCase)) {
+				return coin;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Gets the slot of a table holding a coin with the same field value as the given coin, or else the empty slot
+	 * where the given coin belongs.
+	 *
+	 * @param table The table
+	 * @param coin The coin
+	 * @param field The field the table is keyed by
+	 * @param ignoreCase Whether the table is keyed ignoring case
+	 * @return The slot
+	 */
+	private int slotOf(int[] table, int coin, int field, boolean ignoreCase) {
+		int start = starts[coin * FIELDS + field];
+		int end = ends[coin * FIELDS + field];
+		int mask = table.length - 1;
+		int slot = hash(start, end, ignoreCase) & mask;
+		while (table[slot] != 0 && !regionMatches(table[slot] - 1, field, start, end, ignoreCase)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private boolean matches(int start, CharSequence key, boolean ignoreCase) {
+		for (int i = 0; i < key.length(); i++) {
+			char a = chars[start + i];
+			char b = key.charAt(i);
+			if (a != b && (!ignoreCase || Character.toLowerCase(a) != Character.toLowerCase(b))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean regionMatches(int coin, int field, int start, int end, boolean ignoreCase) {
+		int own = starts[coin * FIELDS + field];
+		if (ends[coin * FIELDS + field] - own != end - start) {
+			return false;
+		}
+		for (int i = 0; i < end - start; i++) {
+			char a = chars[own + i];
+			char b = chars[start + i];
+			if (a != b && (!ignoreCase || Character.toLowerCase(a) != Character.toLowerCase(b))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean startsWith(int coin, CharSequence prefix) {
+		int start = starts[coin * FIELDS + ID];
+		return ends[coin * FIELDS + ID] - start >= prefix.length() && matches(start, prefix, false);
+	}
+
+	/**
+	 * Compares field values of two coins by their characters.
+	 *
+	 * @param a The first coin
+	 * @param fieldA The field of the first coin
+	 * @param b The second coin
+	 * @param fieldB The field of the second coin
+	 * @return A negative number, zero or a positive number if the first value is less than, equal to or greater than the second
+	 */
+	private int compare(int a, int fieldA, int b, int fieldB) {
+		int startA = starts[a * FIELDS + fieldA];
+		int startB = starts[b * FIELDS + fieldB];
+		int lengthA = ends[a * FIELDS + fieldA] - startA;
+		int lengthB = ends[b * FIELDS + fieldB] - startB;
+		for (int i = 0; i < Math.min(lengthA, lengthB); i++) {
+			if (chars[startA + i] != chars[startB + i]) {
+				return chars[startA + i] - chars[startB + i];
+			}
+		}
+		return lengthA - lengthB;
+	}
+
+	private int compare(int coin, int field, CharSequence key) {
+		int start = starts[coin * FIELDS + field];
+		int length = ends[coin * FIELDS + field] - start;
+		for (int i = 0; i < Math.min(length, key.length()); i++) {
+			if (chars[start + i] != key.charAt(i)) {
+				return chars[start + i] - key.charAt(i);
+			}
+		}
+		return length - key.length();
+	}
+
+	private int hash(int start, int end, boolean ignoreCase) {
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + (ignoreCase ? Character.toLowerCase(chars[i]) : chars[i]);
+		}
+		return mix(hash);
+	}
+
+	private static int mix(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * Reads the objects of the array the parser is positioned at, collecting the scalar fields of each.
+	 *
+	 * @param parser The parser positioned at the start of the array
+	 * @param handler Handler of the fields of each object
+	 * @throws IOException if the array cannot be parsed
+	 */
+	private static void readObjects(JsonParser parser, ObjectHandler handler) throws IOException {
+		Map<String, String> fields = new HashMap<>();
+		while (parser.nextToken() == JsonToken.START_OBJECT) {
+			fields.clear();
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String name = parser.currentName();
+				JsonToken value = parser.nextToken();
+				if (value.isScalarValue() && value != JsonToken.VALUE_NULL) {
+					fields.put(name, parser.getText());
+				} else {
+					parser.skipChildren();
+				}
+			}
+			handler.handle(fields);
+		}
+		expect(parser, parser.currentToken(), JsonToken.END_ARRAY);
+	}
+
+	private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws IOException {
+		if (actual != expected) {
+			throw new IOException("Invalid coin catalog: expected " + expected + " but found " + actual + " at " + parser.currentLocation());
+		}
+	}
+
+	/**
+	 * Handler of the fields of one catalog entry.
+	 */
+	@FunctionalInterface
+	private interface ObjectHandler {
+		void handle(Map<String, String> fields);
+	}
+
+	/**
+	 * Collects the coins while the catalog files are read. The lookup maps only live while loading.
+	 */
+	private static final class Builder {
+		private final StringBuilder chars = new StringBuilder();
+		private int[] starts = new int[1024 * FIELDS];
+		private int[] ends = new int[1024 * FIELDS];
+		private int size;
+		private final Map<String, Integer> coinsById = new HashMap<>();
+		private final Map<String, Integer> coinsBySymbolAndName = new HashMap<>();
+
+		/**
+		 * Adds a CoinGecko coin. Entries without id or symbol and repeated ids are ignored.
+		 *
+		 * @param id The CoinGecko id
+		 * @param symbol The symbol
+		 * @param name The name, or null
+		 */
+		void add(String id, String symbol, String name) {
+			if (id == null || symbol == null || coinsById.containsKey(id)) {
+				return;
+			}
+			if (size * FIELDS == starts.length) {
+				starts = Arrays.copyOf(starts, starts.length * 2);
+				ends = Arrays.copyOf(ends, ends.length * 2);
+			}
+			int coin = size++;
+			put(coin, ID, id);
+			put(coin, SYMBOL, symbol);
+			put(coin, NAME, name);
+			starts[coin * FIELDS + SLUG] = -1;
+			coinsById.put(id, coin);
+			// A symbol and name pair shared by several coins cannot be linked to a listing
+			coinsBySymbolAndName.merge(symbolAndName(symbol, name), coin, (a, b) -> -1);
+		}
+
+		/**
+		 * Links a CoinMarketCap slug to the CoinGecko coin with the same id, or else with the same symbol and name.
+		 *
+		 * @param slug The slug
+		 * @param symbol The symbol
+		 * @param name The name
+		 */
+		void link(String slug, String symbol, String name) {
+			if (slug == null) {
+				return;
+			}
+			Integer coin = coinsById.get(slug);
+			if (coin == null && symbol != null) {
+				coin = coinsBySymbolAndName.get(symbolAndName(symbol, name));
+			}
+			if (coin != null && coin >= 0 && starts[coin * FIELDS + SLUG] < 0) {
+				put(coin, SLUG, slug);
+			}
+		}
+
+		CoinCatalog build() {
+			char[] packed = new char[chars.length()];
+			chars.getChars(0, chars.length(), packed, 0);
+			return new CoinCatalog(packed, Arrays.copyOf(starts, size * FIELDS), Arrays.copyOf(ends, size * FIELDS), size);
+		}
+
+		private void put(int coin, int field, String value) {
+			if (value == null) {
+				starts[coin * FIELDS + field] = -1;
+				return;
+			}
+			starts[coin * FIELDS + field] = chars.length();
+			chars.append(value);
+			ends[coin * FIELDS + field] = chars.length();
+		}
+
+		private static String symbolAndName(String symbol, String name) {
+			return symbol.toLowerCase(Locale.ROOT) + '\n' + (name != null ? name.toLowerCase(Locale.ROOT) : "");
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package crypto.config;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -13,6 +14,59 @@ public class CryptoConfig {
 	private final String coingeckoApiUrl = "https://api.coingecko.com/api/v3";
 	private final int maxRetries = 10;
 	private final long rateLimitDelay = 5000;
+	private final int rateLimitBurst = 3;
+	private final boolean adaptiveRateLimit = true;
+	private final long minRateLimitDelay = 1000;
+	private final long maxRateLimitDelay = 60000;
+	private final int fetchConcurrency = 4;
+	private final boolean asyncFetch = false;
+	private final int asyncThreads = 4;
+	private final boolean streamingParse = true;
+	private final boolean batchCurrentData = true;
+	private final boolean historicalRangeMode = false;
+	private final boolean historicalCommunityData = false;
+	private final boolean batchBackendSend = false;
+	private final int backendBatchSize = 50;
+	private final long backendBatchLingerMs = 1000;
+	private final int backendMaxInFlightBatches = 2;
+	private final boolean stagedPipeline = true;
+	private final int sendThreads = 2;
+	private final int pipelineQueueCapacity = 100;
+	private final int lastValidDateConcurrency = 8;
+	private final boolean bulkLastValidDates = false;
+	private final boolean checkpoints = true;
+	private final String checkpointFile = "checkpoints.dat";
+	private final boolean outbox = true;
+	private final String outboxDirectory = "outbox";
+	private final long outboxSegmentBytes = 4 * 1024 * 1024;
+	private final long outboxReplayIntervalMs = 30000;
+	private final long outboxMaxBackoffMs = 600000;
+	private final int httpCacheEntries = 256;
+	private final boolean historyArchive = true;
+	private final String historyArchiveDirectory = "history-archive";
+	private final boolean reprocessArchive = false;
+	private final long currentDataCacheTtlMs = 60000;
+	private final int currentDataCacheEntries = 1000;
+	private final boolean metrics = true;
+	private final int metricsPort = 9404;
+	private final long retryMaxDelayMs = 60000;
+	private final boolean circuitBreaker = true;
+	private final int circuitBreakerFailureThreshold = 5;
+	private final long circuitBreakerOpenMs = 30000;
+	private final long circuitBreakerMaxOpenMs = 600000;
+	private final boolean deferredRetries = true;
+	private final boolean daemon = false;
+	private final long daemonCurrentIntervalMs = 300000;
+	private final long daemonHistoricalIntervalMs = 86400000;
+	private final long daemonShutdownTimeoutMs = 120000;
+	private final boolean validateCryptoIds = true;
+	private final boolean filterPortfolio = false;
+	private final String portfolioFile = null;
+	private final List<String> shardNodes = Collections.emptyList();
+	private final String shardNode = null;
+	private final int shardIndex = 0;
+	private final int shardCount = 1;
+	private final String sharedRateLimitFile = null;
 	private final String sourceFile = "coingecko.json";
 	private final String targetFile = "portfoliocoingecko.json";
 
@@ -41,14 +95,348 @@ public class CryptoConfig {
 	public long getRateLimitDelay() { return rateLimitDelay; }
 
 	/**
-	 * Gets the name of the source file for JSON data.
+	 * Gets the number of requests that may be sent back to back after an idle period.
+	 * The rate limiter refills one request every rate limit delay up to this burst size.
+	 * @return The rate limit burst capacity
+	 */
+	public int getRateLimitBurst() { return rateLimitBurst; }
+
+	/**
+	 * Checks whether the rate limiter adapts its rate to throttling feedback from the server.
+	 * When enabled, the rate limit delay is only the starting point between the minimum and maximum delay.
+	 * @return true if adaptive rate limiting is enabled
+	 */
+	public boolean isAdaptiveRateLimit() { return adaptiveRateLimit; }
+
+	/**
+	 * Gets the smallest delay in milliseconds the adaptive rate limiter may probe down to.
+	 * @return The minimum rate limit delay
+	 */
+	public long getMinRateLimitDelay() { return minRateLimitDelay; }
+
+	/**
+	 * Gets the largest delay in milliseconds the adaptive rate limiter may back off to.
+	 * @return The maximum rate limit delay
+	 */
+	public long getMaxRateLimitDelay() { return maxRateLimitDelay; }
+
+	/**
+	 * Gets the maximum number of cryptocurrencies processed concurrently.
+	 * All concurrent fetches still share the same rate limiter; a value of 1 processes coins one after another.
+	 * @return The fetch concurrency
+	 */
+	public int getFetchConcurrency() { return fetchConcurrency; }
+
+	/**
+	 * Checks whether the fetch, parse and send chain runs asynchronously on non-blocking HTTP requests.
+	 * The asynchronous mode batches current data like the blocking mode but issues one historical request per coin
+	 * and day and ignores the historical range mode and streaming parse settings, so it suits endpoints with a large rate budget.
+	 * @return true if asynchronous fetching is enabled
+	 */
+	public boolean isAsyncFetch() { return asyncFetch; }
+
+	/**
+	 * Gets the number of threads shared by HTTP I/O and parsing in asynchronous mode.
+	 * @return The number of asynchronous worker threads
+	 */
+	public int getAsyncThreads() { return asyncThreads; }
+
+	/**
+	 * Checks whether per-coin responses are parsed as a stream that extracts only the fields needed for a Coin,
+	 * instead of buffering the whole body and building a complete JSON tree.
+	 * @return true if streaming parsing is enabled
+	 */
+	public boolean isStreamingParse() { return streamingParse; }
+
+	/**
+	 * Checks whether current data for multiple coins is requested in batches through the markets endpoint
+	 * instead of one request per coin.
+	 * @return true if batched current data fetching is enabled
+	 */
+	public boolean isBatchCurrentData() { return batchCurrentData; }
+
+	/**
+	 * Checks whether historical data is fetched per coin as one date range instead of one request per day.
+	 * The range endpoint has no community, developer or public interest data; without historical community data
+	 * these fields are left empty, so the mode is off by default.
+	 * @return true if range-based historical fetching is enabled
+	 */
+	public boolean isHistoricalRangeMode() { return historicalRangeMode; }
+
+	/**
+	 * Checks whether range-based historical fetching also requests the per-day community and developer data.
+	 * This requires one additional request per coin and day.
+	 * @return true if historical community and developer data are fetched
+	 */
+	public boolean isHistoricalCommunityData() { return historicalCommunityData; }
+
+	/**
+	 * Checks whether coins are sent to the backend in batches instead of one synchronous request per coin.
+	 * Off by default, as it needs a backend offering the batch endpoint.
+	 * @return true if batched backend sending is enabled
+	 */
+	public boolean isBatchBackendSend() { return batchBackendSend; }
+
+	/**
+	 * Gets the number of coins that triggers sending a batch to the backend.
+	 * @return The backend batch size
+	 */
+	public int getBackendBatchSize() { return backendBatchSize; }
+
+	/**
+	 * Gets the maximum time in milliseconds a coin waits for its batch to fill up before it is sent.
+	 * @return The backend batch linger time
+	 */
+	public long getBackendBatchLingerMs() { return backendBatchLingerMs; }
+
+	/**
+	 * Gets the maximum number of batches sent to the backend concurrently.
+	 * @return The maximum number of batches in flight
+	 */
+	public int getBackendMaxInFlightBatches() { return backendMaxInFlightBatches; }
+
+	/**
+	 * Checks whether fetched coins are handed to a separate send stage through a bounded queue,
+	 * so a slow backend does not stall fetching until the queue is full.
+	 * @return true if the staged pipeline is enabled
+	 */
+	public boolean isStagedPipeline() { return stagedPipeline; }
+
+	/**
+	 * Gets the number of threads of the send stage in the staged pipeline.
+	 * @return The number of send threads
+	 */
+	public int getSendThreads() { return sendThreads; }
+
+	/**
+	 * Gets the maximum number of fetched coins waiting for the send stage before fetching blocks.
+	 * @return The pipeline queue capacity
+	 */
+	public int getPipelineQueueCapacity() { return pipelineQueueCapacity; }
+
+	/**
+	 * Gets the maximum number of last valid date requests sent to the backend concurrently.
+	 * @return The last valid date lookup concurrency
+	 */
+	public int getLastValidDateConcurrency() { return lastValidDateConcurrency; }
+
+	/**
+	 * Checks whether the last valid dates of all coins are first requested with a single bulk request.
+	 * If the backend does not offer the bulk endpoint, the dates are requested per coin.
+	 * Off by default, as the backend is not known to offer the bulk endpoint.
+	 * @return true if the bulk last valid date lookup is enabled
+	 */
+	public boolean isBulkLastValidDates() { return bulkLastValidDates; }
+
+	/**
+	 * Checks whether historical updates record delivered dates in a local checkpoint file and resume from it.
+	 * @return true if local checkpoints are enabled
+	 */
+	public boolean isCheckpoints() { return checkpoints; }
+
+	/**
+	 * Gets the name of the local checkpoint file.
+	 * @return The checkpoint file name
+	 */
+	public String getCheckpointFile() { return checkpointFile; }
+
+	/**
+	 * Checks whether coins the backend did not accept are kept in a local outbox and delivered later.
+	 * @return true if the outbox is enabled
+	 */
+	public boolean isOutbox() { return outbox; }
+
+	/**
+	 * Gets the name of the directory holding the outbox segment files.
+	 * @return The outbox directory name
+	 */
+	public String getOutboxDirectory() { return outboxDirectory; }
+
+	/**
+	 * Gets the size in bytes after which the outbox starts a new segment file.
+	 * @return The outbox segment size in bytes
+	 */
+	public long getOutboxSegmentBytes() { return outboxSegmentBytes; }
+
+	/**
+	 * Gets the time between checks of an empty outbox.
+	 * @return The outbox replay interval in milliseconds
+	 */
+	public long getOutboxReplayIntervalMs() { return outboxReplayIntervalMs; }
+
+	/**
+	 * Gets the maximum pause before the outbox is replayed again after the backend did not accept a coin.
+	 * @return The maximum outbox replay backoff in milliseconds
+	 */
+	public long getOutboxMaxBackoffMs() { return outboxMaxBackoffMs; }
+
+	/**
+	 * Gets the maximum number of GET responses cached for conditional requests.
+	 * @return The number of cached responses, 0 if the cache is disabled
+	 */
+	public int getHttpCacheEntries() { return httpCacheEntries; }
+
+	/**
+	 * Checks whether history responses for past days are archived on disk and served from the archive.
+	 * @return true if the history archive is enabled
+	 */
+	public boolean isHistoryArchive() { return historyArchive; }
+
+	/**
+	 * Gets the name of the directory holding the history archive.
+	 * @return The history archive directory name
+	 */
+	public String getHistoryArchiveDirectory() { return historyArchiveDirectory; }
+
+	/**
+	 * Checks whether a run rebuilds and resends the historical data from the archive instead of updating from the API.
+	 * @return true if the archived historical data is reprocessed
+	 */
+	public boolean isReprocessArchive() { return reprocessArchive; }
+
+	/**
+	 * Gets the time current coin data is served from the in-memory cache after it was fetched.
+	 * @return The current data cache time to live in milliseconds, 0 if the cache is disabled
+	 */
+	public long getCurrentDataCacheTtlMs() { return currentDataCacheTtlMs; }
+
+	/**
+	 * Gets the maximum number of coins held in the current data cache.
+	 * @return The number of cached coins
+	 */
+	public int getCurrentDataCacheEntries() { return currentDataCacheEntries; }
+
+	/**
+	 * Checks whether request metrics are recorded and exported through JMX.
+	 * @return true if metrics are enabled
+	 */
+	public boolean isMetrics() { return metrics; }
+
+	/**
+	 * Gets the local port of the plain-text metrics scrape endpoint, which is only started in daemon mode.
+	 * @return The port, 0 if the endpoint is disabled
+	 */
+	public int getMetricsPort() { return metricsPort; }
+
+	/**
+	 * Gets the upper bound of the exponential retry backoff; the rate limit delay is its starting value.
+	 * @return The maximum backoff in milliseconds
+	 */
+	public long getRetryMaxDelayMs() { return retryMaxDelayMs; }
+
+	/**
+	 * Checks whether requests to a host that keeps failing fail fast through a circuit breaker.
+	 * @return true if circuit breakers are enabled
+	 */
+	public boolean isCircuitBreaker() { return circuitBreaker; }
+
+	/**
+	 * Gets the number of consecutive failures of a host that open its circuit.
+	 * @return The failure threshold
+	 */
+	public int getCircuitBreakerFailureThreshold() { return circuitBreakerFailureThreshold; }
+
+	/**
+	 * Gets the time an open circuit fails requests fast before the host is probed.
+	 * @return The open time in milliseconds
+	 */
+	public long getCircuitBreakerOpenMs() { return circuitBreakerOpenMs; }
+
+	/**
+	 * Gets the longest time an open circuit fails requests fast; the open time doubles after every failed probe.
+	 * @return The maximum open time in milliseconds
+	 */
+	public long getCircuitBreakerMaxOpenMs() { return circuitBreakerMaxOpenMs; }
+
+	/**
+	 * Checks whether failed requests are deferred to a retry queue while the loop continues with other coins and days.
+	 * @return true if retries are deferred instead of waited for
+	 */
+	public boolean isDeferredRetries() { return deferredRetries; }
+
+	/**
+	 * Checks whether the client keeps running and updates the data on fixed intervals instead of updating once.
+	 * @return true if the client runs as a daemon
+	 */
+	public boolean isDaemon() { return daemon; }
+
+	/**
+	 * Gets the time between current data updates in daemon mode.
+	 * @return The interval in milliseconds, or 0 for no current data updates
+	 */
+	public long getDaemonCurrentIntervalMs() { return daemonCurrentIntervalMs; }
+
+	/**
+	 * Gets the time between historical data catch-ups in daemon mode.
+	 * @return The interval in milliseconds, or 0 for no historical data updates
+	 */
+	public long getDaemonHistoricalIntervalMs() { return daemonHistoricalIntervalMs; }
+
+	/**
+	 * Gets the longest time a daemon waits for an update in progress when it is shut down.
+	 * @return The shutdown timeout in milliseconds
+	 */
+	public long getDaemonShutdownTimeoutMs() { return daemonShutdownTimeoutMs; }
+
+	/**
+	 * Checks whether the tracked coins are checked against the coin catalog at startup.
+	 * @return true if unknown coin IDs are reported at startup
+	 */
+	public boolean isValidateCryptoIds() { return validateCryptoIds; }
+
+	/**
+	 * Checks whether the client only filters the source file down to the portfolio coins instead of updating data.
+	 * @return true if the client runs the portfolio filter
+	 */
+	public boolean isFilterPortfolio() { return filterPortfolio; }
+
+	/**
+	 * Gets the file listing the portfolio coins as CoinMarketCap listings, a file path or else a classpath resource name.
+	 * @return The portfolio file name, or null if the portfolio consists of the coins of the CryptoId enum
+	 */
+	public String getPortfolioFile() { return portfolioFile; }
+
+	/**
+	 * Gets the names of all client instances sharing the tracked coins, e.g. their host names.
+	 * Every instance fetches only the coins assigned to it by consistent hashing over these names.
+	 * @return The shard node names, or an empty list to use the shard index and count instead
+	 */
+	public List<String> getShardNodes() { return shardNodes; }
+
+	/**
+	 * Gets the name of this instance among the shard nodes.
+	 * @return The shard node name of this instance
+	 */
+	public String getShardNode() { return shardNode; }
+
+	/**
+	 * Gets the index of this instance among the numbered shards, used when no shard nodes are named.
+	 * @return The shard index, from 0 to the shard count - 1
+	 */
+	public int getShardIndex() { return shardIndex; }
+
+	/**
+	 * Gets the number of numbered shards sharing the tracked coins, used when no shard nodes are named.
+	 * @return The shard count, 1 to fetch all coins in this instance
+	 */
+	public int getShardCount() { return shardCount; }
+
+	/**
+	 * Gets the path of the memory-mapped file holding the rate limit budget shared by all clients on this host.
+	 * A shared budget has a fixed rate, so it replaces the adaptive rate limiter.
+	 * @return The shared rate limit file, or null for a budget of this process only
+	 */
+	public String getSharedRateLimitFile() { return sharedRateLimitFile; }
+
+	/**
+	 * Gets the source file for JSON data, a file path or else a classpath resource name.
 	 * @return The source file name
 	 */
 	public String getSourceFile() { return sourceFile; }
 
 	/**
-	 * Gets the name of the target file for processed JSON data.
-	 * @return The target file name
+	 * Gets the path the processed JSON data is written to, relative to the working directory unless absolute.
+	 * @return The target file path
 	 */
 	public String getTargetFile() { return targetFile; }
 
@@ -0,0 +1,203 @@
+package crypto.config;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Assignment of the tracked coins to the client instances sharing the work, so several instances with their own
+ * rate budget each fetch a stable subset of the coins.
+ * <p>
+ * Coins are assigned by rendezvous (highest random weight) hashing: every coin goes to the node with the highest
+ * hash of node and coin. The assignment depends only on the node names, not on their order or on the other coins,
+ * and adding or removing a node only moves the coins gained or lost by that node.
+ */
+public final class ShardAssignment {
+	private static final ShardAssignment UNSHARDED = new ShardAssignment(Collections.emptyList(), null);
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final List<String> nodes;
+	private final String node;
+	private final long[] nodeHashes;
+
+	private ShardAssignment(List<String> nodes, String node) {
+		this.nodes = nodes;
+		this.node = node;
+		this.nodeHashes = new long[nodes.size()];
+		for (int i = 0; i < nodes.size(); i++) {
+			nodeHashes[i] = hash(nodes.get(i));
+		}
+	}
+
+	/**
+	 * Gets the assignment of a single instance owning all coins.
+	 *
+	 * @return The unsharded assignment
+	 */
+	public static ShardAssignment unsharded() {
+		return UNSHARDED;
+	}
+
+	/**
+	 * Creates the assignment of a node among named nodes.
+	 *
+	 * @param nodes The names of all nodes, e.g. host names
+	 * @param node The name of this node
+	 * @return The assignment
+	 * @throws IllegalArgumentException if the node is not one of the nodes or a node is listed twice
+	 */
+	public static ShardAssignment of(List<String> nodes, String node) {
+		if (!nodes.contains(node)) {
+			throw new IllegalArgumentException("Shard node " + node + " is not one of " + nodes);
+		}
+		if (nodes.stream().distinct().count() != nodes.size()) {
+			throw new IllegalArgumentException("Duplicate shard nodes in " + nodes);
+		}
+		return nodes.size() > 1 ? new ShardAssignment(new ArrayList<>(nodes), node) : UNSHARDED;
+	}
+
+	/**
+	 * Creates the assignment of a shard among numbered shards, named shard-0 to shard-(count - 1).
+	 *
+	 * @param index The index of this shard
+	 * @param count The number of shards
+	 * @return The assignment
+	 * @throws IllegalArgumentException if the index is not between 0 and count - 1
+	 */
+	public static ShardAssignment ofIndex(int index, int count) {
+		if (index < 0 || index >= count) {
+			throw new IllegalArgumentException("Shard index " + index + " is not between 0 and " + (count - 1));
+		}
+		List<String> nodes = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			nodes.add("shard-" + i);
+		}
+		return of(nodes, "shard-" + index);
+	}
+
+	/**
+	 * Creates the assignment configured for this instance: named nodes if any are configured, else numbered shards.
+	 *
+	 * @param config Configuration with the shard settings
+	 * @return The assignment, unsharded if neither nodes nor more than one shard are configured
+	 */
+	public static ShardAssignment fromConfig(CryptoConfig config) {
+		List<String> nodes = config.getShardNodes();
+		if (nodes != null && !nodes.isEmpty()) {
+			return of(nodes, config.getShardNode());
+		}
+		return config.getShardCount() > 1 ? ofIndex(config.getShardIndex(), config.getShardCount()) : UNSHARDED;
+	}
+
+	/**
+	 * Checks whether the work is split across more than one node.
+	 *
+	 * @return true if this node owns only part of the coins
+	 */
+	public boolean isSharded() {
+		return !nodes.isEmpty();
+	}
+
+	/**
+	 * Gets the name of this node.
+	 *
+	 * @return The node name, or null if unsharded
+	 */
+	public String getNode() {
+		return node;
+	}
+
+	/**
+	 * Gets the node owning a coin.
+	 *
+	 * @param coinId The coin ID
+	 * @return The name of the owning node, or null if unsharded
+	 */
+	public String ownerOf(String coinId) {
+		if (nodes.isEmpty()) {
+			return null;
+		}
+		long coinHash = hash(coinId);
+		int owner = 0;
+		long highest = weight(nodeHashes[0], coinHash);
+		for (int i = 1; i < nodeHashes.length; i++) {
+			long weight = weight(nodeHashes[i], coinHash);
+			// Ties are practically impossible with 64-bit weights but must not depend on the node order
+			if (weight > highest || (weight == highest && nodes.get(i).compareTo(nodes.get(owner)) < 0)) {
+				owner = i;
+				highest = weight;
+			}
+		}
+		return nodes.get(owner);
+	}
+
+	/**
+	 * Checks whether this node owns a coin.
+	 *
+	 * @param coinId The coin ID
+	 * @return true if this node fetches the coin
+	 */
+	public boolean owns(String coinId) {
+		return nodes.isEmpty() || node.equals(ownerOf(coinId));
+	}
+
+	/**
+	 * Selects the coins this node owns.
+	 *
+	 * @param coinIds The IDs of all coins
+	 * @return The owned IDs in the given order, or the given list itself if unsharded
+	 */
+	public List<String> select(List<String> coinIds) {
+		if (nodes.isEmpty()) {
+			return coinIds;
+		}
+		List<String> owned = new ArrayList<>();
+		for (String coinId : coinIds) {
+			if (owns(coinId)) {
+				owned.add(coinId);
+			}
+		}
+		return owned;
+	}
+
+	@Override
+	public String toString() {
+		return nodes.isEmpty() ? "unsharded" : node + " of " + nodes;
+	}
+
+	/**
+	 * Hashes a string with 64-bit FNV-1a over its UTF-8 bytes, which unlike String.hashCode spreads short names
+	 * over all 64 bits and is the same on every JVM.
+	 *
+	 * @param value The string
+	 * @return The hash
+	 */
+	private static long hash(String value) {
+		long hash = FNV_OFFSET_BASIS;
+		for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+			hash ^= b & 0xff;
+			hash *= FNV_PRIME;
+		}
+		return hash;
+	}
+
+	/**
+	 * Combines the hashes of a node and a coin into the weight of the node for the coin,
+	 * using the 64-bit finalizer of MurmurHash3 so weights of different nodes are independent.
+	 *
+	 * @param nodeHash The hash of the node
+	 * @param coinHash The hash of the coin
+	 * @return The weight
+	 */
+	private static long weight(long nodeHash, long coinHash) {
+		long h = nodeHash ^ (coinHash * 0x9e3779b97f4a7c15L);
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
@@ -0,0 +1,51 @@
+package crypto.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonically increasing count of events, such as requests or retries.
+ * Increments are striped across threads, so a counter shared by many fetch threads does not become a point of contention.
+ */
+public final class Counter {
+	private final MetricsRegistry registry;
+	private final LongAdder count = new LongAdder();
+
+	/**
+	 * Constructs a new Counter recording while the registry is enabled.
+	 *
+	 * @param registry The registry the counter belongs to
+	 */
+	Counter(MetricsRegistry registry) {
+		this.registry = registry;
+	}
+
+	/**
+	 * Counts one event.
+	 */
+	public void increment() {
+		add(1);
+	}
+
+	/**
+	 * Counts the given number of events.
+	 *
+	 * @param events The number of events, must not be negative
+	 */
+	public void add(long events) {
+		if (events < 0) {
+			throw new IllegalArgumentException("Counters cannot decrease: " + events);
+		}
+		if (registry.isEnabled()) {
+			count.add(events);
+		}
+	}
+
+	/**
+	 * Gets the number of events counted so far.
+	 *
+	 * @return The count
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+}
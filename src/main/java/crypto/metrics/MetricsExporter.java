@@ -0,0 +1,234 @@
+package crypto.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exports the metrics of a registry through JMX and through a plain-text scrape endpoint.
+ * The JMX bean {@value #OBJECT_NAME} has one read-only attribute per counter and per timer statistic.
+ * The scrape endpoint serves all metrics at /metrics in the Prometheus text format, timers as summaries
+ * in seconds; it only listens on the loopback interface.
+ */
+public class MetricsExporter implements AutoCloseable {
+	private static final Logger LOG = LoggerFactory.getLogger(MetricsExporter.class);
+	public static final String OBJECT_NAME = "crypto:type=Metrics";
+	static final String SCRAPE_PATH = "/metrics";
+	private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+	private static final double[] QUANTILES = {0.5, 0.9, 0.99, 1.0};
+
+	private final MetricsRegistry registry;
+	private ObjectName objectName;
+	private HttpServer httpServer;
+
+	/**
+	 * Constructs a new MetricsExporter.
+	 *
+	 * @param registry The registry to export
+	 */
+	public MetricsExporter(MetricsRegistry registry) {
+		this.registry = registry;
+	}
+
+	/**
+	 * Registers the metrics bean with the platform MBean server.
+	 *
+	 * @throws JMException if the bean cannot be registered, e.g. because another exporter registered it already
+	 */
+	public synchronized void registerMBean() throws JMException {
+		if (objectName != null) {
+			return;
+		}
+		ObjectName name = new ObjectName(OBJECT_NAME);
+		ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(), name);
+		objectName = name;
+	}
+
+	/**
+	 * Starts the scrape endpoint on the loopback interface.
+	 *
+	 * @param port The port to listen on, or 0 for any free port
+	 * @return The address the endpoint listens on
+	 * @throws IOException if the port cannot be bound
+	 */
+	public synchronized InetSocketAddress startHttpServer(int port) throws IOException {
+		if (httpServer == null) {
+			HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+			server.createContext(SCRAPE_PATH, this::handleScrape);
+			server.start();
+			httpServer = server;
+			LOG.info("Serving metrics at http://{}:{}{}", httpServer.getAddress().getHostString(), httpServer.getAddress().getPort(), SCRAPE_PATH);
+		}
+		return httpServer.getAddress();
+	}
+
+	/**
+	 * Formats all metrics in the Prometheus text format.
+	 *
+	 * @return The metrics, one sample per line
+	 */
+	public String scrape() {
+		StringBuilder text = new StringBuilder();
+		String family = null;
+		for (Map.Entry<MetricsRegistry.MetricId, Counter> counter : registry.getCounters().entrySet()) {
+			MetricsRegistry.MetricId id = counter.getKey();
+			if (!id.getName().equals(family)) {
+				family = id.getName();
+				text.append("# TYPE ").append(family).append(" counter\n");
+			}
+			text.append(id).append(' ').append(counter.getValue().getCount()).append('\n');
+		}
+		family = null;
+		for (Map.Entry<MetricsRegistry.MetricId, Timer> timer : registry.getTimers().entrySet()) {
+			MetricsRegistry.MetricId id = timer.getKey();
+			if (!id.getName().equals(family)) {
+				family = id.getName();
+				text.append("# TYPE ").append(family).append(" summary\n");
+			}
+			Timer.Snapshot snapshot = timer.getValue().snapshot();
+			for (double quantile : QUANTILES) {
+				text.append(id.format("", "quantile", String.valueOf(quantile))).append(' ')
+						.append(seconds(snapshot.getValueAtQuantile(quantile))).append('\n');
+			}
+			text.append(id.format("_sum", null, null)).append(' ').append(seconds(snapshot.getTotalNanos())).append('\n');
+			text.append(id.format("_count", null, null)).append(' ').append(snapshot.getCount()).append('\n');
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Stops the scrape endpoint and unregisters the metrics bean.
+	 */
+	@Override
+	public synchronized void close() {
+		if (httpServer != null) {
+			httpServer.stop(0);
+			httpServer = null;
+		}
+		if (objectName != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+			} catch (JMException e) {
+				LOG.warn("Failed to unregister {}: {}", objectName, e.getMessage());
+			}
+			objectName = null;
+		}
+	}
+
+	private void handleScrape(HttpExchange exchange) throws IOException {
+		try {
+			if (!"GET".equals(exchange.getRequestMethod())) {
+				exchange.getResponseHeaders().set("Allow", "GET");
+				exchange.sendResponseHeaders(405, -1);
+				return;
+			}
+			byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private static double seconds(long nanos) {
+		return nanos / (double) TimeUnit.SECONDS.toNanos(1);
+	}
+
+	/**
+	 * Gets the current value of every bean attribute: the count of every counter, and the count, total,
+	 * quantiles and maximum of every timer in seconds.
+	 *
+	 * @return The attribute values by attribute name
+	 */
+	private Map<String, Object> attributeValues() {
+		Map<String, Object> values = new LinkedHashMap<>();
+		registry.getCounters().forEach((id, counter) -> values.put(id.toString(), counter.getCount()));
+		registry.getTimers().forEach((id, timer) -> {
+			Timer.Snapshot snapshot = timer.snapshot();
+			values.put(id.format("_count", null, null), snapshot.getCount());
+			values.put(id.format("_sum", null, null), seconds(snapshot.getTotalNanos()));
+			values.put(id.format("_p50", null, null), seconds(snapshot.getValueAtQuantile(0.5)));
+			values.put(id.format("_p90", null, null), seconds(snapshot.getValueAtQuantile(0.9)));
+			values.put(id.format("_p99", null, null), seconds(snapshot.getValueAtQuantile(0.99)));
+			values.put(id.format("_max", null, null), seconds(snapshot.getMaxNanos()));
+		});
+		return values;
+	}
+
+	/**
+	 * Read-only bean whose attributes are the metrics of the registry at the time they are read.
+	 */
+	private final class MetricsMBean implements DynamicMBean {
+
+		@Override
+		public Object getAttribute(String attribute) throws AttributeNotFoundException {
+			Object value = attributeValues().get(attribute);
+			if (value == null) {
+				throw new AttributeNotFoundException(attribute);
+			}
+			return value;
+		}
+
+		@Override
+		public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+			throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+		}
+
+		@Override
+		public AttributeList getAttributes(String[] attributes) {
+			Map<String, Object> values = attributeValues();
+			AttributeList result = new AttributeList();
+			for (String attribute : attributes) {
+				Object value = values.get(attribute);
+				if (value != null) {
+					result.add(new Attribute(attribute, value));
+				}
+			}
+			return result;
+		}
+
+		@Override
+		public AttributeList setAttributes(AttributeList attributes) {
+			return new AttributeList();
+		}
+
+		@Override
+		public Object invoke(String actionName, Object[] params, String[] signature) {
+			throw new UnsupportedOperationException("The metrics bean has no operations");
+		}
+
+		@Override
+		public MBeanInfo getMBeanInfo() {
+			Map<String, Object> values = attributeValues();
+			MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[values.size()];
+			int i = 0;
+			for (Map.Entry<String, Object> value : values.entrySet()) {
+				attributes[i++] = new MBeanAttributeInfo(value.getKey(), value.getValue().getClass().getName(),
+						value.getKey(), true, false, false);
+			}
+			return new MBeanInfo(MetricsExporter.class.getName(), "Metrics of the crypto client", attributes, null, null, null);
+		}
+	}
+}
@@ -0,0 +1,265 @@
+package crypto.metrics;
+
+import crypto.util.CircuitOpenException;
+import crypto.util.HttpStatusException;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Pattern;
+
+/**
+ * Registry of the counters and timers of the application, identified by a name and a set of tags.
+ * Call sites look their metric up with the tags of the current request, e.g. the coin and the endpoint,
+ * and the registry creates it on first use. Tag values should come from small sets: every distinct
+ * combination is a metric of its own that lives as long as the registry.
+ * <p>
+ * A disabled registry hands out metrics that record nothing and are not exported.
+ */
+public class MetricsRegistry {
+	private static final MetricsRegistry GLOBAL = new MetricsRegistry();
+	private static final Pattern NAME = Pattern.compile("[a-zA-Z_][a-zA-Z0-9_]*");
+
+	private final ConcurrentMap<MetricId, Counter> counters = new ConcurrentHashMap<>();
+	private final ConcurrentMap<MetricId, Timer> timers = new ConcurrentHashMap<>();
+	private final Counter disabledCounter = new Counter(this);
+	private final Timer disabledTimer = new Timer(this);
+	private volatile boolean enabled = true;
+
+	/**
+	 * Gets the registry shared by the whole application.
+	 *
+	 * @return The global registry
+	 */
+	public static MetricsRegistry global() {
+		return GLOBAL;
+	}
+
+	/**
+	 * Checks whether metrics are recorded.
+	 *
+	 * @return true if metrics are recorded
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Enables or disables recording. Metrics recorded before they were disabled keep their values.
+	 *
+	 * @param enabled true to record metrics
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Gets the counter with the given name and tags, creating it if it does not exist yet.
+	 *
+	 * @param name The name of the counter
+	 * @param tags Alternating tag names and values
+	 * @return The counter
+	 */
+	public Counter counter(String name, String... tags) {
+		if (!enabled) {
+			return disabledCounter;
+		}
+		return counters.computeIfAbsent(new MetricId(name, tags), id -> new Counter(this));
+	}
+
+	/**
+	 * Gets the timer with the given name and tags, creating it if it does not exist yet.
+	 *
+	 * @param name The name of the timer
+	 * @param tags Alternating tag names and values
+	 * @return The timer
+	 */
+	public Timer timer(String name, String... tags) {
+		if (!enabled) {
+			return disabledTimer;
+		}
+		return timers.computeIfAbsent(new MetricId(name, tags), id -> new Timer(this));
+	}
+
+	/**
+	 * Gets all counters ordered by name and tags.
+	 *
+	 * @return The counters by their identifier
+	 */
+	public Map<MetricId, Counter> getCounters() {
+		return new TreeMap<>(counters);
+	}
+
+	/**
+	 * Gets all timers ordered by name and tags.
+	 *
+	 * @return The timers by their identifier
+	 */
+	public Map<MetricId, Timer> getTimers() {
+		return new TreeMap<>(timers);
+	}
+
+	/**
+	 * Classifies the outcome of a request for use as a tag value.
+	 *
+	 * @param failure The exception the request failed with, or null if it succeeded
+	 * @return ok, throttled, http_4xx, http_5xx, circuit_open, io_error or error
+	 */
+	public static String outcomeOf(Throwable failure) {
+		Throwable cause = failure;
+		while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+			cause = cause.getCause();
+		}
+		if (cause == null) {
+			return "ok";
+		}
+		if (cause instanceof HttpStatusException) {
+			HttpStatusException statusException = (HttpStatusException) cause;
+			return statusException.isRateLimited() ? "throttled" : "http_" + statusException.getStatusCode() / 100 + "xx";
+		}
+		if (cause instanceof CircuitOpenException) {
+			return "circuit_open";
+		}
+		return cause instanceof IOException ? "io_error" : "error";
+	}
+
+	/**
+	 * Identifier of a metric: its name and its tags ordered by tag name.
+	 */
+	public static final class MetricId implements Comparable<MetricId> {
+		private final String name;
+		private final String[] tags;
+
+		/**
+		 * Constructs a new MetricId.
+		 *
+		 * @param name The name of the metric
+		 * @param tags Alternating tag names and values
+		 * @throws IllegalArgumentException if the name or a tag name is invalid, or a tag has no value
+		 */
+		MetricId(String name, String... tags) {
+			if (!NAME.matcher(name).matches()) {
+				throw new IllegalArgumentException("Invalid metric name: " + name);
+			}
+			if (tags.length % 2 != 0) {
+				throw new IllegalArgumentException("Tag without value for metric " + name + ": " + Arrays.toString(tags));
+			}
+			TreeMap<String, String> sorted = new TreeMap<>();
+			for (int i = 0; i < tags.length; i += 2) {
+				if (!NAME.matcher(tags[i]).matches()) {
+					throw new IllegalArgumentException("Invalid tag name for metric " + name + ": " + tags[i]);
+				}
+				sorted.put(tags[i], String.valueOf(tags[i + 1]));
+			}
+			this.name = name;
+			this.tags = new String[sorted.size() * 2];
+			int i = 0;
+			for (Map.Entry<String, String> tag : sorted.entrySet()) {
+				this.tags[i++] = tag.getKey();
+				this.tags[i++] = tag.getValue();
+			}
+		}
+
+		/**
+		 * Gets the name of the metric.
+		 *
+		 * @return The name
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Gets the tags of the metric ordered by tag name.
+		 *
+		 * @return The tag values by tag name
+		 */
+		public Map<String, String> getTags() {
+			Map<String, String> result = new TreeMap<>();
+			for (int i = 0; i < tags.length; i += 2) {
+				result.put(tags[i], tags[i + 1]);
+			}
+			return result;
+		}
+
+		@Override
+		public int compareTo(MetricId other) {
+			int result = name.compareTo(other.name);
+			for (int i = 0; result == 0 && i < Math.min(tags.length, other.tags.length); i++) {
+				result = tags[i].compareTo(other.tags[i]);
+			}
+			return result != 0 ? result : Integer.compare(tags.length, other.tags.length);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof MetricId)) {
+				return false;
+			}
+			MetricId other = (MetricId) o;
+			return name.equals(other.name) && Arrays.equals(tags, other.tags);
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * name.hashCode() + Arrays.hashCode(tags);
+		}
+
+		/**
+		 * Formats the identifier like the scrape endpoint, e.g. {@code requests_total{endpoint="/simple/price"}}.
+		 *
+		 * @return The formatted identifier
+		 */
+		@Override
+		public String toString() {
+			return format("", null, null);
+		}
+
+		/**
+		 * Formats the identifier with a suffix appended to the name and an optional extra tag.
+		 *
+		 * @param suffix The suffix of the name, e.g. _count
+		 * @param extraTag The name of the extra tag, or null for none
+		 * @param extraValue The value of the extra tag
+		 * @return The formatted identifier
+		 */
+		String format(String suffix, String extraTag, String extraValue) {
+			StringBuilder result = new StringBuilder(name).append(suffix);
+			if (tags.length == 0 && extraTag == null) {
+				return result.toString();
+			}
+			result.append('{');
+			for (int i = 0; i < tags.length; i += 2) {
+				appendTag(result, tags[i], tags[i + 1]);
+			}
+			if (extraTag != null) {
+				appendTag(result, extraTag, extraValue);
+			}
+			result.setCharAt(result.length() - 1, '}');
+			return result.toString();
+		}
+
+		private static void appendTag(StringBuilder result, String tag, String value) {
+			result.append(tag).append("=\"");
+			for (int i = 0; i < value.length(); i++) {
+				char c = value.charAt(i);
+				if (c == '\\' || c == '"') {
+					result.append('\\').append(c);
+				} else if (c == '\n') {
+					result.append("\\n");
+				} else {
+					result.append(c);
+				}
+			}
+			result.append("\",");
+		}
+	}
+}
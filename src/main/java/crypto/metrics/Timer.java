@@ -0,0 +1,183 @@
+package crypto.metrics;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency distribution of an operation, recorded into a log-linear histogram.
+ * Like an HDR histogram, every power of two is split into {@value #SUB_BUCKETS} equally wide buckets, so a recorded
+ * duration is kept with a relative error of at most 1/{@value #SUB_BUCKETS} whether it took microseconds or minutes.
+ * The buckets cover every non-negative nanosecond value in a fixed array, so recording never allocates or resizes,
+ * and concurrent recordings only contend on the bucket of their own value.
+ */
+public final class Timer {
+	static final int SUB_BUCKET_BITS = 4;
+	static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final MetricsRegistry registry;
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final LongAdder totalNanos = new LongAdder();
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	/**
+	 * Constructs a new Timer recording while the registry is enabled.
+	 *
+	 * @param registry The registry the timer belongs to
+	 */
+	Timer(MetricsRegistry registry) {
+		this.registry = registry;
+	}
+
+	/**
+	 * Records the duration of one operation.
+	 *
+	 * @param nanos The duration in nanoseconds; negative durations are recorded as zero
+	 */
+	public void record(long nanos) {
+		if (!registry.isEnabled()) {
+			return;
+		}
+		long value = Math.max(0, nanos);
+		buckets.incrementAndGet(bucketIndex(value));
+		totalNanos.add(value);
+		maxNanos.accumulateAndGet(value, Math::max);
+	}
+
+	/**
+	 * Records the duration of one operation.
+	 *
+	 * @param duration The duration
+	 */
+	public void record(Duration duration) {
+		record(duration.toNanos());
+	}
+
+	/**
+	 * Records the time elapsed since the given start of an operation.
+	 *
+	 * @param startNanos The start of the operation as returned by {@link System#nanoTime()}
+	 */
+	public void recordSince(long startNanos) {
+		record(System.nanoTime() - startNanos);
+	}
+
+	/**
+	 * Takes a snapshot of the recorded distribution.
+	 * Recordings made while the snapshot is taken may or may not be included.
+	 *
+	 * @return The snapshot
+	 */
+	public Snapshot snapshot() {
+		long[] counts = new long[BUCKETS];
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets.get(i);
+			count += counts[i];
+		}
+		return new Snapshot(counts, count, totalNanos.sum(), maxNanos.get());
+	}
+
+	/**
+	 * Gets the bucket a value is counted in.
+	 * Values below {@value #SUB_BUCKETS} get a bucket of their own; above that, the highest set bit selects the
+	 * power of two and the following {@value #SUB_BUCKET_BITS} bits select the bucket within it.
+	 *
+	 * @param value The non-negative value
+	 * @return The bucket index
+	 */
+	static int bucketIndex(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+	}
+
+	/**
+	 * Gets the highest value counted in a bucket.
+	 *
+	 * @param index The bucket index
+	 * @return The highest value of the bucket
+	 */
+	static long highestValueOf(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int shift = index / SUB_BUCKETS - 1;
+		long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+		return ((subBucket + 1) << shift) - 1;
+	}
+
+	/**
+	 * Immutable copy of a timer's distribution.
+	 */
+	public static final class Snapshot {
+		private final long[] counts;
+		private final long count;
+		private final long totalNanos;
+		private final long maxNanos;
+
+		private Snapshot(long[] counts, long count, long totalNanos, long maxNanos) {
+			this.counts = counts;
+			this.count = count;
+			this.totalNanos = totalNanos;
+			this.maxNanos = maxNanos;
+		}
+
+		/**
+		 * Gets the number of recorded operations.
+		 *
+		 * @return The count
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * Gets the sum of all recorded durations.
+		 *
+		 * @return The total in nanoseconds
+		 */
+		public long getTotalNanos() {
+			return totalNanos;
+		}
+
+		/**
+		 * Gets the longest recorded duration.
+		 *
+		 * @return The maximum in nanoseconds
+		 */
+		public long getMaxNanos() {
+			return maxNanos;
+		}
+
+		/**
+		 * Gets the duration at or below which the given fraction of the recorded operations completed.
+		 * The result is the upper bound of the bucket holding that rank, so it overstates the exact
+		 * value by at most the bucket width but never exceeds the recorded maximum.
+		 *
+		 * @param quantile The fraction, between 0 and 1
+		 * @return The duration in nanoseconds, or 0 if nothing was recorded
+		 */
+		public long getValueAtQuantile(double quantile) {
+			if (quantile < 0 || quantile > 1) {
+				throw new IllegalArgumentException("Quantile must be between 0 and 1: " + quantile);
+			}
+			if (count == 0) {
+				return 0;
+			}
+			long rank = Math.max(1, (long) Math.ceil(quantile * count));
+			long seen = 0;
+			for (int i = 0; i < counts.length; i++) {
+				seen += counts[i];
+				if (seen >= rank) {
+					return Math.min(highestValueOf(i), maxNanos);
+				}
+			}
+			return maxNanos;
+		}
+	}
+}
@@ -1,17 +1,30 @@
 package crypto.processor;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
 import com.sam.coin.domain.model.Coin;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
 
 /**
  * Processor for coin data.
@@ -21,6 +34,91 @@ public class CoinDataProcessor {
 
 	private static final Logger LOG = LoggerFactory.getLogger(CoinDataProcessor.class);
 
+	/**
+	 * The currencies a Coin holds prices, market caps and volumes for, in the order they are requested.
+	 */
+	public static final List<String> MARKET_CHART_CURRENCIES = List.of("usd", "eur", "btc", "eth");
+
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+	private static final JsonFactory JSON_FACTORY = OBJECT_MAPPER.getFactory();
+
+	/**
+	 * Setters for the market values of a Coin, keyed by market data field and currency (e.g. "current_price/usd").
+	 */
+	private static final Map<String, BiConsumer<Coin, BigDecimal>> MARKET_VALUE_SETTERS = Map.ofEntries(
+			Map.entry("current_price/usd", Coin::setPriceUsd),
+			Map.entry("current_price/eur", Coin::setPriceEur),
+			Map.entry("current_price/btc", Coin::setPriceBtc),
+			Map.entry("current_price/eth", Coin::setPriceEth),
+			Map.entry("market_cap/usd", Coin::setMarketCapUsd),
+			Map.entry("market_cap/eur", Coin::setMarketCapEur),
+			Map.entry("market_cap/btc", Coin::setMarketCapBtc),
+			Map.entry("market_cap/eth", Coin::setMarketCapEth),
+			Map.entry("total_volume/usd", Coin::setTotalVolumeUsd),
+			Map.entry("total_volume/eur", Coin::setTotalVolumeEur),
+			Map.entry("total_volume/btc", Coin::setTotalVolumeBtc),
+			Map.entry("total_volume/eth", Coin::setTotalVolumeEth));
+
+	/**
+	 * Mapping of current /coins/{id} data, timestamped with the market data's last update.
+	 */
+	private static final CoinFieldMapper CURRENT_DATA_MAPPER = commonFields()
+			.field("/market_data/last_updated", CoinFieldMapper.ValueType.text(CoinDataProcessor::parseTimestamp), Coin::setTimestamp)
+			.build();
+
+	/**
+	 * Mapping of the community, developer and public interest data of a /coins/{id}/history response.
+	 */
+	private static final CoinFieldMapper COMMUNITY_DATA_MAPPER = communityFields(CoinFieldMapper.builder()).build();
+
+	/**
+	 * Mapping of historical /coins/{id}/history data.
+	 */
+	private static final CoinFieldMapper HISTORICAL_DATA_MAPPER = communityFields(commonFields()).build();
+
+	/**
+	 * Declares the fields shared by current and historical data: name, symbol and the market values.
+	 *
+	 * @return The builder holding the shared fields
+	 */
+	private static CoinFieldMapper.Builder commonFields() {
+		CoinFieldMapper.Builder builder = CoinFieldMapper.builder()
+				.text("/name", Coin::setCoinName)
+				.text("/symbol", Coin::setSymbol)
+				.group("/market_data");
+		MARKET_VALUE_SETTERS.forEach((key, setter) -> builder.decimal("/market_data/" + key, setter));
+		return builder;
+	}
+
+	/**
+	 * Declares the community, developer and public interest fields.
+	 *
+	 * @param builder The builder to add the fields to
+	 * @return The builder holding the added fields
+	 */
+	private static CoinFieldMapper.Builder communityFields(CoinFieldMapper.Builder builder) {
+		return builder
+				.group("/community_data")
+				.integer("/community_data/twitter_followers", Coin::setTwitterFollowers)
+				.decimal("/community_data/reddit_average_posts_48h", Coin::setRedditAvgPosts48Hours)
+				.decimal("/community_data/reddit_average_comments_48h", Coin::setRedditAvgComments48Hours)
+				.integer("/community_data/reddit_subscribers", Coin::setRedditSubscribers)
+				.decimal("/community_data/reddit_accounts_active_48h", Coin::setRedditAccountsActive48Hours)
+				.group("/developer_data")
+				.integer("/developer_data/forks", Coin::setDevForks)
+				.integer("/developer_data/stars", Coin::setDevStars)
+				.integer("/developer_data/total_issues", Coin::setDevTotalIssues)
+				.integer("/developer_data/closed_issues", Coin::setDevClosedIssues)
+				.integer("/developer_data/pull_requests_merged", Coin::setDevPullRequestsMerged)
+				.integer("/developer_data/pull_request_contributors", Coin::setDevPullRequestContributors)
+				.integer("/developer_data/commit_count_4_weeks", Coin::setDevCommitCount4Weeks)
+				.group("/developer_data/code_additions_deletions_4_weeks")
+				.integer("/developer_data/code_additions_deletions_4_weeks/additions", Coin::setDevCodeAdditions4Weeks)
+				.integer("/developer_data/code_additions_deletions_4_weeks/deletions", Coin::setDevCodeDeletions4Weeks)
+				.group("/public_interest_stats")
+				.integer("/public_interest_stats/alexa_rank", Coin::setPublicAlexaRank);
+	}
+
 	/**
 	 * Creates a Coin object from JsonNode data.
 	 *
@@ -31,43 +129,50 @@ public class CoinDataProcessor {
 	public Coin createCoinFromJsonNode(String cryptoId, JsonNode rootNode) {
 		Coin coin = new Coin();
 		coin.setCoinId(cryptoId);
-		coin.setCoinName(getTextSafely(rootNode, "name"));
-		coin.setSymbol(getTextSafely(rootNode, "symbol"));
-
-		JsonNode marketData = rootNode.path("market_data");
-		if (!marketData.isMissingNode()) {
-			String lastUpdatedStr = getTextSafely(marketData, "last_updated");
-			coin.setTimestamp(parseTimestamp(lastUpdatedStr));
-
-			JsonNode currentPrice = marketData.path("current_price");
-			coin.setPriceEur(getDecimalSafely(currentPrice, "eur"));
-			coin.setPriceUsd(getDecimalSafely(currentPrice, "usd"));
-			coin.setPriceBtc(getDecimalSafely(currentPrice, "btc"));
-			coin.setPriceEth(getDecimalSafely(currentPrice, "eth"));
-
-			JsonNode marketCap = marketData.path("market_cap");
-			coin.setMarketCapEur(getDecimalSafely(marketCap, "eur"));
-			coin.setMarketCapUsd(getDecimalSafely(marketCap, "usd"));
-			coin.setMarketCapBtc(getDecimalSafely(marketCap, "btc"));
-			coin.setMarketCapEth(getDecimalSafely(marketCap, "eth"));
-
-			JsonNode totalVolume = marketData.path("total_volume");
-			coin.setTotalVolumeEur(getDecimalSafely(totalVolume, "eur"));
-			coin.setTotalVolumeUsd(getDecimalSafely(totalVolume, "usd"));
-			coin.setTotalVolumeBtc(getDecimalSafely(totalVolume, "btc"));
-			coin.setTotalVolumeEth(getDecimalSafely(totalVolume, "eth"));
-		}
+		CURRENT_DATA_MAPPER.map(rootNode, coin);
 
 		return coin;
 	}
 
+	/**
+	 * Creates a Coin object from a row of the markets endpoint and the matching simple price entry.
+	 * The markets row provides the name, symbol, update time and USD values; the simple price entry
+	 * provides the values in all other currencies.
+	 *
+	 * @param marketsRow JsonNode containing one row of the markets response, quoted in USD
+	 * @param simplePrice JsonNode containing the simple price entry of the same coin, may be null
+	 * @return Coin object with the processed data
+	 */
+	public Coin createCoinFromMarketsRow(JsonNode marketsRow, JsonNode simplePrice) {
+		Coin coin = new Coin();
+		coin.setCoinId(getTextSafely(marketsRow, "id"));
+		coin.setCoinName(getTextSafely(marketsRow, "name"));
+		coin.setSymbol(getTextSafely(marketsRow, "symbol"));
+		coin.setTimestamp(parseTimestamp(getTextSafely(marketsRow, "last_updated")));
+		setMarketValues(coin, "usd",
+				getDecimalSafely(marketsRow, "current_price"),
+				getDecimalSafely(marketsRow, "market_cap"),
+				getDecimalSafely(marketsRow, "total_volume"));
+
+		JsonNode prices = simplePrice != null ? simplePrice : MissingNode.getInstance();
+		for (String currency : MARKET_CHART_CURRENCIES) {
+			if (!"usd".equals(currency)) {
+				setMarketValues(coin, currency,
+						getDecimalSafely(prices, currency),
+						getDecimalSafely(prices, currency + "_market_cap"),
+						getDecimalSafely(prices, currency + "_24h_vol"));
+			}
+		}
+		return coin;
+	}
+
 	/**
 	 * Parses a timestamp string into a Timestamp object.
 	 *
 	 * @param dateTimeStr The timestamp string to parse
 	 * @return A Timestamp object representing the parsed date and time
 	 */
-	private Timestamp parseTimestamp(String dateTimeStr) {
+	private static Timestamp parseTimestamp(String dateTimeStr) {
 		try {
 			Instant instant = Instant.parse(dateTimeStr);
 			return new Timestamp(instant.toEpochMilli());
@@ -87,147 +192,176 @@ public class CoinDataProcessor {
 	 * @throws IOException if there's an error parsing the JSON data
 	 */
 	public Coin parseCoinData(String jsonData, String coinId, LocalDate date) throws IOException {
-		ObjectMapper mapper = new ObjectMapper();
-		JsonNode root = mapper.readTree(jsonData);
+		JsonNode root = OBJECT_MAPPER.readTree(jsonData);
 		Coin coin = new Coin();
 		coin.setCoinId(coinId);
 		coin.setTimestamp(Timestamp.valueOf(date.atStartOfDay()));
-		coin.setSymbol(getTextSafely(root, "symbol"));
-		coin.setCoinName(getTextSafely(root, "name"));
-
-		JsonNode marketData = root.get("market_data");
-		if (marketData != null) {
-			setCoinPrices(coin, marketData.get("current_price"));
-			setCoinMarketCaps(coin, marketData.get("market_cap"));
-			setCoinVolumes(coin, marketData.get("total_volume"));
-		}
-
-		setCommunityData(coin, root.get("community_data"));
-		setDeveloperData(coin, root.get("developer_data"));
-		setPublicInterestStats(coin, root.get("public_interest_stats"));
+		HISTORICAL_DATA_MAPPER.map(root, coin);
 
 		return coin;
 	}
 
 	/**
-	 * Sets the prices for a coin from the given JsonNode.
+	 * Parses coin data from a streamed /coins/{id} or /coins/{id}/history response.
+	 * The document is read token by token with the same field mapping as the tree-based parsers; every
+	 * unmapped subtree (localization, description, tickers, ...) is skipped without being materialized.
 	 *
-	 * @param coin The Coin object to update
-	 * @param priceNode The JsonNode containing price data
-	 */
-	private void setCoinPrices(Coin coin, JsonNode priceNode) {
-		if (priceNode != null) {
-			coin.setPriceEur(getDecimalSafely(priceNode, "eur"));
-			coin.setPriceUsd(getDecimalSafely(priceNode, "usd"));
-			coin.setPriceBtc(getDecimalSafely(priceNode, "btc"));
-			coin.setPriceEth(getDecimalSafely(priceNode, "eth"));
+	 * @param in The response body stream
+	 * @param coinId ID of the cryptocurrency
+	 * @param date Date of the historical data, or null for current data timestamped with the market data's last update
+	 * @return Coin object with the parsed data
+	 * @throws IOException if there's an error reading or parsing the stream
+	 */
+	public Coin parseCoinStream(InputStream in, String coinId, LocalDate date) throws IOException {
+		Coin coin = new Coin();
+		coin.setCoinId(coinId);
+		try (JsonParser parser = JSON_FACTORY.createParser(in)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new IOException("Expected a JSON object for " + coinId);
+			}
+			if (date == null) {
+				CURRENT_DATA_MAPPER.map(parser, coin);
+			} else {
+				coin.setTimestamp(Timestamp.valueOf(date.atStartOfDay()));
+				HISTORICAL_DATA_MAPPER.map(parser, coin);
+			}
 		}
+		return coin;
 	}
 
 	/**
-	 * Sets the market caps for a coin from the given JsonNode.
+	 * Creates one Coin per day from market chart range data.
+	 * Each chart holds the price, market cap and volume series of one currency. The series are downsampled
+	 * to the first data point of every UTC day, which corresponds to the daily snapshot of the history endpoint.
+	 * Days without a USD price are skipped.
 	 *
-	 * @param coin The Coin object to update
-	 * @param marketCapNode The JsonNode containing market cap data
-	 */
-	private void setCoinMarketCaps(Coin coin, JsonNode marketCapNode) {
-		if (marketCapNode != null) {
-			coin.setMarketCapEur(getDecimalSafely(marketCapNode, "eur"));
-			coin.setMarketCapUsd(getDecimalSafely(marketCapNode, "usd"));
-			coin.setMarketCapBtc(getDecimalSafely(marketCapNode, "btc"));
-			coin.setMarketCapEth(getDecimalSafely(marketCapNode, "eth"));
+	 * @param coinId ID of the cryptocurrency
+	 * @param metadata JsonNode containing the coin's name and symbol
+	 * @param marketCharts Market chart data keyed by currency
+	 * @param startDate The first day to create a Coin for
+	 * @param endDate The last day to create a Coin for
+	 * @return The daily Coin objects in chronological order
+	 */
+	public List<Coin> createCoinsFromMarketCharts(String coinId, JsonNode metadata, Map<String, JsonNode> marketCharts,
+			LocalDate startDate, LocalDate endDate) {
+		Map<String, NavigableMap<Long, BigDecimal>> prices = new HashMap<>();
+		Map<String, NavigableMap<Long, BigDecimal>> marketCaps = new HashMap<>();
+		Map<String, NavigableMap<Long, BigDecimal>> volumes = new HashMap<>();
+		for (Map.Entry<String, JsonNode> chart : marketCharts.entrySet()) {
+			prices.put(chart.getKey(), toSeries(chart.getValue().get("prices")));
+			marketCaps.put(chart.getKey(), toSeries(chart.getValue().get("market_caps")));
+			volumes.put(chart.getKey(), toSeries(chart.getValue().get("total_volumes")));
+		}
+
+		List<Coin> coins = new ArrayList<>();
+		for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+			long dayStart = date.atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+			long dayEnd = date.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+			if (dailyValue(prices.get("usd"), dayStart, dayEnd) == null) {
+				LOG.warn("No market chart data for {} on {}", coinId, date);
+				continue;
+			}
+
+			Coin coin = new Coin();
+			coin.setCoinId(coinId);
+			coin.setTimestamp(Timestamp.valueOf(date.atStartOfDay()));
+			coin.setSymbol(getTextSafely(metadata, "symbol"));
+			coin.setCoinName(getTextSafely(metadata, "name"));
+			for (String currency : MARKET_CHART_CURRENCIES) {
+				setMarketValues(coin, currency,
+						orZero(dailyValue(prices.get(currency), dayStart, dayEnd)),
+						orZero(dailyValue(marketCaps.get(currency), dayStart, dayEnd)),
+						orZero(dailyValue(volumes.get(currency), dayStart, dayEnd)));
+			}
+			coins.add(coin);
 		}
+		return coins;
 	}
 
 	/**
-	 * Sets the volumes for a coin from the given JsonNode.
+	 * Sets the community, developer and public interest data of a coin from a history response.
 	 *
 	 * @param coin The Coin object to update
-	 * @param volumeNode The JsonNode containing volume data
-	 */
-	private void setCoinVolumes(Coin coin, JsonNode volumeNode) {
-		if (volumeNode != null) {
-			coin.setTotalVolumeEur(getDecimalSafely(volumeNode, "eur"));
-			coin.setTotalVolumeUsd(getDecimalSafely(volumeNode, "usd"));
-			coin.setTotalVolumeBtc(getDecimalSafely(volumeNode, "btc"));
-			coin.setTotalVolumeEth(getDecimalSafely(volumeNode, "eth"));
-		}
+	 * @param root JsonNode containing the history response
+	 */
+	public void setCommunityAndDeveloperData(Coin coin, JsonNode root) {
+		COMMUNITY_DATA_MAPPER.map(root, coin);
 	}
 
 	/**
-	 * Sets the community data for a coin from the given JsonNode.
+	 * Converts a market chart series of [timestamp, value] pairs into a map sorted by timestamp.
 	 *
-	 * @param coin The Coin object to update
-	 * @param communityData The JsonNode containing community data
-	 */
-	private void setCommunityData(Coin coin, JsonNode communityData) {
-		if (communityData != null) {
-			coin.setTwitterFollowers(getLongSafely(communityData, "twitter_followers"));
-			coin.setRedditAvgPosts48Hours(getDecimalSafely(communityData, "reddit_average_posts_48h"));
-			coin.setRedditAvgComments48Hours(getDecimalSafely(communityData, "reddit_average_comments_48h"));
-			coin.setRedditSubscribers(getLongSafely(communityData, "reddit_subscribers"));
-			coin.setRedditAccountsActive48Hours(getDecimalSafely(communityData, "reddit_accounts_active_48h"));
+	 * @param seriesNode The JsonNode containing the series, may be null
+	 * @return The series keyed by epoch milliseconds
+	 */
+	private NavigableMap<Long, BigDecimal> toSeries(JsonNode seriesNode) {
+		NavigableMap<Long, BigDecimal> series = new TreeMap<>();
+		if (seriesNode != null) {
+			for (JsonNode point : seriesNode) {
+				JsonNode value = point.get(1);
+				if (point.size() == 2 && value.isNumber()) {
+					series.put(point.get(0).asLong(), value.decimalValue());
+				}
+			}
 		}
+		return series;
 	}
 
 	/**
-	 * Sets the developer data for a coin from the given JsonNode.
+	 * Gets the first value of a series within the given day.
 	 *
-	 * @param coin The Coin object to update
-	 * @param developerData The JsonNode containing developer data
-	 */
-	private void setDeveloperData(Coin coin, JsonNode developerData) {
-		if (developerData != null) {
-			coin.setDevForks(getLongSafely(developerData, "forks"));
-			coin.setDevStars(getLongSafely(developerData, "stars"));
-			coin.setDevTotalIssues(getLongSafely(developerData, "total_issues"));
-			coin.setDevClosedIssues(getLongSafely(developerData, "closed_issues"));
-			coin.setDevPullRequestsMerged(getLongSafely(developerData, "pull_requests_merged"));
-			coin.setDevPullRequestContributors(getLongSafely(developerData, "pull_request_contributors"));
-			coin.setDevCommitCount4Weeks(getLongSafely(developerData, "commit_count_4_weeks"));
-
-			JsonNode codeAdditionsDeletions4Weeks = developerData.get("code_additions_deletions_4_weeks");
-			if (codeAdditionsDeletions4Weeks != null) {
-				coin.setDevCodeAdditions4Weeks(getLongSafely(codeAdditionsDeletions4Weeks, "additions"));
-				coin.setDevCodeDeletions4Weeks(getLongSafely(codeAdditionsDeletions4Weeks, "deletions"));
-			}
+	 * @param series The series keyed by epoch milliseconds, may be null
+	 * @param dayStart The start of the day in epoch milliseconds, inclusive
+	 * @param dayEnd The end of the day in epoch milliseconds, exclusive
+	 * @return The first value of the day, or null if the series has no value for that day
+	 */
+	private BigDecimal dailyValue(NavigableMap<Long, BigDecimal> series, long dayStart, long dayEnd) {
+		if (series == null) {
+			return null;
 		}
+		Map.Entry<Long, BigDecimal> entry = series.ceilingEntry(dayStart);
+		return (entry != null && entry.getKey() < dayEnd) ? entry.getValue() : null;
 	}
 
 	/**
-	 * Sets the public interest stats for a coin from the given JsonNode.
+	 * Sets the price, market cap and volume of a coin for one currency.
 	 *
 	 * @param coin The Coin object to update
-	 * @param publicInterestStats The JsonNode containing public interest stats
+	 * @param currency The currency the values are quoted in
+	 * @param price The price
+	 * @param marketCap The market cap
+	 * @param volume The total volume
 	 */
-	private void setPublicInterestStats(Coin coin, JsonNode publicInterestStats) {
-		if (publicInterestStats != null) {
-			coin.setPublicAlexaRank(getLongSafely(publicInterestStats, "alexa_rank"));
+	private void setMarketValues(Coin coin, String currency, BigDecimal price, BigDecimal marketCap, BigDecimal volume) {
+		BiConsumer<Coin, BigDecimal> priceSetter = MARKET_VALUE_SETTERS.get("current_price/" + currency);
+		if (priceSetter == null) {
+			throw new IllegalArgumentException("Unsupported currency: " + currency);
 		}
+		priceSetter.accept(coin, price);
+		MARKET_VALUE_SETTERS.get("market_cap/" + currency).accept(coin, marketCap);
+		MARKET_VALUE_SETTERS.get("total_volume/" + currency).accept(coin, volume);
 	}
 
 	/**
-	 * Safely gets a BigDecimal value from a JsonNode.
+	 * Returns the given value, or zero if it is null.
 	 *
-	 * @param node The JsonNode to get the value from
-	 * @param fieldName The name of the field to get
-	 * @return The BigDecimal value, or BigDecimal.ZERO if the field is missing or not a number
+	 * @param value The value
+	 * @return The value, or BigDecimal.ZERO if the value is null
 	 */
-	private BigDecimal getDecimalSafely(JsonNode node, String fieldName) {
-		JsonNode field = node.get(fieldName);
-		return (field != null && field.isNumber()) ? field.decimalValue() : BigDecimal.ZERO;
+	private BigDecimal orZero(BigDecimal value) {
+		return value != null ? value : BigDecimal.ZERO;
 	}
 
 	/**
-	 * Safely gets a Long value from a JsonNode.
+	 * Safely gets a BigDecimal value from a JsonNode.
 	 *
 	 * @param node The JsonNode to get the value from
 	 * @param fieldName The name of the field to get
-	 * @return The Long value, or 0L if the field is missing or not a number
+	 * @return The BigDecimal value, or BigDecimal.ZERO if the field is missing or not a number
 	 */
-	private Long getLongSafely(JsonNode node, String fieldName) {
+	private BigDecimal getDecimalSafely(JsonNode node, String fieldName) {
 		JsonNode field = node.get(fieldName);
-		return (field != null && field.isNumber()) ? field.longValue() : 0L;
+		return (field != null && field.isNumber()) ? field.decimalValue() : BigDecimal.ZERO;
 	}
 
 	/**
@@ -0,0 +1,305 @@
+package crypto.processor;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sam.coin.domain.model.Coin;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Table-driven mapper from JSON documents to Coin objects.
+ * The mapping is declared as a table of JSON pointer paths and Coin setters and compiled once into a
+ * path trie. A document is then mapped in a single pass: the trie is walked alongside the document,
+ * so every path segment is looked up exactly once and unmapped subtrees are never visited.
+ * <p>
+ * Every field belongs to a group, the object whose presence makes the field default to its type's
+ * default value when the field itself is missing or has an unexpected type. Defaults are applied once
+ * the group has been read, and only to the fields the document did not provide.
+ */
+public final class CoinFieldMapper {
+
+	private final TrieNode root;
+	private final int fieldCount;
+
+	private CoinFieldMapper(TrieNode root, int fieldCount) {
+		this.root = root;
+		this.fieldCount = fieldCount;
+	}
+
+	/**
+	 * Creates a builder for a new mapping table.
+	 *
+	 * @return The builder
+	 */
+	public static Builder builder() {
+		return new Builder();
+	}
+
+	/**
+	 * Maps a parsed JSON tree onto the given Coin.
+	 *
+	 * @param document The root node of the document
+	 * @param coin The Coin object to update
+	 */
+	public void map(JsonNode document, Coin coin) {
+		map(root, document, coin, new boolean[fieldCount]);
+	}
+
+	/**
+	 * Maps a streamed JSON document onto the given Coin.
+	 * The parser must be positioned at the start of the root object and is left at its end.
+	 *
+	 * @param parser The parser positioned at the root object
+	 * @param coin The Coin object to update
+	 * @throws IOException if there's an error reading the stream
+	 */
+	public void map(JsonParser parser, Coin coin) throws IOException {
+		map(root, parser, coin, new boolean[fieldCount]);
+	}
+
+	private void map(TrieNode node, JsonNode json, Coin coin, boolean[] assigned) {
+		for (Field<?> field : node.fields) {
+			field.set(coin, json);
+			assigned[field.index] = true;
+		}
+		if (json.isObject()) {
+			for (Map.Entry<String, TrieNode> child : node.children.entrySet()) {
+				JsonNode value = json.get(child.getKey());
+				if (value != null) {
+					map(child.getValue(), value, coin, assigned);
+				}
+			}
+		}
+		node.applyDefaults(coin, assigned);
+	}
+
+	private void map(TrieNode node, JsonParser parser, Coin coin, boolean[] assigned) throws IOException {
+		for (Field<?> field : node.fields) {
+			field.set(coin, parser);
+			assigned[field.index] = true;
+		}
+		if (parser.currentToken() == JsonToken.START_OBJECT && !node.children.isEmpty()) {
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				TrieNode child = node.children.get(parser.currentName());
+				parser.nextToken();
+				if (child != null) {
+					map(child, parser, coin, assigned);
+				} else {
+					parser.skipChildren();
+				}
+			}
+		} else {
+			parser.skipChildren();
+		}
+		node.applyDefaults(coin, assigned);
+	}
+
+	/**
+	 * Type of a mapped value, defining how it is read from a tree node or a parser token and its default.
+	 *
+	 * @param <T> The Java type of the value
+	 */
+	public static final class ValueType<T> {
+		/** Text value, defaulting to an empty string. */
+		public static final ValueType<String> TEXT = text(Function.identity());
+		/** Decimal number, defaulting to zero. */
+		public static final ValueType<BigDecimal> DECIMAL = new ValueType<>(
+				node -> node.isNumber() ? node.decimalValue() : BigDecimal.ZERO,
+				parser -> parser.currentToken().isNumeric() ? parser.getDecimalValue() : BigDecimal.ZERO,
+				() -> BigDecimal.ZERO);
+		/** Integral number, defaulting to zero. */
+		public static final ValueType<Long> LONG = new ValueType<>(
+				node -> node.isNumber() ? node.longValue() : 0L,
+				parser -> parser.currentToken().isNumeric() ? parser.getValueAsLong() : 0L,
+				() -> 0L);
+
+		private final Function<JsonNode, T> fromNode;
+		private final ParserReader<T> fromParser;
+		private final Supplier<T> defaultValue;
+
+		private ValueType(Function<JsonNode, T> fromNode, ParserReader<T> fromParser, Supplier<T> defaultValue) {
+			this.fromNode = fromNode;
+			this.fromParser = fromParser;
+			this.defaultValue = defaultValue;
+		}
+
+		/**
+		 * Creates a value type converted from text. Its default is the conversion of an empty string.
+		 *
+		 * @param converter Function converting the text to the value
+		 * @param <T> The Java type of the value
+		 * @return The value type
+		 */
+		public static <T> ValueType<T> text(Function<String, T> converter) {
+			return new ValueType<>(
+					node -> converter.apply(node.asText()),
+					parser -> converter.apply(parser.currentToken().isStructStart() ? "" : parser.getText()),
+					() -> converter.apply(""));
+		}
+	}
+
+	/**
+	 * Reads a value from the current token of a parser.
+	 *
+	 * @param <T> The Java type of the value
+	 */
+	@FunctionalInterface
+	private interface ParserReader<T> {
+		T read(JsonParser parser) throws IOException;
+	}
+
+	/**
+	 * Builder declaring the mapping table.
+	 */
+	public static final class Builder {
+		private final List<Field<?>> fields = new ArrayList<>();
+		private String group = "";
+
+		private Builder() {
+		}
+
+		/**
+		 * Sets the group of the fields declared next.
+		 *
+		 * @param groupPointer JSON pointer of the object whose presence makes the following fields default
+		 * @return This builder
+		 */
+		public Builder group(String groupPointer) {
+			this.group = groupPointer;
+			return this;
+		}
+
+		/**
+		 * Declares a text field.
+		 *
+		 * @param pointer JSON pointer of the field
+		 * @param setter The Coin setter receiving the value
+		 * @return This builder
+		 */
+		public Builder text(String pointer, BiConsumer<Coin, String> setter) {
+			return field(pointer, ValueType.TEXT, setter);
+		}
+
+		/**
+		 * Declares a decimal field.
+		 *
+		 * @param pointer JSON pointer of the field
+		 * @param setter The Coin setter receiving the value
+		 * @return This builder
+		 */
+		public Builder decimal(String pointer, BiConsumer<Coin, BigDecimal> setter) {
+			return field(pointer, ValueType.DECIMAL, setter);
+		}
+
+		/**
+		 * Declares an integral field.
+		 *
+		 * @param pointer JSON pointer of the field
+		 * @param setter The Coin setter receiving the value
+		 * @return This builder
+		 */
+		public Builder integer(String pointer, BiConsumer<Coin, Long> setter) {
+			return field(pointer, ValueType.LONG, setter);
+		}
+
+		/**
+		 * Declares a field of the given type.
+		 *
+		 * @param pointer JSON pointer of the field
+		 * @param type The type of the value
+		 * @param setter The Coin setter receiving the value
+		 * @param <T> The Java type of the value
+		 * @return This builder
+		 */
+		public <T> Builder field(String pointer, ValueType<T> type, BiConsumer<Coin, T> setter) {
+			if (!pointer.startsWith(group + "/")) {
+				throw new IllegalArgumentException("Field " + pointer + " is not inside group " + group);
+			}
+			fields.add(new Field<>(fields.size(), pointer, group, type, setter));
+			return this;
+		}
+
+		/**
+		 * Compiles the declared table into a mapper.
+		 *
+		 * @return The mapper
+		 */
+		public CoinFieldMapper build() {
+			TrieNode root = new TrieNode();
+			for (Field<?> field : fields) {
+				root.descend(field.pointer).fields.add(field);
+				root.descend(field.group).defaults.add(field);
+			}
+			return new CoinFieldMapper(root, fields.size());
+		}
+	}
+
+	/**
+	 * A mapped field: where it is found, its type and the setter receiving it.
+	 *
+	 * @param <T> The Java type of the value
+	 */
+	private static final class Field<T> {
+		private final int index;
+		private final String pointer;
+		private final String group;
+		private final ValueType<T> type;
+		private final BiConsumer<Coin, T> setter;
+
+		private Field(int index, String pointer, String group, ValueType<T> type, BiConsumer<Coin, T> setter) {
+			this.index = index;
+			this.pointer = pointer;
+			this.group = group;
+			this.type = type;
+			this.setter = setter;
+		}
+
+		private void set(Coin coin, JsonNode node) {
+			setter.accept(coin, type.fromNode.apply(node));
+		}
+
+		private void set(Coin coin, JsonParser parser) throws IOException {
+			setter.accept(coin, type.fromParser.read(parser));
+		}
+
+		private void setDefault(Coin coin) {
+			setter.accept(coin, type.defaultValue.get());
+		}
+	}
+
+	/**
+	 * Node of the compiled path trie.
+	 */
+	private static final class TrieNode {
+		private final Map<String, TrieNode> children = new HashMap<>();
+		private final List<Field<?>> fields = new ArrayList<>();
+		private final List<Field<?>> defaults = new ArrayList<>();
+
+		private TrieNode descend(String pointer) {
+			TrieNode node = this;
+			if (!pointer.isEmpty()) {
+				for (String segment : pointer.substring(1).split("/")) {
+					node = node.children.computeIfAbsent(segment, key -> new TrieNode());
+				}
+			}
+			return node;
+		}
+
+		private void applyDefaults(Coin coin, boolean[] assigned) {
+			for (Field<?> field : defaults) {
+				if (!assigned[field.index]) {
+					field.setDefault(coin);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,192 @@
+package crypto.processor;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import crypto.config.CoinCatalog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Filter stage reducing a coin catalog such as coingecko.json to the coins of a portfolio.
+ * The catalog is streamed token by token and the kept entries are written to the target as they are read,
+ * so only one catalog entry is held in memory at a time, however large the catalog grows. Kept entries are
+ * copied unchanged, including fields the filter does not know, in the order of the catalog.
+ */
+public class PortfolioFilter {
+	private static final Logger LOG = LoggerFactory.getLogger(PortfolioFilter.class);
+	private final JsonFactory jsonFactory;
+
+	/**
+	 * Constructs a new PortfolioFilter.
+	 *
+	 * @param objectMapper The ObjectMapper whose factory creates the parsers and generators
+	 */
+	public PortfolioFilter(ObjectMapper objectMapper) {
+		this.jsonFactory = objectMapper.getFactory();
+	}
+
+	/**
+	 * Copies the first catalog entry of every portfolio coin from the source to the target.
+	 * Later entries with an id already copied are skipped, and reading stops as soon as every coin of the portfolio has been found.
+	 *
+	 * @param source The catalog, a JSON array of objects with an id field
+	 * @param ids The ids of the coins in the portfolio
+	 * @param target The stream the JSON array of kept entries is written to; it is flushed but not closed
+	 * @return The number of kept entries, one per portfolio coin found
+	 * @throws IOException if the catalog cannot be parsed or the target cannot be written
+	 */
+	public int filter(InputStream source, Set<String> ids, OutputStream target) throws IOException {
+		Set<String> remaining = new HashSet<>(ids);
+		try (JsonParser parser = jsonFactory.createParser(source);
+			 JsonGenerator generator = jsonFactory.createGenerator(target)) {
+			parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+			generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			expect(parser, parser.nextToken(), JsonToken.START_ARRAY);
+			generator.writeStartArray();
+			while (!remaining.isEmpty() && parser.nextToken() == JsonToken.START_OBJECT) {
+				TokenBuffer entry = new TokenBuffer(parser);
+				String id = copyEntry(parser, entry);
+				if (id != null && remaining.remove(id)) {
+					try (JsonParser buffered = entry.asParser()) {
+						buffered.nextToken();
+						generator.copyCurrentStructure(buffered);
+					}
+				}
+			}
+			if (!remaining.isEmpty()) {
+				expect(parser, parser.currentToken(), JsonToken.END_ARRAY);
+			}
+			generator.writeEndArray();
+		}
+		return ids.size() - remaining.size();
+	}
+
+	/**
+	 * Filters a catalog file into a target file. The target is written to a temporary file first and
+	 * replaces the previous target only once it is complete.
+	 *
+	 * @param source The catalog file
+	 * @param ids The ids of the coins in the portfolio
+	 * @param target The target file
+	 * @return The number of kept entries
+	 * @throws IOException if the catalog cannot be read or parsed or the target cannot be written
+	 */
+	public int filter(Path source, Set<String> ids, Path target) throws IOException {
+		try (InputStream in = Files.newInputStream(source)) {
+			return filter(in, ids, target);
+		}
+	}
+
+	/**
+	 * Filters a catalog, e.g. a classpath resource, into a target file. The target is written to a temporary
+	 * file first and replaces the previous target only once it is complete.
+	 *
+	 * @param source The catalog; it is not closed
+	 * @param ids The ids of the coins in the portfolio
+	 * @param target The target file
+	 * @return The number of kept entries
+	 * @throws IOException if the catalog cannot be read or parsed or the target cannot be written
+	 */
+	public int filter(InputStream source, Set<String> ids, Path target) throws IOException {
+		Path directory = target.toAbsolutePath().getParent();
+		Files.createDirectories(directory);
+		Path temp = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+		try {
+			int kept;
+			try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+				kept = filter(source, ids, out);
+			}
+			Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			if (kept < ids.size()) {
+				LOG.warn("Only {} of {} portfolio coins found in the catalog", kept, ids.size());
+			}
+			return kept;
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Reads the CoinGecko ids of the coins in a portfolio file such as portfolio.json, a JSON array of
+	 * CoinMarketCap listings. The slug of every listing is resolved through the coin catalog; listings
+	 * the catalog cannot resolve are logged and skipped.
+	 *
+	 * @param portfolio The portfolio, a JSON array of objects with a slug field
+	 * @param catalog The catalog resolving slugs to CoinGecko ids
+	 * @return The CoinGecko ids in the order of the portfolio
+	 * @throws IOException if the portfolio cannot be parsed
+	 */
+	public Set<String> readPortfolioIds(InputStream portfolio, CoinCatalog catalog) throws IOException {
+		Set<String> ids = new LinkedHashSet<>();
+		try (JsonParser parser = jsonFactory.createParser(portfolio)) {
+			expect(parser, parser.nextToken(), JsonToken.START_ARRAY);
+			while (parser.nextToken() == JsonToken.START_OBJECT) {
+				String slug = null;
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+					String name = parser.currentName();
+					if (parser.nextToken() == JsonToken.VALUE_STRING && "slug".equals(name)) {
+						slug = parser.getText();
+					} else {
+						parser.skipChildren();
+					}
+				}
+				if (slug == null) {
+					continue;
+				}
+				String resolved = catalog.resolve(slug).orElse(null);
+				if (resolved != null) {
+					ids.add(resolved);
+				} else {
+					LOG.warn("Portfolio coin {} is not in the coin catalog", slug);
+				}
+			}
+			expect(parser, parser.currentToken(), JsonToken.END_ARRAY);
+		}
+		return ids;
+	}
+
+	/**
+	 * Copies the object the parser is positioned at into a buffer.
+	 *
+	 * @param parser The parser positioned at the start of the object
+	 * @param entry The buffer to copy the object to
+	 * @return The value of the object's id field, or null if it has none
+	 * @throws IOException if the object cannot be parsed
+	 */
+	private static String copyEntry(JsonParser parser, TokenBuffer entry) throws IOException {
+		String id = null;
+		entry.writeStartObject();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String name = parser.currentName();
+			JsonToken value = parser.nextToken();
+			if (value == JsonToken.VALUE_STRING && "id".equals(name)) {
+				id = parser.getText();
+			}
+			entry.writeFieldName(name);
+			entry.copyCurrentStructure(parser);
+		}
+		entry.writeEndObject();
+		return id;
+	}
+
+	private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws IOException {
+		if (actual != expected) {
+			throw new IOException("Invalid catalog: expected " + expected + " but found " + actual + " at " + parser.currentLocation());
+		}
+	}
+}
@@ -0,0 +1,325 @@
+package crypto.service;
+
+import com.sam.coin.domain.model.Coin;
+import crypto.config.CoinCatalog;
+import crypto.config.CryptoConfig;
+import crypto.processor.CoinDataProcessor;
+import crypto.processor.JsonProcessor;
+import crypto.service.api.AsyncCryptoDataSource;
+import crypto.util.HistoryArchive;
+import crypto.util.HttpClientWrapper;
+import crypto.util.RateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Asynchronous variant of the CoinGecko data source.
+ * Fetching, parsing and sending are chained as CompletableFuture stages, so no thread is parked while
+ * requests are in flight or while waiting for the rate limiter. Parsing runs on the given executor; the
+ * network I/O runs on the HttpClient's executor. The blocking {@link crypto.service.api.CryptoDataSource}
+ * methods are inherited unchanged from {@link CoinGeckoService}.
+ * <p>
+ * Current data is requested in pages through the markets endpoint in batch mode, like the blocking service does.
+ * Historical data is always requested per day, since the range mode's per-coin metadata and chart requests are
+ * not chained asynchronously, and responses are always read whole, since asynchronous bodies are not streamed;
+ * the historical range mode and streaming parse settings only apply to the blocking methods.
+ */
+public class AsyncCoinGeckoService extends CoinGeckoService implements AsyncCryptoDataSource {
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncCoinGeckoService.class);
+    private final Executor executor;
+
+    /**
+     * Constructs a new AsyncCoinGeckoService with the specified dependencies.
+     *
+     * @param config Configuration for the service
+     * @param httpClient HTTP client wrapper for making API requests
+     * @param jsonProcessor Processor for JSON data
+     * @param coinDataProcessor Processor for coin data
+     * @param rateLimiter Rate limiter to control API request frequency
+     * @param executor Executor running the parse stages and delayed retries
+     */
+    public AsyncCoinGeckoService(CryptoConfig config, HttpClientWrapper httpClient, JsonProcessor jsonProcessor,
+                                 CoinDataProcessor coinDataProcessor, RateLimiter rateLimiter, Executor executor) {
+        this(config, httpClient, jsonProcessor, coinDataProcessor, rateLimiter, executor, null);
+    }
+
+    /**
+     * Constructs a new AsyncCoinGeckoService archiving the history responses it downloads.
+     *
+     * @param config Configuration for the service
+     * @param httpClient HTTP client wrapper for making API requests
+     * @param jsonProcessor Processor for JSON data
+     * @param coinDataProcessor Processor for coin data
+     * @param rateLimiter Rate limiter to control API request frequency
+     * @param executor Executor running the parse stages and delayed retries
+     * @param historyArchive Archive of history responses, or null to always download them
+     */
+    public AsyncCoinGeckoService(CryptoConfig config, HttpClientWrapper httpClient, JsonProcessor jsonProcessor,
+                                 CoinDataProcessor coinDataProcessor, RateLimiter rateLimiter, Executor executor,
+                                 HistoryArchive historyArchive) {
+        this(config, httpClient, jsonProcessor, coinDataProcessor, rateLimiter, executor, historyArchive, null);
+    }
+
+    /**
+     * Constructs a new AsyncCoinGeckoService taking the names and symbols of coins from a coin catalog
+     * in the inherited blocking range mode.
+     *
+     * @param config Configuration for the service
+     * @param httpClient HTTP client wrapper for making API requests
+     * @param jsonProcessor Processor for JSON data
+     * @param coinDataProcessor Processor for coin data
+     * @param rateLimiter Rate limiter to control API request frequency
+     * @param executor Executor running the parse stages and delayed retries
+     * @param historyArchive Archive of history responses, or null to always download them
+     * @param coinCatalog Catalog of coin names and symbols, or null to request them
+     */
+    public AsyncCoinGeckoService(CryptoConfig config, HttpClientWrapper httpClient, JsonProcessor jsonProcessor,
+                                 CoinDataProcessor coinDataProcessor, RateLimiter rateLimiter, Executor executor,
+                                 HistoryArchive historyArchive, CoinCatalog coinCatalog) {
+        super(config, httpClient, jsonProcessor, coinDataProcessor, rateLimiter, historyArchive, coinCatalog);
+        this.executor = executor;
+        if (config.isHistoricalRangeMode() || config.isStreamingParse()) {
+            LOG.warn("Asynchronous fetching requests historical data per day and parses whole responses; "
+                    + "the historical range mode and streaming parse settings are ignored");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * In batch mode the pages of coins are requested concurrently through the markets endpoint, otherwise all
+     * coins are requested concurrently; either way the requests are paced only by the rate limiter.
+     */
+    @Override
+    public CompletableFuture<Void> fetchAndSendCurrentDataAsync(List<String> cryptoIds, Function<Coin, ? extends CompletionStage<?>> sendToBackend) {
+        if (getConfig().isBatchCurrentData()) {
+            return fetchAndSendCurrentDataBatchedAsync(cryptoIds, sendToBackend);
+        }
+        List<CompletableFuture<?>> coins = new ArrayList<>(cryptoIds.size());
+        for (String cryptoId : cryptoIds) {
+            String url = String.format("%s/coins/%s", getConfig().getCoingeckoApiUrl(), cryptoId);
+            coins.add(fetchAsync(url, cryptoId, 0)
+                    .thenApplyAsync(response -> response != null ? parseCurrentData(cryptoId, response) : null, executor)
+                    .thenCompose(coin -> send(coin, sendToBackend)));
+        }
+        return allOf(coins);
+    }
+
+    /**
+     * Fetches and sends current data in pages of coins, each costing one markets and one simple price request.
+     * A page is skipped if either request fails.
+     *
+     * @param cryptoIds The IDs of the cryptocurrencies
+     * @param sendToBackend Function sending processed data to the backend asynchronously
+     * @return A future that completes when all pages have been sent
+     */
+    private CompletableFuture<Void> fetchAndSendCurrentDataBatchedAsync(List<String> cryptoIds,
+                                                                       Function<Coin, ? extends CompletionStage<?>> sendToBackend) {
+        List<CompletableFuture<?>> pages = new ArrayList<>();
+        for (int from = 0; from < cryptoIds.size(); from += MARKETS_PAGE_SIZE) {
+            List<String> page = cryptoIds.subList(from, Math.min(from + MARKETS_PAGE_SIZE, cryptoIds.size()));
+            String ids = String.join(",", page);
+            CompletableFuture<String> markets = fetchAsync(marketsUrl(ids), ids, 0);
+            CompletableFuture<String> prices = fetchAsync(pricesUrl(ids), ids, 0);
+            pages.add(markets.thenCombineAsync(prices, (marketsResponse, pricesResponse) ->
+                            marketsResponse != null && pricesResponse != null
+                                    ? parseMarketsPage(page, marketsResponse, pricesResponse)
+                                    : Collections.<Coin>emptyList(), executor)
+                    .thenCompose(coins -> {
+                        List<CompletableFuture<?>> sends = new ArrayList<>(coins.size());
+                        coins.forEach(coin -> sends.add(send(coin, sendToBackend)));
+                        return allOf(sends);
+                    }));
+        }
+        return allOf(pages);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Coins are processed concurrently, the days of each coin in order.
+     */
+    @Override
+    public CompletableFuture<Void> fetchAndSendHistoricalDataAsync(List<String> cryptoIds, Map<String, Date> lastValidDates,
+                                                                   Function<Coin, ? extends CompletionStage<?>> sendToBackend) {
+        List<CompletableFuture<?>> coins = new ArrayList<>(cryptoIds.size());
+        for (String coinId : cryptoIds) {
+            LocalDate startDate = determineStartDate(lastValidDates.get(coinId), coinId);
+            coins.add(fetchAndSendDaysAsync(coinId, startDate, LocalDate.now(), sendToBackend));
+        }
+        return allOf(coins);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Coins are processed concurrently, the days of each coin in order.
+     */
+    @Override
+    public CompletableFuture<Void> fetchAndSendAllHistoricalDataAsync(List<String> cryptoIds, int timeFrame,
+                                                                      Function<Coin, ? extends CompletionStage<?>> sendToBackend) {
+        LocalDate endDate = LocalDate.now();
+        LocalDate startDate = endDate.minusDays(timeFrame - 1);
+        List<CompletableFuture<?>> coins = new ArrayList<>(cryptoIds.size());
+        for (String coinId : cryptoIds) {
+            coins.add(fetchAndSendDaysAsync(coinId, startDate, endDate, sendToBackend));
+        }
+        return allOf(coins);
+    }
+
+    /**
+     * Fetches the days of one coin one after another, while parsing and sending of each day overlap with
+     * fetching the next one.
+     *
+     * @param coinId The ID of the cryptocurrency
+     * @param startDate The first day to fetch
+     * @param endDate The last day to fetch
+     * @param sendToBackend Function sending processed data to the backend asynchronously
+     * @return A future that completes when all days have been sent
+     */
+    private CompletableFuture<Void> fetchAndSendDaysAsync(String coinId, LocalDate startDate, LocalDate endDate,
+                                                         Function<Coin, ? extends CompletionStage<?>> sendToBackend) {
+        List<CompletableFuture<?>> sends = new ArrayList<>();
+        CompletableFuture<?> fetches = CompletableFuture.completedFuture(null);
+        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
+            LocalDate day = date;
+            String url = String.format("%s/coins/%s/history?date=%s", getConfig().getCoingeckoApiUrl(), coinId,
+                    day.format(DateTimeFormatter.ofPattern("dd-MM-yyyy")));
+            CompletableFuture<String> fetch = fetches.thenCompose(ignored -> fetchHistoryAsync(url, coinId, day));
+            sends.add(fetch
+                    .thenApplyAsync(response -> response != null ? parseHistoricalData(coinId, day, response) : null, executor)
+                    .thenCompose(coin -> send(coin, sendToBackend)));
+            fetches = fetch;
+        }
+        return allOf(sends);
+    }
+
+    /**
+     * Gets the history response of a coin for a day from the archive, or fetches and archives it if it is not archived yet.
+     *
+     * @param url The URL to fetch
+     * @param coinId The ID of the cryptocurrency
+     * @param date The date of the historical data
+     * @return A future completed with the response body, or with null if the request failed and is not retried any more
+     */
+    private CompletableFuture<String> fetchHistoryAsync(String url, String coinId, LocalDate date) {
+        byte[] archived = loadArchivedHistory(coinId, date);
+        if (archived != null) {
+            return CompletableFuture.completedFuture(new String(archived, StandardCharsets.UTF_8));
+        }
+        return fetchAsync(url, coinId, 0).thenApply(response -> {
+            if (response != null) {
+                archiveHistory(coinId, date, response.getBytes(StandardCharsets.UTF_8));
+            }
+            return response;
+        });
+    }
+
+    /**
+     * Fetches the response body of the given URL, acquiring a rate limiter permit before every attempt.
+     * Failed attempts are rescheduled after the backoff delay instead of blocking a thread.
+     *
+     * @param url The URL to fetch
+     * @param cryptoId The ID of the cryptocurrency the request is made for, used for logging
+     * @param retryCount The number of retries already performed
+     * @return A future completed with the response body, or with null if the request failed and is not retried any more
+     */
+    private CompletableFuture<String> fetchAsync(String url, String cryptoId, int retryCount) {
+        if (retryCount == 0) {
+            getRetryPolicy().recordRequest();
+        }
+        return getRateLimiter().acquireAsync()
+                .thenCompose(ignored -> {
+                    long started = System.nanoTime();
+                    return getHttpClient().sendGetRequestAsync(url)
+                            .whenComplete((response, error) -> recordAttempt(url, cryptoId, started, error));
+                })
+                .handle((response, error) -> {
+                    if (error == null) {
+                        getRateLimiter().recordSuccess();
+                        return CompletableFuture.completedFuture(response);
+                    }
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                    LOG.warn("Request {} failed for {}: {}", url, cryptoId, cause.getMessage());
+                    Duration serverDelay = recordThrottling(cause);
+                    if (!getRetryPolicy().shouldRetry(cause, retryCount)) {
+                        LOG.error("Giving up on {}. Skipping request {}.", cryptoId, url);
+                        return CompletableFuture.<String>completedFuture(null);
+                    }
+                    long delay = retryDelay(serverDelay, retryCount);
+                    LOG.info("Retrying in {} milliseconds...", delay);
+                    recordRetry(url, cryptoId, delay);
+                    Executor delayed = CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, executor);
+                    return CompletableFuture.runAsync(() -> { }, delayed)
+                            .thenCompose(ignored -> fetchAsync(url, cryptoId, retryCount + 1));
+                })
+                .thenCompose(Function.identity());
+    }
+
+    /**
+     * Parses a current data response into a Coin.
+     *
+     * @param cryptoId The ID of the cryptocurrency
+     * @param response The response body
+     * @return The parsed Coin, or null if the response could not be parsed
+     */
+    private Coin parseCurrentData(String cryptoId, String response) {
+        try {
+            return getCoinDataProcessor().createCoinFromJsonNode(cryptoId, getJsonProcessor().parseJson(response));
+        } catch (Exception e) {
+            LOG.error("Failed to parse crypto data for {}", cryptoId, e);
+            return null;
+        }
+    }
+
+    /**
+     * Parses a history response into a Coin.
+     *
+     * @param coinId The ID of the cryptocurrency
+     * @param date The date of the historical data
+     * @param response The response body
+     * @return The parsed Coin, or null if the response could not be parsed
+     */
+    private Coin parseHistoricalData(String coinId, LocalDate date, String response) {
+        try {
+            return getCoinDataProcessor().parseCoinData(response, coinId, date);
+        } catch (Exception e) {
+            LOG.error("Failed to parse historical data for {} on {}", coinId, date, e);
+            return null;
+        }
+    }
+
+    /**
+     * Hands a parsed Coin to the backend function.
+     *
+     * @param coin The Coin to send, or null if there is nothing to send
+     * @param sendToBackend Function sending processed data to the backend asynchronously
+     * @return A future that completes when the backend function's future completes
+     */
+    private CompletableFuture<?> send(Coin coin, Function<Coin, ? extends CompletionStage<?>> sendToBackend) {
+        return coin != null ? sendToBackend.apply(coin).toCompletableFuture() : CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Combines futures into one that completes when all of them have completed.
+     *
+     * @param futures The futures to combine
+     * @return The combined future
+     */
+    private static CompletableFuture<Void> allOf(List<CompletableFuture<?>> futures) {
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+    }
+}
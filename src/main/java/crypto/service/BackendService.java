@@ -1,29 +1,51 @@
 package crypto.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.sam.coin.domain.model.Coin;
+import crypto.metrics.MetricsRegistry;
 import crypto.processor.JsonProcessor;
+import crypto.util.ConcurrentTasks;
 import crypto.util.HttpClientWrapper;
+import crypto.util.HttpStatusException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.http.HttpResponse;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.text.ParsePosition;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Service for interacting with the backend API.
  * This class handles sending coin data to the backend and retrieving last valid dates for cryptocurrencies.
+ * The latency and outcome of every POST request are recorded in the global metrics registry.
  */
 public class BackendService {
 	private static final Logger LOG = LoggerFactory.getLogger(BackendService.class);
+	private static final String BATCH_PATH = "/batch";
+	private static final Set<Integer> BATCH_UNSUPPORTED_STATUS_CODES = Set.of(404, 405, 415);
+	private static final Set<Integer> BATCH_INVALID_STATUS_CODES = Set.of(400, 422);
+	private static final Set<Integer> BULK_UNSUPPORTED_STATUS_CODES = Set.of(404, 405, 501);
+	private static final String LOOKUP_THREAD_PREFIX = "backend-lookup";
+	private static final String COIN_ENDPOINT = "coin";
+	private static final String BATCH_ENDPOINT = "batch";
 	private final String backendUrl;
 	private final HttpClientWrapper httpClient;
 	private final JsonProcessor jsonProcessor;
 	private final List<String> cryptoIds;
-	private final SimpleDateFormat dateFormat;
+	private final int lookupConcurrency;
+	private final AtomicBoolean bulkLookupSupported;
+	private final AtomicBoolean batchSupported = new AtomicBoolean(true);
+	private final CoinOutbox outbox;
 
 	/**
 	 * Constructor for BackendService.
@@ -34,51 +56,300 @@ public class BackendService {
 	 * @param cryptoIds List of cryptocurrency IDs
 	 */
 	public BackendService(String backendUrl, HttpClientWrapper httpClient, JsonProcessor jsonProcessor, List<String> cryptoIds) {
+		this(backendUrl, httpClient, jsonProcessor, cryptoIds, 1, false);
+	}
+
+	/**
+	 * Constructor for BackendService with a concurrent last valid date lookup.
+	 *
+	 * @param backendUrl URL of the backend API
+	 * @param httpClient HTTP client wrapper for making API requests
+	 * @param jsonProcessor Processor for JSON data
+	 * @param cryptoIds List of cryptocurrency IDs
+	 * @param lookupConcurrency Maximum number of last valid date requests sent concurrently
+	 * @param bulkLookup Whether to try the bulk last valid dates endpoint before the per-coin requests
+	 */
+	public BackendService(String backendUrl, HttpClientWrapper httpClient, JsonProcessor jsonProcessor, List<String> cryptoIds,
+			int lookupConcurrency, boolean bulkLookup) {
+		this(backendUrl, httpClient, jsonProcessor, cryptoIds, lookupConcurrency, bulkLookup, null);
+	}
+
+	/**
+	 * Constructor for BackendService keeping coins the backend failed to accept in an outbox.
+	 *
+	 * @param backendUrl URL of the backend API
+	 * @param httpClient HTTP client wrapper for making API requests
+	 * @param jsonProcessor Processor for JSON data
+	 * @param cryptoIds List of cryptocurrency IDs
+	 * @param lookupConcurrency Maximum number of last valid date requests sent concurrently
+	 * @param bulkLookup Whether to try the bulk last valid dates endpoint before the per-coin requests
+	 * @param outbox Outbox for coins that could not be delivered, or null to drop them
+	 */
+	public BackendService(String backendUrl, HttpClientWrapper httpClient, JsonProcessor jsonProcessor, List<String> cryptoIds,
+			int lookupConcurrency, boolean bulkLookup, CoinOutbox outbox) {
 		this.backendUrl = backendUrl;
 		this.httpClient = httpClient;
 		this.jsonProcessor = jsonProcessor;
 		this.cryptoIds = cryptoIds;
-		this.dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+		this.lookupConcurrency = lookupConcurrency;
+		this.bulkLookupSupported = new AtomicBoolean(bulkLookup);
+		this.outbox = outbox;
 	}
 
 	/**
 	 * Sends coin data to the backend.
 	 * This method serializes the coin data to JSON and sends it via a POST request.
+	 * If the backend does not accept the data, the coin is kept in the outbox, if there is one.
 	 *
 	 * @param coin Coin object containing the data to be sent
+	 * @return true if the backend accepted the data, false otherwise
 	 */
-	public void sendCoinDataToBackend(Coin coin) {
+	public boolean sendCoinDataToBackend(Coin coin) {
+		if (postCoinData(coin)) {
+			return true;
+		}
+		keepInOutbox(coin);
+		return false;
+	}
+
+	/**
+	 * Sends coin data taken from the outbox to the backend.
+	 * Unlike {@link #sendCoinDataToBackend(Coin)}, the coin is not kept in the outbox again if the backend does not accept it.
+	 *
+	 * @param coin Coin object containing the data to be sent
+	 * @return true if the backend accepted the data, false otherwise
+	 */
+	public boolean resendCoinDataToBackend(Coin coin) {
+		return postCoinData(coin);
+	}
+
+	/**
+	 * Serializes the coin data to JSON and sends it via a POST request.
+	 *
+	 * @param coin Coin object containing the data to be sent
+	 * @return true if the backend accepted the data, false otherwise
+	 */
+	private boolean postCoinData(Coin coin) {
 		try {
 			String jsonCoin = jsonProcessor.getObjectMapper().writeValueAsString(coin);
 			String prettyJsonCoin = jsonProcessor.getObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsString(coin);
 			LOG.info("Sending coin data to backend:\n{}", prettyJsonCoin);
 
-			HttpResponse<String> response = httpClient.sendPostRequest(backendUrl, jsonCoin);
+			long started = System.nanoTime();
+			HttpResponse<String> response;
+			try {
+				response = httpClient.sendPostRequest(backendUrl, jsonCoin);
+			} catch (Exception e) {
+				recordPost(COIN_ENDPOINT, coin.getCoinId(), started, e);
+				throw e;
+			}
+			recordPost(COIN_ENDPOINT, coin.getCoinId(), started, null);
 			LOG.info("Backend response: {}", response);
+			return true;
 		} catch (Exception e) {
 			LOG.error("Error sending coin data to backend. Make sure the backend service is running and accessible.", e);
+			return false;
+		}
+	}
+
+	/**
+	 * Sends coin data to the backend without blocking the calling thread.
+	 * Like {@link #sendCoinDataToBackend(Coin)}, failures are logged rather than propagated and the coin is kept in the outbox.
+	 *
+	 * @param coin Coin object containing the data to be sent
+	 * @return A future completed with true if the backend accepted the data, false otherwise
+	 */
+	public CompletableFuture<Boolean> sendCoinDataToBackendAsync(Coin coin) {
+		String jsonCoin;
+		try {
+			jsonCoin = jsonProcessor.getObjectMapper().writeValueAsString(coin);
+		} catch (JsonProcessingException e) {
+			LOG.error("Error serializing coin data for {}", coin.getCoinId(), e);
+			return CompletableFuture.completedFuture(false);
+		}
+		LOG.debug("Sending coin data to backend:\n{}", jsonCoin);
+
+		long started = System.nanoTime();
+		return httpClient.sendPostRequestAsync(backendUrl, jsonCoin)
+				.handle((response, error) -> {
+					recordPost(COIN_ENDPOINT, coin.getCoinId(), started, error);
+					if (error != null) {
+						LOG.error("Error sending coin data to backend. Make sure the backend service is running and accessible.", error);
+						keepInOutbox(coin);
+						return false;
+					}
+					LOG.info("Backend response: {}", response);
+					return true;
+				});
+	}
+
+	/**
+	 * Sends a batch of coin data to the backend as one JSON array without blocking the calling thread.
+	 * If the backend does not support arrays, the batch is sent as one request per coin instead, and all later
+	 * batches are sent that way too. If the backend rejects the content of the batch, only this batch is sent
+	 * per coin, so the coins it accepts are delivered. Like {@link #sendCoinDataToBackend(Coin)}, failures are logged rather than propagated
+	 * and the coins are kept in the outbox.
+	 *
+	 * @param coins Coin objects containing the data to be sent
+	 * @return A future completed with true if the backend accepted all coins, false otherwise
+	 */
+	public CompletableFuture<Boolean> sendCoinBatchToBackendAsync(List<Coin> coins) {
+		if (coins.size() == 1 || !batchSupported.get()) {
+			return sendEachToBackendAsync(coins);
+		}
+		String jsonCoins;
+		try {
+			jsonCoins = jsonProcessor.getObjectMapper().writeValueAsString(coins);
+		} catch (JsonProcessingException e) {
+			LOG.error("Error serializing a batch of {} coins", coins.size(), e);
+			return CompletableFuture.completedFuture(false);
+		}
+		LOG.debug("Sending batch of {} coins to backend", coins.size());
+
+		long started = System.nanoTime();
+		return httpClient.sendPostRequestAsync(backendUrl + BATCH_PATH, jsonCoins)
+				.handle((response, error) -> {
+					recordPost(BATCH_ENDPOINT, BATCH_ENDPOINT, started, error);
+					if (error == null) {
+						LOG.info("Backend accepted batch of {} coins: {}", coins.size(), response);
+						return CompletableFuture.completedFuture(true);
+					}
+					Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+					int statusCode = cause instanceof HttpStatusException ? ((HttpStatusException) cause).getStatusCode() : 0;
+					if (BATCH_UNSUPPORTED_STATUS_CODES.contains(statusCode)) {
+						if (batchSupported.getAndSet(false)) {
+							LOG.warn("Backend does not support batched coin data (status {}), falling back to one request per coin", statusCode);
+						}
+						return sendEachToBackendAsync(coins);
+					}
+					if (BATCH_INVALID_STATUS_CODES.contains(statusCode)) {
+						LOG.warn("Backend rejected a batch of {} coins with status {}, sending them one at a time", coins.size(), statusCode);
+						return sendEachToBackendAsync(coins);
+					}
+					LOG.error("Error sending batch of {} coins to backend. Make sure the backend service is running and accessible.", coins.size(), cause);
+					coins.forEach(this::keepInOutbox);
+					return CompletableFuture.completedFuture(false);
+				})
+				.thenCompose(result -> result);
+	}
+
+	/**
+	 * Sends every coin of a batch in its own request.
+	 *
+	 * @param coins Coin objects containing the data to be sent
+	 * @return A future completed with true if the backend accepted all coins, false otherwise
+	 */
+	private CompletableFuture<Boolean> sendEachToBackendAsync(List<Coin> coins) {
+		CompletableFuture<Boolean> result = CompletableFuture.completedFuture(true);
+		for (Coin coin : coins) {
+			result = result.thenCombine(sendCoinDataToBackendAsync(coin), Boolean::logicalAnd);
+		}
+		return result;
+	}
+
+	/**
+	 * Records the latency and outcome of a POST request to the backend.
+	 *
+	 * @param endpoint The endpoint, coin or batch
+	 * @param coinTag The ID of the sent coin, or batch for a batch request
+	 * @param startedNanos The start of the request as returned by {@link System#nanoTime()}
+	 * @param failure The exception the request failed with, or null if it succeeded
+	 */
+	private static void recordPost(String endpoint, String coinTag, long startedNanos, Throwable failure) {
+		String outcome = MetricsRegistry.outcomeOf(failure);
+		MetricsRegistry.global().timer("backend_request_seconds", "endpoint", endpoint, "outcome", outcome).recordSince(startedNanos);
+		MetricsRegistry.global().counter("backend_requests_total", "coin", String.valueOf(coinTag), "endpoint", endpoint, "outcome", outcome).increment();
+	}
+
+	/**
+	 * Keeps a coin the backend did not accept in the outbox, so it can be delivered later without fetching it again.
+	 *
+	 * @param coin The coin to keep
+	 */
+	private void keepInOutbox(Coin coin) {
+		if (outbox == null) {
+			return;
+		}
+		try {
+			outbox.append(coin);
+			LOG.info("Kept coin data for {} in the outbox for later delivery", coin.getCoinId());
+		} catch (IOException e) {
+			LOG.error("Failed to keep coin data for {} in the outbox", coin.getCoinId(), e);
 		}
 	}
 
 	/**
 	 * Retrieves the last valid dates for each cryptocurrency from the backend.
-	 * This method sends GET requests to the backend for each cryptocurrency ID and parses the response.
+	 * If enabled, all dates are requested at once from the bulk endpoint. Otherwise, or if the backend
+	 * does not offer it, one GET request is sent per cryptocurrency, up to the configured number at a time.
+	 * This method is safe to call from multiple threads.
 	 *
 	 * @return Map of cryptocurrency IDs to their last valid dates
 	 * @throws IOException if there's an error in network communication
 	 * @throws InterruptedException if the operation is interrupted
 	 */
 	public Map<String, Date> getLastValidDatesFromBackend() throws IOException, InterruptedException {
-		Map<String, Date> result = new HashMap<>();
-
-		for (String coinId : cryptoIds) {
-			Date lastValidDate = getLastValidDateForCoin(coinId);
-			if (lastValidDate != null) {
-				result.put(coinId, lastValidDate);
+		if (bulkLookupSupported.get()) {
+			Map<String, Date> result = getLastValidDatesInBulk();
+			if (result != null) {
+				return result;
 			}
 		}
 
-		return result;
+		Map<String, Date> result = new ConcurrentHashMap<>();
+		try {
+			ConcurrentTasks.forEach(cryptoIds, lookupConcurrency, LOOKUP_THREAD_PREFIX, coinId -> {
+				Date lastValidDate = getLastValidDateForCoin(coinId);
+				if (lastValidDate != null) {
+					result.put(coinId, lastValidDate);
+				}
+			});
+		} catch (IOException | InterruptedException | RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IOException("Failed to get last valid dates", e);
+		}
+
+		return new HashMap<>(result);
+	}
+
+	/**
+	 * Retrieves the last valid dates of all cryptocurrencies with a single request to the bulk endpoint.
+	 * If the backend does not offer the endpoint, it is not requested again.
+	 *
+	 * @return Map of cryptocurrency IDs to their last valid dates, or null if the bulk request failed
+	 * @throws InterruptedException if the operation is interrupted
+	 */
+	private Map<String, Date> getLastValidDatesInBulk() throws InterruptedException {
+		String url = backendUrl + "/lastValidDates?ids=" + String.join(",", cryptoIds);
+		try {
+			JsonNode rootNode = jsonProcessor.parseJson(httpClient.sendGetRequest(url));
+			JsonNode data = rootNode != null ? rootNode.get("data") : null;
+			if (data == null || !data.isObject()) {
+				LOG.warn("Unexpected bulk last valid dates response, falling back to one request per coin");
+				return null;
+			}
+			Map<String, Date> result = new HashMap<>();
+			for (String coinId : cryptoIds) {
+				JsonNode dateNode = data.get(coinId);
+				Date lastValidDate = dateNode != null && !dateNode.isNull() ? parseDate(coinId, dateNode.asText()) : null;
+				if (lastValidDate != null) {
+					result.put(coinId, lastValidDate);
+				}
+			}
+			LOG.info("Last valid dates for {} coins retrieved in bulk", result.size());
+			return result;
+		} catch (HttpStatusException e) {
+			if (BULK_UNSUPPORTED_STATUS_CODES.contains(e.getStatusCode())) {
+				bulkLookupSupported.set(false);
+				LOG.info("Backend does not offer bulk last valid dates, using one request per coin");
+			} else {
+				LOG.warn("Bulk last valid dates request failed: {}", e.getMessage());
+			}
+		} catch (IOException e) {
+			LOG.warn("Bulk last valid dates request failed: {}", e.getMessage());
+		}
+		return null;
 	}
 
 	/**
@@ -111,12 +382,7 @@ public class BackendService {
 			LOG.info("Last valid date for coin {} is {}", coinId, response);
 			JsonNode rootNode = jsonProcessor.parseJson(response);
 			if (rootNode != null && rootNode.has("data")) {
-				String dateString = rootNode.get("data").asText();
-				try {
-					return dateFormat.parse(dateString);
-				} catch (ParseException e) {
-					LOG.warn("Failed to parse date for coin {}. Date string: {}", coinId, dateString, e);
-				}
+				return parseDate(coinId, rootNode.get("data").asText());
 			} else {
 				LOG.warn("No valid date found for coin {}", coinId);
 			}
@@ -127,4 +393,22 @@ public class BackendService {
 
 		return null;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Parses the date at the start of a date string from the backend.
+	 * Only the leading yyyy-MM-dd part is used; the date is returned at the start of the day in the system time zone.
+	 *
+	 * @param coinId The ID of the cryptocurrency the date belongs to, used for logging
+	 * @param dateString The date string to parse
+	 * @return The parsed date, or null if the string does not start with a valid date
+	 */
+	private Date parseDate(String coinId, String dateString) {
+		try {
+			LocalDate date = LocalDate.from(DateTimeFormatter.ISO_LOCAL_DATE.parse(dateString, new ParsePosition(0)));
+			return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+		} catch (DateTimeException e) {
+			LOG.warn("Failed to parse date for coin {}. Date string: {}", coinId, dateString, e);
+			return null;
+		}
+	}
+}
@@ -0,0 +1,182 @@
+package crypto.service;
+
+import com.sam.coin.domain.model.Coin;
+import crypto.util.ConcurrentTasks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Sink collecting coins and sending them to the backend in batches.
+ * A batch is flushed as soon as it holds the configured number of coins or when the first coin in it
+ * has waited for the linger time, whichever comes first. Flushes are sent asynchronously, so the
+ * fetch loop does not wait for the backend; only when the maximum number of batches is in flight does
+ * a flush block until one of them completes.
+ * <p>
+ * The sink may be fed from multiple threads. Closing it flushes the remaining coins and waits for all
+ * batches in flight.
+ */
+public class BatchingCoinSink implements Consumer<Coin>, AutoCloseable {
+	private static final Logger LOG = LoggerFactory.getLogger(BatchingCoinSink.class);
+
+	private final BackendService backendService;
+	private final Consumer<Coin> deliveryListener;
+	private final int batchSize;
+	private final long lingerMs;
+	private final int maxInFlight;
+	private final Semaphore inFlight;
+	private final ScheduledExecutorService lingerScheduler;
+	private final AtomicInteger failedBatches = new AtomicInteger();
+	private List<Coin> buffer = new ArrayList<>();
+	private long bufferGeneration;
+
+	/**
+	 * Constructs a new BatchingCoinSink.
+	 *
+	 * @param backendService Service sending the batches to the backend
+	 * @param batchSize The number of coins that triggers a flush
+	 * @param lingerMs The maximum time in milliseconds a coin waits for its batch to fill up
+	 * @param maxInFlight The maximum number of batches sent concurrently
+	 */
+	public BatchingCoinSink(BackendService backendService, int batchSize, long lingerMs, int maxInFlight) {
+		this(backendService, batchSize, lingerMs, maxInFlight, coin -> { });
+	}
+
+	/**
+	 * Constructs a new BatchingCoinSink notifying a listener of every coin the backend accepted.
+	 *
+	 * @param backendService Service sending the batches to the backend
+	 * @param batchSize The number of coins that triggers a flush
+	 * @param lingerMs The maximum time in milliseconds a coin waits for its batch to fill up
+	 * @param maxInFlight The maximum number of batches sent concurrently
+	 * @param deliveryListener Listener called for each coin of a batch the backend fully accepted
+	 */
+	public BatchingCoinSink(BackendService backendService, int batchSize, long lingerMs, int maxInFlight, Consumer<Coin> deliveryListener) {
+		if (batchSize < 1 || maxInFlight < 1 || lingerMs < 0) {
+			throw new IllegalArgumentException("Invalid batching settings: size=" + batchSize + ", linger=" + lingerMs + ", inFlight=" + maxInFlight);
+		}
+		this.backendService = backendService;
+		this.deliveryListener = deliveryListener;
+		this.batchSize = batchSize;
+		this.lingerMs = lingerMs;
+		this.maxInFlight = maxInFlight;
+		this.inFlight = new Semaphore(maxInFlight);
+		this.lingerScheduler = Executors.newSingleThreadScheduledExecutor(ConcurrentTasks.namedDaemonThreads("backend-batch-linger"));
+	}
+
+	/**
+	 * Adds a coin to the current batch, flushing the batch if it is full.
+	 *
+	 * @param coin The coin to send
+	 */
+	@Override
+	public void accept(Coin coin) {
+		List<Coin> batch = null;
+		synchronized (this) {
+			buffer.add(coin);
+			if (buffer.size() >= batchSize) {
+				batch = takeBuffer();
+			} else if (buffer.size() == 1) {
+				long generation = bufferGeneration;
+				lingerScheduler.schedule(() -> flush(generation), lingerMs, TimeUnit.MILLISECONDS);
+			}
+		}
+		if (batch != null) {
+			send(batch);
+		}
+	}
+
+	/**
+	 * Sends the coins collected so far, regardless of the batch size.
+	 */
+	public void flush() {
+		List<Coin> batch;
+		synchronized (this) {
+			batch = buffer.isEmpty() ? null : takeBuffer();
+		}
+		if (batch != null) {
+			send(batch);
+		}
+	}
+
+	/**
+	 * Gets the number of batches the backend did not fully accept.
+	 *
+	 * @return The number of failed batches
+	 */
+	public int getFailedBatches() {
+		return failedBatches.get();
+	}
+
+	/**
+	 * Flushes the remaining coins and waits until all batches in flight have completed.
+	 */
+	@Override
+	public void close() {
+		flush();
+		lingerScheduler.shutdownNow();
+		inFlight.acquireUninterruptibly(maxInFlight);
+		inFlight.release(maxInFlight);
+		if (failedBatches.get() > 0) {
+			LOG.warn("{} batches were not fully accepted by the backend", failedBatches.get());
+		}
+	}
+
+	/**
+	 * Flushes the buffer if it still holds the batch the linger timer was started for.
+	 *
+	 * @param generation The generation of the buffer when the timer was started
+	 */
+	private void flush(long generation) {
+		List<Coin> batch = null;
+		synchronized (this) {
+			if (generation == bufferGeneration && !buffer.isEmpty()) {
+				batch = takeBuffer();
+			}
+		}
+		if (batch != null) {
+			send(batch);
+		}
+	}
+
+	/**
+	 * Takes the current buffer as a batch and starts a new one. Must be called while holding the lock.
+	 *
+	 * @return The batch
+	 */
+	private List<Coin> takeBuffer() {
+		List<Coin> batch = buffer;
+		buffer = new ArrayList<>(batchSize);
+		bufferGeneration++;
+		return batch;
+	}
+
+	/**
+	 * Sends a batch once a slot for a batch in flight is free.
+	 *
+	 * @param batch The coins to send
+	 */
+	private void send(List<Coin> batch) {
+		inFlight.acquireUninterruptibly();
+		backendService.sendCoinBatchToBackendAsync(batch)
+				.whenComplete((accepted, error) -> {
+					try {
+						if (error != null || !Boolean.TRUE.equals(accepted)) {
+							failedBatches.incrementAndGet();
+						} else {
+							batch.forEach(deliveryListener);
+						}
+					} finally {
+						inFlight.release();
+					}
+				});
+	}
+}
@@ -0,0 +1,291 @@
+package crypto.service;
+
+import com.sam.coin.domain.model.Coin;
+import crypto.config.CryptoId;
+import crypto.service.api.ArchivedDataSource;
+import crypto.service.api.CryptoDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Data source decorator caching current coin data for a limited time and coalescing concurrent fetches.
+ * A coin fetched within the time to live is served from the cache without a request. If a coin is
+ * requested while another caller is already fetching it, the second caller waits for that fetch and
+ * shares its result instead of sending its own request. The cache holds a bounded number of coins and
+ * evicts the least recently used one when it is full.
+ * <p>
+ * Historical data is never cached; those calls are passed on to the decorated data source unchanged.
+ */
+public class CachingCryptoDataSource implements CryptoDataSource, ArchivedDataSource {
+    private static final Logger LOG = LoggerFactory.getLogger(CachingCryptoDataSource.class);
+    private final CryptoDataSource delegate;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final Map<String, CachedCoin> cache;
+    private final ConcurrentMap<String, CompletableFuture<Coin>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong fetched = new AtomicLong();
+
+    /**
+     * Constructs a new CachingCryptoDataSource.
+     *
+     * @param delegate The data source fetching the data
+     * @param ttlMs The time in milliseconds a fetched coin is served from the cache
+     * @param maxEntries The maximum number of cached coins
+     */
+    public CachingCryptoDataSource(CryptoDataSource delegate, long ttlMs, int maxEntries) {
+        this(delegate, ttlMs, maxEntries, System::nanoTime);
+    }
+
+    /**
+     * Constructs a new CachingCryptoDataSource with the given time source.
+     *
+     * @param delegate The data source fetching the data
+     * @param ttlMs The time in milliseconds a fetched coin is served from the cache
+     * @param maxEntries The maximum number of cached coins
+     * @param clock Source of the current time in nanoseconds
+     */
+    CachingCryptoDataSource(CryptoDataSource delegate, long ttlMs, int maxEntries, LongSupplier clock) {
+        if (ttlMs < 1 || maxEntries < 1) {
+            throw new IllegalArgumentException("Invalid cache settings: ttl=" + ttlMs + ", entries=" + maxEntries);
+        }
+        this.delegate = delegate;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.clock = clock;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedCoin> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     * Only coins neither cached nor being fetched by another caller are requested from the decorated data source.
+     */
+    @Override
+    public void fetchAndSendCurrentData(List<String> cryptoIds, Consumer<Coin> sendToBackend) throws Exception {
+        fetchThroughCache(cryptoIds, sendToBackend, delegate::fetchAndSendCurrentData);
+    }
+
+    /**
+     * {@inheritDoc}
+     * The coin is only requested from the decorated data source if it is neither cached nor being fetched by another caller.
+     */
+    @Override
+    public void fetchAndSendCurrentData(CryptoId cryptoId, Consumer<Coin> sendToBackend) throws Exception {
+        fetchThroughCache(Collections.singletonList(cryptoId.getId()), sendToBackend,
+                (ids, sink) -> delegate.fetchAndSendCurrentData(cryptoId, sink));
+    }
+
+    @Override
+    public void fetchAndSendHistoricalData(List<String> cryptoIds, Map<String, Date> lastValidDates, Consumer<Coin> sendToBackend) throws Exception {
+        delegate.fetchAndSendHistoricalData(cryptoIds, lastValidDates, sendToBackend);
+    }
+
+    @Override
+    public void fetchAndSendHistoricalData(CryptoId cryptoId, Date lastValidDate, Consumer<Coin> sendToBackend) throws Exception {
+        delegate.fetchAndSendHistoricalData(cryptoId, lastValidDate, sendToBackend);
+    }
+
+    @Override
+    public void fetchAndSendAllHistoricalData(List<String> cryptoIds, int timeFrame, Consumer<Coin> sendToBackend) throws Exception {
+        delegate.fetchAndSendAllHistoricalData(cryptoIds, timeFrame, sendToBackend);
+    }
+
+    @Override
+    public void fetchAndSendAllHistoricalData(CryptoId cryptoId, int timeFrame, Consumer<Coin> sendToBackend) throws Exception {
+        delegate.fetchAndSendAllHistoricalData(cryptoId, timeFrame, sendToBackend);
+    }
+
+    @Override
+    public void fetchAndSendHistoricalRangeData(List<String> cryptoIds, LocalDate startDate, LocalDate endDate, Consumer<Coin> sendToBackend) throws Exception {
+        delegate.fetchAndSendHistoricalRangeData(cryptoIds, startDate, endDate, sendToBackend);
+    }
+
+    @Override
+    public void fetchAndSendHistoricalRangeData(CryptoId cryptoId, LocalDate startDate, LocalDate endDate, Consumer<Coin> sendToBackend) throws Exception {
+        delegate.fetchAndSendHistoricalRangeData(cryptoId, startDate, endDate, sendToBackend);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws UnsupportedOperationException if the decorated data source does not archive historical data
+     */
+    @Override
+    public void reprocessArchivedHistoricalData(List<String> cryptoIds, Consumer<Coin> sendToBackend) throws Exception {
+        if (!(delegate instanceof ArchivedDataSource)) {
+            throw new UnsupportedOperationException("The data source does not archive historical data");
+        }
+        ((ArchivedDataSource) delegate).reprocessArchivedHistoricalData(cryptoIds, sendToBackend);
+    }
+
+    /**
+     * Gets the number of coins served from the cache.
+     *
+     * @return The number of cache hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Gets the number of coins taken from a fetch started by another caller.
+     *
+     * @return The number of coalesced requests
+     */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    /**
+     * Gets the number of coins requested from the decorated data source.
+     *
+     * @return The number of fetched coins
+     */
+    public long getFetched() {
+        return fetched.get();
+    }
+
+    /**
+     * Sends cached coins directly, waits for coins other callers are fetching, and fetches the rest.
+     *
+     * @param cryptoIds The IDs of the cryptocurrencies
+     * @param sendToBackend Consumer function to send processed data to the backend
+     * @param fetch The fetch of the coins that are neither cached nor in flight
+     * @throws Exception if the fetch fails
+     */
+    private void fetchThroughCache(List<String> cryptoIds, Consumer<Coin> sendToBackend, CurrentDataFetch fetch) throws Exception {
+        List<String> owned = new ArrayList<>();
+        Map<String, CompletableFuture<Coin>> ownedFetches = new HashMap<>();
+        Map<String, CompletableFuture<Coin>> joinedFetches = new LinkedHashMap<>();
+        for (String cryptoId : cryptoIds) {
+            Coin cached = getFresh(cryptoId);
+            if (cached != null) {
+                hits.incrementAndGet();
+                sendToBackend.accept(cached);
+                continue;
+            }
+            CompletableFuture<Coin> ownFetch = new CompletableFuture<>();
+            CompletableFuture<Coin> otherFetch = inFlight.putIfAbsent(cryptoId, ownFetch);
+            if (otherFetch != null) {
+                joinedFetches.put(cryptoId, otherFetch);
+                continue;
+            }
+            // Another caller may have finished fetching the coin between the cache lookup and claiming the fetch
+            cached = getFresh(cryptoId);
+            if (cached != null) {
+                inFlight.remove(cryptoId, ownFetch);
+                ownFetch.complete(cached);
+                hits.incrementAndGet();
+                sendToBackend.accept(cached);
+                continue;
+            }
+            owned.add(cryptoId);
+            ownedFetches.put(cryptoId, ownFetch);
+        }
+
+        if (!owned.isEmpty()) {
+            fetched.addAndGet(owned.size());
+            try {
+                fetch.run(owned, coin -> {
+                    if (coin.getCoinId() != null) {
+                        put(coin.getCoinId(), coin);
+                        CompletableFuture<Coin> ownFetch = ownedFetches.get(coin.getCoinId());
+                        if (ownFetch != null) {
+                            ownFetch.complete(coin);
+                        }
+                    }
+                    sendToBackend.accept(coin);
+                });
+            } finally {
+                ownedFetches.forEach((cryptoId, ownFetch) -> {
+                    ownFetch.complete(null);
+                    inFlight.remove(cryptoId, ownFetch);
+                });
+            }
+        }
+
+        for (Map.Entry<String, CompletableFuture<Coin>> joined : joinedFetches.entrySet()) {
+            coalesced.incrementAndGet();
+            Coin coin;
+            try {
+                coin = joined.getValue().get();
+            } catch (ExecutionException e) {
+                coin = null;
+            }
+            if (coin != null) {
+                sendToBackend.accept(coin);
+            } else {
+                LOG.warn("Concurrent fetch of current data for {} returned no data", joined.getKey());
+            }
+        }
+    }
+
+    /**
+     * Gets a cached coin that has not expired yet.
+     *
+     * @param cryptoId The ID of the cryptocurrency
+     * @return The cached coin, or null if it is not cached or has expired
+     */
+    private Coin getFresh(String cryptoId) {
+        synchronized (cache) {
+            CachedCoin cached = cache.get(cryptoId);
+            if (cached == null) {
+                return null;
+            }
+            if (clock.getAsLong() - cached.fetchedAt >= ttlNanos) {
+                cache.remove(cryptoId);
+                return null;
+            }
+            return cached.coin;
+        }
+    }
+
+    private void put(String cryptoId, Coin coin) {
+        synchronized (cache) {
+            cache.put(cryptoId, new CachedCoin(coin, clock.getAsLong()));
+        }
+    }
+
+    /**
+     * Fetch of current data for the given coins from the decorated data source.
+     */
+    @FunctionalInterface
+    private interface CurrentDataFetch {
+        void run(List<String> cryptoIds, Consumer<Coin> sink) throws Exception;
+    }
+
+    /**
+     * A cached coin with the time it was fetched.
+     */
+    private static final class CachedCoin {
+        private final Coin coin;
+        private final long fetchedAt;
+
+        private CachedCoin(Coin coin, long fetchedAt) {
+            this.coin = coin;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+}
@@ -1,37 +1,70 @@
 package crypto.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.sam.coin.domain.model.Coin;
+import crypto.config.CoinCatalog;
 import crypto.config.CryptoConfig;
 import crypto.config.CryptoId;
+import crypto.metrics.MetricsRegistry;
 import crypto.processor.CoinDataProcessor;
 import crypto.processor.JsonProcessor;
+import crypto.service.api.ArchivedDataSource;
 import crypto.service.api.CryptoDataSource;
+import crypto.util.ConcurrentTasks;
+import crypto.util.DeferredRetryQueue;
+import crypto.util.HistoryArchive;
 import crypto.util.HttpClientWrapper;
+import crypto.util.HttpStatusException;
 import crypto.util.RateLimiter;
+import crypto.util.RetryPolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * Implementation of CryptoDataSource that fetches data from the CoinGecko API.
  * This class handles fetching both current and historical cryptocurrency data.
+ * With a history archive, every history response for a past day is archived once downloaded and
+ * served from the archive afterwards, without a request and without waiting for the rate limiter.
+ * <p>
+ * Every request attempt is recorded in the global metrics registry: its latency per endpoint and outcome,
+ * and the number of attempts and retries per coin and endpoint.
+ * <p>
+ * With deferred retries, the per-coin and per-day requests of a list of coins do not sleep through the backoff
+ * delay of a failed request. The request is put on a retry queue shared by all coins, and the loops continue
+ * with their next coin or day; retries that have become due are made before the next new request, so they take
+ * the next rate limiter permit. The remaining retries are waited for once all coins are done.
  */
-public class CoinGeckoService implements CryptoDataSource {
+public class CoinGeckoService implements CryptoDataSource, ArchivedDataSource {
     private static final Logger LOG = LoggerFactory.getLogger(CoinGeckoService.class);
     public static final int COIN_GECKO_MAX_PAST_DAYS = 365;
+    private static final String FETCH_THREAD_PREFIX = "coingecko-fetch";
+    private static final String REPROCESS_THREAD_PREFIX = "archive-reprocess";
+    static final int MARKETS_PAGE_SIZE = 250;
+    private static final String BATCH_TAG = "batch";
+    private static final MetricsRegistry METRICS = MetricsRegistry.global();
     private final CryptoConfig config;
     private final HttpClientWrapper httpClient;
     private final JsonProcessor jsonProcessor;
     private final CoinDataProcessor coinDataProcessor;
     private final RateLimiter rateLimiter;
+    private final HistoryArchive historyArchive;
+    private final CoinCatalog coinCatalog;
+    private final RetryPolicy retryPolicy;
 
     /**
      * Constructs a new CoinGeckoService with the specified dependencies.
@@ -44,21 +77,75 @@ public class CoinGeckoService implements CryptoDataSource {
      */
     public CoinGeckoService(CryptoConfig config, HttpClientWrapper httpClient, JsonProcessor jsonProcessor,
                             CoinDataProcessor coinDataProcessor, RateLimiter rateLimiter) {
+        this(config, httpClient, jsonProcessor, coinDataProcessor, rateLimiter, null);
+    }
+
+    /**
+     * Constructs a new CoinGeckoService archiving the history responses it downloads.
+     *
+     * @param config Configuration for the service
+     * @param httpClient HTTP client wrapper for making API requests
+     * @param jsonProcessor Processor for JSON data
+     * @param coinDataProcessor Processor for coin data
+     * @param rateLimiter Rate limiter to control API request frequency
+     * @param historyArchive Archive of history responses, or null to always download them
+     */
+    public CoinGeckoService(CryptoConfig config, HttpClientWrapper httpClient, JsonProcessor jsonProcessor,
+                            CoinDataProcessor coinDataProcessor, RateLimiter rateLimiter, HistoryArchive historyArchive) {
+        this(config, httpClient, jsonProcessor, coinDataProcessor, rateLimiter, historyArchive, null);
+    }
+
+    /**
+     * Constructs a new CoinGeckoService taking the names and symbols of coins from a coin catalog.
+     * In range mode, coins in the catalog need no metadata request.
+     *
+     * @param config Configuration for the service
+     * @param httpClient HTTP client wrapper for making API requests
+     * @param jsonProcessor Processor for JSON data
+     * @param coinDataProcessor Processor for coin data
+     * @param rateLimiter Rate limiter to control API request frequency
+     * @param historyArchive Archive of history responses, or null to always download them
+     * @param coinCatalog Catalog of coin names and symbols, or null to request them
+     */
+    public CoinGeckoService(CryptoConfig config, HttpClientWrapper httpClient, JsonProcessor jsonProcessor,
+                            CoinDataProcessor coinDataProcessor, RateLimiter rateLimiter, HistoryArchive historyArchive,
+                            CoinCatalog coinCatalog) {
         this.config = config;
         this.httpClient = httpClient;
         this.jsonProcessor = jsonProcessor;
         this.coinDataProcessor = coinDataProcessor;
         this.rateLimiter = rateLimiter;
+        this.historyArchive = historyArchive;
+        this.coinCatalog = coinCatalog;
+        this.retryPolicy = new RetryPolicy(config::getMaxRetries, config::getRateLimitDelay, config::getRetryMaxDelayMs);
+    }
+
+    /**
+     * Checks whether responses of a CoinGecko URL are worth caching.
+     * History responses are requested once per coin and day and archived on disk if needed, so they are not cached.
+     *
+     * @param url The URL of the request
+     * @return true if the response of the URL may be cached
+     */
+    public static boolean isCacheableUrl(String url) {
+        return !url.contains("/history?");
     }
 
     /**
      * {@inheritDoc}
+     * In batch mode all coins are requested together through the markets endpoint, otherwise
+     * coins are processed concurrently up to the configured fetch concurrency.
      */
     @Override
-    public void fetchAndSendCurrentData(List<String> cryptoIds, Consumer<Coin> sendToBackend) throws IOException, InterruptedException {
-        for (String cryptoId : cryptoIds) {
-            fetchAndSendCurrentDataForSingleCoin(cryptoId, sendToBackend);
+    public void fetchAndSendCurrentData(List<String> cryptoIds, Consumer<Coin> sendToBackend) throws Exception {
+        if (config.isBatchCurrentData()) {
+            fetchAndSendCurrentDataBatched(cryptoIds, sendToBackend);
+            return;
         }
+        DeferredRetryQueue<DeferredFetch> retries = newRetryQueue();
+        ConcurrentTasks.forEach(cryptoIds, config.getFetchConcurrency(), FETCH_THREAD_PREFIX,
+                cryptoId -> fetchAndSendCurrentDataForSingleCoin(cryptoId, sendToBackend, retries));
+        runRemainingRetries(retries);
     }
 
     /**
@@ -66,7 +153,104 @@ public class CoinGeckoService implements CryptoDataSource {
      */
     @Override
     public void fetchAndSendCurrentData(CryptoId cryptoId, Consumer<Coin> sendToBackend) throws IOException, InterruptedException {
-        fetchAndSendCurrentDataForSingleCoin(cryptoId.getId(), sendToBackend);
+        fetchAndSendCurrentDataForSingleCoin(cryptoId.getId(), sendToBackend, null);
+    }
+
+    /**
+     * Fetches and sends current data for many cryptocurrencies in batches.
+     * Each page of up to {@value #MARKETS_PAGE_SIZE} coins costs one markets request for the USD values,
+     * names and symbols, and one simple price request for the values in all other currencies.
+     * A page whose requests fail or whose responses cannot be parsed is skipped, and so is a coin without
+     * a price entry, so no coin is sent with zero values in place of the missing ones.
+     *
+     * @param cryptoIds The IDs of the cryptocurrencies
+     * @param sendToBackend Consumer function to send processed data to the backend
+     * @throws Exception if there's an error in API communication or data processing
+     */
+    private void fetchAndSendCurrentDataBatched(List<String> cryptoIds, Consumer<Coin> sendToBackend) throws Exception {
+        for (int from = 0; from < cryptoIds.size(); from += MARKETS_PAGE_SIZE) {
+            List<String> page = cryptoIds.subList(from, Math.min(from + MARKETS_PAGE_SIZE, cryptoIds.size()));
+            String ids = String.join(",", page);
+            LOG.info("Process batched crypto data for {} cryptos", page.size());
+
+            rateLimiter.acquire();
+            String markets = fetchWithRetry(marketsUrl(ids), ids);
+            if (markets == null) {
+                continue;
+            }
+            rateLimiter.acquire();
+            String prices = fetchWithRetry(pricesUrl(ids), ids);
+            if (prices == null) {
+                continue;
+            }
+            parseMarketsPage(page, markets, prices).forEach(sendToBackend);
+        }
+    }
+
+    /**
+     * Gets the URL of the markets request for a page of coins, providing the USD values, names and symbols.
+     *
+     * @param ids The comma-separated IDs of the coins
+     * @return The URL
+     */
+    String marketsUrl(String ids) {
+        return String.format("%s/coins/markets?vs_currency=usd&ids=%s&per_page=%d&page=1&sparkline=false",
+                config.getCoingeckoApiUrl(), ids, MARKETS_PAGE_SIZE);
+    }
+
+    /**
+     * Gets the URL of the simple price request for a page of coins, providing the values in all other currencies.
+     *
+     * @param ids The comma-separated IDs of the coins
+     * @return The URL
+     */
+    String pricesUrl(String ids) {
+        String otherCurrencies = CoinDataProcessor.MARKET_CHART_CURRENCIES.stream()
+                .filter(currency -> !"usd".equals(currency))
+                .collect(Collectors.joining(","));
+        return String.format("%s/simple/price?ids=%s&vs_currencies=%s&include_market_cap=true&include_24hr_vol=true",
+                config.getCoingeckoApiUrl(), ids, otherCurrencies);
+    }
+
+    /**
+     * Parses the markets and simple price responses of a page of coins into Coins.
+     * A coin without a price entry is left out, so no coin is sent with zero values in place of the missing ones.
+     *
+     * @param page The IDs of the coins of the page
+     * @param markets The markets response
+     * @param prices The simple price response
+     * @return The parsed Coins, empty if a response could not be parsed
+     */
+    List<Coin> parseMarketsPage(List<String> page, String markets, String prices) {
+        JsonNode marketsNode;
+        JsonNode pricesNode;
+        try {
+            marketsNode = jsonProcessor.parseJson(markets);
+            pricesNode = jsonProcessor.parseJson(prices);
+        } catch (IOException e) {
+            LOG.error("Failed to parse batched crypto data for {}. Moving to next page.", page, e);
+            return Collections.emptyList();
+        }
+        if (marketsNode == null || pricesNode == null) {
+            LOG.warn("No data returned for {}", page);
+            return Collections.emptyList();
+        }
+
+        List<Coin> coins = new ArrayList<>(page.size());
+        Set<String> missing = new LinkedHashSet<>(page);
+        for (JsonNode row : marketsNode) {
+            String cryptoId = row.path("id").asText();
+            JsonNode priceEntry = pricesNode.get(cryptoId);
+            if (priceEntry == null || !priceEntry.isObject()) {
+                continue;
+            }
+            coins.add(coinDataProcessor.createCoinFromMarketsRow(row, priceEntry));
+            missing.remove(cryptoId);
+        }
+        if (!missing.isEmpty()) {
+            LOG.warn("No market data returned for {}", missing);
+        }
+        return coins;
     }
 
     /**
@@ -74,23 +258,33 @@ public class CoinGeckoService implements CryptoDataSource {
      *
      * @param cryptoId The ID of the cryptocurrency
      * @param sendToBackend Consumer function to send processed data to the backend
+     * @param retries Queue for deferred retries, or null to wait for the retries of a failed request
      * @throws InterruptedException if the operation is interrupted
      */
-    private void fetchAndSendCurrentDataForSingleCoin(String cryptoId, Consumer<Coin> sendToBackend) throws InterruptedException {
+    private void fetchAndSendCurrentDataForSingleCoin(String cryptoId, Consumer<Coin> sendToBackend,
+                                                      DeferredRetryQueue<DeferredFetch> retries) throws InterruptedException {
         String url = String.format("%s/coins/%s", config.getCoingeckoApiUrl(), cryptoId);
-        processCryptoData(url, cryptoId, sendToBackend);
+        if (retries != null) {
+            runDueRetries(retries);
+            rateLimiter.acquire();
+            LOG.info("Process crypto data for Crypto {}", cryptoId);
+            attemptDeferred(new DeferredFetch(url, cryptoId, null, sendToBackend), 0, retries);
+            return;
+        }
         rateLimiter.acquire();
+        processCryptoData(url, cryptoId, sendToBackend);
     }
 
     /**
      * {@inheritDoc}
+     * Coins are processed concurrently up to the configured fetch concurrency, the days of each coin in order.
      */
     @Override
     public void fetchAndSendHistoricalData(List<String> cryptoIds, Map<String, Date> lastValidDates, Consumer<Coin> sendToBackend) throws Exception {
-        for (String coinId : cryptoIds) {
-            Date lastValidDate = lastValidDates.get(coinId);
-            fetchAndSendHistoricalDataForSingleCoin(coinId, lastValidDate, sendToBackend);
-        }
+        DeferredRetryQueue<DeferredFetch> retries = newRetryQueue();
+        ConcurrentTasks.forEach(cryptoIds, config.getFetchConcurrency(), FETCH_THREAD_PREFIX,
+                coinId -> fetchAndSendHistoricalDataForSingleCoin(coinId, lastValidDates.get(coinId), sendToBackend, retries));
+        runRemainingRetries(retries);
     }
 
     /**
@@ -98,7 +292,7 @@ public class CoinGeckoService implements CryptoDataSource {
      */
     @Override
     public void fetchAndSendHistoricalData(CryptoId cryptoId, Date lastValidDate, Consumer<Coin> sendToBackend) throws Exception {
-        fetchAndSendHistoricalDataForSingleCoin(cryptoId.getId(), lastValidDate, sendToBackend);
+        fetchAndSendHistoricalDataForSingleCoin(cryptoId.getId(), lastValidDate, sendToBackend, null);
     }
 
     /**
@@ -107,31 +301,39 @@ public class CoinGeckoService implements CryptoDataSource {
      * @param coinId The ID of the cryptocurrency
      * @param lastValidDate The last valid date for the cryptocurrency
      * @param sendToBackend Consumer function to send processed data to the backend
+     * @param retries Queue for deferred retries, or null to wait for the retries of a failed request
      * @throws Exception if there's an error in API communication or data processing
      */
-    private void fetchAndSendHistoricalDataForSingleCoin(String coinId, Date lastValidDate, Consumer<Coin> sendToBackend) throws Exception {
+    private void fetchAndSendHistoricalDataForSingleCoin(String coinId, Date lastValidDate, Consumer<Coin> sendToBackend,
+                                                         DeferredRetryQueue<DeferredFetch> retries) throws Exception {
         LocalDate startDate = determineStartDate(lastValidDate, coinId);
         LocalDate endDate = LocalDate.now();
 
+        if (config.isHistoricalRangeMode()) {
+            fetchAndSendHistoricalRangeDataForSingleCoin(coinId, startDate, endDate, sendToBackend);
+            return;
+        }
+
         while (!startDate.isAfter(endDate)) {
             String dateStr = startDate.format(DateTimeFormatter.ofPattern("dd-MM-yyyy"));
             String url = String.format("%s/coins/%s/history?date=%s", config.getCoingeckoApiUrl(), coinId, dateStr);
 
-            processHistoricalData(url, coinId, startDate, sendToBackend);
+            processHistoricalData(url, coinId, startDate, sendToBackend, retries);
 
             startDate = startDate.plusDays(1);
-            rateLimiter.acquire();
         }
     }
 
     /**
      * {@inheritDoc}
+     * Coins are processed concurrently up to the configured fetch concurrency, the days of each coin in order.
      */
     @Override
     public void fetchAndSendAllHistoricalData(List<String> cryptoIds, int timeFrame, Consumer<Coin> sendToBackend) throws Exception {
-        for (String coinId : cryptoIds) {
-            fetchAndSendAllHistoricalDataForSingleCoin(coinId, timeFrame, sendToBackend);
-        }
+        DeferredRetryQueue<DeferredFetch> retries = newRetryQueue();
+        ConcurrentTasks.forEach(cryptoIds, config.getFetchConcurrency(), FETCH_THREAD_PREFIX,
+                coinId -> fetchAndSendAllHistoricalDataForSingleCoin(coinId, timeFrame, sendToBackend, retries));
+        runRemainingRetries(retries);
     }
 
     /**
@@ -139,7 +341,7 @@ public class CoinGeckoService implements CryptoDataSource {
      */
     @Override
     public void fetchAndSendAllHistoricalData(CryptoId cryptoId, int timeFrame, Consumer<Coin> sendToBackend) throws Exception {
-        fetchAndSendAllHistoricalDataForSingleCoin(cryptoId.getId(), timeFrame, sendToBackend);
+        fetchAndSendAllHistoricalDataForSingleCoin(cryptoId.getId(), timeFrame, sendToBackend, null);
     }
 
     /**
@@ -148,19 +350,160 @@ public class CoinGeckoService implements CryptoDataSource {
      * @param coinId The ID of the cryptocurrency
      * @param timeFrame Number of days in the past to fetch data for
      * @param sendToBackend Consumer function to send processed data to the backend
+     * @param retries Queue for deferred retries, or null to wait for the retries of a failed request
      * @throws Exception if there's an error in API communication or data processing
      */
-    private void fetchAndSendAllHistoricalDataForSingleCoin(String coinId, int timeFrame, Consumer<Coin> sendToBackend) throws Exception {
+    private void fetchAndSendAllHistoricalDataForSingleCoin(String coinId, int timeFrame, Consumer<Coin> sendToBackend,
+                                                            DeferredRetryQueue<DeferredFetch> retries) throws Exception {
         LocalDate endDate = LocalDate.now();
         LocalDate startDate = endDate.minusDays(timeFrame - 1);
 
+        if (config.isHistoricalRangeMode()) {
+            fetchAndSendHistoricalRangeDataForSingleCoin(coinId, startDate, endDate, sendToBackend);
+            return;
+        }
+
         for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
             String dateString = date.format(DateTimeFormatter.ofPattern("dd-MM-yyyy"));
             String url = String.format("%s/coins/%s/history?date=%s", config.getCoingeckoApiUrl(), coinId, dateString);
 
-            processHistoricalData(url, coinId, date, sendToBackend);
+            processHistoricalData(url, coinId, date, sendToBackend, retries);
+        }
+    }
 
+    /**
+     * {@inheritDoc}
+     * Coins are reprocessed concurrently up to the configured fetch concurrency, the days of each coin in order.
+     *
+     * @throws IllegalStateException if the service has no history archive
+     */
+    @Override
+    public void reprocessArchivedHistoricalData(List<String> cryptoIds, Consumer<Coin> sendToBackend) throws Exception {
+        if (historyArchive == null) {
+            throw new IllegalStateException("No history archive configured");
+        }
+        ConcurrentTasks.forEach(cryptoIds, config.getFetchConcurrency(), REPROCESS_THREAD_PREFIX, coinId -> {
+            List<LocalDate> dates = historyArchive.getDates(coinId);
+            LOG.info("Reprocess {} archived days of historical data for Crypto: {}", dates.size(), coinId);
+            for (LocalDate date : dates) {
+                byte[] response = historyArchive.load(coinId, date);
+                Coin coin = response != null ? parseArchivedHistoricalData(response, coinId, date) : null;
+                if (coin != null) {
+                    sendToBackend.accept(coin);
+                }
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     * Coins are processed concurrently up to the configured fetch concurrency.
+     */
+    @Override
+    public void fetchAndSendHistoricalRangeData(List<String> cryptoIds, LocalDate startDate, LocalDate endDate, Consumer<Coin> sendToBackend) throws Exception {
+        ConcurrentTasks.forEach(cryptoIds, config.getFetchConcurrency(), FETCH_THREAD_PREFIX,
+                coinId -> fetchAndSendHistoricalRangeDataForSingleCoin(coinId, startDate, endDate, sendToBackend));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void fetchAndSendHistoricalRangeData(CryptoId cryptoId, LocalDate startDate, LocalDate endDate, Consumer<Coin> sendToBackend) throws Exception {
+        fetchAndSendHistoricalRangeDataForSingleCoin(cryptoId.getId(), startDate, endDate, sendToBackend);
+    }
+
+    /**
+     * Fetches and sends daily historical data for a single cryptocurrency using the market chart range endpoint.
+     * One range request per currency replaces the per-day history requests. The name and symbol are taken from the
+     * coin catalog, or requested once per coin if the coin is not in it. Community and developer data are
+     * only available per day and are fetched from the history endpoint if enabled in the configuration.
+     *
+     * @param coinId The ID of the cryptocurrency
+     * @param startDate The first day to fetch data for
+     * @param endDate The last day to fetch data for
+     * @param sendToBackend Consumer function to send processed data to the backend
+     * @throws Exception if there's an error in API communication or data processing
+     */
+    private void fetchAndSendHistoricalRangeDataForSingleCoin(String coinId, LocalDate startDate, LocalDate endDate, Consumer<Coin> sendToBackend) throws Exception {
+        if (startDate.isAfter(endDate)) {
+            LOG.info("Historical data for {} is already up to date", coinId);
+            return;
+        }
+        LOG.info("Process historical range data for Crypto: {} from {} to {}", coinId, startDate, endDate);
+
+        JsonNode metadata = getMetadata(coinId);
+        if (metadata == null) {
+            return;
+        }
+
+        long from = startDate.atStartOfDay(ZoneOffset.UTC).toEpochSecond();
+        long to = endDate.plusDays(1).atStartOfDay(ZoneOffset.UTC).toEpochSecond();
+        Map<String, JsonNode> marketCharts = new HashMap<>();
+        for (String currency : CoinDataProcessor.MARKET_CHART_CURRENCIES) {
+            String url = String.format("%s/coins/%s/market_chart/range?vs_currency=%s&from=%d&to=%d",
+                    config.getCoingeckoApiUrl(), coinId, currency, from, to);
             rateLimiter.acquire();
+            String response = fetchWithRetry(url, coinId);
+            if (response == null) {
+                return;
+            }
+            marketCharts.put(currency, jsonProcessor.parseJson(response));
+        }
+
+        List<Coin> coins = coinDataProcessor.createCoinsFromMarketCharts(coinId, metadata, marketCharts, startDate, endDate);
+        for (Coin coin : coins) {
+            if (config.isHistoricalCommunityData()) {
+                addCommunityAndDeveloperData(coin);
+            }
+            sendToBackend.accept(coin);
+        }
+    }
+
+    /**
+     * Gets the name and symbol of a coin from the coin catalog, or requests them if the coin is not in it.
+     *
+     * @param coinId The ID of the cryptocurrency
+     * @return JsonNode holding the name and symbol, or null if the request failed
+     * @throws Exception if there's an error in API communication or data processing
+     */
+    private JsonNode getMetadata(String coinId) throws Exception {
+        if (coinCatalog != null && coinCatalog.containsId(coinId)) {
+            return JsonNodeFactory.instance.objectNode()
+                    .put("name", coinCatalog.getName(coinId))
+                    .put("symbol", coinCatalog.getSymbol(coinId));
+        }
+        String url = String.format("%s/coins/%s?localization=false&tickers=false&market_data=false&community_data=false&developer_data=false&sparkline=false",
+                config.getCoingeckoApiUrl(), coinId);
+        rateLimiter.acquire();
+        String metadata = fetchWithRetry(url, coinId);
+        return metadata != null ? jsonProcessor.parseJson(metadata) : null;
+    }
+
+    /**
+     * Adds the community and developer data of the coin's day from the history endpoint.
+     * The coin is left unchanged if the data cannot be fetched.
+     *
+     * @param coin The coin to complete
+     * @throws Exception if there's an error in API communication or data processing
+     */
+    private void addCommunityAndDeveloperData(Coin coin) throws Exception {
+        LocalDate date = coin.getTimestamp().toLocalDateTime().toLocalDate();
+        byte[] archived = loadArchivedHistory(coin.getCoinId(), date);
+        String response;
+        if (archived != null) {
+            response = new String(archived, StandardCharsets.UTF_8);
+        } else {
+            String url = String.format("%s/coins/%s/history?date=%s", config.getCoingeckoApiUrl(), coin.getCoinId(),
+                    date.format(DateTimeFormatter.ofPattern("dd-MM-yyyy")));
+            rateLimiter.acquire();
+            response = fetchWithRetry(url, coin.getCoinId());
+            if (response != null) {
+                archiveHistory(coin.getCoinId(), date, response.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        if (response != null) {
+            coinDataProcessor.setCommunityAndDeveloperData(coin, jsonProcessor.parseJson(response));
         }
     }
 
@@ -191,6 +534,8 @@ public class CoinGeckoService implements CryptoDataSource {
 
     /**
      * Processes cryptocurrency data from the given URL and sends it to the backend.
+     * The coin is sent only after it has been fetched and parsed, so a failure while sending is not
+     * mistaken for a failed request and never triggers another fetch.
      *
      * @param url The URL to fetch the cryptocurrency data from
      * @param cryptoId The ID of the cryptocurrency
@@ -199,59 +544,539 @@ public class CoinGeckoService implements CryptoDataSource {
      */
     private void processCryptoData(String url, String cryptoId, Consumer<Coin> sendToBackend) throws InterruptedException {
         LOG.info("Process crypto data for Crypto {}", cryptoId);
-        for (int retryCount = 0; retryCount < config.getMaxRetries(); retryCount++) {
+        Coin coin = fetchCryptoData(url, cryptoId);
+        if (coin != null) {
+            sendToBackend.accept(coin);
+        }
+    }
+
+    /**
+     * Fetches and parses cryptocurrency data from the given URL, retrying failed requests.
+     *
+     * @param url The URL to fetch the cryptocurrency data from
+     * @param cryptoId The ID of the cryptocurrency
+     * @return The parsed coin, or null if no data was returned or the request failed and is not retried any more
+     * @throws InterruptedException if the thread is interrupted while waiting between retries
+     */
+    private Coin fetchCryptoData(String url, String cryptoId) throws InterruptedException {
+        retryPolicy.recordRequest();
+        for (int retryCount = 0; retryCount < retryPolicy.getMaxAttempts(); retryCount++) {
+            long started = System.nanoTime();
             try {
-                String response = httpClient.sendGetRequest(url);
-                JsonNode rootNode = jsonProcessor.parseJson(response);
-                if (rootNode != null) {
-                    Coin coin = coinDataProcessor.createCoinFromJsonNode(cryptoId, rootNode);
-                    sendToBackend.accept(coin);
-                } else {
-                    LOG.warn("No data returned for {}", cryptoId);
-                }
-                return;
+                Coin coin = fetchCoin(url, cryptoId);
+                recordAttempt(url, cryptoId, started, null);
+                return coin;
+            } catch (InterruptedException e) {
+                recordAttempt(url, cryptoId, started, e);
+                throw e;
             } catch (Exception e) {
+                recordAttempt(url, cryptoId, started, e);
                 LOG.warn("Issue occurred for {}: {}", cryptoId, e.getMessage(), e);
-                if (retryCount == config.getMaxRetries() - 1) {
-                    LOG.error("Max retries reached for {}. Moving to next coin.", cryptoId);
-                    return;
-                } else {
-                    long delay = config.getRateLimitDelay() * (long) (retryCount + 1);
-                    LOG.info("Retrying in {} milliseconds...", delay);
-                    TimeUnit.MILLISECONDS.sleep(delay);  // Backoff
+                Duration serverDelay = recordThrottling(e);
+                if (!retryPolicy.shouldRetry(e, retryCount)) {
+                    LOG.error("Giving up on {} after {} attempts. Moving to next coin.", cryptoId, retryCount + 1);
+                    return null;
                 }
+                long delay = retryDelay(serverDelay, retryCount);
+                LOG.info("Retrying in {} milliseconds...", delay);
+                recordRetry(url, cryptoId, delay);
+                TimeUnit.MILLISECONDS.sleep(delay);  // Backoff
+                rateLimiter.acquire();
             }
         }
+        return null;
+    }
+
+    /**
+     * Fetches and parses cryptocurrency data from the given URL once.
+     *
+     * @param url The URL to fetch the cryptocurrency data from
+     * @param cryptoId The ID of the cryptocurrency
+     * @return The parsed coin, or null if no data was returned
+     * @throws Exception if the request fails or the response cannot be parsed
+     */
+    private Coin fetchCoin(String url, String cryptoId) throws Exception {
+        if (config.isStreamingParse()) {
+            try (InputStream response = httpClient.sendGetRequestForStream(url)) {
+                rateLimiter.recordSuccess();
+                return coinDataProcessor.parseCoinStream(response, cryptoId, null);
+            }
+        }
+        String response = httpClient.sendGetRequest(url);
+        rateLimiter.recordSuccess();
+        JsonNode rootNode = jsonProcessor.parseJson(response);
+        if (rootNode == null) {
+            LOG.warn("No data returned for {}", cryptoId);
+            return null;
+        }
+        return coinDataProcessor.createCoinFromJsonNode(cryptoId, rootNode);
     }
 
     /**
      * Processes historical cryptocurrency data from the given URL and sends it to the backend.
+     * The coin is sent only after it has been fetched and parsed, so a failure while sending is not
+     * mistaken for a failed request and never triggers another fetch. An archived response is used
+     * instead of the URL if there is one.
      *
      * @param url The URL to fetch the historical cryptocurrency data from
      * @param coinId The ID of the cryptocurrency
      * @param date The date for which to fetch historical data
      * @param sendToBackend Consumer function to send processed data to the backend
+     * @param retries Queue for deferred retries, or null to wait for the retries of a failed request
      * @throws InterruptedException if the thread is interrupted while waiting between retries
      */
-    private void processHistoricalData(String url, String coinId, LocalDate date, Consumer<Coin> sendToBackend) throws InterruptedException {
+    private void processHistoricalData(String url, String coinId, LocalDate date, Consumer<Coin> sendToBackend,
+                                       DeferredRetryQueue<DeferredFetch> retries) throws InterruptedException {
         LOG.info("Process historical Coin Data for Crypto: {} and Date: {}", coinId, date);
-        for (int retryCount = 0; retryCount < config.getMaxRetries(); retryCount++) {
+        byte[] archived = loadArchivedHistory(coinId, date);
+        Coin coin;
+        if (archived != null) {
+            coin = parseArchivedHistoricalData(archived, coinId, date);
+        } else if (retries != null) {
+            runDueRetries(retries);
+            rateLimiter.acquire();
+            attemptDeferred(new DeferredFetch(url, coinId, date, sendToBackend), 0, retries);
+            return;
+        } else {
+            rateLimiter.acquire();
+            coin = fetchHistoricalData(url, coinId, date);
+        }
+        if (coin != null) {
+            sendToBackend.accept(coin);
+        }
+    }
+
+    /**
+     * Fetches and parses historical cryptocurrency data from the given URL, retrying failed requests.
+     *
+     * @param url The URL to fetch the historical cryptocurrency data from
+     * @param coinId The ID of the cryptocurrency
+     * @param date The date for which to fetch historical data
+     * @return The parsed coin, or null if the request failed and is not retried any more
+     * @throws InterruptedException if the thread is interrupted while waiting between retries
+     */
+    private Coin fetchHistoricalData(String url, String coinId, LocalDate date) throws InterruptedException {
+        retryPolicy.recordRequest();
+        for (int retryCount = 0; retryCount < retryPolicy.getMaxAttempts(); retryCount++) {
+            long started = System.nanoTime();
             try {
-                String response = httpClient.sendGetRequest(url);
-                Coin coin = coinDataProcessor.parseCoinData(response, coinId, date);
-                sendToBackend.accept(coin);
-                return;
+                Coin coin = fetchHistory(url, coinId, date);
+                recordAttempt(url, coinId, started, null);
+                return coin;
+            } catch (InterruptedException e) {
+                recordAttempt(url, coinId, started, e);
+                throw e;
             } catch (Exception e) {
+                recordAttempt(url, coinId, started, e);
                 LOG.warn("Error occurred for {} on {}: {}", coinId, date, e.getMessage(), e);
-                if (retryCount == config.getMaxRetries() - 1) {
-                    LOG.error("Max retries reached for {} on {}. Moving to next date.", coinId, date);
-                    return;
-                } else {
-                    long delay = config.getRateLimitDelay() * (long) (retryCount + 1);
-                    LOG.info("Rate Limiting hit. Retrying in {} milliseconds...", delay);
-                    TimeUnit.MILLISECONDS.sleep(delay);  // Backoff
+                Duration serverDelay = recordThrottling(e);
+                if (!retryPolicy.shouldRetry(e, retryCount)) {
+                    LOG.error("Giving up on {} on {} after {} attempts. Moving to next date.", coinId, date, retryCount + 1);
+                    return null;
+                }
+                long delay = retryDelay(serverDelay, retryCount);
+                LOG.info("Retrying in {} milliseconds...", delay);
+                recordRetry(url, coinId, delay);
+                TimeUnit.MILLISECONDS.sleep(delay);  // Backoff
+                rateLimiter.acquire();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Creates the queue for the deferred retries of one run over a list of coins.
+     *
+     * @return The queue, or null if retries are not deferred
+     */
+    private DeferredRetryQueue<DeferredFetch> newRetryQueue() {
+        return config.isDeferredRetries() ? new DeferredRetryQueue<>() : null;
+    }
+
+    /**
+     * Makes one attempt of a per-coin or per-day request and sends the parsed coin to the backend.
+     * If the attempt fails and may be retried, the request is deferred by the backoff delay instead of waiting for it.
+     *
+     * @param fetch The request
+     * @param retryCount The number of retries already performed
+     * @param retries Queue for deferred retries
+     * @throws InterruptedException if the operation is interrupted
+     */
+    private void attemptDeferred(DeferredFetch fetch, int retryCount, DeferredRetryQueue<DeferredFetch> retries) throws InterruptedException {
+        if (retryCount == 0) {
+            retryPolicy.recordRequest();
+        }
+        long started = System.nanoTime();
+        Coin coin;
+        try {
+            coin = fetch.date == null ? fetchCoin(fetch.url, fetch.coinId) : fetchHistory(fetch.url, fetch.coinId, fetch.date);
+            recordAttempt(fetch.url, fetch.coinId, started, null);
+        } catch (InterruptedException e) {
+            recordAttempt(fetch.url, fetch.coinId, started, e);
+            throw e;
+        } catch (Exception e) {
+            recordAttempt(fetch.url, fetch.coinId, started, e);
+            LOG.warn("Request {} failed for {}: {}", fetch.url, fetch.coinId, e.getMessage(), e);
+            Duration serverDelay = recordThrottling(e);
+            if (!retryPolicy.shouldRetry(e, retryCount)) {
+                LOG.error("Giving up on {} after {} attempts. Skipping request {}.", fetch.coinId, retryCount + 1, fetch.url);
+                return;
+            }
+            long delay = retryDelay(serverDelay, retryCount);
+            LOG.info("Deferring retry of {} by {} milliseconds...", fetch.url, delay);
+            recordRetry(fetch.url, fetch.coinId, delay);
+            retries.defer(fetch, retryCount + 1, delay);
+            return;
+        }
+        if (coin != null) {
+            fetch.sendToBackend.accept(coin);
+        }
+    }
+
+    /**
+     * Makes all deferred retries that are due, each after acquiring a rate limiter permit.
+     *
+     * @param retries Queue for deferred retries
+     * @throws InterruptedException if the operation is interrupted
+     */
+    private void runDueRetries(DeferredRetryQueue<DeferredFetch> retries) throws InterruptedException {
+        for (DeferredRetryQueue.Retry<DeferredFetch> retry = retries.pollDue(); retry != null; retry = retries.pollDue()) {
+            rateLimiter.acquire();
+            attemptDeferred(retry.getRequest(), retry.getRetryCount(), retries);
+        }
+    }
+
+    /**
+     * Makes the deferred retries left after all other work is done, waiting for each to become due.
+     *
+     * @param retries Queue for deferred retries, or null if retries are not deferred
+     * @throws InterruptedException if the operation is interrupted
+     */
+    private void runRemainingRetries(DeferredRetryQueue<DeferredFetch> retries) throws InterruptedException {
+        if (retries == null || retries.isEmpty()) {
+            return;
+        }
+        LOG.info("Waiting for {} deferred retries", retries.size());
+        while (!retries.isEmpty()) {
+            DeferredRetryQueue.Retry<DeferredFetch> retry = retries.take();
+            rateLimiter.acquire();
+            attemptDeferred(retry.getRequest(), retry.getRetryCount(), retries);
+        }
+    }
+
+    /**
+     * Fetches and parses historical cryptocurrency data from the given URL once, archiving the response if the day has passed.
+     *
+     * @param url The URL to fetch the historical cryptocurrency data from
+     * @param coinId The ID of the cryptocurrency
+     * @param date The date for which to fetch historical data
+     * @return The parsed coin
+     * @throws Exception if the request fails or the response cannot be parsed
+     */
+    private Coin fetchHistory(String url, String coinId, LocalDate date) throws Exception {
+        if (historyArchive != null && HistoryArchive.isArchivable(date)) {
+            byte[] response = fetchBytes(url);
+            rateLimiter.recordSuccess();
+            archiveHistory(coinId, date, response);
+            return parseHistoricalResponse(response, coinId, date);
+        }
+        if (config.isStreamingParse()) {
+            try (InputStream response = httpClient.sendGetRequestForStream(url)) {
+                rateLimiter.recordSuccess();
+                return coinDataProcessor.parseCoinStream(response, coinId, date);
+            }
+        }
+        String response = httpClient.sendGetRequest(url);
+        rateLimiter.recordSuccess();
+        return coinDataProcessor.parseCoinData(response, coinId, date);
+    }
+
+    /**
+     * Fetches the complete response body of the given URL without retrying.
+     *
+     * @param url The URL to fetch
+     * @return The response body
+     * @throws IOException if the request fails
+     * @throws InterruptedException if the operation is interrupted
+     */
+    private byte[] fetchBytes(String url) throws IOException, InterruptedException {
+        if (config.isStreamingParse()) {
+            try (InputStream response = httpClient.sendGetRequestForStream(url)) {
+                return response.readAllBytes();
+            }
+        }
+        return httpClient.sendGetRequest(url).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses a complete history response with the configured parser.
+     *
+     * @param response The response body
+     * @param coinId The ID of the cryptocurrency
+     * @param date The date of the historical data
+     * @return The parsed coin
+     * @throws IOException if the response cannot be parsed
+     */
+    private Coin parseHistoricalResponse(byte[] response, String coinId, LocalDate date) throws IOException {
+        if (config.isStreamingParse()) {
+            return coinDataProcessor.parseCoinStream(new ByteArrayInputStream(response), coinId, date);
+        }
+        return coinDataProcessor.parseCoinData(new String(response, StandardCharsets.UTF_8), coinId, date);
+    }
+
+    /**
+     * Parses an archived history response.
+     *
+     * @param response The archived response body
+     * @param coinId The ID of the cryptocurrency
+     * @param date The date of the historical data
+     * @return The parsed coin, or null if the response could not be parsed
+     */
+    private Coin parseArchivedHistoricalData(byte[] response, String coinId, LocalDate date) {
+        try {
+            return parseHistoricalResponse(response, coinId, date);
+        } catch (IOException | RuntimeException e) {
+            LOG.error("Failed to parse archived historical data for {} on {}", coinId, date, e);
+            return null;
+        }
+    }
+
+    /**
+     * Loads the archived history response of a coin for a day.
+     * A failure to read the archive is logged and treated like a missing response.
+     *
+     * @param coinId The ID of the cryptocurrency
+     * @param date The date of the historical data
+     * @return The archived response body, or null if there is no archive or no archived response
+     */
+    byte[] loadArchivedHistory(String coinId, LocalDate date) {
+        if (historyArchive == null) {
+            return null;
+        }
+        try {
+            return historyArchive.load(coinId, date);
+        } catch (IOException e) {
+            LOG.warn("Failed to read archived historical data for {} on {}: {}", coinId, date, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Archives the history response of a coin for a day if there is an archive.
+     * A failure to write the archive is logged and otherwise ignored.
+     *
+     * @param coinId The ID of the cryptocurrency
+     * @param date The date of the historical data
+     * @param response The response body
+     */
+    void archiveHistory(String coinId, LocalDate date, byte[] response) {
+        if (historyArchive == null) {
+            return;
+        }
+        try {
+            historyArchive.store(coinId, date, response);
+        } catch (IOException e) {
+            LOG.warn("Failed to archive historical data for {} on {}: {}", coinId, date, e.getMessage());
+        }
+    }
+
+    /**
+     * Fetches the response body of the given URL, retrying failed requests.
+     *
+     * @param url The URL to fetch
+     * @param cryptoId The ID of the cryptocurrency the request is made for, used for logging
+     * @return The response body, or null if the request failed and is not retried any more
+     * @throws InterruptedException if the thread is interrupted while waiting between retries
+     */
+    private String fetchWithRetry(String url, String cryptoId) throws InterruptedException {
+        retryPolicy.recordRequest();
+        for (int retryCount = 0; retryCount < retryPolicy.getMaxAttempts(); retryCount++) {
+            long started = System.nanoTime();
+            try {
+                String response = httpClient.sendGetRequest(url);
+                recordAttempt(url, cryptoId, started, null);
+                rateLimiter.recordSuccess();
+                return response;
+            } catch (IOException e) {
+                recordAttempt(url, cryptoId, started, e);
+                LOG.warn("Request {} failed for {}: {}", url, cryptoId, e.getMessage());
+                Duration serverDelay = recordThrottling(e);
+                if (!retryPolicy.shouldRetry(e, retryCount)) {
+                    break;
                 }
+                long delay = retryDelay(serverDelay, retryCount);
+                LOG.info("Retrying in {} milliseconds...", delay);
+                recordRetry(url, cryptoId, delay);
+                TimeUnit.MILLISECONDS.sleep(delay);  // Backoff
+                rateLimiter.acquire();
             }
         }
+        LOG.error("Giving up on {}. Skipping request {}.", cryptoId, url);
+        return null;
+    }
+
+    /**
+     * Records the latency and outcome of one request attempt.
+     *
+     * @param url The requested URL
+     * @param cryptoId The ID of the cryptocurrency, or the comma-separated IDs of a batch request
+     * @param startedNanos The start of the attempt as returned by {@link System#nanoTime()}
+     * @param failure The exception the attempt failed with, or null if it succeeded
+     */
+    void recordAttempt(String url, String cryptoId, long startedNanos, Throwable failure) {
+        String endpoint = endpointOf(url);
+        String outcome = MetricsRegistry.outcomeOf(failure);
+        METRICS.timer("coingecko_request_seconds", "endpoint", endpoint, "outcome", outcome).recordSince(startedNanos);
+        METRICS.counter("coingecko_requests_total", "coin", coinTag(cryptoId), "endpoint", endpoint, "outcome", outcome).increment();
+    }
+
+    /**
+     * Records a retry and the backoff delay before it.
+     *
+     * @param url The requested URL
+     * @param cryptoId The ID of the cryptocurrency, or the comma-separated IDs of a batch request
+     * @param delayMs The backoff delay in milliseconds
+     */
+    void recordRetry(String url, String cryptoId, long delayMs) {
+        String endpoint = endpointOf(url);
+        METRICS.counter("coingecko_retries_total", "coin", coinTag(cryptoId), "endpoint", endpoint).increment();
+        METRICS.timer("coingecko_retry_backoff_seconds", "endpoint", endpoint).record(TimeUnit.MILLISECONDS.toNanos(delayMs));
+    }
+
+    /**
+     * Gets the endpoint of a CoinGecko URL for use as a metrics tag, with the coin ID replaced by a placeholder,
+     * e.g. /coins/{id}/history for the history of any coin.
+     *
+     * @param url The URL
+     * @return The path of the URL relative to the API URL, without query
+     */
+    String endpointOf(String url) {
+        String apiUrl = config.getCoingeckoApiUrl();
+        String path = apiUrl != null && url.startsWith(apiUrl) ? url.substring(apiUrl.length()) : url;
+        int query = path.indexOf('?');
+        if (query >= 0) {
+            path = path.substring(0, query);
+        }
+        String[] segments = path.split("/", -1);
+        if (segments.length > 2 && "coins".equals(segments[1]) && !"markets".equals(segments[2]) && !"list".equals(segments[2])) {
+            segments[2] = "{id}";
+        }
+        return String.join("/", segments);
+    }
+
+    /**
+     * Gets the coin tag of a request. Batch requests for many coins share one tag.
+     *
+     * @param cryptoId The ID of the cryptocurrency, or the comma-separated IDs of a batch request
+     * @return The coin tag
+     */
+    private static String coinTag(String cryptoId) {
+        return cryptoId.indexOf(',') >= 0 ? BATCH_TAG : cryptoId;
+    }
+
+    /**
+     * Reports a throttling response to the rate limiter.
+     *
+     * @param e The exception raised by the failed request
+     * @return The pause requested by the server, or null if the request was not throttled or no pause was given
+     */
+    Duration recordThrottling(Throwable e) {
+        if (e instanceof HttpStatusException && ((HttpStatusException) e).isRateLimited()) {
+            Duration retryAfter = ((HttpStatusException) e).getRetryAfter().orElse(null);
+            rateLimiter.recordThrottled(retryAfter);
+            return retryAfter;
+        }
+        return null;
+    }
+
+    /**
+     * Determines how long to wait before the next retry.
+     * The pause requested by the server takes precedence over the jittered exponential backoff.
+     *
+     * @param serverDelay The pause requested by the server, or null if none was given
+     * @param retryCount The number of retries already performed
+     * @return The delay in milliseconds
+     */
+    long retryDelay(Duration serverDelay, int retryCount) {
+        return retryPolicy.backoffMs(serverDelay, retryCount);
+    }
+
+    /**
+     * Gets the retry policy of the request loops.
+     *
+     * @return The retry policy
+     */
+    RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Gets the configuration of the service.
+     *
+     * @return The configuration
+     */
+    CryptoConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Gets the HTTP client wrapper the requests are sent with.
+     *
+     * @return The HTTP client wrapper
+     */
+    HttpClientWrapper getHttpClient() {
+        return httpClient;
+    }
+
+    /**
+     * Gets the processor parsing JSON responses.
+     *
+     * @return The JSON processor
+     */
+    JsonProcessor getJsonProcessor() {
+        return jsonProcessor;
+    }
+
+    /**
+     * Gets the processor creating Coins from the responses.
+     *
+     * @return The coin data processor
+     */
+    CoinDataProcessor getCoinDataProcessor() {
+        return coinDataProcessor;
+    }
+
+    /**
+     * Gets the rate limiter the requests are paced by.
+     *
+     * @return The rate limiter
+     */
+    RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    /**
+     * A per-coin or per-day request whose retries are deferred, with the function its coin is sent to.
+     */
+    private static final class DeferredFetch {
+        private final String url;
+        private final String coinId;
+        private final LocalDate date;
+        private final Consumer<Coin> sendToBackend;
+
+        /**
+         * Constructs a new DeferredFetch.
+         *
+         * @param url The URL to fetch
+         * @param coinId The ID of the cryptocurrency
+         * @param date The date of the historical data, or null for current data
+         * @param sendToBackend Consumer function to send processed data to the backend
+         */
+        DeferredFetch(String url, String coinId, LocalDate date, Consumer<Coin> sendToBackend) {
+            this.url = url;
+            this.coinId = coinId;
+            this.date = date;
+            this.sendToBackend = sendToBackend;
+        }
     }
-}
\ No newline at end of file
+}
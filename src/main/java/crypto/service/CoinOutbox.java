@@ -0,0 +1,369 @@
+package crypto.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sam.coin.domain.model.Coin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Durable append-only outbox for coins that still have to be delivered to the backend.
+ * Coins are appended as JSON records to segment files in a directory. Every record is prefixed with
+ * its length and a CRC-32 of its content, and is forced to the storage device before the append
+ * returns, so a coin in the outbox survives a crash of the JVM or the host. A record torn by a crash
+ * fails its CRC check and is discarded when the outbox is opened again.
+ * <p>
+ * Records are delivered in the order they were appended by {@link #drain(Delivery, int)}. A read
+ * cursor is persisted after every delivered record, so a restart of the JVM resumes after the last
+ * delivered record, and segments are deleted once they have been fully delivered. The cursor is not
+ * forced to the storage device, so after a crash of the host, or a crash between a delivery and the
+ * cursor update, records may be delivered again: delivery is at least once, and the backend must
+ * accept a coin sent twice. Appending and draining may happen concurrently from different threads.
+ * <p>
+ * An outbox directory belongs to one open outbox at a time: opening takes an exclusive lock on a lock file
+ * in the directory, and opening a directory locked by another process or outbox fails.
+ */
+public class CoinOutbox implements AutoCloseable {
+	private static final Logger LOG = LoggerFactory.getLogger(CoinOutbox.class);
+	private static final String SEGMENT_PREFIX = "segment-";
+	private static final String SEGMENT_SUFFIX = ".log";
+	private static final String CURSOR_FILE = "cursor";
+	private static final String LOCK_FILE = "lock";
+	private static final int RECORD_HEADER_SIZE = 8;
+
+	private final Path directory;
+	private final ObjectMapper objectMapper;
+	private final long segmentBytes;
+	private final FileChannel lockChannel;
+	private final Object readLock = new Object();
+	private FileChannel writer;
+	private volatile long writeSegment;
+	private volatile long writeSize;
+	private long readSegment;
+	private long readOffset;
+
+	/**
+	 * Delivers a coin from the outbox.
+	 */
+	@FunctionalInterface
+	public interface Delivery {
+		/**
+		 * Delivers the coin.
+		 *
+		 * @param coin The coin to deliver
+		 * @return true if the coin was delivered and can be removed from the outbox, false to stop draining
+		 */
+		boolean deliver(Coin coin);
+	}
+
+	private CoinOutbox(Path directory, ObjectMapper objectMapper, long segmentBytes, FileChannel lockChannel) {
+		this.directory = directory;
+		this.objectMapper = objectMapper;
+		this.segmentBytes = segmentBytes;
+		this.lockChannel = lockChannel;
+	}
+
+	/**
+	 * Opens the outbox in the given directory, creating the directory if it does not exist.
+	 *
+	 * @param directory The directory holding the segment files
+	 * @param objectMapper The mapper serializing the coins
+	 * @param segmentBytes The size in bytes after which a new segment file is started
+	 * @return The opened outbox
+	 * @throws IOException if the outbox cannot be opened or the directory is in use by another outbox
+	 */
+	public static CoinOutbox open(Path directory, ObjectMapper objectMapper, long segmentBytes) throws IOException {
+		Files.createDirectories(directory);
+		FileChannel lockChannel = lock(directory);
+		try {
+			CoinOutbox outbox = new CoinOutbox(directory, objectMapper, segmentBytes, lockChannel);
+			outbox.recover();
+			return outbox;
+		} catch (IOException | RuntimeException e) {
+			lockChannel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Takes the exclusive lock of an outbox directory, held until the returned channel is closed.
+	 *
+	 * @param directory The outbox directory
+	 * @return The channel of the locked lock file
+	 * @throws IOException if the lock file cannot be opened or the directory is locked already
+	 */
+	private static FileChannel lock(Path directory) throws IOException {
+		FileChannel channel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		FileLock lock;
+		try {
+			lock = channel.tryLock();
+		} catch (OverlappingFileLockException e) {
+			lock = null;
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		if (lock == null) {
+			channel.close();
+			throw new IOException("Outbox directory " + directory + " is in use by another outbox");
+		}
+		return channel;
+	}
+
+	/**
+	 * Appends a coin to the outbox and forces it to the storage device.
+	 *
+	 * @param coin The coin to append
+	 * @throws IOException if the coin cannot be written
+	 */
+	public synchronized void append(Coin coin) throws IOException {
+		byte[] payload = objectMapper.writeValueAsBytes(coin);
+		ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.length);
+		record.putInt(payload.length).putInt(checksum(payload, payload.length)).put(payload).flip();
+		while (record.hasRemaining()) {
+			writer.write(record);
+		}
+		writer.force(false);
+		writeSize = writer.position();
+		if (writeSize >= segmentBytes) {
+			startSegment(writeSegment + 1);
+		}
+	}
+
+	/**
+	 * Checks whether the outbox holds coins that have not been delivered yet.
+	 *
+	 * @return true if there are pending coins
+	 */
+	public boolean hasPending() {
+		synchronized (readLock) {
+			return readSegment < writeSegment || readOffset < writeSize;
+		}
+	}
+
+	/**
+	 * Delivers pending coins in the order they were appended.
+	 * Draining stops at the first coin that could not be delivered; that coin stays in the outbox.
+	 *
+	 * @param delivery The delivery of a single coin
+	 * @param maxCoins The maximum number of coins to deliver
+	 * @return The number of coins delivered
+	 * @throws IOException if the outbox cannot be read
+	 */
+	public int drain(Delivery delivery, int maxCoins) throws IOException {
+		synchronized (readLock) {
+			int delivered = 0;
+			while (delivered < maxCoins) {
+				long segment = readSegment;
+				boolean active = segment == writeSegment;
+				long limit = active ? writeSize : segmentSize(segment);
+				if (readOffset >= limit) {
+					if (active) {
+						break;
+					}
+					Files.deleteIfExists(segmentPath(segment));
+					readSegment = nextSegmentAfter(segment);
+					readOffset = 0;
+					saveCursor();
+					continue;
+				}
+
+				byte[] payload = readRecord(segment, readOffset, limit);
+				if (payload == null) {
+					LOG.warn("Skipping corrupt outbox records in segment {} from offset {}", segment, readOffset);
+					readOffset = limit;
+					saveCursor();
+					continue;
+				}
+				Coin coin;
+				try {
+					coin = objectMapper.readValue(payload, Coin.class);
+				} catch (IOException e) {
+					LOG.warn("Skipping unreadable outbox record in segment {} at offset {}", segment, readOffset, e);
+					coin = null;
+				}
+				if (coin != null && !delivery.deliver(coin)) {
+					break;
+				}
+				readOffset += RECORD_HEADER_SIZE + payload.length;
+				saveCursor();
+				if (coin != null) {
+					delivered++;
+				}
+			}
+			return delivered;
+		}
+	}
+
+	/**
+	 * Closes the current segment file and releases the lock of the directory.
+	 *
+	 * @throws IOException if the file cannot be closed
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			writer.close();
+		} finally {
+			lockChannel.close();
+		}
+	}
+
+	/**
+	 * Restores the read cursor and the write position after opening, discarding a torn record at the end of the last segment.
+	 *
+	 * @throws IOException if the outbox cannot be read
+	 */
+	private void recover() throws IOException {
+		List<Long> segments = listSegments();
+		long last = segments.isEmpty() ? 0 : segments.get(segments.size() - 1);
+		writer = FileChannel.open(segmentPath(last), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		long validSize = validLength(last, writer.size());
+		if (validSize < writer.size()) {
+			LOG.warn("Discarding torn record at the end of outbox segment {}", last);
+			writer.truncate(validSize);
+		}
+		writer.position(validSize);
+		writeSegment = last;
+		writeSize = validSize;
+
+		Path cursor = directory.resolve(CURSOR_FILE);
+		if (Files.exists(cursor)) {
+			ByteBuffer saved = ByteBuffer.wrap(Files.readAllBytes(cursor));
+			readSegment = saved.getLong();
+			readOffset = saved.getLong();
+		} else {
+			readSegment = segments.isEmpty() ? 0 : segments.get(0);
+			readOffset = 0;
+		}
+		if (readSegment > writeSegment || (readSegment == writeSegment && readOffset > writeSize)) {
+			readSegment = writeSegment;
+			readOffset = writeSize;
+		}
+	}
+
+	/**
+	 * Closes the current segment file and starts a new one.
+	 *
+	 * @param segment The number of the new segment
+	 * @throws IOException if the new segment cannot be created
+	 */
+	private void startSegment(long segment) throws IOException {
+		FileChannel next = FileChannel.open(segmentPath(segment), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		writer.close();
+		writer = next;
+		writeSize = 0;
+		writeSegment = segment;
+	}
+
+	/**
+	 * Reads and verifies the record at the given offset.
+	 *
+	 * @param segment The segment to read from
+	 * @param offset The offset of the record
+	 * @param limit The end of the readable part of the segment
+	 * @return The record's content, or null if the record is incomplete or fails its CRC check
+	 * @throws IOException if the segment cannot be read
+	 */
+	private byte[] readRecord(long segment, long offset, long limit) throws IOException {
+		try (FileChannel reader = FileChannel.open(segmentPath(segment), StandardOpenOption.READ)) {
+			return readRecord(reader, offset, limit);
+		}
+	}
+
+	private byte[] readRecord(FileChannel reader, long offset, long limit) throws IOException {
+		if (offset + RECORD_HEADER_SIZE > limit) {
+			return null;
+		}
+		ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+		readFully(reader, header, offset);
+		int length = header.getInt(0);
+		if (length <= 0 || offset + RECORD_HEADER_SIZE + length > limit) {
+			return null;
+		}
+		ByteBuffer payload = ByteBuffer.allocate(length);
+		readFully(reader, payload, offset + RECORD_HEADER_SIZE);
+		return checksum(payload.array(), length) == header.getInt(4) ? payload.array() : null;
+	}
+
+	/**
+	 * Determines the length of the leading part of a segment that consists of complete, valid records.
+	 *
+	 * @param segment The segment
+	 * @param size The size of the segment file
+	 * @return The length of the valid part
+	 * @throws IOException if the segment cannot be read
+	 */
+	private long validLength(long segment, long size) throws IOException {
+		long offset = 0;
+		try (FileChannel reader = FileChannel.open(segmentPath(segment), StandardOpenOption.READ)) {
+			byte[] payload;
+			while (offset < size && (payload = readRecord(reader, offset, size)) != null) {
+				offset += RECORD_HEADER_SIZE + payload.length;
+			}
+		}
+		return offset;
+	}
+
+	private static void readFully(FileChannel reader, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (reader.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("Unexpected end of outbox segment");
+			}
+		}
+	}
+
+	private static int checksum(byte[] data, int length) {
+		CRC32 crc = new CRC32();
+		crc.update(data, 0, length);
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Persists the read cursor, replacing the previous one atomically.
+	 * The cursor is left to the operating system to write back; losing it only repeats deliveries.
+	 *
+	 * @throws IOException if the cursor cannot be written
+	 */
+	private void saveCursor() throws IOException {
+		Path temp = directory.resolve(CURSOR_FILE + ".tmp");
+		Files.write(temp, ByteBuffer.allocate(16).putLong(readSegment).putLong(readOffset).array());
+		Files.move(temp, directory.resolve(CURSOR_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private long segmentSize(long segment) throws IOException {
+		Path path = segmentPath(segment);
+		return Files.exists(path) ? Files.size(path) : 0;
+	}
+
+	private long nextSegmentAfter(long segment) throws IOException {
+		return listSegments().stream().filter(s -> s > segment).findFirst().orElse(writeSegment);
+	}
+
+	private List<Long> listSegments() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.map(path -> path.getFileName().toString())
+					.filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+					.map(name -> Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())))
+					.sorted()
+					.collect(Collectors.toList());
+		}
+	}
+
+	private Path segmentPath(long segment) {
+		return directory.resolve(String.format("%s%016d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+	}
+}
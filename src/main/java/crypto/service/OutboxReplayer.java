@@ -0,0 +1,119 @@
+package crypto.service;
+
+import crypto.util.ConcurrentTasks;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background task delivering the coins kept in the outbox to the backend.
+ * Coins are resent one at a time on a single thread, at most a fixed number per round, so replaying
+ * never adds more than one request at a time to the backend's load. When the backend does not accept a
+ * coin, replaying pauses and the pause doubles with every further failure up to a maximum, so an
+ * unavailable backend is probed rather than flooded. Once a coin is accepted again, the outbox is
+ * drained round after round without pausing.
+ */
+public class OutboxReplayer implements AutoCloseable {
+	private static final Logger LOG = LoggerFactory.getLogger(OutboxReplayer.class);
+	private static final int COINS_PER_ROUND = 100;
+
+	private final CoinOutbox outbox;
+	private final BackendService backendService;
+	private final long intervalMs;
+	private final long maxBackoffMs;
+	private final ScheduledExecutorService scheduler;
+	private long backoffMs;
+
+	/**
+	 * Constructs a new OutboxReplayer.
+	 *
+	 * @param outbox The outbox to drain
+	 * @param backendService Service resending the coins to the backend
+	 * @param intervalMs The time in milliseconds between checks of an empty outbox
+	 * @param maxBackoffMs The maximum pause in milliseconds after the backend did not accept a coin
+	 */
+	public OutboxReplayer(CoinOutbox outbox, BackendService backendService, long intervalMs, long maxBackoffMs) {
+		if (intervalMs < 1 || maxBackoffMs < intervalMs) {
+			throw new IllegalArgumentException("Invalid replay settings: interval=" + intervalMs + ", maxBackoff=" + maxBackoffMs);
+		}
+		this.outbox = outbox;
+		this.backendService = backendService;
+		this.intervalMs = intervalMs;
+		this.maxBackoffMs = maxBackoffMs;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(ConcurrentTasks.namedDaemonThreads("outbox-replay"));
+	}
+
+	/**
+	 * Starts replaying in the background, beginning immediately.
+	 */
+	public void start() {
+		scheduler.schedule(this::replay, 0, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Replays one round of coins from the outbox.
+	 *
+	 * @return The number of coins delivered
+	 * @throws IOException if the outbox cannot be read
+	 */
+	public int replayOnce() throws IOException {
+		if (!outbox.hasPending()) {
+			return 0;
+		}
+		int delivered = outbox.drain(backendService::resendCoinDataToBackend, COINS_PER_ROUND);
+		if (delivered > 0) {
+			LOG.info("Delivered {} coins from the outbox", delivered);
+		}
+		return delivered;
+	}
+
+	/**
+	 * Stops replaying, letting a round in progress finish.
+	 */
+	@Override
+	public void close() {
+		scheduler.shutdown();
+		try {
+			if (!scheduler.awaitTermination(1, TimeUnit.MINUTES)) {
+				scheduler.shutdownNow();
+			}
+		} catch (InterruptedException e) {
+			scheduler.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Replays one round and schedules the next one depending on its outcome.
+	 */
+	private void replay() {
+		long delayMs;
+		try {
+			int delivered = replayOnce();
+			if (!outbox.hasPending()) {
+				backoffMs = 0;
+				delayMs = intervalMs;
+			} else if (delivered == COINS_PER_ROUND) {
+				backoffMs = 0;
+				delayMs = 0;
+			} else {
+				backoffMs = backoffMs == 0 ? intervalMs : Math.min(backoffMs * 2, maxBackoffMs);
+				delayMs = backoffMs;
+				LOG.info("Backend did not accept coins from the outbox, retrying in {} ms", delayMs);
+			}
+		} catch (IOException | RuntimeException e) {
+			LOG.error("Failed to replay the outbox", e);
+			delayMs = maxBackoffMs;
+		}
+		try {
+			scheduler.schedule(this::replay, delayMs, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			LOG.debug("Outbox replay stopped");
+		}
+	}
+}
@@ -0,0 +1,23 @@
+package crypto.service.api;
+
+import com.sam.coin.domain.model.Coin;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Defines the contract for cryptocurrency data sources that archive the historical responses they download.
+ * Implementations can rebuild the historical data from their archive without any network request,
+ * for example after the processing of the responses has changed.
+ */
+public interface ArchivedDataSource {
+
+    /**
+     * Rebuilds historical data for specified cryptocurrencies from all archived responses and sends it.
+     *
+     * @param cryptoIds List of cryptocurrency IDs to reprocess historical data for
+     * @param sendToBackend Consumer function to send processed data to the backend
+     * @throws Exception if an error occurs during reading, processing or sending
+     */
+    void reprocessArchivedHistoricalData(List<String> cryptoIds, Consumer<Coin> sendToBackend) throws Exception;
+}
@@ -0,0 +1,49 @@
+package crypto.service.api;
+
+import com.sam.coin.domain.model.Coin;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+/**
+ * Defines the contract for cryptocurrency data sources that fetch, parse and send data without blocking.
+ * Each method returns immediately; the returned future completes once all data has been handed to the
+ * backend function and every future returned by that function has completed.
+ */
+public interface AsyncCryptoDataSource extends CryptoDataSource {
+
+    /**
+     * Fetches and sends current data for specified cryptocurrencies asynchronously.
+     *
+     * @param cryptoIds List of cryptocurrency IDs to fetch data for
+     * @param sendToBackend Function sending processed data to the backend asynchronously
+     * @return A future that completes when all data has been sent
+     */
+    CompletableFuture<Void> fetchAndSendCurrentDataAsync(List<String> cryptoIds, Function<Coin, ? extends CompletionStage<?>> sendToBackend);
+
+    /**
+     * Fetches and sends historical data for specified cryptocurrencies from their last valid dates asynchronously.
+     *
+     * @param cryptoIds List of cryptocurrency IDs to fetch historical data for
+     * @param lastValidDates Map of cryptocurrency IDs to their last valid dates
+     * @param sendToBackend Function sending processed data to the backend asynchronously
+     * @return A future that completes when all data has been sent
+     */
+    CompletableFuture<Void> fetchAndSendHistoricalDataAsync(List<String> cryptoIds, Map<String, Date> lastValidDates,
+                                                            Function<Coin, ? extends CompletionStage<?>> sendToBackend);
+
+    /**
+     * Fetches and sends all historical data for specified cryptocurrencies within a given time frame asynchronously.
+     *
+     * @param cryptoIds List of cryptocurrency IDs to fetch all historical data for
+     * @param timeFrame Number of days in the past to fetch data for
+     * @param sendToBackend Function sending processed data to the backend asynchronously
+     * @return A future that completes when all data has been sent
+     */
+    CompletableFuture<Void> fetchAndSendAllHistoricalDataAsync(List<String> cryptoIds, int timeFrame,
+                                                               Function<Coin, ? extends CompletionStage<?>> sendToBackend);
+}
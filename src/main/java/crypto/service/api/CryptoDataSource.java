@@ -3,6 +3,7 @@ package crypto.service.api;
 import com.sam.coin.domain.model.Coin;
 import crypto.config.CryptoId;
 
+import java.time.LocalDate;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -72,4 +73,28 @@ public interface CryptoDataSource {
      * @throws Exception if an error occurs during data fetching or sending
      */
     void fetchAndSendAllHistoricalData(CryptoId cryptoId, int timeFrame, Consumer<Coin> sendToBackend) throws Exception;
-}
\ No newline at end of file
+
+    /**
+     * Fetches and sends daily historical data for specified cryptocurrencies within a date range,
+     * requesting the whole range per cryptocurrency at once instead of one request per day.
+     *
+     * @param cryptoIds List of cryptocurrency IDs to fetch historical data for
+     * @param startDate The first day to fetch data for
+     * @param endDate The last day to fetch data for
+     * @param sendToBackend Consumer function to send processed data to the backend
+     * @throws Exception if an error occurs during data fetching or sending
+     */
+    void fetchAndSendHistoricalRangeData(List<String> cryptoIds, LocalDate startDate, LocalDate endDate, Consumer<Coin> sendToBackend) throws Exception;
+
+    /**
+     * Fetches and sends daily historical data for a single cryptocurrency within a date range,
+     * requesting the whole range at once instead of one request per day.
+     *
+     * @param cryptoId The cryptocurrency ID to fetch historical data for
+     * @param startDate The first day to fetch data for
+     * @param endDate The last day to fetch data for
+     * @param sendToBackend Consumer function to send processed data to the backend
+     * @throws Exception if an error occurs during data fetching or sending
+     */
+    void fetchAndSendHistoricalRangeData(CryptoId cryptoId, LocalDate startDate, LocalDate endDate, Consumer<Coin> sendToBackend) throws Exception;
+}
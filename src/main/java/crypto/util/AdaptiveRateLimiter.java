@@ -0,0 +1,77 @@
+package crypto.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Rate limiter that adapts its request rate to feedback from the server.
+ * The rate follows an additive-increase/multiplicative-decrease scheme: every successful request
+ * raises the rate by a small fixed amount, while a throttled request halves it and pauses for as long
+ * as the server asked. The refill interval always stays between the configured bounds, so the limiter
+ * settles just below the provider's actual limit instead of relying on a hand-tuned delay.
+ */
+public class AdaptiveRateLimiter extends RateLimiter {
+	private static final Logger LOG = LoggerFactory.getLogger(AdaptiveRateLimiter.class);
+	static final double ADDITIVE_INCREASE_PER_MINUTE = 0.5;
+	private static final long NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+	private final long minIntervalNanos;
+	private final long maxIntervalNanos;
+
+	/**
+	 * Constructs a new AdaptiveRateLimiter.
+	 *
+	 * @param initialIntervalMs The refill interval in milliseconds to start with
+	 * @param minIntervalMs The smallest refill interval the limiter may probe down to
+	 * @param maxIntervalMs The largest refill interval the limiter may back off to
+	 * @param burstCapacity The maximum number of permits that can be taken without waiting
+	 */
+	public AdaptiveRateLimiter(long initialIntervalMs, long minIntervalMs, long maxIntervalMs, int burstCapacity) {
+		this(initialIntervalMs, minIntervalMs, maxIntervalMs, burstCapacity, System::nanoTime);
+	}
+
+	/**
+	 * Constructs a new AdaptiveRateLimiter using the given nanosecond clock.
+	 *
+	 * @param initialIntervalMs The refill interval in milliseconds to start with
+	 * @param minIntervalMs The smallest refill interval the limiter may probe down to
+	 * @param maxIntervalMs The largest refill interval the limiter may back off to
+	 * @param burstCapacity The maximum number of permits that can be taken without waiting
+	 * @param clock Source of the current time in nanoseconds
+	 */
+	AdaptiveRateLimiter(long initialIntervalMs, long minIntervalMs, long maxIntervalMs, int burstCapacity, LongSupplier clock) {
+		super(Math.min(Math.max(initialIntervalMs, minIntervalMs), maxIntervalMs), burstCapacity, clock);
+		if (minIntervalMs <= 0 || minIntervalMs > maxIntervalMs) {
+			throw new IllegalArgumentException("Invalid interval bounds: " + minIntervalMs + ".." + maxIntervalMs);
+		}
+		this.minIntervalNanos = TimeUnit.MILLISECONDS.toNanos(minIntervalMs);
+		this.maxIntervalNanos = TimeUnit.MILLISECONDS.toNanos(maxIntervalMs);
+	}
+
+	/**
+	 * Raises the request rate by {@value #ADDITIVE_INCREASE_PER_MINUTE} requests per minute.
+	 */
+	@Override
+	public void recordSuccess() {
+		updateIntervalNanos(interval -> {
+			double requestsPerMinute = (double) NANOS_PER_MINUTE / interval + ADDITIVE_INCREASE_PER_MINUTE;
+			return Math.max(minIntervalNanos, (long) (NANOS_PER_MINUTE / requestsPerMinute));
+		});
+	}
+
+	/**
+	 * Halves the request rate and pauses for the time requested by the server.
+	 *
+	 * @param retryAfter The pause requested by the server, or null if it did not specify one
+	 */
+	@Override
+	public void recordThrottled(Duration retryAfter) {
+		long interval = updateIntervalNanos(current -> Math.min(maxIntervalNanos, current * 2));
+		LOG.info("Throttled by server, reducing request rate to one request every {} ms", TimeUnit.NANOSECONDS.toMillis(interval));
+		super.recordThrottled(retryAfter);
+	}
+}
@@ -0,0 +1,219 @@
+package crypto.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Local store of the last date successfully delivered to the backend per coin.
+ * The store is a small memory-mapped file with a fixed layout: a header followed by one fixed-size
+ * slot per coin holding the coin ID and the epoch day of its last delivered date. Updates are plain
+ * writes to the mapped memory and therefore survive a crash of the JVM; {@link #close()} forces them
+ * to the storage device.
+ * <p>
+ * Like the backend's last valid date, the stored date only moves forward. The store is safe for use
+ * from multiple threads of one process. Opening takes an exclusive lock on the file, so a file already
+ * open in another process or store is rejected instead of two stores allocating the same slot.
+ */
+public class CheckpointStore implements AutoCloseable {
+	private static final int MAGIC = 0x434B5054; // "CKPT"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 16;
+	private static final int MAX_ID_BYTES = 62;
+	private static final int SLOT_SIZE = 2 + MAX_ID_BYTES + 8;
+	private static final long NO_DATE = Long.MIN_VALUE;
+
+	private final FileChannel channel;
+	private final MappedByteBuffer buffer;
+	private final int capacity;
+	private final Map<String, Integer> slots = new HashMap<>();
+
+	private CheckpointStore(FileChannel channel, MappedByteBuffer buffer, int capacity) {
+		this.channel = channel;
+		this.buffer = buffer;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Opens the checkpoint store in the given file, creating the file if it does not exist.
+	 *
+	 * @param file The checkpoint file
+	 * @param capacity The maximum number of coins the store holds; ignored if the file already exists
+	 * @return The opened store
+	 * @throws IOException if the file cannot be opened, is not a checkpoint file or is open in another store
+	 */
+	public static CheckpointStore open(Path file, int capacity) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			lock(channel, file);
+			boolean created = channel.size() == 0;
+			int slotCount = created ? capacity : readSlotCount(channel, file);
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) slotCount * SLOT_SIZE);
+			if (created) {
+				buffer.putInt(0, MAGIC);
+				buffer.putInt(4, VERSION);
+				buffer.putInt(8, slotCount);
+			}
+			CheckpointStore store = new CheckpointStore(channel, buffer, slotCount);
+			store.indexSlots();
+			return store;
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Gets the last date delivered to the backend for a coin.
+	 *
+	 * @param coinId The ID of the coin
+	 * @return The last delivered date, or empty if nothing was recorded for the coin
+	 */
+	public synchronized Optional<LocalDate> getLastDelivered(String coinId) {
+		Integer slot = slots.get(coinId);
+		if (slot == null) {
+			return Optional.empty();
+		}
+		long epochDay = buffer.getLong(dateOffset(slot));
+		return epochDay == NO_DATE ? Optional.empty() : Optional.of(LocalDate.ofEpochDay(epochDay));
+	}
+
+	/**
+	 * Gets the last delivered dates of all coins in the store.
+	 *
+	 * @return Map of coin IDs to their last delivered dates
+	 */
+	public synchronized Map<String, LocalDate> getAllLastDelivered() {
+		Map<String, LocalDate> result = new LinkedHashMap<>();
+		for (String coinId : slots.keySet()) {
+			getLastDelivered(coinId).ifPresent(date -> result.put(coinId, date));
+		}
+		return result;
+	}
+
+	/**
+	 * Records that the data of a coin for the given date was delivered to the backend.
+	 * Dates before the recorded one are ignored.
+	 *
+	 * @param coinId The ID of the coin
+	 * @param date The delivered date
+	 * @throws IllegalStateException if the coin is new and the store is full
+	 */
+	public synchronized void recordDelivered(String coinId, LocalDate date) {
+		int slot = slots.computeIfAbsent(coinId, this::allocateSlot);
+		int offset = dateOffset(slot);
+		if (date.toEpochDay() > buffer.getLong(offset)) {
+			buffer.putLong(offset, date.toEpochDay());
+		}
+	}
+
+	/**
+	 * Forces all updates to the storage device and closes the file, releasing its lock.
+	 *
+	 * @throws IOException if the file cannot be closed
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		buffer.force();
+		channel.close();
+	}
+
+	/**
+	 * Takes the exclusive lock of a checkpoint file, held until its channel is closed.
+	 *
+	 * @param channel The channel of the file
+	 * @param file The file, used for error messages
+	 * @throws IOException if the file is locked already
+	 */
+	private static void lock(FileChannel channel, Path file) throws IOException {
+		FileLock lock;
+		try {
+			lock = channel.tryLock();
+		} catch (OverlappingFileLockException e) {
+			lock = null;
+		}
+		if (lock == null) {
+			throw new IOException("Checkpoint file " + file + " is in use by another store");
+		}
+	}
+
+	/**
+	 * Reads the slot count from the header of an existing checkpoint file.
+	 *
+	 * @param channel The channel of the file
+	 * @param file The file, used for error messages
+	 * @return The slot count
+	 * @throws IOException if the file is not a checkpoint file
+	 */
+	private static int readSlotCount(FileChannel channel, Path file) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		channel.read(header, 0);
+		if (header.position() < HEADER_SIZE || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+			throw new IOException("Not a checkpoint file: " + file);
+		}
+		int slotCount = header.getInt(8);
+		if (slotCount < 0 || channel.size() < HEADER_SIZE + (long) slotCount * SLOT_SIZE) {
+			throw new IOException("Truncated checkpoint file: " + file);
+		}
+		return slotCount;
+	}
+
+	/**
+	 * Builds the index of coin IDs to slots from the slots in use.
+	 */
+	private void indexSlots() {
+		for (int slot = 0; slot < capacity; slot++) {
+			int offset = HEADER_SIZE + slot * SLOT_SIZE;
+			int length = buffer.getShort(offset);
+			if (length <= 0) {
+				break;
+			}
+			byte[] id = new byte[length];
+			buffer.duplicate().position(offset + 2).get(id);
+			slots.put(new String(id, StandardCharsets.UTF_8), slot);
+		}
+	}
+
+	/**
+	 * Allocates the next free slot to a coin.
+	 *
+	 * @param coinId The ID of the coin
+	 * @return The allocated slot
+	 */
+	private int allocateSlot(String coinId) {
+		byte[] id = coinId.getBytes(StandardCharsets.UTF_8);
+		if (id.length == 0 || id.length > MAX_ID_BYTES) {
+			throw new IllegalArgumentException("Coin ID must have 1 to " + MAX_ID_BYTES + " bytes: " + coinId);
+		}
+		int slot = slots.size();
+		if (slot >= capacity) {
+			throw new IllegalStateException("Checkpoint store is full (" + capacity + " coins)");
+		}
+		int offset = HEADER_SIZE + slot * SLOT_SIZE;
+		buffer.putLong(offset + 2 + MAX_ID_BYTES, NO_DATE);
+		buffer.duplicate().position(offset + 2).put(id);
+		buffer.putShort(offset, (short) id.length);
+		return slot;
+	}
+
+	/**
+	 * Gets the offset of a slot's date.
+	 *
+	 * @param slot The slot
+	 * @return The offset in the file
+	 */
+	private static int dateOffset(int slot) {
+		return HEADER_SIZE + slot * SLOT_SIZE + 2 + MAX_ID_BYTES;
+	}
+}
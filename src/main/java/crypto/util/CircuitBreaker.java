@@ -0,0 +1,169 @@
+package crypto.util;
+
+import crypto.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker of a single host.
+ * The circuit is closed while the host is healthy. After a number of consecutive failures it opens, and
+ * requests fail fast without being sent until the open period has elapsed. The circuit is then half-open:
+ * a single probe request is let through, and the circuit closes if it succeeds or opens again for twice
+ * as long, up to a maximum, if it fails.
+ * <p>
+ * Only failures that indicate an unavailable host count: I/O errors and server errors. Client errors and
+ * throttling responses show that the host is up and count as successes.
+ */
+public class CircuitBreaker {
+	private static final Logger LOG = LoggerFactory.getLogger(CircuitBreaker.class);
+
+	/**
+	 * The states of a circuit.
+	 */
+	public enum State {
+		CLOSED, OPEN, HALF_OPEN
+	}
+
+	private final String host;
+	private final int failureThreshold;
+	private final long initialOpenNanos;
+	private final long maxOpenNanos;
+	private final LongSupplier clock;
+	private State state = State.CLOSED;
+	private int consecutiveFailures;
+	private long openNanos;
+	private long openUntil;
+	private boolean probing;
+
+	/**
+	 * Constructs a new closed CircuitBreaker.
+	 *
+	 * @param host The host the circuit protects, used for logging
+	 * @param failureThreshold The number of consecutive failures that open the circuit
+	 * @param openMs The time in milliseconds the circuit stays open after it first opened
+	 * @param maxOpenMs The maximum time in milliseconds the circuit stays open after failed probes
+	 * @param clock Source of the current time in nanoseconds
+	 */
+	CircuitBreaker(String host, int failureThreshold, long openMs, long maxOpenMs, LongSupplier clock) {
+		checkSettings(failureThreshold, openMs, maxOpenMs);
+		this.host = host;
+		this.failureThreshold = failureThreshold;
+		this.initialOpenNanos = TimeUnit.MILLISECONDS.toNanos(openMs);
+		this.maxOpenNanos = TimeUnit.MILLISECONDS.toNanos(maxOpenMs);
+		this.clock = clock;
+		this.openNanos = initialOpenNanos;
+	}
+
+	/**
+	 * Checks whether a request may be sent, turning an open circuit half-open once its open period has elapsed.
+	 * Every permitted request must be followed by {@link #onSuccess()}, {@link #onFailure()} or {@link #onCancel()}.
+	 *
+	 * @throws CircuitOpenException if the circuit is open, or half-open with a probe already in flight
+	 */
+	public synchronized void acquire() throws CircuitOpenException {
+		switch (state) {
+			case CLOSED:
+				return;
+			case OPEN:
+				long remaining = openUntil - clock.getAsLong();
+				if (remaining > 0) {
+					throw new CircuitOpenException(host, Duration.ofNanos(remaining));
+				}
+				transition(State.HALF_OPEN);
+				probing = true;
+				return;
+			default:
+				if (probing) {
+					throw new CircuitOpenException(host, Duration.ZERO);
+				}
+				probing = true;
+		}
+	}
+
+	/**
+	 * Records that the host answered a request.
+	 */
+	public synchronized void onSuccess() {
+		consecutiveFailures = 0;
+		probing = false;
+		openNanos = initialOpenNanos;
+		if (state != State.CLOSED) {
+			transition(State.CLOSED);
+		}
+	}
+
+	/**
+	 * Records that a request failed because the host is unavailable.
+	 */
+	public synchronized void onFailure() {
+		probing = false;
+		if (state == State.HALF_OPEN) {
+			openNanos = Math.min(openNanos * 2, maxOpenNanos);
+			open();
+		} else if (state == State.CLOSED && ++consecutiveFailures >= failureThreshold) {
+			open();
+		}
+	}
+
+	/**
+	 * Records that a permitted request ended without telling anything about the host, e.g. because it was interrupted.
+	 */
+	public synchronized void onCancel() {
+		probing = false;
+	}
+
+	/**
+	 * Gets the current state of the circuit. An open circuit whose open period has elapsed is still reported as open
+	 * until the next request probes the host.
+	 *
+	 * @return The state
+	 */
+	public synchronized State getState() {
+		return state;
+	}
+
+	/**
+	 * Gets the host the circuit protects.
+	 *
+	 * @return The host
+	 */
+	public String getHost() {
+		return host;
+	}
+
+	/**
+	 * Checks circuit breaker settings.
+	 *
+	 * @param failureThreshold The number of consecutive failures that open the circuit
+	 * @param openMs The time in milliseconds the circuit stays open after it first opened
+	 * @param maxOpenMs The maximum time in milliseconds the circuit stays open after failed probes
+	 * @throws IllegalArgumentException if a setting is out of range
+	 */
+	static void checkSettings(int failureThreshold, long openMs, long maxOpenMs) {
+		if (failureThreshold < 1 || openMs < 1 || maxOpenMs < openMs) {
+			throw new IllegalArgumentException("Invalid circuit breaker settings: threshold=" + failureThreshold
+					+ ", open=" + openMs + ", maxOpen=" + maxOpenMs);
+		}
+	}
+
+	private void open() {
+		consecutiveFailures = 0;
+		openUntil = clock.getAsLong() + openNanos;
+		transition(State.OPEN);
+	}
+
+	private void transition(State next) {
+		if (next == State.OPEN) {
+			LOG.warn("Circuit for {} opened, failing requests fast for {} ms", host, TimeUnit.NANOSECONDS.toMillis(openNanos));
+		} else {
+			LOG.info("Circuit for {} is {}", host, next == State.CLOSED ? "closed again" : "half-open, probing the host");
+		}
+		state = next;
+		MetricsRegistry.global().counter("circuit_transitions_total", "host", host, "state", next.name().toLowerCase(Locale.ROOT)).increment();
+	}
+}
@@ -0,0 +1,66 @@
+package crypto.util;
+
+import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breakers per host, all with the same settings.
+ * A breaker is created the first time a request is made to its host.
+ */
+public class CircuitBreakers {
+	private final int failureThreshold;
+	private final long openMs;
+	private final long maxOpenMs;
+	private final LongSupplier clock;
+	private final ConcurrentMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+	/**
+	 * Constructs a new CircuitBreakers.
+	 *
+	 * @param failureThreshold The number of consecutive failures that open the circuit of a host
+	 * @param openMs The time in milliseconds a circuit stays open after it first opened
+	 * @param maxOpenMs The maximum time in milliseconds a circuit stays open after failed probes
+	 */
+	public CircuitBreakers(int failureThreshold, long openMs, long maxOpenMs) {
+		this(failureThreshold, openMs, maxOpenMs, System::nanoTime);
+	}
+
+	/**
+	 * Constructs a new CircuitBreakers using the given nanosecond clock.
+	 *
+	 * @param failureThreshold The number of consecutive failures that open the circuit of a host
+	 * @param openMs The time in milliseconds a circuit stays open after it first opened
+	 * @param maxOpenMs The maximum time in milliseconds a circuit stays open after failed probes
+	 * @param clock Source of the current time in nanoseconds
+	 */
+	CircuitBreakers(int failureThreshold, long openMs, long maxOpenMs, LongSupplier clock) {
+		CircuitBreaker.checkSettings(failureThreshold, openMs, maxOpenMs);
+		this.failureThreshold = failureThreshold;
+		this.openMs = openMs;
+		this.maxOpenMs = maxOpenMs;
+		this.clock = clock;
+	}
+
+	/**
+	 * Gets the circuit breaker of the host of a URL.
+	 *
+	 * @param url The URL
+	 * @return The circuit breaker of the URL's host and port
+	 */
+	public CircuitBreaker forUrl(String url) {
+		String authority = URI.create(url).getAuthority();
+		return forHost(authority != null ? authority : "");
+	}
+
+	/**
+	 * Gets the circuit breaker of a host.
+	 *
+	 * @param host The host, optionally with its port
+	 * @return The circuit breaker
+	 */
+	public CircuitBreaker forHost(String host) {
+		return breakers.computeIfAbsent(host, h -> new CircuitBreaker(h, failureThreshold, openMs, maxOpenMs, clock));
+	}
+}
@@ -0,0 +1,45 @@
+package crypto.util;
+
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Exception thrown instead of sending a request while the circuit breaker of its host is open.
+ * No request was sent, so retrying it before the host is probed again only fails again.
+ */
+public class CircuitOpenException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    private final String host;
+    private final transient Duration remainingOpen;
+
+    /**
+     * Constructs a new CircuitOpenException.
+     *
+     * @param host The host whose circuit is open
+     * @param remainingOpen The time until the host is probed again
+     */
+    public CircuitOpenException(String host, Duration remainingOpen) {
+        super("Circuit open for " + host + ", next probe in " + remainingOpen.toMillis() + " ms");
+        this.host = host;
+        this.remainingOpen = remainingOpen;
+    }
+
+    /**
+     * Gets the host whose circuit is open.
+     *
+     * @return The host
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * Gets the time until the host is probed again.
+     *
+     * @return The remaining time the circuit stays open
+     */
+    public Duration getRemainingOpen() {
+        return remainingOpen;
+    }
+}
@@ -0,0 +1,111 @@
+package crypto.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Utility for fanning out independent per-item work over a bounded number of threads.
+ * The calling thread blocks until every item has been processed, so callers keep the
+ * same synchronous contract as a plain loop while network wait times overlap.
+ */
+public final class ConcurrentTasks {
+
+	/**
+	 * A unit of work that is applied to a single item and may throw a checked exception.
+	 *
+	 * @param <T> The type of the item
+	 */
+	@FunctionalInterface
+	public interface Task<T> {
+		void run(T item) throws Exception;
+	}
+
+	private ConcurrentTasks() {
+	}
+
+	/**
+	 * Applies the task to every item, running at most {@code concurrency} items at the same time.
+	 * With a concurrency of one or less, or a single item, the items are processed in order on the calling thread.
+	 * If one or more tasks fail, the first failure is rethrown after all tasks have finished and
+	 * any further failures are attached to it as suppressed exceptions.
+	 *
+	 * @param items The items to process
+	 * @param concurrency The maximum number of items processed at the same time
+	 * @param threadNamePrefix Prefix for the names of the worker threads
+	 * @param task The task to apply to each item
+	 * @param <T> The type of the items
+	 * @throws Exception the first exception thrown by a task
+	 * @throws InterruptedException if the calling thread is interrupted while waiting for the tasks
+	 */
+	public static <T> void forEach(List<T> items, int concurrency, String threadNamePrefix, Task<? super T> task) throws Exception {
+		if (concurrency <= 1 || items.size() <= 1) {
+			for (T item : items) {
+				task.run(item);
+			}
+			return;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, items.size()), namedDaemonThreads(threadNamePrefix));
+		try {
+			List<Future<?>> futures = new ArrayList<>(items.size());
+			for (T item : items) {
+				futures.add(executor.submit(() -> {
+					task.run(item);
+					return null;
+				}));
+			}
+			awaitAll(futures);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Waits for all futures and rethrows the first failure with the remaining ones suppressed.
+	 *
+	 * @param futures The futures to wait for
+	 * @throws Exception the first exception thrown by a task
+	 */
+	private static void awaitAll(List<Future<?>> futures) throws Exception {
+		Exception failure = null;
+		for (Future<?> future : futures) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				futures.forEach(f -> f.cancel(true));
+				throw e;
+			} catch (ExecutionException e) {
+				Exception cause = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+				if (failure == null) {
+					failure = cause;
+				} else {
+					failure.addSuppressed(cause);
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Creates a thread factory producing daemon threads named with the given prefix and a sequence number.
+	 *
+	 * @param prefix The thread name prefix
+	 * @return The thread factory
+	 */
+	public static ThreadFactory namedDaemonThreads(String prefix) {
+		AtomicInteger sequence = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, prefix + "-" + sequence.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+}
@@ -0,0 +1,143 @@
+package crypto.util;
+
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Queue of failed requests waiting for their next attempt, ordered by the time the attempt is due.
+ * Instead of sleeping through the backoff delay, a request loop defers the failed request, continues with
+ * other work, and picks up the retries that have become due between its regular requests. Only once the
+ * regular work is done does it wait for the remaining retries.
+ * <p>
+ * Retries due at the same time are handed out in the order they were deferred. The queue is thread-safe,
+ * so concurrent workers may share it.
+ *
+ * @param <T> The type of the deferred requests
+ */
+public class DeferredRetryQueue<T> {
+	private final DelayQueue<Retry<T>> queue = new DelayQueue<>();
+	private final AtomicLong sequence = new AtomicLong();
+	private final LongSupplier clock;
+
+	/**
+	 * Constructs a new empty DeferredRetryQueue.
+	 */
+	public DeferredRetryQueue() {
+		this(System::nanoTime);
+	}
+
+	/**
+	 * Constructs a new empty DeferredRetryQueue using the given nanosecond clock.
+	 *
+	 * @param clock Source of the current time in nanoseconds
+	 */
+	DeferredRetryQueue(LongSupplier clock) {
+		this.clock = clock;
+	}
+
+	/**
+	 * Defers a failed request until its backoff delay has elapsed.
+	 *
+	 * @param request The request to retry
+	 * @param retryCount The number of retries performed once this retry is made
+	 * @param delayMs The backoff delay in milliseconds
+	 */
+	public void defer(T request, int retryCount, long delayMs) {
+		long due = clock.getAsLong() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMs));
+		queue.add(new Retry<>(request, retryCount, due, sequence.getAndIncrement(), clock));
+	}
+
+	/**
+	 * Removes the retry that has been due the longest, without waiting.
+	 *
+	 * @return The retry, or null if no retry is due yet
+	 */
+	public Retry<T> pollDue() {
+		return queue.poll();
+	}
+
+	/**
+	 * Removes the next retry, waiting until it is due.
+	 *
+	 * @return The retry
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	public Retry<T> take() throws InterruptedException {
+		return queue.take();
+	}
+
+	/**
+	 * Checks whether no retries are waiting, whether due or not.
+	 *
+	 * @return true if the queue is empty
+	 */
+	public boolean isEmpty() {
+		return queue.isEmpty();
+	}
+
+	/**
+	 * Gets the number of waiting retries, whether due or not.
+	 *
+	 * @return The number of retries
+	 */
+	public int size() {
+		return queue.size();
+	}
+
+	/**
+	 * A deferred request and the number of retries performed once it is attempted.
+	 *
+	 * @param <T> The type of the deferred request
+	 */
+	public static final class Retry<T> implements Delayed {
+		private final T request;
+		private final int retryCount;
+		private final long dueNanos;
+		private final long sequence;
+		private final LongSupplier clock;
+
+		private Retry(T request, int retryCount, long dueNanos, long sequence, LongSupplier clock) {
+			this.request = request;
+			this.retryCount = retryCount;
+			this.dueNanos = dueNanos;
+			this.sequence = sequence;
+			this.clock = clock;
+		}
+
+		/**
+		 * Gets the deferred request.
+		 *
+		 * @return The request
+		 */
+		public T getRequest() {
+			return request;
+		}
+
+		/**
+		 * Gets the number of retries performed once this retry is made.
+		 *
+		 * @return The retry count, at least 1
+		 */
+		public int getRetryCount() {
+			return retryCount;
+		}
+
+		@Override
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(dueNanos - clock.getAsLong(), TimeUnit.NANOSECONDS);
+		}
+
+		@Override
+		public int compareTo(Delayed other) {
+			if (other instanceof Retry) {
+				Retry<?> retry = (Retry<?>) other;
+				int result = Long.compare(dueNanos - retry.dueNanos, 0);
+				return result != 0 ? result : Long.compare(sequence, retry.sequence);
+			}
+			return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+		}
+	}
+}
@@ -0,0 +1,194 @@
+package crypto.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Immutable on-disk archive of raw historical responses per coin and day.
+ * The data of a day that has passed never changes, so its response only needs to be downloaded once.
+ * Response bodies are stored gzip-compressed under the SHA-256 hash of their content, and a small index
+ * file per coin and day refers to the hash, so identical responses are stored once. A body whose hash
+ * no longer matches its content is treated as missing.
+ * <p>
+ * Files are written to a temporary name and moved into place, so readers never see a partial file and
+ * the archive is safe for use from multiple threads and processes.
+ */
+public class HistoryArchive {
+	private static final Logger LOG = LoggerFactory.getLogger(HistoryArchive.class);
+	private static final String OBJECTS_DIRECTORY = "objects";
+	private static final String INDEX_DIRECTORY = "index";
+	private static final Pattern COIN_ID = Pattern.compile("[a-z0-9][a-z0-9._-]*");
+
+	private final Path directory;
+
+	/**
+	 * Constructs a new HistoryArchive. The directory is created when the first response is stored.
+	 *
+	 * @param directory The directory holding the archive
+	 */
+	public HistoryArchive(Path directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Checks whether the data of a day is final and may be archived.
+	 * The history endpoint reports a day at 00:00 UTC, so every day before the current UTC day is final.
+	 *
+	 * @param date The day
+	 * @return true if the day has passed
+	 */
+	public static boolean isArchivable(LocalDate date) {
+		return date.isBefore(LocalDate.now(ZoneOffset.UTC));
+	}
+
+	/**
+	 * Loads the archived response of a coin for a day.
+	 *
+	 * @param coinId The ID of the coin
+	 * @param date The day
+	 * @return The response body, or null if none is archived
+	 * @throws IOException if the archive cannot be read
+	 */
+	public byte[] load(String coinId, LocalDate date) throws IOException {
+		String hash;
+		try {
+			hash = new String(Files.readAllBytes(indexPath(coinId, date)), StandardCharsets.US_ASCII).trim();
+		} catch (NoSuchFileException e) {
+			return null;
+		}
+		byte[] body;
+		try (InputStream in = new GZIPInputStream(Files.newInputStream(objectPath(hash)))) {
+			body = in.readAllBytes();
+		} catch (NoSuchFileException e) {
+			LOG.warn("Archived response of {} on {} is missing", coinId, date);
+			return null;
+		}
+		if (!hash.equals(sha256(body))) {
+			LOG.warn("Archived response of {} on {} does not match its hash", coinId, date);
+			return null;
+		}
+		return body;
+	}
+
+	/**
+	 * Archives the response of a coin for a day, replacing a previously archived one.
+	 * Responses for days that have not passed yet are not archived.
+	 *
+	 * @param coinId The ID of the coin
+	 * @param date The day
+	 * @param body The response body
+	 * @return true if the response was archived
+	 * @throws IOException if the archive cannot be written
+	 */
+	public boolean store(String coinId, LocalDate date, byte[] body) throws IOException {
+		if (!isArchivable(date)) {
+			return false;
+		}
+		String hash = sha256(body);
+		Path object = objectPath(hash);
+		if (!Files.exists(object)) {
+			Files.createDirectories(object.getParent());
+			Path temp = Files.createTempFile(object.getParent(), hash, ".tmp");
+			try {
+				try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp))) {
+					out.write(body);
+				}
+				Files.move(temp, object, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(temp);
+			}
+		}
+		Path index = indexPath(coinId, date);
+		Files.createDirectories(index.getParent());
+		Path temp = Files.createTempFile(index.getParent(), date.toString(), ".tmp");
+		try {
+			Files.write(temp, hash.getBytes(StandardCharsets.US_ASCII));
+			Files.move(temp, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the days archived for a coin.
+	 *
+	 * @param coinId The ID of the coin
+	 * @return The archived days in ascending order
+	 * @throws IOException if the archive cannot be read
+	 */
+	public List<LocalDate> getDates(String coinId) throws IOException {
+		Path coinDirectory = directory.resolve(INDEX_DIRECTORY).resolve(checkCoinId(coinId));
+		if (!Files.isDirectory(coinDirectory)) {
+			return new ArrayList<>();
+		}
+		List<LocalDate> dates = new ArrayList<>();
+		try (Stream<Path> files = Files.list(coinDirectory)) {
+			for (Path file : files.collect(Collectors.toList())) {
+				try {
+					dates.add(LocalDate.parse(file.getFileName().toString()));
+				} catch (DateTimeParseException e) {
+					// Not an index file, e.g. a temporary file left by an interrupted write
+				}
+			}
+		}
+		dates.sort(null);
+		return dates;
+	}
+
+	private Path indexPath(String coinId, LocalDate date) {
+		return directory.resolve(INDEX_DIRECTORY).resolve(checkCoinId(coinId)).resolve(date.toString());
+	}
+
+	private Path objectPath(String hash) {
+		return directory.resolve(OBJECTS_DIRECTORY).resolve(hash.substring(0, 2)).resolve(hash + ".gz");
+	}
+
+	/**
+	 * Checks that a coin ID is safe to use as a directory name.
+	 *
+	 * @param coinId The ID of the coin
+	 * @return The coin ID
+	 * @throws IllegalArgumentException if the coin ID contains characters not used in coin IDs
+	 */
+	private static String checkCoinId(String coinId) {
+		if (!COIN_ID.matcher(coinId).matches()) {
+			throw new IllegalArgumentException("Invalid coin ID: " + coinId);
+		}
+		return coinId;
+	}
+
+	private static String sha256(byte[] data) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+			StringBuilder hex = new StringBuilder(digest.length * 2);
+			for (byte b : digest) {
+				hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+}
@@ -3,19 +3,44 @@ package crypto.util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Predicate;
 
 /**
  * Wrapper class for HttpClient to simplify HTTP requests.
  * This class provides methods for sending HTTP requests with error handling.
+ * <p>
+ * GET responses can optionally be cached by URL together with their ETag and Last-Modified validators.
+ * A cached URL is requested conditionally with If-None-Match and If-Modified-Since, and when the server
+ * answers 304 Not Modified, the cached body is returned without downloading it again. The cache holds a
+ * bounded number of responses and evicts the least recently used one when it is full. Only URLs accepted by the
+ * cacheable URL filter are cached, and bodies larger than {@value #MAX_CACHED_BODY_BYTES} bytes are not cached.
+ * <p>
+ * With circuit breakers, every request is checked against the breaker of its host first. While the circuit
+ * is open the request fails with a {@link CircuitOpenException} without being sent; I/O errors and server
+ * errors count as failures of the host, every other response as a success.
  */
 public class HttpClientWrapper {
     private static final Logger LOG = LoggerFactory.getLogger(HttpClientWrapper.class);
+    private static final int NOT_MODIFIED = 304;
+    static final int MAX_CACHED_BODY_BYTES = 1 << 20;
     private final HttpClient httpClient;
+    private final Map<String, CachedResponse> responseCache;
+    private final Predicate<String> cacheableUrls;
+    private final CircuitBreakers circuitBreakers;
 
     /**
      * Constructs a new HttpClientWrapper with the specified HttpClient.
@@ -23,7 +48,51 @@ public class HttpClientWrapper {
      * @param httpClient The HttpClient to be used for requests
      */
     public HttpClientWrapper(HttpClient httpClient) {
+        this(httpClient, 0);
+    }
+
+    /**
+     * Constructs a new HttpClientWrapper with the specified HttpClient and a conditional GET cache.
+     *
+     * @param httpClient The HttpClient to be used for requests
+     * @param cacheEntries The maximum number of cached GET responses, or 0 to disable the cache
+     */
+    public HttpClientWrapper(HttpClient httpClient, int cacheEntries) {
+        this(httpClient, cacheEntries, null);
+    }
+
+    /**
+     * Constructs a new HttpClientWrapper with a conditional GET cache and circuit breakers per host.
+     *
+     * @param httpClient The HttpClient to be used for requests
+     * @param cacheEntries The maximum number of cached GET responses, or 0 to disable the cache
+     * @param circuitBreakers The circuit breakers of the requested hosts, or null to always send requests
+     */
+    public HttpClientWrapper(HttpClient httpClient, int cacheEntries, CircuitBreakers circuitBreakers) {
+        this(httpClient, cacheEntries, circuitBreakers, url -> true);
+    }
+
+    /**
+     * Constructs a new HttpClientWrapper with a conditional GET cache restricted to some URLs and circuit breakers per host.
+     *
+     * @param httpClient The HttpClient to be used for requests
+     * @param cacheEntries The maximum number of cached GET responses, or 0 to disable the cache
+     * @param circuitBreakers The circuit breakers of the requested hosts, or null to always send requests
+     * @param cacheableUrls Filter of the URLs whose responses are cached, e.g. excluding URLs requested only once
+     */
+    public HttpClientWrapper(HttpClient httpClient, int cacheEntries, CircuitBreakers circuitBreakers, Predicate<String> cacheableUrls) {
+        if (cacheEntries < 0) {
+            throw new IllegalArgumentException("Cache entries must not be negative: " + cacheEntries);
+        }
         this.httpClient = httpClient;
+        this.cacheableUrls = cacheableUrls;
+        this.circuitBreakers = circuitBreakers;
+        this.responseCache = cacheEntries > 0 ? new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest) {
+                return size() > cacheEntries;
+            }
+        } : null;
     }
 
     /**
@@ -31,50 +100,433 @@ public class HttpClientWrapper {
      *
      * @param url The URL to send the GET request to
      * @return The response body as a String
+     * @throws HttpStatusException If the server responds with a non-successful status code
      * @throws IOException If an I/O error occurs
      * @throws InterruptedException If the operation is interrupted
      */
     public String sendGetRequest(String url) throws IOException, InterruptedException {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Accept", "application/json")
-                .GET()
-                .build();
+        CachedResponse cached = getCached(url);
+        HttpResponse<String> response = send(url, getRequest(url, cached), HttpResponse.BodyHandlers.ofString());
+        if (cached != null && response.statusCode() == NOT_MODIFIED) {
+            return cached.text();
+        }
+        String body = checkGetResponse(response).body();
+        cache(url, response, () -> body.getBytes(StandardCharsets.UTF_8));
+        return body;
+    }
 
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    /**
+     * Sends a GET request to the specified URL and returns the response body as a stream.
+     * The body is not buffered, so large responses can be parsed while they are received.
+     * If the cache is enabled for the URL, the body is copied into the cache once it has been read to the end;
+     * a body closed before its end or larger than the cached size limit is not cached.
+     * The caller must close the returned stream.
+     *
+     * @param url The URL to send the GET request to
+     * @return The response body as an InputStream
+     * @throws HttpStatusException If the server responds with a non-successful status code
+     * @throws IOException If an I/O error occurs
+     * @throws InterruptedException If the operation is interrupted
+     */
+    public InputStream sendGetRequestForStream(String url) throws IOException, InterruptedException {
+        CachedResponse cached = getCached(url);
+        HttpResponse<InputStream> response = send(url, getRequest(url, cached), HttpResponse.BodyHandlers.ofInputStream());
 
-        if (response.statusCode() >= 200 && response.statusCode() < 300) {
-            return response.body();
+        if (cached != null && response.statusCode() == NOT_MODIFIED) {
+            response.body().close();
+            return new ByteArrayInputStream(cached.body);
+        } else if (response.statusCode() >= 200 && response.statusCode() < 300) {
+            return isCacheable(url, response) && !exceedsCachedSize(response) ? new CachingInputStream(url, response) : response.body();
         } else {
-            LOG.error("HTTP request failed with status code: {}", response.statusCode());
-            LOG.error("HTTP request failed with body: {}", response.body());
-            throw new IOException("HTTP request failed with status code: " + response.statusCode());
+            try (InputStream body = response.body()) {
+                LOG.error("HTTP request failed with status code: {}", response.statusCode());
+                LOG.error("HTTP request failed with body: {}", new String(body.readAllBytes(), StandardCharsets.UTF_8));
+            }
+            throw HttpStatusException.of(response.statusCode(), response.headers());
         }
     }
 
+    /**
+     * Sends a GET request to the specified URL without blocking the calling thread.
+     *
+     * @param url The URL to send the GET request to
+     * @return A future completed with the response body, or completed exceptionally with an
+     *         {@link HttpStatusException} if the server responds with a non-successful status code
+     */
+    public CompletableFuture<String> sendGetRequestAsync(String url) {
+        CachedResponse cached = getCached(url);
+        return sendAsync(url, getRequest(url, cached), HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> {
+                    if (cached != null && response.statusCode() == NOT_MODIFIED) {
+                        return cached.text();
+                    }
+                    String body = checkAsync(() -> checkGetResponse(response)).body();
+                    cache(url, response, () -> body.getBytes(StandardCharsets.UTF_8));
+                    return body;
+                });
+    }
+
     /**
      * Sends a POST request to the specified URL with the given body.
      *
      * @param url The URL to send the POST request to
      * @param body The body of the POST request
      * @return The HttpResponse object
+     * @throws HttpStatusException If the server responds with a non-successful status code
      * @throws IOException If an I/O error occurs
      * @throws InterruptedException If the operation is interrupted
      */
     public HttpResponse<String> sendPostRequest(String url, String body) throws IOException, InterruptedException {
-        HttpRequest request = HttpRequest.newBuilder()
+        HttpResponse<String> response = send(url, postRequest(url, body), HttpResponse.BodyHandlers.ofString());
+        return checkPostResponse(response);
+    }
+
+    /**
+     * Sends a POST request to the specified URL with the given body without blocking the calling thread.
+     *
+     * @param url The URL to send the POST request to
+     * @param body The body of the POST request
+     * @return A future completed with the HttpResponse object, or completed exceptionally with an
+     *         {@link HttpStatusException} if the server responds with a non-successful status code
+     */
+    public CompletableFuture<HttpResponse<String>> sendPostRequestAsync(String url, String body) {
+        return sendAsync(url, postRequest(url, body), HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> checkAsync(() -> checkPostResponse(response)));
+    }
+
+    /**
+     * Sends a request through the circuit breaker of its host.
+     *
+     * @param url The URL of the request
+     * @param request The request
+     * @param bodyHandler The handler of the response body
+     * @return The response, whatever its status code
+     * @throws CircuitOpenException If the circuit of the host is open
+     * @throws IOException If an I/O error occurs
+     * @throws InterruptedException If the operation is interrupted
+     */
+    private <T> HttpResponse<T> send(String url, HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler)
+            throws IOException, InterruptedException {
+        CircuitBreaker breaker = acquireCircuit(url);
+        HttpResponse<T> response;
+        try {
+            response = httpClient.send(request, bodyHandler);
+        } catch (IOException e) {
+            recordOutcome(breaker, null, e);
+            throw e;
+        } catch (InterruptedException | RuntimeException e) {
+            recordOutcome(breaker, null, null);
+            throw e;
+        }
+        recordOutcome(breaker, response, null);
+        return response;
+    }
+
+    /**
+     * Sends a request through the circuit breaker of its host without blocking the calling thread.
+     *
+     * @param url The URL of the request
+     * @param request The request
+     * @param bodyHandler The handler of the response body
+     * @return A future completed with the response, whatever its status code, or completed exceptionally with a
+     *         {@link CircuitOpenException} if the circuit of the host is open
+     */
+    private <T> CompletableFuture<HttpResponse<T>> sendAsync(String url, HttpRequest request, HttpResponse.BodyHandler<T> bodyHandler) {
+        CircuitBreaker breaker;
+        try {
+            breaker = acquireCircuit(url);
+        } catch (CircuitOpenException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return httpClient.sendAsync(request, bodyHandler).whenComplete((response, error) -> {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            recordOutcome(breaker, response, cause instanceof IOException ? (IOException) cause : null);
+        });
+    }
+
+    /**
+     * Takes a permit from the circuit breaker of the host of a URL.
+     *
+     * @param url The URL of the request
+     * @return The circuit breaker, or null if there are no circuit breakers
+     * @throws CircuitOpenException If the circuit of the host is open
+     */
+    private CircuitBreaker acquireCircuit(String url) throws CircuitOpenException {
+        if (circuitBreakers == null) {
+            return null;
+        }
+        CircuitBreaker breaker = circuitBreakers.forUrl(url);
+        breaker.acquire();
+        return breaker;
+    }
+
+    /**
+     * Reports the outcome of a request to the circuit breaker of its host.
+     * Server errors other than throttling responses and I/O errors are failures, other responses successes,
+     * and a request that ended without either is cancelled.
+     *
+     * @param breaker The circuit breaker, or null if there are no circuit breakers
+     * @param response The response, or null if none was received
+     * @param failure The I/O error the request failed with, or null
+     */
+    private static void recordOutcome(CircuitBreaker breaker, HttpResponse<?> response, IOException failure) {
+        if (breaker == null) {
+            return;
+        }
+        if (response != null) {
+            HttpStatusException status = response.statusCode() >= 500 ? HttpStatusException.of(response.statusCode(), response.headers()) : null;
+            if (status != null && !status.isRateLimited()) {
+                breaker.onFailure();
+            } else {
+                breaker.onSuccess();
+            }
+        } else if (failure != null) {
+            breaker.onFailure();
+        } else {
+            breaker.onCancel();
+        }
+    }
+
+    /**
+     * Builds a GET request accepting JSON, made conditional on the validators of a cached response.
+     *
+     * @param url The URL of the request
+     * @param cached The cached response for the URL, or null if there is none
+     * @return The request
+     */
+    private HttpRequest getRequest(String url, CachedResponse cached) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .header("Accept", "application/json")
+                .GET();
+        if (cached != null) {
+            if (cached.etag != null) {
+                builder.header("If-None-Match", cached.etag);
+            }
+            if (cached.lastModified != null) {
+                builder.header("If-Modified-Since", cached.lastModified);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Gets the cached response for a URL.
+     *
+     * @param url The URL
+     * @return The cached response, or null if the cache is disabled for the URL or holds no response for it
+     */
+    private CachedResponse getCached(String url) {
+        if (responseCache == null || !cacheableUrls.test(url)) {
+            return null;
+        }
+        synchronized (responseCache) {
+            return responseCache.get(url);
+        }
+    }
+
+    /**
+     * Caches a successful response if the cache is enabled for the URL, the response carries validators
+     * and the body is not larger than the cached size limit.
+     *
+     * @param url The URL of the response
+     * @param response The response
+     * @param body Supplier of the response body
+     */
+    private void cache(String url, HttpResponse<?> response, BodySupplier body) {
+        if (!isCacheable(url, response)) {
+            return;
+        }
+        byte[] bytes = body.get();
+        if (bytes.length > MAX_CACHED_BODY_BYTES) {
+            return;
+        }
+        CachedResponse cached = new CachedResponse(response.headers().firstValue("ETag").orElse(null),
+                response.headers().firstValue("Last-Modified").orElse(null), bytes);
+        synchronized (responseCache) {
+            responseCache.put(url, cached);
+        }
+    }
+
+    private boolean isCacheable(String url, HttpResponse<?> response) {
+        return responseCache != null && cacheableUrls.test(url) && hasValidators(response);
+    }
+
+    private static boolean hasValidators(HttpResponse<?> response) {
+        return response.headers().firstValue("ETag").isPresent() || response.headers().firstValue("Last-Modified").isPresent();
+    }
+
+    private static boolean exceedsCachedSize(HttpResponse<?> response) {
+        return response.headers().firstValueAsLong("Content-Length").orElse(0) > MAX_CACHED_BODY_BYTES;
+    }
+
+    /**
+     * Builds a POST request with a JSON body.
+     *
+     * @param url The URL of the request
+     * @param body The JSON body of the request
+     * @return The request
+     */
+    private HttpRequest postRequest(String url, String body) {
+        return HttpRequest.newBuilder()
                 .uri(URI.create(url))
                 .header("Content-Type", "application/json")
                 .POST(HttpRequest.BodyPublishers.ofString(body))
                 .build();
+    }
 
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    /**
+     * Checks the status code of a GET response.
+     *
+     * @param response The response to check
+     * @return The response if its status code is successful
+     * @throws HttpStatusException If the status code is not successful
+     */
+    private HttpResponse<String> checkGetResponse(HttpResponse<String> response) throws HttpStatusException {
+        if (response.statusCode() >= 200 && response.statusCode() < 300) {
+            return response;
+        } else {
+            LOG.error("HTTP request failed with status code: {}", response.statusCode());
+            LOG.error("HTTP request failed with body: {}", response.body());
+            throw HttpStatusException.of(response.statusCode(), response.headers());
+        }
+    }
 
+    /**
+     * Checks the status code of a POST response.
+     *
+     * @param response The response to check
+     * @return The response if its status code is successful
+     * @throws HttpStatusException If the status code is not successful
+     */
+    private HttpResponse<String> checkPostResponse(HttpResponse<String> response) throws HttpStatusException {
         if (response.statusCode() >= 200 && response.statusCode() < 300) {
             return response;
         } else {
             LOG.error("HTTP request failed with response: {}", response.body());
-            throw new IOException("HTTP request failed with status code: " + response.statusCode());
+            throw HttpStatusException.of(response.statusCode(), response.headers());
+        }
+    }
+
+    /**
+     * Runs a response check inside a future stage, wrapping a failed check so that it completes the stage exceptionally.
+     *
+     * @param check The check to run
+     * @return The checked response
+     */
+    private static HttpResponse<String> checkAsync(ResponseCheck check) {
+        try {
+            return check.run();
+        } catch (HttpStatusException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * A response check that may fail with an {@link HttpStatusException}.
+     */
+    @FunctionalInterface
+    private interface ResponseCheck {
+        HttpResponse<String> run() throws HttpStatusException;
+    }
+
+    /**
+     * Supplies the body of a response to be cached.
+     */
+    @FunctionalInterface
+    private interface BodySupplier {
+        byte[] get();
+    }
+
+    /**
+     * A cached GET response body with the validators it was served with.
+     */
+    private static final class CachedResponse {
+        private final String etag;
+        private final String lastModified;
+        private final byte[] body;
+
+        private CachedResponse(String etag, String lastModified, byte[] body) {
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.body = body;
+        }
+
+        private String text() {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Response body stream copying the bytes read into the cache once the end of the body is reached.
+     * The copy is dropped once it grows larger than the cached size limit or when the stream is closed before
+     * the end, as streaming parsers do after the root value, so the rest of the body is never read just to cache it.
+     */
+    private final class CachingInputStream extends FilterInputStream {
+        private final String url;
+        private final HttpResponse<InputStream> response;
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+        private CachingInputStream(String url, HttpResponse<InputStream> response) {
+            super(response.body());
+            this.url = url;
+            this.response = response;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b < 0) {
+                endOfBody();
+            } else if (copy != null) {
+                copy.write(b);
+                checkCopySize();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n < 0) {
+                endOfBody();
+            } else if (copy != null) {
+                copy.write(buffer, offset, n);
+                checkCopySize();
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            byte[] skipped = new byte[(int) Math.min(n, 8192)];
+            int read = read(skipped, 0, skipped.length);
+            return Math.max(read, 0);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() throws IOException {
+            copy = null;
+            super.close();
+        }
+
+        private void checkCopySize() {
+            if (copy.size() > MAX_CACHED_BODY_BYTES) {
+                copy = null;
+            }
+        }
+
+        private void endOfBody() {
+            if (copy != null) {
+                ByteArrayOutputStream body = copy;
+                copy = null;
+                cache(url, response, body::toByteArray);
+            }
         }
     }
-}
\ No newline at end of file
+}
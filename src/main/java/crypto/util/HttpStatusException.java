@@ -0,0 +1,107 @@
+package crypto.util;
+
+import java.io.IOException;
+import java.net.http.HttpHeaders;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+
+/**
+ * Exception thrown when an HTTP request completes with a non-successful status code.
+ * It carries the status code and the server's {@code Retry-After} hint so callers can
+ * react to throttling and server errors instead of treating every failure alike.
+ */
+public class HttpStatusException extends IOException {
+    private static final long serialVersionUID = 1L;
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int SERVICE_UNAVAILABLE = 503;
+
+    private final int statusCode;
+    private final transient Duration retryAfter;
+
+    /**
+     * Constructs a new HttpStatusException.
+     *
+     * @param statusCode The HTTP status code of the response
+     * @param retryAfter The delay requested by the server before retrying, or null if none was given
+     */
+    public HttpStatusException(int statusCode, Duration retryAfter) {
+        super("HTTP request failed with status code: " + statusCode);
+        this.statusCode = statusCode;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Gets the HTTP status code of the failed response.
+     *
+     * @return The status code
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Gets the delay the server asked for before the next request.
+     *
+     * @return The requested delay, or empty if the response carried no usable Retry-After header
+     */
+    public Optional<Duration> getRetryAfter() {
+        return Optional.ofNullable(retryAfter);
+    }
+
+    /**
+     * Checks whether the server rejected the request because of rate limiting.
+     *
+     * @return true for 429 responses and for 503 responses with a Retry-After header
+     */
+    public boolean isRateLimited() {
+        return statusCode == TOO_MANY_REQUESTS || (statusCode == SERVICE_UNAVAILABLE && retryAfter != null);
+    }
+
+    /**
+     * Checks whether the failure was caused by a server-side error.
+     *
+     * @return true for 5xx status codes
+     */
+    public boolean isServerError() {
+        return statusCode >= 500 && statusCode < 600;
+    }
+
+    /**
+     * Creates an exception from a response status code and its headers.
+     *
+     * @param statusCode The HTTP status code of the response
+     * @param headers The response headers
+     * @return The exception describing the failed response
+     */
+    public static HttpStatusException of(int statusCode, HttpHeaders headers) {
+        return new HttpStatusException(statusCode, headers.firstValue("Retry-After")
+                .flatMap(value -> parseRetryAfter(value, Instant.now()))
+                .orElse(null));
+    }
+
+    /**
+     * Parses a Retry-After header value given either in seconds or as an HTTP date.
+     *
+     * @param value The header value
+     * @param now The current time, used to turn an HTTP date into a delay
+     * @return The requested delay, or empty if the value cannot be parsed
+     */
+    static Optional<Duration> parseRetryAfter(String value, Instant now) {
+        String trimmed = value.trim();
+        try {
+            return Optional.of(Duration.ofSeconds(Math.max(0, Long.parseLong(trimmed))));
+        } catch (NumberFormatException e) {
+            try {
+                Instant retryAt = ZonedDateTime.parse(trimmed, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+                Duration delay = Duration.between(now, retryAt);
+                return Optional.of(delay.isNegative() ? Duration.ZERO : delay);
+            } catch (DateTimeParseException ignored) {
+                return Optional.empty();
+            }
+        }
+    }
+}
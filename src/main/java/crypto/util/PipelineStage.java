@@ -0,0 +1,198 @@
+package crypto.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Stage of a producer/consumer pipeline with its own worker threads and a bounded input queue.
+ * Producers hand items to the stage through {@link #accept(Object)}, which returns as soon as the item
+ * is queued, so the stage runs at its own speed. When the queue is full, producers block until a worker
+ * has taken an item, which propagates backpressure upstream instead of buffering without limit.
+ * <p>
+ * The stage measures how busy its workers are and how long producers were blocked on the full queue.
+ * A stage whose workers are busy nearly all the time while its producers are blocked is the bottleneck
+ * of the pipeline. The figures are logged when the stage is closed.
+ *
+ * @param <T> The type of the items processed by the stage
+ */
+public class PipelineStage<T> implements Consumer<T>, AutoCloseable {
+	private static final Logger LOG = LoggerFactory.getLogger(PipelineStage.class);
+	private static final Object END_OF_INPUT = new Object();
+
+	private final String name;
+	private final Consumer<? super T> handler;
+	private final BlockingQueue<Object> queue;
+	private final List<Thread> workers = new ArrayList<>();
+	private final long startNanos = System.nanoTime();
+	private final AtomicLong processed = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private final AtomicLong busyNanos = new AtomicLong();
+	private final AtomicLong blockedNanos = new AtomicLong();
+	private volatile boolean closed;
+
+	/**
+	 * Constructs and starts a new PipelineStage.
+	 *
+	 * @param name The name of the stage, used for its threads and metrics
+	 * @param threads The number of worker threads
+	 * @param queueCapacity The maximum number of items waiting for a worker
+	 * @param handler The handler applied to each item
+	 */
+	public PipelineStage(String name, int threads, int queueCapacity, Consumer<? super T> handler) {
+		if (threads < 1 || queueCapacity < 1) {
+			throw new IllegalArgumentException("Invalid stage settings for " + name + ": threads=" + threads + ", capacity=" + queueCapacity);
+		}
+		this.name = name;
+		this.handler = handler;
+		this.queue = new ArrayBlockingQueue<>(queueCapacity);
+		ThreadFactory threadFactory = ConcurrentTasks.namedDaemonThreads("pipeline-" + name);
+		for (int i = 0; i < threads; i++) {
+			Thread worker = threadFactory.newThread(this::work);
+			workers.add(worker);
+			worker.start();
+		}
+	}
+
+	/**
+	 * Queues an item for the stage, blocking while the queue is full.
+	 *
+	 * @param item The item to process
+	 * @throws IllegalStateException if the stage is closed or the calling thread is interrupted while blocked
+	 */
+	@Override
+	public void accept(T item) {
+		if (closed) {
+			throw new IllegalStateException("Pipeline stage " + name + " is closed");
+		}
+		if (queue.offer(item)) {
+			return;
+		}
+		long blockedSince = System.nanoTime();
+		try {
+			queue.put(item);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for pipeline stage " + name, e);
+		} finally {
+			blockedNanos.addAndGet(System.nanoTime() - blockedSince);
+		}
+	}
+
+	/**
+	 * Gets the number of items the handler has processed successfully.
+	 *
+	 * @return The number of processed items
+	 */
+	public long getProcessed() {
+		return processed.get();
+	}
+
+	/**
+	 * Gets the number of items the handler failed on.
+	 *
+	 * @return The number of failed items
+	 */
+	public long getFailed() {
+		return failed.get();
+	}
+
+	/**
+	 * Gets the number of items currently waiting for a worker.
+	 *
+	 * @return The queue depth
+	 */
+	public int getQueueDepth() {
+		return queue.size();
+	}
+
+	/**
+	 * Gets the share of time the workers spent processing items since the stage was started.
+	 *
+	 * @return The utilization between 0 and 1
+	 */
+	public double getUtilization() {
+		long elapsed = Math.max(1, System.nanoTime() - startNanos);
+		return Math.min(1.0, (double) busyNanos.get() / (elapsed * workers.size()));
+	}
+
+	/**
+	 * Gets the total time producers were blocked because the queue was full.
+	 *
+	 * @return The blocked time in milliseconds
+	 */
+	public long getBlockedMillis() {
+		return blockedNanos.get() / 1_000_000;
+	}
+
+	/**
+	 * Processes all queued items, stops the workers and logs the stage's metrics.
+	 */
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		boolean interrupted = false;
+		for (int i = 0; i < workers.size(); i++) {
+			while (true) {
+				try {
+					queue.put(END_OF_INPUT);
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+		for (Thread worker : workers) {
+			while (worker.isAlive()) {
+				try {
+					worker.join();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		LOG.info("Pipeline stage {}: {} processed, {} failed, {} threads {}% busy, producers blocked for {} ms",
+				name, processed.get(), failed.get(), workers.size(), Math.round(getUtilization() * 100), getBlockedMillis());
+	}
+
+	/**
+	 * Worker loop taking items from the queue until the end of input is reached.
+	 */
+	@SuppressWarnings("unchecked")
+	private void work() {
+		while (true) {
+			Object item;
+			try {
+				item = queue.take();
+			} catch (InterruptedException e) {
+				return;
+			}
+			if (item == END_OF_INPUT) {
+				return;
+			}
+			long start = System.nanoTime();
+			try {
+				handler.accept((T) item);
+				processed.incrementAndGet();
+			} catch (RuntimeException e) {
+				failed.incrementAndGet();
+				LOG.error("Pipeline stage {} failed to process an item", name, e);
+			} finally {
+				busyNanos.addAndGet(System.nanoTime() - start);
+			}
+		}
+	}
+}
@@ -1,35 +1,235 @@
 package crypto.util;
 
+import crypto.metrics.MetricsRegistry;
+import crypto.metrics.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.LongUnaryOperator;
+
 /**
  * Rate limiter to control the frequency of API requests.
- * This class ensures that requests are not sent more frequently than the specified delay.
+ * This class implements a token bucket that refills one permit per refill interval and holds up to
+ * a configurable burst of permits, so spare budget accumulated during idle periods can be spent at once.
+ * <p>
+ * The bucket is tracked lock-free as a single packed value, the theoretical arrival time of the next
+ * permit (generic cell rate algorithm). The number of available tokens is implied by how far that time
+ * lies behind the clock, so taking a permit is a single compare-and-set and concurrent callers never
+ * queue on a monitor.
+ * <p>
+ * Callers report the outcome of their requests through {@link #recordSuccess()} and
+ * {@link #recordThrottled(Duration)}. This base implementation keeps its rate fixed and only honours
+ * the pause requested by the server; subclasses may adapt the refill interval to the feedback.
+ * The bucket state lives in this instance; subclasses may keep it elsewhere, e.g. shared between
+ * processes, by overriding {@link #getTheoreticalArrivalTime()} and {@link #compareAndSetTheoreticalArrivalTime(long, long)}.
+ * <p>
+ * The wait of every granted permit is recorded in the ratelimit_wait_seconds timer of the global metrics registry.
  */
 public class RateLimiter {
-	private final long delayMs;
-	private long lastRequestTime = 0;
+	private static final Timer WAIT_TIMER = MetricsRegistry.global().timer("ratelimit_wait_seconds");
+	private final AtomicLong intervalNanos;
+	private final int burstCapacity;
+	private final LongSupplier clock;
+	private final AtomicLong theoreticalArrivalTime = new AtomicLong(Long.MIN_VALUE);
 
 	/**
-	 * Constructs a new RateLimiter with the specified delay.
+	 * Constructs a new RateLimiter with the specified delay and no burst capacity.
 	 *
 	 * @param delayMs The minimum delay between requests in milliseconds
 	 */
 	public RateLimiter(long delayMs) {
-		this.delayMs = delayMs;
+		this(delayMs, 1);
+	}
+
+	/**
+	 * Constructs a new RateLimiter with the specified refill interval and burst capacity.
+	 *
+	 * @param refillIntervalMs The time in milliseconds it takes to refill one permit
+	 * @param burstCapacity The maximum number of permits that can be taken without waiting
+	 */
+	public RateLimiter(long refillIntervalMs, int burstCapacity) {
+		this(refillIntervalMs, burstCapacity, System::nanoTime);
+	}
+
+	/**
+	 * Constructs a new RateLimiter using the given nanosecond clock.
+	 *
+	 * @param refillIntervalMs The time in milliseconds it takes to refill one permit
+	 * @param burstCapacity The maximum number of permits that can be taken without waiting
+	 * @param clock Source of the current time in nanoseconds
+	 */
+	RateLimiter(long refillIntervalMs, int burstCapacity, LongSupplier clock) {
+		if (refillIntervalMs < 0) {
+			throw new IllegalArgumentException("Refill interval must not be negative: " + refillIntervalMs);
+		}
+		if (burstCapacity < 1) {
+			throw new IllegalArgumentException("Burst capacity must be at least 1: " + burstCapacity);
+		}
+		this.intervalNanos = new AtomicLong(TimeUnit.MILLISECONDS.toNanos(refillIntervalMs));
+		this.burstCapacity = burstCapacity;
+		this.clock = clock;
 	}
 
 	/**
 	 * Acquires a permit to make an API request, potentially waiting if necessary.
-	 * This method ensures that the specified delay has passed since the last request.
+	 * This method blocks until a permit becomes available.
+	 *
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	public void acquire() throws InterruptedException {
+		sleep(reserve(Long.MAX_VALUE));
+	}
+
+	/**
+	 * Acquires a permit if one becomes available within the given timeout.
+	 * No permit is consumed if the timeout would be exceeded.
 	 *
+	 * @param timeout The maximum time to wait for a permit
+	 * @param unit The unit of the timeout
+	 * @return true if a permit was acquired, false if the timeout would have been exceeded
 	 * @throws InterruptedException if the thread is interrupted while waiting
 	 */
-	public synchronized void acquire() throws InterruptedException {
-		long currentTime = System.currentTimeMillis();
-		long elapsedTime = currentTime - lastRequestTime;
-		if (elapsedTime < delayMs) {
-			long sleepTime = delayMs - elapsedTime;
-			Thread.sleep(sleepTime);
+	public boolean acquire(long timeout, TimeUnit unit) throws InterruptedException {
+		long waitNanos = reserve(Math.max(0, unit.toNanos(timeout)));
+		if (waitNanos < 0) {
+			return false;
+		}
+		sleep(waitNanos);
+		return true;
+	}
+
+	/**
+	 * Acquires a permit without blocking the calling thread.
+	 * The permit is reserved immediately; the returned future completes once it may be used.
+	 *
+	 * @return A future that completes when the reserved permit may be used
+	 */
+	public CompletableFuture<Void> acquireAsync() {
+		long waitNanos = reserve(Long.MAX_VALUE);
+		if (waitNanos == 0) {
+			return CompletableFuture.completedFuture(null);
+		}
+		return CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(waitNanos, TimeUnit.NANOSECONDS));
+	}
+
+	/**
+	 * Acquires a permit only if one is available immediately.
+	 *
+	 * @return true if a permit was acquired, false otherwise
+	 */
+	public boolean tryAcquire() {
+		return reserve(0) == 0;
+	}
+
+	/**
+	 * Records that a request sent with a permit from this limiter succeeded.
+	 * The base implementation ignores successes.
+	 */
+	public void recordSuccess() {
+	}
+
+	/**
+	 * Records that the server rejected a request because of rate limiting.
+	 * No further permit is handed out before the pause requested by the server has elapsed,
+	 * and any accumulated burst is discarded.
+	 *
+	 * @param retryAfter The pause requested by the server, or null if it did not specify one
+	 */
+	public void recordThrottled(Duration retryAfter) {
+		if (retryAfter == null) {
+			return;
+		}
+		MetricsRegistry.global().counter("ratelimit_server_pauses_total").increment();
+		long resumeAt = clock.getAsLong() + retryAfter.toNanos() + toleranceNanos();
+		long current = getTheoreticalArrivalTime();
+		while (current < resumeAt && !compareAndSetTheoreticalArrivalTime(current, resumeAt)) {
+			current = getTheoreticalArrivalTime();
+		}
+	}
+
+	/**
+	 * Gets the current refill interval.
+	 *
+	 * @return The time in milliseconds it takes to refill one permit
+	 */
+	public long getRefillIntervalMs() {
+		return TimeUnit.NANOSECONDS.toMillis(intervalNanos.get());
+	}
+
+	/**
+	 * Atomically replaces the refill interval with the result of the given function.
+	 *
+	 * @param update Function computing the new interval in nanoseconds from the current one
+	 * @return The new interval in nanoseconds
+	 */
+	protected long updateIntervalNanos(LongUnaryOperator update) {
+		return intervalNanos.updateAndGet(update);
+	}
+
+	/**
+	 * Gets the theoretical arrival time of the next permit, the state of the bucket.
+	 *
+	 * @return The arrival time on the limiter's clock in nanoseconds
+	 */
+	protected long getTheoreticalArrivalTime() {
+		return theoreticalArrivalTime.get();
+	}
+
+	/**
+	 * Atomically replaces the theoretical arrival time of the next permit if it still has the expected value.
+	 *
+	 * @param expected The value read before
+	 * @param value The new value
+	 * @return true if the value was replaced, false if another caller changed it in the meantime
+	 */
+	protected boolean compareAndSetTheoreticalArrivalTime(long expected, long value) {
+		return theoreticalArrivalTime.compareAndSet(expected, value);
+	}
+
+	/**
+	 * Reserves the next permit if it becomes available within the given maximum wait.
+	 *
+	 * @param maxWaitNanos The maximum time in nanoseconds the caller is willing to wait
+	 * @return The time in nanoseconds until the reserved permit may be used, or -1 if no permit was reserved
+	 */
+	private long reserve(long maxWaitNanos) {
+		while (true) {
+			long now = clock.getAsLong();
+			long current = getTheoreticalArrivalTime();
+			long interval = intervalNanos.get();
+			long base = Math.max(current, now);
+			long waitNanos = Math.max(0, base - interval * (burstCapacity - 1) - now);
+			if (waitNanos > maxWaitNanos) {
+				return -1;
+			}
+			if (compareAndSetTheoreticalArrivalTime(current, base + interval)) {
+				WAIT_TIMER.record(waitNanos);
+				return waitNanos;
+			}
+		}
+	}
+
+	/**
+	 * Gets the time span covered by the burst capacity at the current refill interval.
+	 *
+	 * @return The burst tolerance in nanoseconds
+	 */
+	private long toleranceNanos() {
+		return intervalNanos.get() * (burstCapacity - 1);
+	}
+
+	/**
+	 * Sleeps for the given number of nanoseconds.
+	 *
+	 * @param nanos The time to sleep in nanoseconds
+	 * @throws InterruptedException if the thread is interrupted while sleeping
+	 */
+	private void sleep(long nanos) throws InterruptedException {
+		if (nanos > 0) {
+			TimeUnit.NANOSECONDS.sleep(nanos);
 		}
-		lastRequestTime = System.currentTimeMillis();
 	}
-}
\ No newline at end of file
+}
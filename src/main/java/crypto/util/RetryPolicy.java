@@ -0,0 +1,154 @@
+package crypto.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleSupplier;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Retry policy shared by the request loops: which failures are retried, how long to wait before a retry,
+ * and how many retries may be spent overall.
+ * <p>
+ * Only failures that may succeed on another attempt are retried: I/O errors, throttling responses, server
+ * errors and timeouts. Client errors, unparseable responses and requests refused by an open circuit fail at once.
+ * <p>
+ * Without a pause requested by the server, the delay grows exponentially from the base delay up to the
+ * maximum delay and is drawn uniformly from zero to that bound ("full jitter"), so concurrent callers
+ * that failed together do not retry together. The delay is a backoff on top of the rate limit, not a
+ * substitute for it: every retry still acquires a permit from the rate limiter before it is sent.
+ * <p>
+ * Retries are limited by a budget: every request deposits {@value #BUDGET_RATIO} of a retry and every retry
+ * withdraws one, on top of a reserve of {@value #BUDGET_RESERVE} retries. While a host keeps failing, retries
+ * therefore add at most a fifth to the request volume instead of multiplying it by the number of attempts.
+ */
+public class RetryPolicy {
+	static final double BUDGET_RATIO = 0.2;
+	static final int BUDGET_RESERVE = 20;
+	private static final long MILLI_RETRIES_PER_RETRY = 1000;
+	private static final long MILLI_RETRIES_PER_REQUEST = (long) (BUDGET_RATIO * MILLI_RETRIES_PER_RETRY);
+	private static final long MAX_MILLI_RETRIES = BUDGET_RESERVE * MILLI_RETRIES_PER_RETRY;
+	private static final int REQUEST_TIMEOUT = 408;
+
+	private final IntSupplier maxAttempts;
+	private final LongSupplier baseDelayMs;
+	private final LongSupplier maxDelayMs;
+	private final DoubleSupplier random;
+	private final AtomicLong budget = new AtomicLong(MAX_MILLI_RETRIES);
+
+	/**
+	 * Constructs a new RetryPolicy. The settings are read whenever they are needed.
+	 *
+	 * @param maxAttempts The maximum number of attempts per request, including the first one
+	 * @param baseDelayMs The delay bound in milliseconds before the first retry
+	 * @param maxDelayMs The maximum delay bound in milliseconds, or 0 for no maximum
+	 */
+	public RetryPolicy(IntSupplier maxAttempts, LongSupplier baseDelayMs, LongSupplier maxDelayMs) {
+		this(maxAttempts, baseDelayMs, maxDelayMs, () -> ThreadLocalRandom.current().nextDouble());
+	}
+
+	/**
+	 * Constructs a new RetryPolicy with the given source of randomness.
+	 *
+	 * @param maxAttempts The maximum number of attempts per request, including the first one
+	 * @param baseDelayMs The delay bound in milliseconds before the first retry
+	 * @param maxDelayMs The maximum delay bound in milliseconds, or 0 for no maximum
+	 * @param random Source of uniformly distributed values in [0, 1) for the jitter
+	 */
+	RetryPolicy(IntSupplier maxAttempts, LongSupplier baseDelayMs, LongSupplier maxDelayMs, DoubleSupplier random) {
+		this.maxAttempts = maxAttempts;
+		this.baseDelayMs = baseDelayMs;
+		this.maxDelayMs = maxDelayMs;
+		this.random = random;
+	}
+
+	/**
+	 * Gets the maximum number of attempts per request.
+	 *
+	 * @return The maximum number of attempts, including the first one
+	 */
+	public int getMaxAttempts() {
+		return maxAttempts.getAsInt();
+	}
+
+	/**
+	 * Records a new request, depositing its share into the retry budget.
+	 */
+	public void recordRequest() {
+		budget.accumulateAndGet(MILLI_RETRIES_PER_REQUEST, (current, deposit) -> Math.min(MAX_MILLI_RETRIES, current + deposit));
+	}
+
+	/**
+	 * Decides whether a failed attempt is retried, withdrawing the retry from the budget if it is.
+	 *
+	 * @param failure The exception the attempt failed with
+	 * @param retryCount The number of retries already performed
+	 * @return true if the request should be retried
+	 */
+	public boolean shouldRetry(Throwable failure, int retryCount) {
+		return retryCount < getMaxAttempts() - 1 && isRetryable(failure) && tryWithdraw();
+	}
+
+	/**
+	 * Checks whether a failure may go away on another attempt.
+	 *
+	 * @param failure The exception the attempt failed with
+	 * @return true for I/O errors, throttling responses, server errors and timeouts
+	 */
+	public boolean isRetryable(Throwable failure) {
+		if (failure instanceof HttpStatusException) {
+			HttpStatusException statusException = (HttpStatusException) failure;
+			return statusException.isRateLimited() || statusException.isServerError() || statusException.getStatusCode() == REQUEST_TIMEOUT;
+		}
+		if (failure instanceof CircuitOpenException || failure instanceof JsonProcessingException) {
+			return false;
+		}
+		return failure instanceof IOException;
+	}
+
+	/**
+	 * Determines how long to wait before the next retry.
+	 * The pause requested by the server takes precedence over the jittered exponential backoff.
+	 *
+	 * @param serverDelay The pause requested by the server, or null if none was given
+	 * @param retryCount The number of retries already performed
+	 * @return The delay in milliseconds
+	 */
+	public long backoffMs(Duration serverDelay, int retryCount) {
+		if (serverDelay != null) {
+			return serverDelay.toMillis();
+		}
+		long base = Math.max(0, baseDelayMs.getAsLong());
+		long bound = retryCount < Long.numberOfLeadingZeros(base) - 1 ? base << retryCount : Long.MAX_VALUE;
+		long max = maxDelayMs.getAsLong();
+		if (max > 0) {
+			bound = Math.min(bound, max);
+		}
+		return (long) (random.getAsDouble() * bound);
+	}
+
+	/**
+	 * Gets the number of retries left in the budget.
+	 *
+	 * @return The number of retries that may be spent now
+	 */
+	public int getRemainingBudget() {
+		return (int) (budget.get() / MILLI_RETRIES_PER_RETRY);
+	}
+
+	private boolean tryWithdraw() {
+		while (true) {
+			long current = budget.get();
+			if (current < MILLI_RETRIES_PER_RETRY) {
+				return false;
+			}
+			if (budget.compareAndSet(current, current - MILLI_RETRIES_PER_RETRY)) {
+				return true;
+			}
+		}
+	}
+}
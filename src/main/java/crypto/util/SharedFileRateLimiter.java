@@ -0,0 +1,87 @@
+package crypto.util;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.function.LongSupplier;
+
+/**
+ * Rate limiter whose token bucket is shared by all processes on a host that use the same state file,
+ * so several clients with the same API key draw from one budget instead of each overshooting it.
+ * <p>
+ * The bucket state, the theoretical arrival time of the next permit, is a single long in a memory-mapped file
+ * and is updated with compare-and-set instructions on the mapping, which are atomic across processes mapping
+ * the same file. No lock is taken and no system call is made per permit. Since the processes do not share a
+ * monotonic clock, the arrival time is kept on the host's wall clock in nanoseconds since the epoch; if that clock
+ * is set back, callers wait up to the time it was set back.
+ * <p>
+ * A new file is filled with zeros, an arrival time long past, so the full burst is available at first.
+ * All processes should use the same refill interval and burst capacity; pauses requested by the server
+ * through {@link #recordThrottled(java.time.Duration)} hold back every process.
+ */
+public class SharedFileRateLimiter extends RateLimiter {
+	private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+	private static final int STATE_OFFSET = 0;
+	private static final int STATE_BYTES = Long.BYTES;
+	private final MappedByteBuffer state;
+
+	/**
+	 * Constructs a new SharedFileRateLimiter, creating the state file if it does not exist.
+	 *
+	 * @param stateFile The file holding the shared bucket state
+	 * @param refillIntervalMs The time in milliseconds it takes to refill one permit
+	 * @param burstCapacity The maximum number of permits that can be taken without waiting
+	 * @throws IOException if the state file cannot be created or mapped
+	 */
+	public SharedFileRateLimiter(Path stateFile, long refillIntervalMs, int burstCapacity) throws IOException {
+		this(stateFile, refillIntervalMs, burstCapacity, SharedFileRateLimiter::epochNanos);
+	}
+
+	/**
+	 * Constructs a new SharedFileRateLimiter using the given wall clock.
+	 *
+	 * @param stateFile The file holding the shared bucket state
+	 * @param refillIntervalMs The time in milliseconds it takes to refill one permit
+	 * @param burstCapacity The maximum number of permits that can be taken without waiting
+	 * @param clock Source of the current time in nanoseconds since the epoch, the same in all processes
+	 * @throws IOException if the state file cannot be created or mapped
+	 */
+	SharedFileRateLimiter(Path stateFile, long refillIntervalMs, int burstCapacity, LongSupplier clock) throws IOException {
+		super(refillIntervalMs, burstCapacity, clock);
+		Path directory = stateFile.toAbsolutePath().getParent();
+		if (directory != null) {
+			Files.createDirectories(directory);
+		}
+		// The mapping stays valid after the channel is closed; mapping beyond the end of a new file extends it
+		try (FileChannel channel = FileChannel.open(stateFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			this.state = channel.map(FileChannel.MapMode.READ_WRITE, 0, STATE_BYTES);
+		}
+	}
+
+	@Override
+	protected long getTheoreticalArrivalTime() {
+		return (long) LONGS.getVolatile(state, STATE_OFFSET);
+	}
+
+	@Override
+	protected boolean compareAndSetTheoreticalArrivalTime(long expected, long value) {
+		return LONGS.compareAndSet(state, STATE_OFFSET, expected, value);
+	}
+
+	/**
+	 * Gets the wall clock time in nanoseconds since the epoch.
+	 *
+	 * @return The current time
+	 */
+	private static long epochNanos() {
+		Instant now = Instant.now();
+		return now.getEpochSecond() * 1_000_000_000L + now.getNano();
+	}
+}
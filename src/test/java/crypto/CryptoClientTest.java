@@ -1,8 +1,10 @@
 package crypto;
 
 import crypto.config.CryptoConfig;
+import crypto.config.ShardAssignment;
 import crypto.service.BackendService;
 import crypto.service.api.CryptoDataSource;
+import crypto.util.CheckpointStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
@@ -10,6 +12,8 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.*;
 
 import static org.mockito.Mockito.*;
@@ -81,4 +85,45 @@ class CryptoClientTest {
         // Assert
         verify(dataSource).fetchAndSendAllHistoricalData(eq(cryptoIds), eq(timeFrame), any());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should resume historical data from local checkpoints without asking the backend")
+    void updateHistoricalData_resumesFromCheckpoints() throws Exception {
+        // Arrange
+        List<String> cryptoIds = Arrays.asList("bitcoin", "ethereum");
+        LocalDate bitcoinDate = LocalDate.of(2024, 1, 2);
+        LocalDate ethereumDate = LocalDate.of(2024, 1, 1);
+        CheckpointStore checkpointStore = mock(CheckpointStore.class);
+        when(checkpointStore.getAllLastDelivered()).thenReturn(Map.of("bitcoin", bitcoinDate, "ethereum", ethereumDate));
+        when(config.getAllCryptoIds()).thenReturn(cryptoIds);
+        cryptoClient = new CryptoClient(config, dataSource, backendService, checkpointStore);
+
+        // Act
+        cryptoClient.updateHistoricalData();
+
+        // Assert
+        Map<String, Date> expected = Map.of(
+                "bitcoin", Date.from(bitcoinDate.atStartOfDay(ZoneId.systemDefault()).toInstant()),
+                "ethereum", Date.from(ethereumDate.atStartOfDay(ZoneId.systemDefault()).toInstant()));
+        verify(dataSource).fetchAndSendHistoricalData(eq(cryptoIds), eq(expected), any());
+        verify(backendService, never()).getLastValidDatesFromBackend();
+    }
+
+    @Test
+    @DisplayName("Should fetch current data only for the coins assigned to this shard")
+    void updateCurrentData_fetchesOwnShard() throws Exception {
+        // Arrange
+        List<String> cryptoIds = Arrays.asList("bitcoin", "ethereum", "cardano", "solana", "dogecoin", "litecoin");
+        List<String> nodes = Arrays.asList("node-a", "node-b");
+        when(config.getAllCryptoIds()).thenReturn(cryptoIds);
+        when(config.getShardNodes()).thenReturn(nodes);
+        when(config.getShardNode()).thenReturn("node-b");
+        cryptoClient = new CryptoClient(config, dataSource, backendService);
+
+        // Act
+        cryptoClient.updateCurrentData();
+
+        // Assert
+        verify(dataSource).fetchAndSendCurrentData(eq(ShardAssignment.of(nodes, "node-b").select(cryptoIds)), any());
+    }
+}
@@ -0,0 +1,99 @@
+package crypto;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CryptoDaemonTest {
+
+    @Mock
+    private CryptoClient client;
+
+    @Test
+    @DisplayName("Should run current data updates repeatedly and skip disabled historical updates")
+    void start_shouldRunCyclesOnInterval() throws Exception {
+        // Arrange
+        CryptoDaemon daemon = new CryptoDaemon(client, 10, 0, 1000);
+
+        // Act
+        daemon.start();
+
+        // Assert
+        verify(client, timeout(2000).atLeast(3)).updateCurrentData();
+        daemon.close();
+        verify(client, never()).updateHistoricalData();
+    }
+
+    @Test
+    @DisplayName("Should keep scheduling cycles after a cycle failed")
+    void start_shouldSurviveFailedCycle() throws Exception {
+        // Arrange
+        doThrow(new IOException("API down")).doNothing().when(client).updateCurrentData();
+        CryptoDaemon daemon = new CryptoDaemon(client, 10, 0, 1000);
+
+        // Act
+        daemon.start();
+
+        // Assert
+        verify(client, timeout(2000).atLeast(2)).updateCurrentData();
+        daemon.close();
+    }
+
+    @Test
+    @DisplayName("Should keep scheduling cycles after a cycle failed with an error")
+    void start_shouldSurviveCycleError() throws Exception {
+        // Arrange
+        doThrow(new NoClassDefFoundError("crypto/Missing")).doNothing().when(client).updateCurrentData();
+        CryptoDaemon daemon = new CryptoDaemon(client, 10, 0, 1000);
+
+        // Act
+        daemon.start();
+
+        // Assert
+        verify(client, timeout(2000).atLeast(2)).updateCurrentData();
+        daemon.close();
+    }
+
+    @Test
+    @DisplayName("Should let a cycle in progress finish when closed")
+    void close_shouldWaitForCycleInProgress() throws Exception {
+        // Arrange
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean finished = new AtomicBoolean();
+        doAnswer(invocation -> {
+            started.countDown();
+            Thread.sleep(200);
+            finished.set(true);
+            return null;
+        }).when(client).updateHistoricalData();
+        CryptoDaemon daemon = new CryptoDaemon(client, 0, 60000, 5000);
+        daemon.start();
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+
+        // Act
+        daemon.close();
+
+        // Assert
+        assertTrue(finished.get());
+        daemon.awaitStop();
+        verify(client, times(1)).updateHistoricalData();
+    }
+
+    @Test
+    @DisplayName("Should reject settings without any cycle")
+    void constructor_shouldRejectNoCycles() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> new CryptoDaemon(client, 0, 0, 1000));
+    }
+}
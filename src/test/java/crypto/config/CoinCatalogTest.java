@@ -0,0 +1,105 @@
+package crypto.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoinCatalogTest {
+
+    private static final String COINGECKO = "["
+            + "{\"id\":\"bitcoin\",\"symbol\":\"btc\",\"name\":\"Bitcoin\"},"
+            + "{\"id\":\"bitcoin-cash\",\"symbol\":\"bch\",\"name\":\"Bitcoin Cash\"},"
+            + "{\"id\":\"binancecoin\",\"symbol\":\"bnb\",\"name\":\"Binance Coin\"},"
+            + "{\"id\":\"ethereum\",\"symbol\":\"eth\",\"name\":\"Ethereum\"},"
+            + "{\"id\":\"ethereum-wormhole\",\"symbol\":\"eth\",\"name\":\"Ethereum (Wormhole)\"},"
+            + "{\"id\":\"bitcoin\",\"symbol\":\"dup\",\"name\":\"Duplicate\"}]";
+    private static final String COINMARKETCAP = "{\"status\":{\"error_code\":0,\"notice\":null},\"data\":["
+            + "{\"id\":1,\"name\":\"Bitcoin\",\"symbol\":\"BTC\",\"slug\":\"bitcoin\",\"platform\":null},"
+            + "{\"id\":1839,\"name\":\"Binance Coin\",\"symbol\":\"BNB\",\"slug\":\"binance-coin\",\"platform\":{\"id\":1}},"
+            + "{\"id\":9999,\"name\":\"Unlisted\",\"symbol\":\"UNL\",\"slug\":\"unlisted\"}]}";
+
+    private CoinCatalog catalog;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        catalog = CoinCatalog.load(stream(COINGECKO), stream(COINMARKETCAP));
+    }
+
+    @Test
+    @DisplayName("Should index every CoinGecko id once with its symbol and name")
+    void load_shouldIndexCoinGeckoIds() {
+        // Assert
+        assertEquals(5, catalog.size());
+        assertTrue(catalog.containsId("ethereum-wormhole"));
+        assertFalse(catalog.containsId("Bitcoin"));
+        assertEquals("btc", catalog.getSymbol("bitcoin"));
+        assertEquals("Binance Coin", catalog.getName("binancecoin"));
+        assertNull(catalog.getName("unlisted"));
+    }
+
+    @Test
+    @DisplayName("Should resolve ids, linked slugs and unique symbols but not ambiguous symbols")
+    void resolve_shouldResolveIdSlugAndSymbol() {
+        // Act & Assert
+        assertEquals(Optional.of("bitcoin"), catalog.resolve("bitcoin"));
+        assertEquals(Optional.of("binancecoin"), catalog.resolve("binance-coin"));
+        assertEquals(Optional.of("bitcoin-cash"), catalog.resolve("BCH"));
+        assertEquals(Optional.empty(), catalog.resolve("eth"));
+        assertEquals(Optional.empty(), catalog.resolve("unlisted"));
+    }
+
+    @Test
+    @DisplayName("Should find all coins sharing a symbol in catalog order, ignoring case")
+    void findBySymbol_shouldReturnAllCoins() {
+        // Act & Assert
+        assertEquals(Arrays.asList("ethereum", "ethereum-wormhole"), catalog.findBySymbol("ETH"));
+        assertEquals(Collections.emptyList(), catalog.findBySymbol("xyz"));
+    }
+
+    @Test
+    @DisplayName("Should find ids by prefix in lexicographic order up to the limit")
+    void findByPrefix_shouldReturnSortedIds() {
+        // Act & Assert
+        assertEquals(Arrays.asList("binancecoin", "bitcoin", "bitcoin-cash"), catalog.findByPrefix("bi", 10));
+        assertEquals(Collections.singletonList("binancecoin"), catalog.findByPrefix("bi", 1));
+        assertEquals(Collections.emptyList(), catalog.findByPrefix("z", 10));
+    }
+
+    @Test
+    @DisplayName("Should report the tracked ids missing from the catalog")
+    void findUnknown_shouldReturnMissingIds() {
+        // Act & Assert
+        assertEquals(Collections.singletonList("unknown-coin"), catalog.findUnknown(Arrays.asList("bitcoin", "unknown-coin", "ethereum")));
+    }
+
+    @Test
+    @DisplayName("Should know every coin of the CryptoId enum in the bundled catalogs")
+    void loadResources_shouldKnowAllCryptoIds() throws IOException {
+        // Act
+        CoinCatalog resources = CoinCatalog.loadResources();
+
+        // Assert
+        assertEquals(Collections.emptyList(), resources.findUnknown(new CryptoConfig().getAllCryptoIds()));
+    }
+
+    @Test
+    @DisplayName("Should reject a CoinGecko catalog that is not an array")
+    void load_shouldRejectInvalidCatalog() {
+        // Act & Assert
+        assertThrows(IOException.class, () -> CoinCatalog.load(stream("{\"id\":\"bitcoin\"}"), null));
+    }
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
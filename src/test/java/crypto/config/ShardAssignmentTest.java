@@ -0,0 +1,98 @@
+package crypto.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardAssignmentTest {
+
+    @Test
+    @DisplayName("Should assign every coin to exactly one shard with a roughly even split")
+    void select_shouldPartitionCoins() {
+        // Arrange
+        List<String> ids = coinIds(3000);
+        Set<String> assigned = new HashSet<>();
+        int total = 0;
+
+        // Act
+        for (int i = 0; i < 4; i++) {
+            List<String> owned = ShardAssignment.ofIndex(i, 4).select(ids);
+            assertTrue(owned.size() > 600 && owned.size() < 900, "shard " + i + " owns " + owned.size());
+            assigned.addAll(owned);
+            total += owned.size();
+        }
+
+        // Assert
+        assertEquals(ids.size(), total);
+        assertEquals(new HashSet<>(ids), assigned);
+    }
+
+    @Test
+    @DisplayName("Should only move coins to a node that is added")
+    void ownerOf_shouldMoveOnlyCoinsOfAddedNode() {
+        // Arrange
+        ShardAssignment three = ShardAssignment.of(Arrays.asList("a", "b", "c"), "a");
+        ShardAssignment four = ShardAssignment.of(Arrays.asList("a", "b", "c", "d"), "a");
+        int moved = 0;
+
+        // Act
+        for (String id : coinIds(3000)) {
+            String before = three.ownerOf(id);
+            String after = four.ownerOf(id);
+            if (!before.equals(after)) {
+                assertEquals("d", after);
+                moved++;
+            }
+        }
+
+        // Assert
+        assertTrue(moved > 600 && moved < 900, "moved " + moved);
+    }
+
+    @Test
+    @DisplayName("Should not depend on the order the nodes are listed in")
+    void select_shouldIgnoreNodeOrder() {
+        // Arrange
+        List<String> ids = coinIds(500);
+
+        // Act & Assert
+        assertEquals(ShardAssignment.of(Arrays.asList("a", "b", "c"), "b").select(ids),
+                ShardAssignment.of(Arrays.asList("c", "b", "a"), "b").select(ids));
+    }
+
+    @Test
+    @DisplayName("Should return the coins unchanged when unsharded")
+    void select_shouldReturnAllCoinsWhenUnsharded() {
+        // Arrange
+        List<String> ids = coinIds(10);
+
+        // Act & Assert
+        assertSame(ids, ShardAssignment.unsharded().select(ids));
+        assertSame(ids, ShardAssignment.ofIndex(0, 1).select(ids));
+        assertFalse(ShardAssignment.unsharded().isSharded());
+    }
+
+    @Test
+    @DisplayName("Should reject a node that is not listed and an index out of range")
+    void of_shouldRejectInvalidShards() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> ShardAssignment.of(Arrays.asList("a", "b"), "c"));
+        assertThrows(IllegalArgumentException.class, () -> ShardAssignment.of(Arrays.asList("a", "a"), "a"));
+        assertThrows(IllegalArgumentException.class, () -> ShardAssignment.ofIndex(2, 2));
+    }
+
+    private static List<String> coinIds(int count) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add("coin-" + i);
+        }
+        return ids;
+    }
+}
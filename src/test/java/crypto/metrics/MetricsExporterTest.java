@@ -0,0 +1,84 @@
+package crypto.metrics;
+
+import crypto.util.HttpStatusException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsExporterTest {
+
+    private final MetricsRegistry registry = new MetricsRegistry();
+    private final MetricsExporter exporter = new MetricsExporter(registry);
+
+    @AfterEach
+    void tearDown() {
+        exporter.close();
+    }
+
+    @Test
+    @DisplayName("Should serve counters and timers at the scrape endpoint in the Prometheus text format")
+    void startHttpServer_shouldServeMetrics() throws Exception {
+        // Arrange
+        registry.counter("requests_total", "endpoint", "/coins/{id}", "coin", "bitcoin").add(3);
+        registry.timer("request_seconds", "endpoint", "/coins/{id}").record(TimeUnit.MILLISECONDS.toNanos(250));
+        InetSocketAddress address = exporter.startHttpServer(0);
+
+        // Act
+        HttpResponse<String> response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + address.getPort() + MetricsExporter.SCRAPE_PATH)).build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        // Assert
+        assertEquals(200, response.statusCode());
+        String body = response.body();
+        assertTrue(body.contains("# TYPE requests_total counter\n"));
+        assertTrue(body.contains("requests_total{coin=\"bitcoin\",endpoint=\"/coins/{id}\"} 3\n"));
+        assertTrue(body.contains("# TYPE request_seconds summary\n"));
+        assertTrue(body.contains("request_seconds_count{endpoint=\"/coins/{id}\"} 1\n"));
+        assertTrue(body.contains("request_seconds_sum{endpoint=\"/coins/{id}\"} 0.25\n"));
+        assertTrue(body.contains("request_seconds{endpoint=\"/coins/{id}\",quantile=\"1.0\"} 0.25\n"));
+    }
+
+    @Test
+    @DisplayName("Should expose every metric as an attribute of the JMX bean")
+    void registerMBean_shouldExposeMetrics() throws Exception {
+        // Arrange
+        registry.counter("retries_total", "coin", "bitcoin").increment();
+        registry.timer("wait_seconds").record(TimeUnit.SECONDS.toNanos(2));
+        ObjectName name = new ObjectName(MetricsExporter.OBJECT_NAME);
+
+        // Act
+        exporter.registerMBean();
+
+        // Assert
+        assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "retries_total{coin=\"bitcoin\"}"));
+        assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "wait_seconds_count"));
+        assertEquals(2.0, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "wait_seconds_max"));
+        exporter.close();
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+
+    @Test
+    @DisplayName("Should classify request outcomes by status and exception type")
+    void outcomeOf_shouldClassifyFailures() {
+        // Act & Assert
+        assertEquals("ok", MetricsRegistry.outcomeOf(null));
+        assertEquals("throttled", MetricsRegistry.outcomeOf(new HttpStatusException(429, null)));
+        assertEquals("http_5xx", MetricsRegistry.outcomeOf(new HttpStatusException(503, null)));
+        assertEquals("io_error", MetricsRegistry.outcomeOf(new CompletionException(new IOException("reset"))));
+        assertEquals("error", MetricsRegistry.outcomeOf(new IllegalStateException("parse")));
+    }
+}
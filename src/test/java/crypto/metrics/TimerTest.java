@@ -0,0 +1,68 @@
+package crypto.metrics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimerTest {
+
+    @Test
+    @DisplayName("Should map every value to a bucket whose range contains it")
+    void bucketIndex_shouldCoverAllValues() {
+        // Arrange
+        long[] values = {0, 1, 15, 16, 17, 31, 32, 33, 1_000, 999_999, 1L << 40, Long.MAX_VALUE};
+
+        // Act & Assert
+        for (long value : values) {
+            int index = Timer.bucketIndex(value);
+            assertTrue(index >= 0 && index < Timer.BUCKETS, "bucket of " + value);
+            assertTrue(Timer.highestValueOf(index) >= value, "upper bound of " + value);
+            assertTrue(index == 0 || Timer.highestValueOf(index - 1) < value, "lower bound of " + value);
+        }
+    }
+
+    @Test
+    @DisplayName("Should report quantiles within the relative error of the histogram")
+    void snapshot_shouldReportQuantiles() {
+        // Arrange
+        Timer timer = new MetricsRegistry().timer("request_seconds");
+        for (int millis = 1; millis <= 1000; millis++) {
+            timer.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        // Act
+        Timer.Snapshot snapshot = timer.snapshot();
+
+        // Assert
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500_500), snapshot.getTotalNanos());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1000), snapshot.getMaxNanos());
+        assertWithinError(TimeUnit.MILLISECONDS.toNanos(500), snapshot.getValueAtQuantile(0.5));
+        assertWithinError(TimeUnit.MILLISECONDS.toNanos(990), snapshot.getValueAtQuantile(0.99));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1000), snapshot.getValueAtQuantile(1.0));
+    }
+
+    @Test
+    @DisplayName("Should not record anything while the registry is disabled")
+    void record_shouldIgnoreValuesWhileDisabled() {
+        // Arrange
+        MetricsRegistry registry = new MetricsRegistry();
+        Timer timer = registry.timer("request_seconds");
+        registry.setEnabled(false);
+
+        // Act
+        timer.record(42);
+
+        // Assert
+        assertEquals(0, timer.snapshot().getCount());
+        assertEquals(0, timer.snapshot().getValueAtQuantile(0.5));
+    }
+
+    private void assertWithinError(long expected, long actual) {
+        assertTrue(actual >= expected, expected + " <= " + actual);
+        assertTrue(actual <= expected + expected / Timer.SUB_BUCKETS, actual + " within error of " + expected);
+    }
+}
@@ -0,0 +1,118 @@
+package crypto.processor;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sam.coin.domain.model.Coin;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoinDataProcessorTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final String HISTORY_RESPONSE = "{\"id\":\"bitcoin\",\"symbol\":\"btc\",\"name\":\"Bitcoin\","
+            + "\"localization\":{\"en\":\"Bitcoin\",\"de\":\"Bitcoin\"},\"description\":{\"en\":\"Bitcoin is ...\"},"
+            + "\"market_data\":{\"current_price\":{\"usd\":50000.12,\"eur\":42000,\"btc\":1,\"eth\":15,\"aed\":183650},"
+            + "\"ath\":{\"usd\":69045},\"market_cap\":{\"usd\":1000000000,\"eur\":840000000,\"btc\":20000,\"eth\":300000},"
+            + "\"total_volume\":{\"usd\":50000000,\"eur\":42000000,\"btc\":1000,\"eth\":15000},\"last_updated\":\"2021-09-10T19:54:06.165Z\"},"
+            + "\"community_data\":{\"twitter_followers\":5,\"reddit_average_posts_48h\":1.5,\"reddit_subscribers\":null},"
+            + "\"developer_data\":{\"forks\":3,\"code_additions_deletions_4_weeks\":{\"additions\":10,\"deletions\":-5},"
+            + "\"last_4_weeks_commit_activity_series\":[1,2]},\"public_interest_stats\":{\"alexa_rank\":9},\"tickers\":[{\"base\":\"BTC\"}]}";
+
+    private final CoinDataProcessor coinDataProcessor = new CoinDataProcessor();
+
+    @Test
+    @DisplayName("Should produce the same historical Coin from a stream as from a parsed tree")
+    void parseCoinStream_matchesTreeParsing() throws Exception {
+        // Arrange
+        LocalDate date = LocalDate.of(2024, 1, 2);
+
+        // Act
+        Coin fromTree = coinDataProcessor.parseCoinData(HISTORY_RESPONSE, "bitcoin", date);
+        Coin fromStream = coinDataProcessor.parseCoinStream(stream(HISTORY_RESPONSE), "bitcoin", date);
+
+        // Assert
+        assertEquals(objectMapper.writeValueAsString(fromTree), objectMapper.writeValueAsString(fromStream));
+    }
+
+    @Test
+    @DisplayName("Should take the timestamp from the market data and skip unrelated subtrees for current data")
+    void parseCoinStream_currentData() throws Exception {
+        // Act
+        Coin coin = coinDataProcessor.parseCoinStream(stream(HISTORY_RESPONSE), "bitcoin", null);
+
+        // Assert
+        assertEquals("Bitcoin", coin.getCoinName());
+        assertEquals("btc", coin.getSymbol());
+        assertEquals(new BigDecimal("50000.12"), coin.getPriceUsd());
+        assertEquals(new BigDecimal("15000"), coin.getTotalVolumeEth());
+        assertEquals(1631303646165L, coin.getTimestamp().getTime());
+        assertNull(coin.getDevCodeAdditions4Weeks());
+    }
+
+    @Test
+    @DisplayName("Should produce the same current Coin from a stream as from a parsed tree")
+    void parseCoinStream_currentDataMatchesTreeParsing() throws Exception {
+        // Act
+        Coin fromTree = coinDataProcessor.createCoinFromJsonNode("bitcoin", objectMapper.readTree(HISTORY_RESPONSE));
+        Coin fromStream = coinDataProcessor.parseCoinStream(stream(HISTORY_RESPONSE), "bitcoin", null);
+
+        // Assert
+        assertEquals(objectMapper.writeValueAsString(fromTree), objectMapper.writeValueAsString(fromStream));
+    }
+
+    @Test
+    @DisplayName("Should default the fields of a present group and leave absent groups untouched")
+    void parseCoinData_defaultsPresentGroups() throws Exception {
+        // Arrange
+        String json = "{\"name\":\"Bitcoin\",\"market_data\":{\"current_price\":{\"usd\":\"n/a\"}},\"developer_data\":{}}";
+
+        // Act
+        Coin coin = coinDataProcessor.parseCoinData(json, "bitcoin", LocalDate.of(2024, 1, 2));
+
+        // Assert
+        assertEquals("", coin.getSymbol());
+        assertEquals(BigDecimal.ZERO, coin.getPriceUsd());
+        assertEquals(BigDecimal.ZERO, coin.getMarketCapEth());
+        assertEquals(0L, coin.getDevForks());
+        assertNull(coin.getDevCodeAdditions4Weeks());
+        assertNull(coin.getTwitterFollowers());
+    }
+
+    @Test
+    @DisplayName("Should parse a complete current data response without logging errors")
+    void parseCurrentData_logsNoErrors() throws Exception {
+        // Arrange
+        Logger logger = (Logger) LoggerFactory.getLogger(CoinDataProcessor.class);
+        ListAppender<ILoggingEvent> appender = new ListAppender<>();
+        appender.start();
+        logger.addAppender(appender);
+
+        // Act
+        try {
+            coinDataProcessor.createCoinFromJsonNode("bitcoin", objectMapper.readTree(HISTORY_RESPONSE));
+            coinDataProcessor.parseCoinStream(stream(HISTORY_RESPONSE), "bitcoin", null);
+        } finally {
+            logger.detachAppender(appender);
+        }
+
+        // Assert
+        assertTrue(appender.list.stream().noneMatch(event -> event.getLevel().isGreaterOrEqual(Level.ERROR)), appender.list::toString);
+    }
+
+    private InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,125 @@
+package crypto.processor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import crypto.config.CoinCatalog;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PortfolioFilterTest {
+
+    private static final String CATALOG = "["
+            + "{\"id\":\"bitcoin\",\"symbol\":\"btc\",\"name\":\"Bitcoin\",\"platforms\":{\"\":\"\"}},"
+            + "{\"name\":\"Cardano\",\"symbol\":\"ada\",\"id\":\"cardano\"},"
+            + "{\"id\":\"dogecoin\",\"symbol\":\"doge\",\"name\":\"Dogecoin\",\"tags\":[1,2,{\"a\":null}]},"
+            + "{\"id\":\"ethereum\",\"symbol\":\"eth\",\"name\":\"Ethereum\"}]";
+
+    private final PortfolioFilter filter = new PortfolioFilter(new ObjectMapper());
+
+    @Test
+    @DisplayName("Should copy only the portfolio entries unchanged and in catalog order")
+    void filter_shouldKeepPortfolioEntries() throws IOException {
+        // Arrange
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+
+        // Act
+        int kept = filter.filter(stream(CATALOG), new HashSet<>(Arrays.asList("ethereum", "bitcoin", "dogecoin")), target);
+
+        // Assert
+        assertEquals(3, kept);
+        assertEquals("[{\"id\":\"bitcoin\",\"symbol\":\"btc\",\"name\":\"Bitcoin\",\"platforms\":{\"\":\"\"}},"
+                + "{\"id\":\"dogecoin\",\"symbol\":\"doge\",\"name\":\"Dogecoin\",\"tags\":[1,2,{\"a\":null}]},"
+                + "{\"id\":\"ethereum\",\"symbol\":\"eth\",\"name\":\"Ethereum\"}]", target.toString(StandardCharsets.UTF_8.name()));
+    }
+
+    @Test
+    @DisplayName("Should find entries whose id is not their first field")
+    void filter_shouldMatchIdInAnyPosition() throws IOException {
+        // Arrange
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+
+        // Act
+        int kept = filter.filter(stream(CATALOG), Collections.singleton("cardano"), target);
+
+        // Assert
+        assertEquals(1, kept);
+        assertEquals("[{\"name\":\"Cardano\",\"symbol\":\"ada\",\"id\":\"cardano\"}]", target.toString(StandardCharsets.UTF_8.name()));
+    }
+
+    @Test
+    @DisplayName("Should keep the first entry of a duplicated id and still find the later portfolio coins")
+    void filter_shouldSkipDuplicateIds() throws IOException {
+        // Arrange
+        String catalog = "[{\"id\":\"bitcoin\",\"name\":\"Bitcoin\"},{\"id\":\"bitcoin\",\"name\":\"Bitcoin Copy\"},"
+                + "{\"id\":\"ethereum\",\"name\":\"Ethereum\"}]";
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+
+        // Act
+        int kept = filter.filter(stream(catalog), new HashSet<>(Arrays.asList("bitcoin", "ethereum")), target);
+
+        // Assert
+        assertEquals(2, kept);
+        assertEquals("[{\"id\":\"bitcoin\",\"name\":\"Bitcoin\"},{\"id\":\"ethereum\",\"name\":\"Ethereum\"}]",
+                target.toString(StandardCharsets.UTF_8.name()));
+    }
+
+    @Test
+    @DisplayName("Should replace the target file only once the filtered catalog is complete")
+    void filter_shouldReplaceTargetFile(@TempDir Path directory) throws IOException {
+        // Arrange
+        Path source = directory.resolve("coingecko.json");
+        Path target = directory.resolve("portfoliocoingecko.json");
+        Files.write(source, CATALOG.getBytes(StandardCharsets.UTF_8));
+        Files.write(target, "[]".getBytes(StandardCharsets.UTF_8));
+        Files.write(directory.resolve("broken.json"), "[{\"id\":\"bitcoin\"".getBytes(StandardCharsets.UTF_8));
+
+        // Act
+        int kept = filter.filter(source, Collections.singleton("ethereum"), target);
+
+        // Assert
+        assertEquals(1, kept);
+        assertEquals("[{\"id\":\"ethereum\",\"symbol\":\"eth\",\"name\":\"Ethereum\"}]", new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+        assertThrows(IOException.class, () -> filter.filter(directory.resolve("broken.json"), Collections.singleton("solana"), target));
+        assertEquals("[{\"id\":\"ethereum\",\"symbol\":\"eth\",\"name\":\"Ethereum\"}]", new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(3, files.count());
+        }
+    }
+
+    @Test
+    @DisplayName("Should resolve the slugs of a portfolio through the coin catalog")
+    void readPortfolioIds_shouldResolveSlugs() throws IOException {
+        // Arrange
+        CoinCatalog catalog = CoinCatalog.load(stream("[{\"id\":\"bitcoin\",\"symbol\":\"btc\",\"name\":\"Bitcoin\"},"
+                + "{\"id\":\"binancecoin\",\"symbol\":\"bnb\",\"name\":\"Binance Coin\"}]"), null);
+        String portfolio = "[{\"id\":1839,\"name\":\"Binance Coin\",\"symbol\":\"BNB\",\"slug\":\"binance-coin\",\"platform\":null},"
+                + "{\"id\":1,\"name\":\"Bitcoin\",\"symbol\":\"BTC\",\"slug\":\"bitcoin\"},"
+                + "{\"id\":2,\"name\":\"Litecoin\",\"symbol\":\"LTC\",\"slug\":\"litecoin\"}]";
+
+        // Act
+        Set<String> ids = filter.readPortfolioIds(stream(portfolio), catalog);
+
+        // Assert
+        assertEquals(new LinkedHashSet<>(Arrays.asList("binancecoin", "bitcoin")), ids);
+    }
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
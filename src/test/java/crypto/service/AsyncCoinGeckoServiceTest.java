@@ -0,0 +1,129 @@
+package crypto.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sam.coin.domain.model.Coin;
+import crypto.config.CryptoConfig;
+import crypto.processor.CoinDataProcessor;
+import crypto.processor.JsonProcessor;
+import crypto.util.HttpClientWrapper;
+import crypto.util.RateLimiter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncCoinGeckoServiceTest {
+
+    @Mock
+    private CryptoConfig config;
+
+    @Mock
+    private HttpClientWrapper httpClient;
+
+    @Mock
+    private JsonProcessor jsonProcessor;
+
+    @Mock
+    private CoinDataProcessor coinDataProcessor;
+
+    @Mock
+    private RateLimiter rateLimiter;
+
+    private AsyncCoinGeckoService asyncCoinGeckoService;
+
+    @BeforeEach
+    void setUp() {
+        asyncCoinGeckoService = new AsyncCoinGeckoService(config, httpClient, jsonProcessor, coinDataProcessor, rateLimiter, Runnable::run);
+        when(config.getCoingeckoApiUrl()).thenReturn("https://api.coingecko.com/api/v3");
+        when(rateLimiter.acquireAsync()).thenAnswer(invocation -> CompletableFuture.completedFuture(null));
+    }
+
+    @Test
+    @DisplayName("Should fetch, parse and send current data for all cryptocurrencies asynchronously")
+    void fetchAndSendCurrentDataAsync_allDataAvailable() throws Exception {
+        // Arrange
+        List<String> cryptoIds = Arrays.asList("bitcoin", "ethereum");
+        when(httpClient.sendGetRequestAsync(anyString())).thenReturn(CompletableFuture.completedFuture("{\"id\":\"bitcoin\"}"));
+        when(jsonProcessor.parseJson(anyString())).thenAnswer(invocation -> new ObjectMapper().readTree((String) invocation.getArgument(0)));
+        when(coinDataProcessor.createCoinFromJsonNode(anyString(), any(JsonNode.class))).thenReturn(new Coin());
+        List<Coin> sentCoins = Collections.synchronizedList(new ArrayList<>());
+
+        // Act
+        asyncCoinGeckoService.fetchAndSendCurrentDataAsync(cryptoIds, coin -> {
+            sentCoins.add(coin);
+            return CompletableFuture.completedFuture(true);
+        }).get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(2, sentCoins.size());
+        verify(httpClient).sendGetRequestAsync(contains("/coins/bitcoin"));
+        verify(httpClient).sendGetRequestAsync(contains("/coins/ethereum"));
+        verify(rateLimiter, times(2)).acquireAsync();
+        verify(rateLimiter, times(2)).recordSuccess();
+    }
+
+    @Test
+    @DisplayName("Should fetch current data in batches through the markets endpoint in batch mode")
+    void fetchAndSendCurrentDataAsync_batchMode() throws Exception {
+        // Arrange
+        List<String> cryptoIds = Arrays.asList("bitcoin", "ethereum");
+        String marketsResponse = "[{\"id\":\"bitcoin\",\"current_price\":50000},{\"id\":\"ethereum\",\"current_price\":3000}]";
+        String pricesResponse = "{\"bitcoin\":{\"eur\":42000},\"ethereum\":{\"eur\":2520}}";
+        when(config.isBatchCurrentData()).thenReturn(true);
+        when(httpClient.sendGetRequestAsync(contains("/coins/markets?vs_currency=usd&ids=bitcoin,ethereum")))
+                .thenReturn(CompletableFuture.completedFuture(marketsResponse));
+        when(httpClient.sendGetRequestAsync(contains("/simple/price?ids=bitcoin,ethereum")))
+                .thenReturn(CompletableFuture.completedFuture(pricesResponse));
+        when(jsonProcessor.parseJson(anyString())).thenAnswer(invocation -> new ObjectMapper().readTree((String) invocation.getArgument(0)));
+        when(coinDataProcessor.createCoinFromMarketsRow(any(JsonNode.class), any(JsonNode.class))).thenReturn(new Coin());
+        List<Coin> sentCoins = Collections.synchronizedList(new ArrayList<>());
+
+        // Act
+        asyncCoinGeckoService.fetchAndSendCurrentDataAsync(cryptoIds, coin -> {
+            sentCoins.add(coin);
+            return CompletableFuture.completedFuture(true);
+        }).get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(2, sentCoins.size());
+        verify(httpClient, times(2)).sendGetRequestAsync(anyString());
+        verify(rateLimiter, times(2)).acquireAsync();
+    }
+
+    @Test
+    @DisplayName("Should retry failed historical requests without blocking and send every day")
+    void fetchAndSendAllHistoricalDataAsync_retriesFailedRequests() throws Exception {
+        // Arrange
+        int timeFrame = 3;
+        when(config.getMaxRetries()).thenReturn(3);
+        when(httpClient.sendGetRequestAsync(anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new IOException("API Error")))
+                .thenReturn(CompletableFuture.completedFuture("{}"));
+        when(coinDataProcessor.parseCoinData(anyString(), eq("bitcoin"), any(LocalDate.class))).thenReturn(new Coin());
+        List<Coin> sentCoins = Collections.synchronizedList(new ArrayList<>());
+
+        // Act
+        asyncCoinGeckoService.fetchAndSendAllHistoricalDataAsync(Collections.singletonList("bitcoin"), timeFrame, coin -> {
+            sentCoins.add(coin);
+            return CompletableFuture.completedFuture(true);
+        }).get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(timeFrame, sentCoins.size());
+        verify(httpClient, times(timeFrame + 1)).sendGetRequestAsync(contains("/coins/bitcoin/history?date="));
+        verify(coinDataProcessor, times(timeFrame)).parseCoinData(anyString(), eq("bitcoin"), any(LocalDate.class));
+    }
+}
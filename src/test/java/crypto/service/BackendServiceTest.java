@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.sam.coin.domain.model.Coin;
 import crypto.processor.JsonProcessor;
 import crypto.util.HttpClientWrapper;
+import crypto.util.HttpStatusException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
@@ -23,11 +24,15 @@ import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.endsWith;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -82,6 +87,95 @@ class BackendServiceTest {
         verify(httpClientMock).sendPostRequest(eq(BASE_URL), anyString());
     }
 
+    @Test
+    @DisplayName("Keep coins the backend did not accept in the outbox, but not when resending them")
+    void sendCoinDataToBackend_shouldKeepFailedCoinInOutbox() throws Exception {
+        // Arrange
+        CoinOutbox outbox = mock(CoinOutbox.class);
+        backendService = new BackendService(BASE_URL, httpClientMock, jsonProcessorMock, Arrays.asList("bitcoin", "ethereum"), 1, false, outbox);
+        Coin coin = createTestCoin("ethereum", "2000");
+        when(jsonProcessorMock.getObjectMapper()).thenReturn(objectMapper);
+        when(httpClientMock.sendPostRequest(anyString(), anyString())).thenThrow(new IOException("Network error"));
+
+        // Act
+        boolean sent = backendService.sendCoinDataToBackend(coin);
+        boolean resent = backendService.resendCoinDataToBackend(coin);
+
+        // Assert
+        assertFalse(sent);
+        assertFalse(resent);
+        verify(outbox, times(1)).append(coin);
+    }
+
+    @Test
+    @DisplayName("Verify a batch of coin data is posted as one JSON array")
+    void sendCoinBatchToBackendAsync_shouldPostArray() throws Exception {
+        // Arrange
+        List<Coin> coins = List.of(createTestCoin("bitcoin", "50000"), createTestCoin("ethereum", "2000"));
+        when(jsonProcessorMock.getObjectMapper()).thenReturn(objectMapper);
+
+        @SuppressWarnings("unchecked")
+        HttpResponse<String> mockResponse = mock(HttpResponse.class);
+        when(httpClientMock.sendPostRequestAsync(eq(BASE_URL + "/batch"), anyString())).thenReturn(CompletableFuture.completedFuture(mockResponse));
+
+        // Act
+        boolean accepted = backendService.sendCoinBatchToBackendAsync(coins).get();
+
+        // Assert
+        assertTrue(accepted);
+        verify(httpClientMock).sendPostRequestAsync(BASE_URL + "/batch", objectMapper.writeValueAsString(coins));
+        verifyNoMoreInteractions(httpClientMock);
+    }
+
+    @Test
+    @DisplayName("Fall back to one request per coin when the backend rejects batches")
+    void sendCoinBatchToBackendAsync_shouldFallBackToSingleRequests() throws Exception {
+        // Arrange
+        List<Coin> coins = List.of(createTestCoin("bitcoin", "50000"), createTestCoin("ethereum", "2000"));
+        when(jsonProcessorMock.getObjectMapper()).thenReturn(objectMapper);
+
+        @SuppressWarnings("unchecked")
+        HttpResponse<String> mockResponse = mock(HttpResponse.class);
+        when(httpClientMock.sendPostRequestAsync(eq(BASE_URL + "/batch"), anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new HttpStatusException(404, null)));
+        when(httpClientMock.sendPostRequestAsync(eq(BASE_URL), anyString())).thenReturn(CompletableFuture.completedFuture(mockResponse));
+
+        // Act
+        boolean first = backendService.sendCoinBatchToBackendAsync(coins).get();
+        boolean second = backendService.sendCoinBatchToBackendAsync(coins).get();
+
+        // Assert
+        assertTrue(first);
+        assertTrue(second);
+        verify(httpClientMock, times(1)).sendPostRequestAsync(eq(BASE_URL + "/batch"), anyString());
+        verify(httpClientMock, times(4)).sendPostRequestAsync(eq(BASE_URL), anyString());
+    }
+
+    @Test
+    @DisplayName("Send only the rejected batch one coin at a time when the backend finds invalid data")
+    void sendCoinBatchToBackendAsync_shouldKeepBatchingAfterInvalidBatch() throws Exception {
+        // Arrange
+        List<Coin> coins = List.of(createTestCoin("bitcoin", "50000"), createTestCoin("ethereum", "2000"));
+        when(jsonProcessorMock.getObjectMapper()).thenReturn(objectMapper);
+
+        @SuppressWarnings("unchecked")
+        HttpResponse<String> mockResponse = mock(HttpResponse.class);
+        when(httpClientMock.sendPostRequestAsync(eq(BASE_URL + "/batch"), anyString()))
+                .thenReturn(CompletableFuture.failedFuture(new HttpStatusException(422, null)))
+                .thenReturn(CompletableFuture.completedFuture(mockResponse));
+        when(httpClientMock.sendPostRequestAsync(eq(BASE_URL), anyString())).thenReturn(CompletableFuture.completedFuture(mockResponse));
+
+        // Act
+        boolean first = backendService.sendCoinBatchToBackendAsync(coins).get();
+        boolean second = backendService.sendCoinBatchToBackendAsync(coins).get();
+
+        // Assert
+        assertTrue(first);
+        assertTrue(second);
+        verify(httpClientMock, times(2)).sendPostRequestAsync(eq(BASE_URL + "/batch"), anyString());
+        verify(httpClientMock, times(2)).sendPostRequestAsync(eq(BASE_URL), anyString());
+    }
+
     @ParameterizedTest(name = "{index} => coinId={0}, dateString={1}")
     @DisplayName("Validate retrieval and parsing of last valid dates for {0}")
     @CsvSource({
@@ -146,6 +240,44 @@ class BackendServiceTest {
         verify(httpClientMock, times(1)).sendGetRequest(anyString());
     }
 
+    @Test
+    @DisplayName("Retrieve the last valid dates of all coins with a single bulk request")
+    void getLastValidDatesFromBackend_shouldUseBulkEndpoint() throws Exception {
+        // Arrange
+        backendService = new BackendService(BASE_URL, httpClientMock, jsonProcessorMock, Arrays.asList("bitcoin", "ethereum"), 4, true);
+        String responseJson = "{\"success\":true,\"data\":{\"bitcoin\":\"2023-09-17T00:00:00.000+00:00\",\"ethereum\":null}}";
+        when(httpClientMock.sendGetRequest(BASE_URL + "/lastValidDates?ids=bitcoin,ethereum")).thenReturn(responseJson);
+        when(jsonProcessorMock.parseJson(responseJson)).thenReturn(objectMapper.readTree(responseJson));
+
+        // Act
+        Map<String, Date> result = backendService.getLastValidDatesFromBackend();
+
+        // Assert
+        assertEquals(Map.of("bitcoin", parseDate("2023-09-17")), result);
+        verify(httpClientMock, times(1)).sendGetRequest(anyString());
+    }
+
+    @Test
+    @DisplayName("Fall back to concurrent per-coin requests when the backend has no bulk endpoint")
+    void getLastValidDatesFromBackend_shouldFallBackToPerCoinRequests() throws Exception {
+        // Arrange
+        backendService = new BackendService(BASE_URL, httpClientMock, jsonProcessorMock, Arrays.asList("bitcoin", "ethereum"), 4, true);
+        String responseJson = "{\"success\":true,\"data\":\"2023-09-17T00:00:00.000+00:00\"}";
+        when(httpClientMock.sendGetRequest(startsWith(BASE_URL + "/lastValidDates"))).thenThrow(new HttpStatusException(404, null));
+        when(httpClientMock.sendGetRequest(endsWith("/lastValidDate"))).thenReturn(responseJson);
+        when(jsonProcessorMock.parseJson(responseJson)).thenReturn(objectMapper.readTree(responseJson));
+
+        // Act
+        Map<String, Date> first = backendService.getLastValidDatesFromBackend();
+        Map<String, Date> second = backendService.getLastValidDatesFromBackend();
+
+        // Assert
+        assertEquals(Map.of("bitcoin", parseDate("2023-09-17"), "ethereum", parseDate("2023-09-17")), first);
+        assertEquals(first, second);
+        verify(httpClientMock, times(1)).sendGetRequest(startsWith(BASE_URL + "/lastValidDates"));
+        verify(httpClientMock, times(4)).sendGetRequest(endsWith("/lastValidDate"));
+    }
+
     private Coin createTestCoin(String crypto, String price) {
         Coin coin = new Coin();
         coin.setCoinId(crypto);
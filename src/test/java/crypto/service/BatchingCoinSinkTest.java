@@ -0,0 +1,84 @@
+package crypto.service;
+
+import com.sam.coin.domain.model.Coin;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BatchingCoinSinkTest {
+
+    @Mock
+    private BackendService backendService;
+
+    @Test
+    @DisplayName("Should send full batches immediately and the remainder on close")
+    void accept_shouldFlushBySizeAndOnClose() {
+        // Arrange
+        when(backendService.sendCoinBatchToBackendAsync(any())).thenReturn(CompletableFuture.completedFuture(true));
+
+        // Act
+        try (BatchingCoinSink sink = new BatchingCoinSink(backendService, 2, 60_000, 1)) {
+            sink.accept(coin("bitcoin"));
+            sink.accept(coin("ethereum"));
+            verify(backendService).sendCoinBatchToBackendAsync(argThat(batch -> batch.size() == 2));
+            sink.accept(coin("cardano"));
+        }
+
+        // Assert
+        verify(backendService).sendCoinBatchToBackendAsync(argThat(batch -> batch.size() == 1));
+        verifyNoMoreInteractions(backendService);
+    }
+
+    @Test
+    @DisplayName("Should send a partial batch once the linger time has elapsed")
+    void accept_shouldFlushAfterLinger() {
+        // Arrange
+        when(backendService.sendCoinBatchToBackendAsync(any())).thenReturn(CompletableFuture.completedFuture(true));
+
+        Coin coin = coin("bitcoin");
+
+        try (BatchingCoinSink sink = new BatchingCoinSink(backendService, 10, 50, 1)) {
+            // Act
+            sink.accept(coin);
+
+            // Assert
+            verify(backendService, timeout(2000)).sendCoinBatchToBackendAsync(List.of(coin));
+        }
+    }
+
+    @Test
+    @DisplayName("Should wait for batches in flight on close and count rejected batches")
+    void close_shouldAwaitBatchesInFlight() {
+        // Arrange
+        CompletableFuture<Boolean> pending = new CompletableFuture<>();
+        when(backendService.sendCoinBatchToBackendAsync(any())).thenReturn(pending);
+        BatchingCoinSink sink = new BatchingCoinSink(backendService, 1, 60_000, 2);
+        sink.accept(coin("bitcoin"));
+
+        // Act
+        CompletableFuture<Void> closed = CompletableFuture.runAsync(sink::close);
+
+        // Assert
+        assertFalse(closed.isDone());
+        pending.complete(false);
+        closed.join();
+        assertEquals(1, sink.getFailedBatches());
+    }
+
+    private Coin coin(String coinId) {
+        Coin coin = new Coin();
+        coin.setCoinId(coinId);
+        return coin;
+    }
+}
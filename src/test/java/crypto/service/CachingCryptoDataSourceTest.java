@@ -0,0 +1,108 @@
+package crypto.service;
+
+import com.sam.coin.domain.model.Coin;
+import crypto.service.api.CryptoDataSource;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingCryptoDataSourceTest {
+
+    private static final long TTL_MS = 60_000;
+
+    @Mock
+    private CryptoDataSource delegate;
+
+    @Test
+    @DisplayName("Should serve coins from the cache within the time to live and fetch them again afterwards")
+    @SuppressWarnings("unchecked")
+    void fetchAndSendCurrentData_shouldCacheWithinTtl() throws Exception {
+        // Arrange
+        AtomicLong clock = new AtomicLong();
+        CachingCryptoDataSource dataSource = new CachingCryptoDataSource(delegate, TTL_MS, 10, clock::get);
+        List<String> cryptoIds = Collections.singletonList("bitcoin");
+        doAnswer(invocation -> {
+            ((Consumer<Coin>) invocation.getArgument(1)).accept(coin("bitcoin"));
+            return null;
+        }).when(delegate).fetchAndSendCurrentData(eq(cryptoIds), any());
+        List<Coin> sentCoins = new ArrayList<>();
+
+        // Act
+        dataSource.fetchAndSendCurrentData(cryptoIds, sentCoins::add);
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(TTL_MS - 1));
+        dataSource.fetchAndSendCurrentData(cryptoIds, sentCoins::add);
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        dataSource.fetchAndSendCurrentData(cryptoIds, sentCoins::add);
+
+        // Assert
+        verify(delegate, times(2)).fetchAndSendCurrentData(eq(cryptoIds), any());
+        assertEquals(3, sentCoins.size());
+        assertEquals(1, dataSource.getHits());
+    }
+
+    @Test
+    @DisplayName("Should let concurrent requests for the same coin share one fetch")
+    @SuppressWarnings("unchecked")
+    void fetchAndSendCurrentData_shouldCoalesceConcurrentFetches() throws Exception {
+        // Arrange
+        CachingCryptoDataSource dataSource = new CachingCryptoDataSource(delegate, TTL_MS, 10);
+        List<String> cryptoIds = Collections.singletonList("bitcoin");
+        CountDownLatch fetchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFetch = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            fetchStarted.countDown();
+            assertTrue(releaseFetch.await(5, TimeUnit.SECONDS));
+            ((Consumer<Coin>) invocation.getArgument(1)).accept(coin("bitcoin"));
+            return null;
+        }).when(delegate).fetchAndSendCurrentData(eq(cryptoIds), any());
+        List<Coin> firstCoins = Collections.synchronizedList(new ArrayList<>());
+        List<Coin> secondCoins = Collections.synchronizedList(new ArrayList<>());
+
+        // Act
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> fetch(dataSource, cryptoIds, firstCoins::add));
+        assertTrue(fetchStarted.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Void> second = CompletableFuture.runAsync(() -> fetch(dataSource, cryptoIds, secondCoins::add));
+        while (dataSource.getCoalesced() == 0 && !second.isDone()) {
+            Thread.onSpinWait();
+        }
+        releaseFetch.countDown();
+        CompletableFuture.allOf(first, second).get(5, TimeUnit.SECONDS);
+
+        // Assert
+        verify(delegate, times(1)).fetchAndSendCurrentData(eq(cryptoIds), any());
+        assertEquals(1, firstCoins.size());
+        assertEquals(1, secondCoins.size());
+        assertSame(firstCoins.get(0), secondCoins.get(0));
+    }
+
+    private void fetch(CachingCryptoDataSource dataSource, List<String> cryptoIds, Consumer<Coin> sink) {
+        try {
+            dataSource.fetchAndSendCurrentData(cryptoIds, sink);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Coin coin(String coinId) {
+        Coin coin = new Coin();
+        coin.setCoinId(coinId);
+        return coin;
+    }
+}
@@ -3,23 +3,33 @@ package crypto.service;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sam.coin.domain.model.Coin;
+import crypto.config.CoinCatalog;
 import crypto.config.CryptoConfig;
 import crypto.processor.CoinDataProcessor;
 import crypto.processor.JsonProcessor;
+import crypto.util.HistoryArchive;
 import crypto.util.HttpClientWrapper;
+import crypto.util.HttpStatusException;
 import crypto.util.RateLimiter;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import static org.junit.jupiter.api.Assertions.*;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.*;
+import java.util.stream.Stream;
 
 import static org.mockito.Mockito.*;
 
@@ -88,6 +98,85 @@ class CoinGeckoServiceTest {
         verify(rateLimiter, times(2)).acquire();
     }
 
+    @Test
+    @DisplayName("Should process all cryptocurrencies when fetching concurrently")
+    void fetchAndSendCurrentData_concurrentFetch() throws Exception {
+        // Arrange
+        List<String> cryptoIds = Arrays.asList("bitcoin", "ethereum");
+        String apiUrl = "https://api.coingecko.com/api/v3";
+        String bitcoinResponse = "{\"id\":\"bitcoin\",\"symbol\":\"btc\",\"name\":\"Bitcoin\",\"market_data\":{\"current_price\":{\"usd\":50000}}}";
+        String ethereumResponse = "{\"id\":\"ethereum\",\"symbol\":\"eth\",\"name\":\"Ethereum\",\"market_data\":{\"current_price\":{\"usd\":3000}}}";
+
+        setupMocks(apiUrl, bitcoinResponse, ethereumResponse);
+        when(config.getFetchConcurrency()).thenReturn(4);
+        List<Coin> sentCoins = Collections.synchronizedList(new ArrayList<>());
+
+        // Act
+        coinGeckoService.fetchAndSendCurrentData(cryptoIds, sentCoins::add);
+
+        // Assert
+        assertEquals(2, sentCoins.size());
+        verify(httpClient).sendGetRequest(contains("/coins/bitcoin"));
+        verify(httpClient).sendGetRequest(contains("/coins/ethereum"));
+        verify(rateLimiter, times(2)).acquire();
+    }
+
+    @Test
+    @DisplayName("Should fetch current data for all cryptocurrencies with one markets and one price request in batch mode")
+    void fetchAndSendCurrentData_batchMode() throws Exception {
+        // Arrange
+        List<String> cryptoIds = Arrays.asList("bitcoin", "ethereum");
+        String marketsResponse = "[{\"id\":\"bitcoin\",\"symbol\":\"btc\",\"name\":\"Bitcoin\",\"current_price\":50000},"
+                + "{\"id\":\"ethereum\",\"symbol\":\"eth\",\"name\":\"Ethereum\",\"current_price\":3000}]";
+        String pricesResponse = "{\"bitcoin\":{\"eur\":42000},\"ethereum\":{\"eur\":2520}}";
+
+        when(config.getCoingeckoApiUrl()).thenReturn("https://api.coingecko.com/api/v3");
+        when(config.getMaxRetries()).thenReturn(3);
+        when(config.isBatchCurrentData()).thenReturn(true);
+        when(httpClient.sendGetRequest(contains("/coins/markets?vs_currency=usd&ids=bitcoin,ethereum"))).thenReturn(marketsResponse);
+        when(httpClient.sendGetRequest(contains("/simple/price?ids=bitcoin,ethereum"))).thenReturn(pricesResponse);
+        when(jsonProcessor.parseJson(anyString())).thenAnswer(invocation -> new ObjectMapper().readTree((String) invocation.getArgument(0)));
+        when(coinDataProcessor.createCoinFromMarketsRow(any(JsonNode.class), any(JsonNode.class))).thenReturn(new Coin());
+        List<Coin> sentCoins = new ArrayList<>();
+
+        // Act
+        coinGeckoService.fetchAndSendCurrentData(cryptoIds, sentCoins::add);
+
+        // Assert
+        verify(httpClient, times(2)).sendGetRequest(anyString());
+        verify(coinDataProcessor, times(2)).createCoinFromMarketsRow(any(JsonNode.class), any(JsonNode.class));
+        verify(rateLimiter, times(2)).acquire();
+        assertEquals(2, sentCoins.size());
+    }
+
+    @Test
+    @DisplayName("Should skip coins without a price entry and pages that cannot be parsed in batch mode")
+    void fetchAndSendCurrentData_batchModeSkipsIncompleteData() throws Exception {
+        // Arrange
+        List<String> cryptoIds = Arrays.asList("bitcoin", "ethereum");
+        String marketsResponse = "[{\"id\":\"bitcoin\",\"symbol\":\"btc\",\"name\":\"Bitcoin\",\"current_price\":50000},"
+                + "{\"id\":\"ethereum\",\"symbol\":\"eth\",\"name\":\"Ethereum\",\"current_price\":3000}]";
+        String pricesResponse = "{\"bitcoin\":{\"eur\":42000}}";
+
+        when(config.getCoingeckoApiUrl()).thenReturn("https://api.coingecko.com/api/v3");
+        when(config.getMaxRetries()).thenReturn(3);
+        when(config.isBatchCurrentData()).thenReturn(true);
+        when(httpClient.sendGetRequest(contains("/coins/markets?vs_currency=usd&ids=bitcoin,ethereum")))
+                .thenReturn(marketsResponse, "[{\"id\":");
+        when(httpClient.sendGetRequest(contains("/simple/price?ids=bitcoin,ethereum"))).thenReturn(pricesResponse);
+        when(jsonProcessor.parseJson(anyString())).thenAnswer(invocation -> new ObjectMapper().readTree((String) invocation.getArgument(0)));
+        when(coinDataProcessor.createCoinFromMarketsRow(any(JsonNode.class), any(JsonNode.class))).thenReturn(new Coin());
+        List<Coin> sentCoins = new ArrayList<>();
+
+        // Act
+        coinGeckoService.fetchAndSendCurrentData(cryptoIds, sentCoins::add);
+        coinGeckoService.fetchAndSendCurrentData(cryptoIds, sentCoins::add);
+
+        // Assert
+        verify(coinDataProcessor, times(1)).createCoinFromMarketsRow(any(JsonNode.class), any(JsonNode.class));
+        assertEquals(1, sentCoins.size());
+    }
+
     @Test
     @DisplayName("Should fetch and process historical data for multiple cryptocurrencies")
     void fetchAndSendHistoricalData_multipleCryptos() throws Exception {
@@ -135,7 +224,93 @@ class CoinGeckoServiceTest {
     }
 
     @Test
-    @DisplayName("Should handle API failures gracefully and attempt retries")
+    @DisplayName("Should serve archived history responses of past days without requests")
+    void fetchAndSendAllHistoricalData_historyArchive(@TempDir Path archiveDirectory) throws Exception {
+        // Arrange
+        coinGeckoService = new CoinGeckoService(config, httpClient, jsonProcessor, coinDataProcessor, rateLimiter, new HistoryArchive(archiveDirectory));
+        List<String> cryptoIds = Collections.singletonList("bitcoin");
+        int timeFrame = 3;
+        int pastDays = (int) Stream.iterate(LocalDate.now().minusDays(timeFrame - 1), date -> date.plusDays(1))
+                .limit(timeFrame)
+                .filter(HistoryArchive::isArchivable)
+                .count();
+
+        when(httpClient.sendGetRequest(anyString())).thenReturn("{\"id\":\"bitcoin\"}");
+        when(coinDataProcessor.parseCoinData(anyString(), anyString(), any(LocalDate.class))).thenReturn(new Coin());
+        when(config.getCoingeckoApiUrl()).thenReturn("https://api.coingecko.com/api/v3");
+        when(config.getMaxRetries()).thenReturn(3);
+        List<Coin> sentCoins = new ArrayList<>();
+
+        // Act
+        coinGeckoService.fetchAndSendAllHistoricalData(cryptoIds, timeFrame, sentCoins::add);
+        coinGeckoService.fetchAndSendAllHistoricalData(cryptoIds, timeFrame, sentCoins::add);
+
+        // Assert
+        verify(httpClient, times(2 * timeFrame - pastDays)).sendGetRequest(contains("/history"));
+        verify(rateLimiter, times(2 * timeFrame - pastDays)).acquire();
+        assertEquals(2 * timeFrame, sentCoins.size());
+    }
+
+    @Test
+    @DisplayName("Should fetch a whole date range per cryptocurrency in range mode")
+    void fetchAndSendAllHistoricalData_rangeMode() throws Exception {
+        // Arrange
+        List<String> cryptoIds = Arrays.asList("bitcoin", "ethereum");
+        int timeFrame = 30;
+
+        when(config.getCoingeckoApiUrl()).thenReturn("https://api.coingecko.com/api/v3");
+        when(config.getMaxRetries()).thenReturn(3);
+        when(config.isHistoricalRangeMode()).thenReturn(true);
+        when(httpClient.sendGetRequest(anyString())).thenReturn("{}");
+        when(jsonProcessor.parseJson(anyString())).thenAnswer(invocation -> new ObjectMapper().readTree((String) invocation.getArgument(0)));
+        when(coinDataProcessor.createCoinsFromMarketCharts(anyString(), any(JsonNode.class), anyMap(), any(LocalDate.class), any(LocalDate.class)))
+                .thenReturn(Arrays.asList(new Coin(), new Coin()));
+        List<Coin> sentCoins = new ArrayList<>();
+
+        // Act
+        coinGeckoService.fetchAndSendAllHistoricalData(cryptoIds, timeFrame, sentCoins::add);
+
+        // Assert
+        verify(httpClient, times(2)).sendGetRequest(contains("localization=false"));
+        verify(httpClient, times(8)).sendGetRequest(contains("/market_chart/range?vs_currency="));
+        verify(httpClient, never()).sendGetRequest(contains("/history"));
+        verify(coinDataProcessor).createCoinsFromMarketCharts(eq("bitcoin"), any(JsonNode.class), anyMap(),
+                eq(LocalDate.now().minusDays(timeFrame - 1)), eq(LocalDate.now()));
+        assertEquals(4, sentCoins.size());
+    }
+
+    @Test
+    @DisplayName("Should take names and symbols from the coin catalog in range mode")
+    void fetchAndSendAllHistoricalData_rangeModeWithCatalog() throws Exception {
+        // Arrange
+        CoinCatalog catalog = CoinCatalog.load(new ByteArrayInputStream(
+                "[{\"id\":\"bitcoin\",\"symbol\":\"btc\",\"name\":\"Bitcoin\"}]".getBytes(StandardCharsets.UTF_8)), null);
+        coinGeckoService = new CoinGeckoService(config, httpClient, jsonProcessor, coinDataProcessor, rateLimiter, null, catalog);
+        List<String> cryptoIds = Arrays.asList("bitcoin", "ethereum");
+        int timeFrame = 30;
+
+        when(config.getCoingeckoApiUrl()).thenReturn("https://api.coingecko.com/api/v3");
+        when(config.getMaxRetries()).thenReturn(3);
+        when(config.isHistoricalRangeMode()).thenReturn(true);
+        when(httpClient.sendGetRequest(anyString())).thenReturn("{}");
+        when(jsonProcessor.parseJson(anyString())).thenAnswer(invocation -> new ObjectMapper().readTree((String) invocation.getArgument(0)));
+        when(coinDataProcessor.createCoinsFromMarketCharts(anyString(), any(JsonNode.class), anyMap(), any(LocalDate.class), any(LocalDate.class)))
+                .thenReturn(Collections.singletonList(new Coin()));
+
+        // Act
+        coinGeckoService.fetchAndSendAllHistoricalData(cryptoIds, timeFrame, coin -> {});
+
+        // Assert
+        verify(httpClient, never()).sendGetRequest(contains("/coins/bitcoin?localization=false"));
+        verify(httpClient).sendGetRequest(contains("/coins/ethereum?localization=false"));
+        verify(httpClient, times(8)).sendGetRequest(contains("/market_chart/range?vs_currency="));
+        verify(coinDataProcessor).createCoinsFromMarketCharts(eq("bitcoin"),
+                argThat(metadata -> "Bitcoin".equals(metadata.path("name").asText()) && "btc".equals(metadata.path("symbol").asText())),
+                anyMap(), any(LocalDate.class), any(LocalDate.class));
+    }
+
+    @Test
+    @DisplayName("Should handle API failures gracefully and acquire a permit for every retry")
     void fetchAndSendCurrentData_apiFailure() throws Exception {
         // Arrange
         List<String> cryptoIds = Collections.singletonList("bitcoin");
@@ -152,7 +327,114 @@ class CoinGeckoServiceTest {
 
         // Assert
         verify(httpClient, times(3)).sendGetRequest(contains("/coins/"));
-        verify(rateLimiter, times(1)).acquire();
+        verify(rateLimiter, times(3)).acquire();
+    }
+
+    @Test
+    @DisplayName("Should acquire a permit for every attempt of a historical request")
+    void fetchAndSendAllHistoricalData_retryAcquiresPermit() throws Exception {
+        // Arrange
+        when(config.getCoingeckoApiUrl()).thenReturn("https://api.coingecko.com/api/v3");
+        when(config.getMaxRetries()).thenReturn(3);
+        when(httpClient.sendGetRequest(anyString()))
+                .thenThrow(new IOException("API Error"))
+                .thenReturn("{\"id\":\"bitcoin\"}");
+        when(coinDataProcessor.parseCoinData(anyString(), anyString(), any(LocalDate.class))).thenReturn(new Coin());
+        List<Coin> sentCoins = new ArrayList<>();
+
+        // Act
+        coinGeckoService.fetchAndSendAllHistoricalData(Collections.singletonList("bitcoin"), 1, sentCoins::add);
+
+        // Assert
+        verify(httpClient, times(2)).sendGetRequest(contains("/history"));
+        verify(rateLimiter, times(2)).acquire();
+        assertEquals(1, sentCoins.size());
+    }
+
+    @Test
+    @DisplayName("Should report throttling to the rate limiter and retry after the server's delay")
+    void fetchAndSendCurrentData_rateLimited() throws Exception {
+        // Arrange
+        List<String> cryptoIds = Collections.singletonList("bitcoin");
+        when(config.getCoingeckoApiUrl()).thenReturn("https://api.coingecko.com/api/v3");
+        when(config.getMaxRetries()).thenReturn(3);
+        when(httpClient.sendGetRequest(anyString()))
+                .thenThrow(new HttpStatusException(429, Duration.ZERO))
+                .thenReturn("{\"id\":\"bitcoin\",\"symbol\":\"btc\",\"name\":\"Bitcoin\",\"market_data\":{\"current_price\":{\"usd\":50000}}}");
+
+        // Act
+        coinGeckoService.fetchAndSendCurrentData(cryptoIds, coin -> {});
+
+        // Assert
+        verify(httpClient, times(2)).sendGetRequest(contains("/coins/"));
+        verify(rateLimiter).recordThrottled(Duration.ZERO);
+        verify(rateLimiter).recordSuccess();
+        verify(config, never()).getRateLimitDelay();
+    }
+
+    @Test
+    @DisplayName("Should give up at once on failures another attempt cannot fix")
+    void fetchAndSendCurrentData_fatalErrorIsNotRetried() throws Exception {
+        // Arrange
+        when(config.getCoingeckoApiUrl()).thenReturn("https://api.coingecko.com/api/v3");
+        when(config.getMaxRetries()).thenReturn(3);
+        when(httpClient.sendGetRequest(anyString())).thenThrow(new HttpStatusException(404, null));
+        List<Coin> sentCoins = new ArrayList<>();
+
+        // Act
+        coinGeckoService.fetchAndSendCurrentData(Collections.singletonList("unknown-coin"), sentCoins::add);
+
+        // Assert
+        verify(httpClient, times(1)).sendGetRequest(anyString());
+        verify(config, never()).getRateLimitDelay();
+        assertTrue(sentCoins.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should continue with the next coin and retry a failed coin from the retry queue")
+    void fetchAndSendCurrentData_deferredRetry() throws Exception {
+        // Arrange
+        String bitcoinResponse = "{\"id\":\"bitcoin\",\"symbol\":\"btc\",\"name\":\"Bitcoin\",\"market_data\":{\"current_price\":{\"usd\":50000}}}";
+        String ethereumResponse = "{\"id\":\"ethereum\",\"symbol\":\"eth\",\"name\":\"Ethereum\",\"market_data\":{\"current_price\":{\"usd\":3000}}}";
+        when(config.getCoingeckoApiUrl()).thenReturn("https://api.coingecko.com/api/v3");
+        when(config.getMaxRetries()).thenReturn(3);
+        when(config.isDeferredRetries()).thenReturn(true);
+        when(httpClient.sendGetRequest(contains("/coins/bitcoin")))
+                .thenThrow(new HttpStatusException(429, Duration.ofMillis(100)))
+                .thenReturn(bitcoinResponse);
+        when(httpClient.sendGetRequest(contains("/coins/ethereum"))).thenReturn(ethereumResponse);
+        when(jsonProcessor.parseJson(anyString())).thenAnswer(invocation -> new ObjectMapper().readTree((String) invocation.getArgument(0)));
+        when(coinDataProcessor.createCoinFromJsonNode(anyString(), any(JsonNode.class))).thenReturn(new Coin());
+        List<Coin> sentCoins = new ArrayList<>();
+
+        // Act
+        coinGeckoService.fetchAndSendCurrentData(Arrays.asList("bitcoin", "ethereum"), sentCoins::add);
+
+        // Assert
+        InOrder requests = inOrder(httpClient);
+        requests.verify(httpClient).sendGetRequest(contains("/coins/bitcoin"));
+        requests.verify(httpClient).sendGetRequest(contains("/coins/ethereum"));
+        requests.verify(httpClient).sendGetRequest(contains("/coins/bitcoin"));
+        assertEquals(2, sentCoins.size());
+        verify(rateLimiter, times(3)).acquire();
+        verify(config, never()).getRateLimitDelay();
+    }
+
+    @Test
+    @DisplayName("Should not fetch again when sending a fetched coin to the backend fails")
+    void fetchAndSendCurrentData_sendFailureIsNotRetried() throws Exception {
+        // Arrange
+        when(config.getCoingeckoApiUrl()).thenReturn("https://api.coingecko.com/api/v3");
+        when(config.getMaxRetries()).thenReturn(3);
+        when(httpClient.sendGetRequest(anyString())).thenReturn("{\"id\":\"bitcoin\"}");
+        when(jsonProcessor.parseJson(anyString())).thenReturn(new ObjectMapper().readTree("{\"id\":\"bitcoin\"}"));
+        when(coinDataProcessor.createCoinFromJsonNode(eq("bitcoin"), any(JsonNode.class))).thenReturn(new Coin());
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> coinGeckoService.fetchAndSendCurrentData(Collections.singletonList("bitcoin"), coin -> {
+            throw new IllegalStateException("Backend down");
+        }));
+        verify(httpClient, times(1)).sendGetRequest(anyString());
     }
 
     @Test
@@ -201,6 +483,21 @@ class CoinGeckoServiceTest {
                 "Start date should be 365 days before current date when last valid date is null");
     }
 
+    @Test
+    @DisplayName("Should tag requests with the endpoint path and a placeholder for the coin ID")
+    void endpointOf_shouldReplaceCoinId() {
+        // Arrange
+        String apiUrl = "https://api.coingecko.com/api/v3";
+        when(config.getCoingeckoApiUrl()).thenReturn(apiUrl);
+
+        // Act & Assert
+        assertEquals("/coins/{id}", coinGeckoService.endpointOf(apiUrl + "/coins/bitcoin"));
+        assertEquals("/coins/{id}/history", coinGeckoService.endpointOf(apiUrl + "/coins/bitcoin/history?date=14-03-2024"));
+        assertEquals("/coins/{id}/market_chart/range", coinGeckoService.endpointOf(apiUrl + "/coins/bitcoin/market_chart/range?vs_currency=usd"));
+        assertEquals("/coins/markets", coinGeckoService.endpointOf(apiUrl + "/coins/markets?vs_currency=usd&ids=bitcoin,ethereum"));
+        assertEquals("/simple/price", coinGeckoService.endpointOf(apiUrl + "/simple/price?ids=bitcoin"));
+    }
+
     private void setupMocks(String apiUrl, String bitcoinResponse, String ethereumResponse) throws Exception {
         when(config.getCoingeckoApiUrl()).thenReturn(apiUrl);
         when(config.getMaxRetries()).thenReturn(3);
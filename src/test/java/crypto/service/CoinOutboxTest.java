@@ -0,0 +1,116 @@
+package crypto.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sam.coin.domain.model.Coin;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoinOutboxTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Should deliver coins in order and resume after the last delivered coin when reopened")
+    void drain_shouldResumeAfterLastDeliveredCoin() throws Exception {
+        // Arrange
+        try (CoinOutbox outbox = CoinOutbox.open(tempDir, objectMapper, 1024)) {
+            for (String coinId : List.of("bitcoin", "ethereum", "cardano")) {
+                outbox.append(coin(coinId));
+            }
+        }
+        List<String> delivered = new ArrayList<>();
+
+        // Act
+        try (CoinOutbox outbox = CoinOutbox.open(tempDir, objectMapper, 1024)) {
+            assertEquals(1, outbox.drain(coin -> delivered.add(coin.getCoinId()) && delivered.size() < 2, 10));
+        }
+        try (CoinOutbox outbox = CoinOutbox.open(tempDir, objectMapper, 1024)) {
+            assertEquals(2, outbox.drain(coin -> delivered.add(coin.getCoinId()), 10));
+
+            // Assert
+            assertFalse(outbox.hasPending());
+        }
+        assertEquals(List.of("bitcoin", "ethereum", "ethereum", "cardano"), delivered);
+    }
+
+    @Test
+    @DisplayName("Should delete fully delivered segments")
+    void drain_shouldDeleteDeliveredSegments() throws Exception {
+        try (CoinOutbox outbox = CoinOutbox.open(tempDir, objectMapper, 1)) {
+            // Arrange
+            outbox.append(coin("bitcoin"));
+            outbox.append(coin("ethereum"));
+            assertEquals(3, segmentCount());
+
+            // Act
+            int delivered = outbox.drain(coin -> true, 10);
+
+            // Assert
+            assertEquals(2, delivered);
+            assertEquals(1, segmentCount());
+        }
+    }
+
+    @Test
+    @DisplayName("Should discard a record torn by a crash and keep appending after the last complete one")
+    void open_shouldDiscardTornRecord() throws Exception {
+        // Arrange
+        try (CoinOutbox outbox = CoinOutbox.open(tempDir, objectMapper, 1024)) {
+            outbox.append(coin("bitcoin"));
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(tempDir)) {
+            segment = files.filter(path -> path.getFileName().toString().endsWith(".log")).findFirst().orElseThrow();
+        }
+        Files.write(segment, new byte[] {0, 0, 0, 42, 1, 2, 3}, StandardOpenOption.APPEND);
+        List<String> delivered = new ArrayList<>();
+
+        // Act
+        try (CoinOutbox outbox = CoinOutbox.open(tempDir, objectMapper, 1024)) {
+            outbox.append(coin("ethereum"));
+            outbox.drain(coin -> delivered.add(coin.getCoinId()), 10);
+        }
+
+        // Assert
+        assertEquals(List.of("bitcoin", "ethereum"), delivered);
+    }
+
+    @Test
+    @DisplayName("Should refuse to open a directory used by another outbox until it is closed")
+    void open_shouldRejectLockedDirectory() throws Exception {
+        // Arrange
+        try (CoinOutbox outbox = CoinOutbox.open(tempDir, objectMapper, 1024)) {
+            // Act & Assert
+            assertThrows(IOException.class, () -> CoinOutbox.open(tempDir, objectMapper, 1024));
+        }
+        try (CoinOutbox outbox = CoinOutbox.open(tempDir, objectMapper, 1024)) {
+            assertFalse(outbox.hasPending());
+        }
+    }
+
+    private long segmentCount() throws Exception {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".log")).count();
+        }
+    }
+
+    private Coin coin(String coinId) {
+        Coin coin = new Coin();
+        coin.setCoinId(coinId);
+        return coin;
+    }
+}
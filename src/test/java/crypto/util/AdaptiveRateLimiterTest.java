@@ -0,0 +1,85 @@
+package crypto.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveRateLimiterTest {
+
+    private AtomicLong clock;
+
+    @BeforeEach
+    void setUp() {
+        clock = new AtomicLong(TimeUnit.SECONDS.toNanos(100));
+    }
+
+    @Test
+    @DisplayName("Should halve the rate when throttled and never exceed the maximum delay")
+    void recordThrottled_shouldBackOffMultiplicatively() {
+        // Arrange
+        AdaptiveRateLimiter rateLimiter = new AdaptiveRateLimiter(5000, 1000, 15000, 1, clock::get);
+
+        // Act
+        rateLimiter.recordThrottled(null);
+        long afterFirstThrottle = rateLimiter.getRefillIntervalMs();
+        rateLimiter.recordThrottled(null);
+
+        // Assert
+        assertEquals(10000, afterFirstThrottle);
+        assertEquals(15000, rateLimiter.getRefillIntervalMs());
+    }
+
+    @Test
+    @DisplayName("Should raise the rate additively on success down to the minimum delay")
+    void recordSuccess_shouldProbeUpwardAdditively() {
+        // Arrange
+        AdaptiveRateLimiter rateLimiter = new AdaptiveRateLimiter(6000, 1000, 60000, 1, clock::get);
+
+        // Act
+        rateLimiter.recordSuccess();
+
+        // Assert
+        assertEquals(5714, rateLimiter.getRefillIntervalMs());
+
+        for (int i = 0; i < 1000; i++) {
+            rateLimiter.recordSuccess();
+        }
+        assertEquals(1000, rateLimiter.getRefillIntervalMs());
+    }
+
+    @Test
+    @DisplayName("Should hand out no permit before the server's Retry-After has elapsed")
+    void recordThrottled_shouldHonourRetryAfter() {
+        // Arrange
+        AdaptiveRateLimiter rateLimiter = new AdaptiveRateLimiter(1000, 1000, 60000, 3, clock::get);
+
+        // Act
+        rateLimiter.recordThrottled(Duration.ofSeconds(30));
+
+        // Assert
+        assertFalse(rateLimiter.tryAcquire());
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(29));
+        assertFalse(rateLimiter.tryAcquire());
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertTrue(rateLimiter.tryAcquire());
+    }
+
+    @Test
+    @DisplayName("Should parse Retry-After values given in seconds or as an HTTP date")
+    void parseRetryAfter_shouldSupportSecondsAndHttpDate() {
+        // Arrange
+        Instant now = Instant.parse("2024-09-17T10:00:00Z");
+
+        // Act & Assert
+        assertEquals(Duration.ofSeconds(60), HttpStatusException.parseRetryAfter("60", now).orElseThrow());
+        assertEquals(Duration.ofSeconds(90), HttpStatusException.parseRetryAfter("Tue, 17 Sep 2024 10:01:30 GMT", now).orElseThrow());
+        assertTrue(HttpStatusException.parseRetryAfter("soon", now).isEmpty());
+    }
+}
@@ -0,0 +1,77 @@
+package crypto.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckpointStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Should keep the latest delivered date per coin across reopening the file")
+    void recordDelivered_shouldPersistLatestDate() throws Exception {
+        // Arrange
+        Path file = tempDir.resolve("checkpoints.dat");
+
+        // Act
+        try (CheckpointStore store = CheckpointStore.open(file, 4)) {
+            store.recordDelivered("bitcoin", LocalDate.of(2024, 1, 2));
+            store.recordDelivered("bitcoin", LocalDate.of(2024, 1, 1));
+            store.recordDelivered("ethereum", LocalDate.of(2023, 12, 31));
+        }
+
+        // Assert
+        try (CheckpointStore store = CheckpointStore.open(file, 4)) {
+            assertEquals(Optional.of(LocalDate.of(2024, 1, 2)), store.getLastDelivered("bitcoin"));
+            assertEquals(Optional.empty(), store.getLastDelivered("cardano"));
+            assertEquals(Map.of("bitcoin", LocalDate.of(2024, 1, 2), "ethereum", LocalDate.of(2023, 12, 31)), store.getAllLastDelivered());
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject new coins once every slot is taken")
+    void recordDelivered_shouldRejectCoinsBeyondCapacity() throws Exception {
+        try (CheckpointStore store = CheckpointStore.open(tempDir.resolve("checkpoints.dat"), 1)) {
+            store.recordDelivered("bitcoin", LocalDate.of(2024, 1, 2));
+            assertThrows(IllegalStateException.class, () -> store.recordDelivered("ethereum", LocalDate.of(2024, 1, 2)));
+        }
+    }
+
+    @Test
+    @DisplayName("Should refuse to open a file that is not a checkpoint file")
+    void open_shouldRejectForeignFile() throws Exception {
+        // Arrange
+        Path file = tempDir.resolve("other.dat");
+        Files.writeString(file, "{\"not\":\"a checkpoint file\"}");
+
+        // Act & Assert
+        assertThrows(IOException.class, () -> CheckpointStore.open(file, 4));
+    }
+
+    @Test
+    @DisplayName("Should refuse to open a file used by another store until it is closed")
+    void open_shouldRejectLockedFile() throws Exception {
+        // Arrange
+        Path file = tempDir.resolve("checkpoints.dat");
+        try (CheckpointStore store = CheckpointStore.open(file, 4)) {
+            store.recordDelivered("bitcoin", LocalDate.of(2024, 1, 1));
+
+            // Act & Assert
+            assertThrows(IOException.class, () -> CheckpointStore.open(file, 4));
+        }
+        try (CheckpointStore store = CheckpointStore.open(file, 4)) {
+            assertEquals(Optional.of(LocalDate.of(2024, 1, 1)), store.getLastDelivered("bitcoin"));
+        }
+    }
+}
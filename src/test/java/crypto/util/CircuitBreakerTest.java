@@ -0,0 +1,100 @@
+package crypto.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private static final long OPEN_MS = 1000;
+
+    private final AtomicLong clock = new AtomicLong();
+    private final CircuitBreaker breaker = new CircuitBreaker("api.coingecko.com", 3, OPEN_MS, 4 * OPEN_MS, clock::get);
+
+    @Test
+    @DisplayName("Should open after consecutive failures and fail fast until the open time has elapsed")
+    void onFailure_shouldOpenAfterThreshold() throws Exception {
+        // Arrange
+        breaker.acquire();
+        breaker.onFailure();
+        breaker.acquire();
+        breaker.onSuccess();
+
+        // Act
+        for (int i = 0; i < 3; i++) {
+            breaker.acquire();
+            breaker.onFailure();
+        }
+
+        // Assert
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        CircuitOpenException e = assertThrows(CircuitOpenException.class, breaker::acquire);
+        assertEquals(OPEN_MS, e.getRemainingOpen().toMillis());
+        advance(OPEN_MS - 1);
+        assertThrows(CircuitOpenException.class, breaker::acquire);
+    }
+
+    @Test
+    @DisplayName("Should let a single probe through when half-open and close when it succeeds")
+    void acquire_shouldProbeOnceWhenHalfOpen() throws Exception {
+        // Arrange
+        open();
+        advance(OPEN_MS);
+
+        // Act
+        breaker.acquire();
+
+        // Assert
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertThrows(CircuitOpenException.class, breaker::acquire);
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.acquire();
+    }
+
+    @Test
+    @DisplayName("Should stay open twice as long after a failed probe, up to the maximum")
+    void onFailure_shouldDoubleOpenTimeAfterFailedProbe() throws Exception {
+        // Arrange
+        open();
+
+        // Act & Assert
+        for (long openMs : new long[] {2 * OPEN_MS, 4 * OPEN_MS, 4 * OPEN_MS}) {
+            advance(OPEN_MS * 4);
+            breaker.acquire();
+            breaker.onFailure();
+            assertEquals(openMs, assertThrows(CircuitOpenException.class, breaker::acquire).getRemainingOpen().toMillis());
+        }
+    }
+
+    @Test
+    @DisplayName("Should free the probe when it is cancelled")
+    void onCancel_shouldReleaseProbe() throws Exception {
+        // Arrange
+        open();
+        advance(OPEN_MS);
+        breaker.acquire();
+
+        // Act
+        breaker.onCancel();
+
+        // Assert
+        breaker.acquire();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    }
+
+    private void open() throws CircuitOpenException {
+        for (int i = 0; i < 3; i++) {
+            breaker.acquire();
+            breaker.onFailure();
+        }
+    }
+
+    private void advance(long millis) {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
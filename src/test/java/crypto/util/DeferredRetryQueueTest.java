@@ -0,0 +1,68 @@
+package crypto.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeferredRetryQueueTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final DeferredRetryQueue<String> queue = new DeferredRetryQueue<>(clock::get);
+
+    @Test
+    @DisplayName("Should hand out a deferred request only once its delay has elapsed")
+    void pollDue_shouldWaitForDelay() {
+        // Arrange
+        queue.defer("bitcoin", 1, 1000);
+
+        // Act
+        DeferredRetryQueue.Retry<String> early = queue.pollDue();
+        advance(1000);
+        DeferredRetryQueue.Retry<String> due = queue.pollDue();
+
+        // Assert
+        assertNull(early);
+        assertEquals("bitcoin", due.getRequest());
+        assertEquals(1, due.getRetryCount());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should hand out due retries by due time, and retries due together in the order they were deferred")
+    void pollDue_shouldOrderByDueTime() {
+        // Arrange
+        queue.defer("ethereum", 1, 2000);
+        queue.defer("bitcoin", 2, 500);
+        queue.defer("cardano", 1, 2000);
+        queue.defer("solana", 1, 5000);
+        advance(2000);
+
+        // Act & Assert
+        assertEquals("bitcoin", queue.pollDue().getRequest());
+        assertEquals("ethereum", queue.pollDue().getRequest());
+        assertEquals("cardano", queue.pollDue().getRequest());
+        assertNull(queue.pollDue());
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    @DisplayName("Should treat a negative delay as due at once")
+    void defer_negativeDelayIsDueAtOnce() {
+        // Arrange
+        queue.defer("bitcoin", 1, -1);
+
+        // Act
+        DeferredRetryQueue.Retry<String> due = queue.pollDue();
+
+        // Assert
+        assertEquals("bitcoin", due.getRequest());
+    }
+
+    private void advance(long millis) {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+}
@@ -0,0 +1,95 @@
+package crypto.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistoryArchiveTest {
+
+    private static final LocalDate PAST_DAY = LocalDate.of(2024, 3, 1);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("Should load archived responses and store identical responses only once")
+    void store_shouldArchiveResponsesByContent() throws Exception {
+        // Arrange
+        HistoryArchive archive = new HistoryArchive(tempDir);
+        byte[] response = "{\"id\":\"bitcoin\"}".getBytes(StandardCharsets.UTF_8);
+
+        // Act
+        assertTrue(archive.store("bitcoin", PAST_DAY.plusDays(1), response));
+        assertTrue(archive.store("bitcoin", PAST_DAY, response));
+
+        // Assert
+        assertArrayEquals(response, archive.load("bitcoin", PAST_DAY));
+        assertNull(archive.load("bitcoin", PAST_DAY.minusDays(1)));
+        assertNull(archive.load("ethereum", PAST_DAY));
+        assertEquals(List.of(PAST_DAY, PAST_DAY.plusDays(1)), archive.getDates("bitcoin"));
+        assertEquals(1, countFiles(tempDir.resolve("objects")));
+    }
+
+    @Test
+    @DisplayName("Should not archive the current day, whose data may still change")
+    void store_shouldSkipCurrentDay() throws Exception {
+        // Arrange
+        HistoryArchive archive = new HistoryArchive(tempDir);
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+
+        // Act
+        boolean stored = archive.store("bitcoin", today, new byte[] {'{', '}'});
+
+        // Assert
+        assertFalse(stored);
+        assertNull(archive.load("bitcoin", today));
+    }
+
+    @Test
+    @DisplayName("Should treat a response that no longer matches its hash as missing")
+    void load_shouldRejectCorruptResponse() throws Exception {
+        // Arrange
+        HistoryArchive archive = new HistoryArchive(tempDir);
+        archive.store("bitcoin", PAST_DAY, "{\"id\":\"bitcoin\"}".getBytes(StandardCharsets.UTF_8));
+        Path object;
+        try (Stream<Path> files = Files.walk(tempDir.resolve("objects"))) {
+            object = files.filter(Files::isRegularFile).findFirst().orElseThrow();
+        }
+        HistoryArchive other = new HistoryArchive(tempDir.resolve("other"));
+        other.store("ethereum", PAST_DAY, "{\"id\":\"ethereum\"}".getBytes(StandardCharsets.UTF_8));
+        try (Stream<Path> files = Files.walk(tempDir.resolve("other").resolve("objects"))) {
+            Files.copy(files.filter(Files::isRegularFile).findFirst().orElseThrow(), object, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        // Act
+        byte[] loaded = archive.load("bitcoin", PAST_DAY);
+
+        // Assert
+        assertNull(loaded);
+    }
+
+    @Test
+    @DisplayName("Should reject coin IDs that are not safe as directory names")
+    void store_shouldRejectUnsafeCoinId() {
+        HistoryArchive archive = new HistoryArchive(tempDir);
+
+        assertThrows(IllegalArgumentException.class, () -> archive.store("../bitcoin", PAST_DAY, new byte[] {'{', '}'}));
+    }
+
+    private long countFiles(Path directory) throws Exception {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package crypto.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HttpClientWrapperTest {
+
+    private static final String URL = "https://api.coingecko.com/api/v3/coins/bitcoin";
+
+    @Mock
+    private HttpClient httpClient;
+
+    @Test
+    @DisplayName("Should request a cached URL conditionally and serve the cached body on 304 Not Modified")
+    @SuppressWarnings("unchecked")
+    void sendGetRequest_shouldServeCachedBodyWhenNotModified() throws Exception {
+        // Arrange
+        HttpResponse<String> full = response(200, "{\"id\":\"bitcoin\"}", Map.of("ETag", List.of("\"v1\"")));
+        HttpResponse<String> notModified = response(304, "", Map.of());
+        doReturn(full, notModified).when(httpClient).send(any(HttpRequest.class), any());
+        HttpClientWrapper wrapper = new HttpClientWrapper(httpClient, 8);
+
+        // Act
+        String first = wrapper.sendGetRequest(URL);
+        String second = wrapper.sendGetRequest(URL);
+
+        // Assert
+        assertEquals("{\"id\":\"bitcoin\"}", first);
+        assertEquals(first, second);
+        ArgumentCaptor<HttpRequest> requests = ArgumentCaptor.forClass(HttpRequest.class);
+        verify(httpClient, times(2)).send(requests.capture(), any());
+        assertEquals(Optional.empty(), requests.getAllValues().get(0).headers().firstValue("If-None-Match"));
+        assertEquals(Optional.of("\"v1\""), requests.getAllValues().get(1).headers().firstValue("If-None-Match"));
+    }
+
+    @Test
+    @DisplayName("Should not cache a streamed body that the parser closed before reading it to the end")
+    @SuppressWarnings("unchecked")
+    void sendGetRequestForStream_shouldNotCacheBodyClosedBeforeEnd() throws Exception {
+        // Arrange
+        String body = "{\"id\":\"bitcoin\",\"market_data\":{\"current_price\":{\"usd\":50000}}}\n";
+        InputStream received = spy(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+        HttpResponse<InputStream> full = mock(HttpResponse.class);
+        when(full.statusCode()).thenReturn(200);
+        when(full.body()).thenReturn(received);
+        when(full.headers()).thenReturn(HttpHeaders.of(Map.of("ETag", List.of("\"v1\"")), (name, value) -> true));
+        doReturn(full).when(httpClient).send(any(HttpRequest.class), any());
+        HttpClientWrapper wrapper = new HttpClientWrapper(httpClient, 8);
+
+        // Act
+        try (JsonParser parser = new JsonFactory().createParser(wrapper.sendGetRequestForStream(URL))) {
+            assertEquals(JsonToken.START_OBJECT, parser.nextToken());
+            parser.skipChildren();
+        }
+        wrapper.sendGetRequestForStream(URL).close();
+
+        // Assert
+        verify(received, atLeastOnce()).close();
+        ArgumentCaptor<HttpRequest> requests = ArgumentCaptor.forClass(HttpRequest.class);
+        verify(httpClient, times(2)).send(requests.capture(), any());
+        assertEquals(Optional.empty(), requests.getAllValues().get(1).headers().firstValue("If-None-Match"));
+    }
+
+    @Test
+    @DisplayName("Should not cache responses of excluded URLs or bodies over the size limit")
+    @SuppressWarnings("unchecked")
+    void sendGetRequest_shouldNotCacheExcludedOrLargeResponses() throws Exception {
+        // Arrange
+        String historyUrl = URL + "/history?date=01-01-2024";
+        String largeBody = "\"" + "x".repeat(HttpClientWrapper.MAX_CACHED_BODY_BYTES) + "\"";
+        HttpResponse<String> history = response(200, "{}", Map.of("ETag", List.of("\"v1\"")));
+        HttpResponse<String> large = response(200, largeBody, Map.of("ETag", List.of("\"v2\"")));
+        doReturn(history, history, large, large).when(httpClient).send(any(HttpRequest.class), any());
+        HttpClientWrapper wrapper = new HttpClientWrapper(httpClient, 8, null, url -> !url.contains("/history?"));
+
+        // Act
+        wrapper.sendGetRequest(historyUrl);
+        wrapper.sendGetRequest(historyUrl);
+        wrapper.sendGetRequest(URL);
+        String second = wrapper.sendGetRequest(URL);
+
+        // Assert
+        assertEquals(largeBody, second);
+        ArgumentCaptor<HttpRequest> requests = ArgumentCaptor.forClass(HttpRequest.class);
+        verify(httpClient, times(4)).send(requests.capture(), any());
+        assertTrue(requests.getAllValues().stream().noneMatch(request -> request.headers().firstValue("If-None-Match").isPresent()));
+    }
+
+    @Test
+    @DisplayName("Should not send validators when the cache is disabled")
+    @SuppressWarnings("unchecked")
+    void sendGetRequest_shouldNotCacheWhenDisabled() throws Exception {
+        // Arrange
+        HttpResponse<String> full = response(200, "{}", Map.of("ETag", List.of("\"v1\"")));
+        doReturn(full).when(httpClient).send(any(HttpRequest.class), any());
+        HttpClientWrapper wrapper = new HttpClientWrapper(httpClient);
+
+        // Act
+        wrapper.sendGetRequest(URL);
+        wrapper.sendGetRequest(URL);
+
+        // Assert
+        ArgumentCaptor<HttpRequest> requests = ArgumentCaptor.forClass(HttpRequest.class);
+        verify(httpClient, times(2)).send(requests.capture(), any());
+        assertTrue(requests.getAllValues().stream().noneMatch(request -> request.headers().firstValue("If-None-Match").isPresent()));
+    }
+
+    @Test
+    @DisplayName("Should fail fast without sending requests while the circuit of the host is open")
+    @SuppressWarnings("unchecked")
+    void sendGetRequest_shouldFailFastWhileCircuitIsOpen() throws Exception {
+        // Arrange
+        HttpResponse<String> serverError = response(502, "Bad Gateway", Map.of());
+        doReturn(serverError).when(httpClient).send(any(HttpRequest.class), any());
+        HttpClientWrapper wrapper = new HttpClientWrapper(httpClient, 0, new CircuitBreakers(2, 60_000, 60_000));
+
+        // Act
+        HttpStatusException first = assertThrows(HttpStatusException.class, () -> wrapper.sendGetRequest(URL));
+        HttpStatusException second = assertThrows(HttpStatusException.class, () -> wrapper.sendGetRequest(URL));
+        CircuitOpenException third = assertThrows(CircuitOpenException.class, () -> wrapper.sendGetRequest(URL));
+
+        // Assert
+        assertEquals(502, first.getStatusCode());
+        assertEquals(502, second.getStatusCode());
+        assertEquals("api.coingecko.com", third.getHost());
+        verify(httpClient, times(2)).send(any(HttpRequest.class), any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private HttpResponse<String> response(int statusCode, String body, Map<String, List<String>> headers) {
+        HttpResponse<String> response = mock(HttpResponse.class);
+        lenient().when(response.statusCode()).thenReturn(statusCode);
+        lenient().when(response.body()).thenReturn(body);
+        lenient().when(response.headers()).thenReturn(HttpHeaders.of(headers, (name, value) -> true));
+        return response;
+    }
+}
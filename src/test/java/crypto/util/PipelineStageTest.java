@@ -0,0 +1,70 @@
+package crypto.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipelineStageTest {
+
+    @Test
+    @DisplayName("Should process every queued item before close returns and count failures")
+    void close_shouldDrainQueue() {
+        // Arrange
+        List<Integer> handled = new CopyOnWriteArrayList<>();
+        PipelineStage<Integer> stage = new PipelineStage<>("test", 2, 4, item -> {
+            if (item == 3) {
+                throw new IllegalStateException("Backend down");
+            }
+            handled.add(item);
+        });
+
+        // Act
+        for (int i = 0; i < 20; i++) {
+            stage.accept(i);
+        }
+        stage.close();
+
+        // Assert
+        assertEquals(19, handled.size());
+        assertEquals(19, stage.getProcessed());
+        assertEquals(1, stage.getFailed());
+        assertThrows(IllegalStateException.class, () -> stage.accept(21));
+    }
+
+    @Test
+    @DisplayName("Should block producers while the queue is full")
+    void accept_shouldApplyBackpressure() throws Exception {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        PipelineStage<Integer> stage = new PipelineStage<>("test", 1, 1, item -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        stage.accept(1);
+        while (stage.getQueueDepth() > 0) {
+            Thread.onSpinWait();
+        }
+        stage.accept(2);
+
+        // Act
+        CompletableFuture<Void> blocked = CompletableFuture.runAsync(() -> stage.accept(3));
+
+        // Assert
+        assertThrows(Exception.class, () -> blocked.get(100, TimeUnit.MILLISECONDS));
+        release.countDown();
+        blocked.get(2, TimeUnit.SECONDS);
+        stage.close();
+        assertEquals(3, stage.getProcessed());
+        assertTrue(stage.getBlockedMillis() > 0);
+    }
+}
@@ -0,0 +1,78 @@
+package crypto.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    private static final long INTERVAL_MS = 1000;
+
+    private AtomicLong clock;
+
+    @BeforeEach
+    void setUp() {
+        clock = new AtomicLong(TimeUnit.SECONDS.toNanos(100));
+    }
+
+    @Test
+    @DisplayName("Should grant the full burst immediately and refuse further permits")
+    void tryAcquire_shouldGrantBurst() {
+        // Arrange
+        RateLimiter rateLimiter = new RateLimiter(INTERVAL_MS, 3, clock::get);
+
+        // Act & Assert
+        assertTrue(rateLimiter.tryAcquire());
+        assertTrue(rateLimiter.tryAcquire());
+        assertTrue(rateLimiter.tryAcquire());
+        assertFalse(rateLimiter.tryAcquire());
+    }
+
+    @Test
+    @DisplayName("Should refill one permit per interval up to the burst capacity")
+    void tryAcquire_shouldRefillOverTime() {
+        // Arrange
+        RateLimiter rateLimiter = new RateLimiter(INTERVAL_MS, 2, clock::get);
+        assertTrue(rateLimiter.tryAcquire());
+        assertTrue(rateLimiter.tryAcquire());
+
+        // Act
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(INTERVAL_MS));
+
+        // Assert
+        assertTrue(rateLimiter.tryAcquire());
+        assertFalse(rateLimiter.tryAcquire());
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(INTERVAL_MS * 10));
+        assertTrue(rateLimiter.tryAcquire());
+        assertTrue(rateLimiter.tryAcquire());
+        assertFalse(rateLimiter.tryAcquire());
+    }
+
+    @Test
+    @DisplayName("Should not consume a permit when the timed acquire would exceed its timeout")
+    void acquire_shouldTimeOutWithoutConsumingPermit() throws Exception {
+        // Arrange
+        RateLimiter rateLimiter = new RateLimiter(INTERVAL_MS, 1, clock::get);
+        assertTrue(rateLimiter.tryAcquire());
+
+        // Act
+        boolean acquired = rateLimiter.acquire(INTERVAL_MS / 2, TimeUnit.MILLISECONDS);
+
+        // Assert
+        assertFalse(acquired);
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(INTERVAL_MS));
+        assertTrue(rateLimiter.tryAcquire());
+    }
+
+    @Test
+    @DisplayName("Should reject invalid burst capacities")
+    void constructor_shouldRejectInvalidBurst() {
+        assertThrows(IllegalArgumentException.class, () -> new RateLimiter(INTERVAL_MS, 0));
+    }
+}
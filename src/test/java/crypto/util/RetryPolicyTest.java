@@ -0,0 +1,68 @@
+package crypto.util;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetryPolicyTest {
+
+    @Test
+    @DisplayName("Should retry only failures that may go away on another attempt")
+    void isRetryable_shouldClassifyFailures() {
+        // Arrange
+        RetryPolicy policy = new RetryPolicy(() -> 3, () -> 1000, () -> 0);
+
+        // Act & Assert
+        assertTrue(policy.isRetryable(new IOException("Connection reset")));
+        assertTrue(policy.isRetryable(new HttpStatusException(429, null)));
+        assertTrue(policy.isRetryable(new HttpStatusException(502, null)));
+        assertTrue(policy.isRetryable(new HttpStatusException(408, null)));
+        assertFalse(policy.isRetryable(new HttpStatusException(404, null)));
+        assertFalse(policy.isRetryable(new JsonParseException(null, "Unexpected character")));
+        assertFalse(policy.isRetryable(new CircuitOpenException("api.coingecko.com", Duration.ofSeconds(1))));
+        assertFalse(policy.isRetryable(new IllegalStateException("Unexpected response")));
+    }
+
+    @Test
+    @DisplayName("Should grow the backoff bound exponentially up to the maximum and draw the delay below it")
+    void backoffMs_shouldGrowExponentiallyWithJitter() {
+        // Arrange
+        RetryPolicy upperBound = new RetryPolicy(() -> 10, () -> 1000, () -> 5000, () -> 0.999);
+        RetryPolicy lowerBound = new RetryPolicy(() -> 10, () -> 1000, () -> 5000, () -> 0.0);
+
+        // Act & Assert
+        assertEquals(999, upperBound.backoffMs(null, 0));
+        assertEquals(1998, upperBound.backoffMs(null, 1));
+        assertEquals(3996, upperBound.backoffMs(null, 2));
+        assertEquals(4995, upperBound.backoffMs(null, 3));
+        assertEquals(4995, upperBound.backoffMs(null, 70));
+        assertEquals(0, lowerBound.backoffMs(null, 2));
+        assertEquals(7000, upperBound.backoffMs(Duration.ofSeconds(7), 0));
+    }
+
+    @Test
+    @DisplayName("Should stop retrying after the last attempt and when the retry budget is spent")
+    void shouldRetry_shouldRespectAttemptsAndBudget() {
+        // Arrange
+        RetryPolicy policy = new RetryPolicy(() -> 3, () -> 0, () -> 0);
+        IOException failure = new IOException("Connection reset");
+
+        // Act & Assert
+        assertTrue(policy.shouldRetry(failure, 1));
+        assertFalse(policy.shouldRetry(failure, 2));
+        while (policy.getRemainingBudget() > 0) {
+            assertTrue(policy.shouldRetry(failure, 0));
+        }
+        assertFalse(policy.shouldRetry(failure, 0));
+        for (int i = 0; i < 5; i++) {
+            policy.recordRequest();
+        }
+        assertTrue(policy.shouldRetry(failure, 0));
+        assertFalse(policy.shouldRetry(failure, 0));
+    }
+}
@@ -0,0 +1,79 @@
+package crypto.util;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SharedFileRateLimiterTest {
+
+    private static final long INTERVAL_MS = 1000;
+
+    @TempDir
+    Path directory;
+
+    private AtomicLong clock;
+
+    @BeforeEach
+    void setUp() {
+        clock = new AtomicLong(TimeUnit.SECONDS.toNanos(1_700_000_000L));
+    }
+
+    @Test
+    @DisplayName("Should grant one burst to all limiters sharing a file")
+    void tryAcquire_shouldShareBurst() throws IOException {
+        // Arrange
+        Path stateFile = directory.resolve("ratelimit.dat");
+        SharedFileRateLimiter first = new SharedFileRateLimiter(stateFile, INTERVAL_MS, 2, clock::get);
+        SharedFileRateLimiter second = new SharedFileRateLimiter(stateFile, INTERVAL_MS, 2, clock::get);
+
+        // Act & Assert
+        assertTrue(first.tryAcquire());
+        assertTrue(second.tryAcquire());
+        assertFalse(first.tryAcquire());
+        assertFalse(second.tryAcquire());
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(INTERVAL_MS));
+        assertTrue(second.tryAcquire());
+        assertFalse(first.tryAcquire());
+    }
+
+    @Test
+    @DisplayName("Should hold back all limiters sharing a file after a server pause")
+    void recordThrottled_shouldPauseAllLimiters() throws IOException {
+        // Arrange
+        Path stateFile = directory.resolve("ratelimit.dat");
+        SharedFileRateLimiter first = new SharedFileRateLimiter(stateFile, INTERVAL_MS, 1, clock::get);
+        SharedFileRateLimiter second = new SharedFileRateLimiter(stateFile, INTERVAL_MS, 1, clock::get);
+
+        // Act
+        first.recordThrottled(Duration.ofSeconds(10));
+
+        // Assert
+        assertFalse(second.tryAcquire());
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        assertTrue(second.tryAcquire());
+    }
+
+    @Test
+    @DisplayName("Should keep the budget spent before a limiter is reopened")
+    void tryAcquire_shouldKeepStateAcrossInstances() throws IOException {
+        // Arrange
+        Path stateFile = directory.resolve("nested").resolve("ratelimit.dat");
+        SharedFileRateLimiter first = new SharedFileRateLimiter(stateFile, INTERVAL_MS, 1, clock::get);
+        assertTrue(first.tryAcquire());
+
+        // Act
+        SharedFileRateLimiter reopened = new SharedFileRateLimiter(stateFile, INTERVAL_MS, 1, clock::get);
+
+        // Assert
+        assertFalse(reopened.tryAcquire());
+    }
+}